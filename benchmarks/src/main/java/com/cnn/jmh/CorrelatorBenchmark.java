@@ -0,0 +1,63 @@
+package com.cnn.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cnn.Correlator;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CorrelatorBenchmark {
+
+    @Param({ "28", "64" })
+    public int inputSize;
+
+    @Param({ "3", "5" })
+    public int kernelSize;
+
+    private double[][] input;
+    private double[][] kernel;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(5);
+        input = random(rand, inputSize);
+        kernel = random(rand, kernelSize);
+    }
+
+    @Benchmark
+    public double[][] correlateValid() {
+        return Correlator.correlateValid(input, kernel);
+    }
+
+    @Benchmark
+    public double[][] correlateFull() {
+        return Correlator.correlateFull(input, kernel);
+    }
+
+    private static double[][] random(Random rand, int size) {
+        double[][] m = new double[size][size];
+        for (double[] row : m) {
+            for (int j = 0; j < size; j++) {
+                row[j] = rand.nextDouble() * 2.0 - 1.0;
+            }
+        }
+        return m;
+    }
+}
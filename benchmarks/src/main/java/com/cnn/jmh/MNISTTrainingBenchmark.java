@@ -0,0 +1,70 @@
+package com.cnn.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One forward/backward step of the MNISTTraining network on MNISTUtils.loadMNISTSimulated data, cycling through
+// the samples. MNISTTraining and MNISTUtils are declared in the unnamed package, which no named package (and so no
+// JMH benchmark) can reference, so they are bound through method handles once per trial.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MNISTTrainingBenchmark {
+
+    private static final int SAMPLES = 256;
+    private static final double LEARNING_RATE = 0.01;
+
+    private MethodHandle forward;
+    private MethodHandle backward;
+    private Object network;
+    private double[][][] images;
+    private double[][] labels;
+    private int next;
+
+    @Setup
+    public void setup() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?> trainingClass = Class.forName("MNISTTraining");
+        Class<?> utilsClass = Class.forName("MNISTUtils");
+
+        Method load = utilsClass.getDeclaredMethod("loadMNISTSimulated", int.class);
+        load.setAccessible(true);
+        Object data = load.invoke(null, SAMPLES);
+        images = (double[][][]) data.getClass().getField("images").get(data);
+        labels = (double[][]) data.getClass().getField("labels").get(data);
+
+        network = trainingClass.getConstructor().newInstance();
+        forward = lookup.unreflect(trainingClass.getMethod("forward", double[][][].class))
+                .asType(MethodType.methodType(double[].class, Object.class, double[][][].class));
+        backward = lookup.unreflect(trainingClass.getMethod("backward", double[].class, double[].class, double.class))
+                .asType(MethodType.methodType(void.class, Object.class, double[].class,
+                        double[].class, double.class));
+    }
+
+    @Benchmark
+    public double[] step() throws Throwable {
+        int i = next;
+        next = (next + 1) % SAMPLES;
+        double[][][] input = { images[i] };
+        double[] prediction = (double[]) forward.invokeExact(network, input);
+        backward.invokeExact(network, labels[i], prediction, LEARNING_RATE);
+        return prediction;
+    }
+}
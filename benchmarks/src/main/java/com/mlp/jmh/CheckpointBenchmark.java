@@ -0,0 +1,71 @@
+package com.mlp.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.Checkpointer;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// One Adam epoch of a 784-512-256-10 network over 2000 samples (batch 32), without checkpoints (checkpointSteps 0)
+// and with an asynchronous Checkpointer every N steps, including the wait for the last write.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class CheckpointBenchmark {
+
+    @Param({ "0", "10" })
+    public int checkpointSteps;
+
+    private MLP mlp;
+    private double[][][] data;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        mlp = new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                784, 512, 256, 10);
+        Random rand = new Random(47);
+        data = JmhSupport.syntheticClassification(rand, JmhSupport.classCenters(rand, 10, 784), 2000, 0.5);
+        file = Files.createTempFile("mlp-checkpoint", ".mlpc");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public MLP epoch() {
+        if (checkpointSteps == 0) {
+            mlp.train(data[0], data[1], null, null, 1, 0, 0.0, 32);
+        } else {
+            try (Checkpointer checkpointer = new Checkpointer(file, checkpointSteps, 0)) {
+                mlp.train(data[0], data[1], null, null, 1, 0, 0.0, 32, checkpointer);
+            }
+        }
+        return mlp;
+    }
+}
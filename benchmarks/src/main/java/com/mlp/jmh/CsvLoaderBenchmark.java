@@ -0,0 +1,58 @@
+package com.mlp.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.CsvLoader;
+import com.mlp.DataPair;
+import com.mlp.Matrix;
+
+// CsvLoader.loadCsvData on a 20000-row MNIST-style CSV (about 40 MB), per number of threads loading its chunks.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class CsvLoaderBenchmark {
+
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("mlp-mnist", ".csv");
+        JmhSupport.writeMnistCsv(file, new Random(67), 20000);
+        Matrix.setParallelism(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Matrix.setParallelPool(ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public DataPair load() throws IOException {
+        return CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+    }
+}
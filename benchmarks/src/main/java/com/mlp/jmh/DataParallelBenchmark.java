@@ -0,0 +1,71 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DataParallelTrainer;
+import com.mlp.DenseMatrix;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// One epoch of DataParallelTrainer steps over 8192 synthetic MNIST-sized samples (784-128-64-10, Adam, batch 256),
+// per worker count.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class DataParallelBenchmark {
+
+    private static final int SAMPLES = 8192;
+    private static final int BATCH_SIZE = 256;
+
+    @Param({ "1", "2", "4" })
+    public int workers;
+
+    private DataParallelTrainer trainer;
+    private DenseMatrix x;
+    private DenseMatrix y;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(29);
+        double[][][] data = JmhSupport.syntheticClassification(rand, JmhSupport.classCenters(rand, 10, 784), SAMPLES,
+                0.7);
+        x = DenseMatrix.of(data[0]);
+        y = DenseMatrix.of(data[1]);
+        MLP mlp = new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 784, 128, 64, 10);
+        trainer = new DataParallelTrainer(mlp, workers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        trainer.close();
+    }
+
+    @Benchmark
+    public DataParallelTrainer epoch() {
+        for (int from = 0; from < SAMPLES; from += BATCH_SIZE) {
+            trainer.step(x.rowRange(from, from + BATCH_SIZE), y.rowRange(from, from + BATCH_SIZE));
+        }
+        return trainer;
+    }
+}
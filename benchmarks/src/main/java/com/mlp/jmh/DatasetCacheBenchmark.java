@@ -0,0 +1,61 @@
+package com.mlp.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.CsvLoader;
+import com.mlp.DataPair;
+import com.mlp.DatasetCache;
+
+// Parsing a 20000-row MNIST-style CSV against loading it through a DatasetCache that is already built.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class DatasetCacheBenchmark {
+
+    private Path dir;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("mlp-cache");
+        file = dir.resolve("mnist.csv");
+        JmhSupport.writeMnistCsv(file, new Random(71), 20000);
+        DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, -1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(DatasetCache.cacheFile(file));
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public DataPair parse() throws IOException {
+        return CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+    }
+
+    @Benchmark
+    public DataPair cached() throws IOException {
+        return DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, -1);
+    }
+}
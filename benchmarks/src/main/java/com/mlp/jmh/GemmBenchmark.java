@@ -0,0 +1,89 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DenseMatrix;
+import com.mlp.Matrix;
+import com.mlp.ActivationFunction.ReLU;
+
+// The three products of a dense layer's training step, and the forward pass with and without the fused bias and
+// activation, at the layer shapes of the MNIST network.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class GemmBenchmark {
+
+    @Param({ "784x128", "128x64", "64x10" })
+    public String layer;
+
+    @Param({ "1", "32", "128" })
+    public int batchSize;
+
+    private final ReLU relu = new ReLU();
+    private DenseMatrix input;
+    private DenseMatrix weights;
+    private DenseMatrix bias;
+    private DenseMatrix delta;
+    private DenseMatrix activated;
+    private DenseMatrix weightGradient;
+    private DenseMatrix propagated;
+
+    @Setup
+    public void setup() {
+        String[] shape = layer.split("x");
+        int in = Integer.parseInt(shape[0]);
+        int out = Integer.parseInt(shape[1]);
+        Random rand = new Random(42);
+        input = JmhSupport.random(rand, batchSize, in);
+        weights = JmhSupport.random(rand, out, in);
+        bias = JmhSupport.random(rand, 1, out);
+        delta = JmhSupport.random(rand, batchSize, out);
+        activated = new DenseMatrix(batchSize, out);
+        weightGradient = new DenseMatrix(out, in);
+        propagated = new DenseMatrix(batchSize, in);
+    }
+
+    @Benchmark
+    public DenseMatrix forward() {
+        return Matrix.multiplyTransBInto(activated, input, weights);
+    }
+
+    @Benchmark
+    public DenseMatrix weightGradient() {
+        return Matrix.multiplyTransAInto(weightGradient, delta, input);
+    }
+
+    @Benchmark
+    public DenseMatrix propagate() {
+        return Matrix.multiplyInto(propagated, delta, weights);
+    }
+
+    @Benchmark
+    public DenseMatrix denseForwardUnfused() {
+        Matrix.multiplyTransBInto(activated, input, weights);
+        Matrix.addBiasVectorToRowsInPlace(activated, bias);
+        relu.activate(activated.getData(), activated.getData(), 0, activated.size());
+        return activated;
+    }
+
+    @Benchmark
+    public DenseMatrix denseForwardFused() {
+        return Matrix.denseForwardInto(activated, input, weights, bias, relu);
+    }
+}
@@ -0,0 +1,54 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// One Adam epoch of a 784-512-512-10 network over 4096 samples with batch 2048, on the whole batch (microBatch 0) and
+// with accumulated micro-batches.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class GradientAccumulationBenchmark {
+
+    @Param({ "0", "256", "64" })
+    public int microBatch;
+
+    private MLP mlp;
+    private double[][][] data;
+
+    @Setup
+    public void setup() {
+        mlp = new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                784, 512, 512, 10);
+        mlp.setMicroBatchSize(microBatch);
+        Random rand = new Random(53);
+        data = JmhSupport.syntheticClassification(rand, JmhSupport.classCenters(rand, 10, 784), 4096, 0.5);
+    }
+
+    @Benchmark
+    public MLP epoch() {
+        mlp.train(data[0], data[1], null, null, 1, 0, 0.0, 2048);
+        return mlp;
+    }
+}
@@ -0,0 +1,57 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.InferenceSession;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+// Single-sample InferenceSession.predict on a 784-128-64-10 network. The session is shared by all benchmark threads,
+// so running with -t 1, 2, 4, ... shows how prediction scales across threads.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class InferenceBenchmark {
+
+    private static final int SAMPLES = 512;
+
+    private InferenceSession session;
+    private double[][] inputs;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                784, 128, 64, 10);
+        session = mlp.getInferenceSession();
+        inputs = JmhSupport.random(new Random(17), SAMPLES, 784).toArray();
+    }
+
+    @Benchmark
+    public double[] predict(Cursor cursor) {
+        cursor.next = (cursor.next + 1) % SAMPLES;
+        return session.predict(inputs[cursor.next]);
+    }
+}
@@ -0,0 +1,89 @@
+package com.mlp.jmh;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+import com.mlp.Serving.InferenceServer;
+
+// 32 client threads posting MNIST-sized samples back to back to an InferenceServer, per batching policy
+// ("maxBatch/maxWaitMicros"). Sample mode reports the client-side latency percentiles.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Threads(32)
+@State(Scope.Benchmark)
+public class InferenceServerBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    @Param({ "1/0", "16/500", "64/2000" })
+    public String policy;
+
+    private InferenceServer server;
+    private HttpClient client;
+    private HttpRequest[] requests;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        String[] parts = policy.split("/");
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 784, 128, 64, 10);
+        server = new InferenceServer(mlp, new InetSocketAddress("127.0.0.1", 0), Integer.parseInt(parts[0]),
+                Long.parseLong(parts[1])).start();
+        client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/predict");
+        Random rand = new Random(41);
+        requests = new HttpRequest[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            StringBuilder body = new StringBuilder();
+            for (int j = 0; j < 784; j++) {
+                body.append(j == 0 ? "" : ",").append(rand.nextInt(256) / 255.0);
+            }
+            requests[i] = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String predict(Cursor cursor) throws Exception {
+        cursor.next = (cursor.next + 1) % SAMPLES;
+        return client.send(requests[cursor.next], HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -0,0 +1,65 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DenseMatrix;
+import com.mlp.Layer;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ActivationFunc;
+import com.mlp.ActivationFunction.ReLU;
+
+// A 784 -> 128 ReLU layer fed by a ReLU layer, as in the MNIST network.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class LayerBenchmark {
+
+    @Param({ "1", "32", "128" })
+    public int batchSize;
+
+    private final ActivationFunc inputActivation = new ReLU();
+    private Layer layer;
+    private DenseMatrix input;
+    private DenseMatrix delta;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(2);
+        layer = new Layer(784, 128, new ReLU(), WeighInit.HE_UNIFORM);
+        input = JmhSupport.random(rand, batchSize, 784);
+        delta = JmhSupport.random(rand, batchSize, 128);
+        layer.forward(input);
+    }
+
+    @Benchmark
+    public DenseMatrix forward() {
+        return layer.forward(input);
+    }
+
+    @Benchmark
+    public DenseMatrix backward() {
+        return layer.backwardToInput(delta, inputActivation);
+    }
+
+    @Benchmark
+    public DenseMatrix forwardBackward() {
+        layer.forward(input);
+        return layer.backwardToInput(delta, inputActivation);
+    }
+}
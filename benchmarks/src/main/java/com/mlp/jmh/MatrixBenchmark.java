@@ -0,0 +1,133 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DenseMatrix;
+import com.mlp.KernelBackend;
+import com.mlp.Matrix;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class MatrixBenchmark {
+
+    @Param({ "64", "256", "784" })
+    public int size;
+
+    @Param({ "SCALAR", "VECTOR" })
+    public KernelBackend backend;
+
+    private DenseMatrix a;
+    private DenseMatrix b;
+    private DenseMatrix positive;
+    private DenseMatrix dst;
+    private double[] aRow;
+    private double[] bRow;
+
+    @Setup
+    public void setup() {
+        Matrix.setKernelBackend(backend);
+        Random rand = new Random(1);
+        a = JmhSupport.random(rand, size, size);
+        b = JmhSupport.random(rand, size, size);
+        positive = JmhSupport.random(rand, size, size);
+        double[] pd = positive.getData();
+        for (int i = 0; i < pd.length; i++) {
+            pd[i] = Math.abs(pd[i]) + 0.5;
+        }
+        dst = new DenseMatrix(size, size);
+        aRow = a.getRow(0);
+        bRow = b.getRow(0);
+    }
+
+    @Benchmark
+    public DenseMatrix multiply() {
+        return Matrix.multiply(a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix multiplyInto() {
+        return Matrix.multiplyInto(dst, a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix multiplyTransB() {
+        return Matrix.multiplyTransB(a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix multiplyTransA() {
+        return Matrix.multiplyTransA(a, b);
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        return Matrix.dotProduct(aRow, bRow);
+    }
+
+    @Benchmark
+    public DenseMatrix add() {
+        return Matrix.add(a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix addInto() {
+        return Matrix.addInto(dst, a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix substract() {
+        return Matrix.substract(a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix multiplyElementWise() {
+        return Matrix.multiplyElementWise(a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix multiplyElementWiseInto() {
+        return Matrix.multiplyElementWiseInto(dst, a, b);
+    }
+
+    @Benchmark
+    public DenseMatrix sqrtInto() {
+        return Matrix.sqrtInto(dst, positive);
+    }
+
+    @Benchmark
+    public DenseMatrix divideInto() {
+        return Matrix.divideInto(dst, a, positive);
+    }
+
+    @Benchmark
+    public DenseMatrix applyFunc() {
+        return Matrix.applyFunc(a, Math::tanh);
+    }
+
+    @Benchmark
+    public DenseMatrix applyFuncInto() {
+        return Matrix.applyFuncInto(dst, a, Math::tanh);
+    }
+
+    @Benchmark
+    public DenseMatrix transpose() {
+        return Matrix.transpose(a);
+    }
+}
@@ -0,0 +1,120 @@
+package com.mlp.jmh;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DenseMatrix;
+import com.mlp.Layer;
+import com.mlp.MLP;
+import com.mlp.ModelFile;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+// Time until a 784-2048-2048-10 model gives its first prediction when its weights come from a text file (one number
+// per line), from ModelFile.load and from ModelFile.map.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ModelFileBenchmark {
+
+    private static final int[] SIZES = { 784, 2048, 2048, 10 };
+
+    private Path dir;
+    private Path binary;
+    private Path text;
+    private double[] sample;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("mlp-model");
+        binary = dir.resolve("model.mlpm");
+        text = dir.resolve("model.txt");
+        MLP mlp = model();
+        ModelFile.save(mlp, binary);
+        saveText(mlp, text);
+        sample = JmhSupport.random(new Random(43), 1, SIZES[0]).toArray()[0];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary);
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public double[] textParse() throws IOException {
+        MLP mlp = model();
+        loadText(mlp, text);
+        return mlp.predict(sample);
+    }
+
+    @Benchmark
+    public double[] load() throws IOException {
+        return ModelFile.load(binary, null).predict(sample);
+    }
+
+    @Benchmark
+    public double[] map() throws IOException {
+        return ModelFile.map(binary, null).predict(sample);
+    }
+
+    private static void saveText(MLP model, Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (Layer layer : model.getLayers()) {
+                for (double w : layer.getWeights().getData()) {
+                    out.write(Double.toString(w));
+                    out.newLine();
+                }
+                for (double b : layer.getBiases().getData()) {
+                    out.write(Double.toString(b));
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    private static void loadText(MLP model, Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            for (Layer layer : model.getLayers()) {
+                DenseMatrix weights = new DenseMatrix(layer.getNumOutputs(), layer.getNumInputs());
+                for (int k = 0; k < weights.size(); k++) {
+                    weights.getData()[k] = Double.parseDouble(in.readLine());
+                }
+                DenseMatrix biases = new DenseMatrix(1, layer.getNumOutputs());
+                for (int k = 0; k < biases.size(); k++) {
+                    biases.getData()[k] = Double.parseDouble(in.readLine());
+                }
+                layer.setWeights(weights);
+                layer.setBiases(biases);
+            }
+        }
+    }
+
+    private static MLP model() {
+        return new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                SIZES);
+    }
+}
@@ -0,0 +1,75 @@
+package com.mlp.jmh;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.Layer;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+import com.mlp.Optimizer.MomentumOptimizer;
+import com.mlp.Optimizer.Optimizer;
+import com.mlp.Optimizer.RMSPropOptimizer;
+import com.mlp.Optimizer.SGDOptimizer;
+
+// One optimizer update over the layers of a 784-128-64-10 network, with gradients from a single backward pass.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class OptimizerBenchmark {
+
+    @Param({ "SGD", "Momentum", "RMSProp", "Adam" })
+    public String optimizerName;
+
+    private Optimizer optimizer;
+    private List<Layer> layers;
+
+    @Setup
+    public void setup() {
+        switch (optimizerName) {
+            case "SGD":
+                optimizer = new SGDOptimizer(1e-6);
+                break;
+            case "Momentum":
+                optimizer = new MomentumOptimizer(1e-6, 0.9);
+                break;
+            case "RMSProp":
+                optimizer = new RMSPropOptimizer(1e-6, 0.9, 1e-8);
+                break;
+            case "Adam":
+                optimizer = new AdamOptimizer(1e-6);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown optimizer: " + optimizerName);
+        }
+        MLP mlp = new MLP(optimizer, TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                784, 128, 64, 10);
+        Random rand = new Random(3);
+        mlp.forward(JmhSupport.random(rand, 32, 784));
+        mlp.backward(JmhSupport.oneHot(rand, 32, 10));
+        layers = mlp.getLayers();
+    }
+
+    @Benchmark
+    public void update() {
+        optimizer.update(layers);
+    }
+}
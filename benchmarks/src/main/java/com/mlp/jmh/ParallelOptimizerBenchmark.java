@@ -0,0 +1,91 @@
+package com.mlp.jmh;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.FlatParameters;
+import com.mlp.Layer;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+import com.mlp.Optimizer.MomentumOptimizer;
+import com.mlp.Optimizer.Optimizer;
+import com.mlp.Optimizer.RMSPropOptimizer;
+import com.mlp.Optimizer.SGDOptimizer;
+
+// The chunked optimizer step (Optimizer.update(layers, pool)) over a 784-2048-2048-2048-10 model, per optimizer and
+// pool size.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ParallelOptimizerBenchmark {
+
+    @Param({ "SGD", "Momentum", "RMSProp", "Adam" })
+    public String optimizerName;
+
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    private ForkJoinPool pool;
+    private Optimizer optimizer;
+    private List<Layer> layers;
+
+    @Setup
+    public void setup() {
+        switch (optimizerName) {
+            case "SGD":
+                optimizer = new SGDOptimizer(1e-6);
+                break;
+            case "Momentum":
+                optimizer = new MomentumOptimizer(1e-6, 0.9);
+                break;
+            case "RMSProp":
+                optimizer = new RMSPropOptimizer(1e-6, 0.9, 1e-8);
+                break;
+            case "Adam":
+                optimizer = new AdamOptimizer(1e-6);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown optimizer: " + optimizerName);
+        }
+        MLP mlp = new MLP(optimizer, TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                784, 2048, 2048, 2048, 10);
+        layers = mlp.getLayers();
+        double[] g = FlatParameters.of(layers).getGradients();
+        Random rand = new Random(61);
+        for (int i = 0; i < g.length; i++) {
+            g[i] = rand.nextGaussian() * 0.01;
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void update() {
+        optimizer.update(layers, pool);
+    }
+}
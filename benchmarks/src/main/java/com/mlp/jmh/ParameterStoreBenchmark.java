@@ -0,0 +1,89 @@
+package com.mlp.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DenseMatrix;
+import com.mlp.MLP;
+import com.mlp.ParameterStore;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// An Adam training step of a 2048-4096-10 network whose parameters live on the heap, in direct buffers or in a
+// memory-mapped file.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ParameterStoreBenchmark {
+
+    @Param({ "heap", "direct", "mapped" })
+    public String store;
+
+    private ParameterStore parameterStore;
+    private Path mappedFile;
+    private MLP mlp;
+    private DenseMatrix input;
+    private DenseMatrix target;
+    private DenseMatrix prediction;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (store) {
+            case "heap":
+                parameterStore = ParameterStore.heap();
+                break;
+            case "direct":
+                parameterStore = ParameterStore.direct();
+                break;
+            case "mapped":
+                mappedFile = Files.createTempFile("mlp-parameters", ".bin");
+                parameterStore = ParameterStore.mapped(mappedFile);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown parameter store: " + store);
+        }
+        mlp = new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                parameterStore, 2048, 4096, 10);
+        Random rand = new Random(5);
+        input = JmhSupport.random(rand, 32, 2048);
+        target = JmhSupport.oneHot(rand, 32, 10);
+        prediction = new DenseMatrix(32, 10);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        parameterStore.close();
+        if (mappedFile != null) {
+            Files.deleteIfExists(mappedFile);
+        }
+    }
+
+    @Benchmark
+    public DenseMatrix step() {
+        mlp.forwardInto(prediction, input);
+        mlp.backward(target);
+        mlp.updateWeights();
+        return prediction;
+    }
+}
@@ -0,0 +1,89 @@
+package com.mlp.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.ByteDataset;
+import com.mlp.CsvLoader;
+import com.mlp.Dataset;
+import com.mlp.DatasetCache;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// One Adam epoch of a 784-64-10 network (batch 32) over 4096 MNIST-style rows streamed from an in-memory ByteDataset,
+// from the CSV without and with prefetching, and from the mapped DatasetCache.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class StreamingBenchmark {
+
+    private static final int ROWS = 4096;
+
+    @Param({ "bytes", "csv", "csvPrefetch", "cache" })
+    public String source;
+
+    private Path dir;
+    private Path file;
+    private MLP mlp;
+    private Dataset data;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("mlp-stream");
+        file = dir.resolve("mnist.csv");
+        JmhSupport.writeMnistCsv(file, new Random(83), ROWS);
+        switch (source) {
+            case "bytes":
+                data = Dataset.of(ByteDataset.of(CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1)));
+                break;
+            case "csv":
+                data = Dataset.csv(file.toString(), 10, 784, ",", true).setPrefetch(0);
+                break;
+            case "csvPrefetch":
+                data = Dataset.csv(file.toString(), 10, 784, ",", true).setPrefetch(4);
+                break;
+            case "cache":
+                data = Dataset.cached(file.toString(), 10, 784, ",", true);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown source: " + source);
+        }
+        mlp = new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                784, 64, 10);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(DatasetCache.cacheFile(file));
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public MLP epoch() throws IOException {
+        mlp.train(data, null, 1, 0, 0.0, 32);
+        return mlp;
+    }
+}
@@ -0,0 +1,78 @@
+package com.mlp.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mlp.DenseMatrix;
+import com.mlp.FloatMatrix;
+import com.mlp.MLP;
+import com.mlp.Precision;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// Forward, loss, backward and Adam update of the 784-128-64-10 MNIST network, in either precision.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class TrainingStepBenchmark {
+
+    @Param({ "1", "32" })
+    public int batchSize;
+
+    @Param({ "DOUBLE", "FLOAT" })
+    public Precision precision;
+
+    private MLP mlp;
+    private DenseMatrix input;
+    private DenseMatrix target;
+    private DenseMatrix prediction;
+    private FloatMatrix floatInput;
+    private FloatMatrix floatTarget;
+    private FloatMatrix floatPrediction;
+
+    @Setup
+    public void setup() {
+        mlp = new MLP(new AdamOptimizer(1e-4), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                precision, 784, 128, 64, 10);
+        Random rand = new Random(4);
+        input = JmhSupport.random(rand, batchSize, 784);
+        target = JmhSupport.oneHot(rand, batchSize, 10);
+        prediction = new DenseMatrix(batchSize, 10);
+        floatInput = FloatMatrix.of(input);
+        floatTarget = FloatMatrix.of(target);
+        floatPrediction = FloatMatrix.of(prediction);
+    }
+
+    @Benchmark
+    public double step() {
+        if (precision == Precision.FLOAT) {
+            mlp.forwardInto(floatPrediction, floatInput);
+            double loss = mlp.calculateLoss(floatPrediction, floatTarget);
+            mlp.backward(floatTarget);
+            mlp.updateWeights();
+            return loss;
+        }
+        mlp.forwardInto(prediction, input);
+        double loss = mlp.calculateLoss(prediction, target);
+        mlp.backward(target);
+        mlp.updateWeights();
+        return loss;
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// Binary cache of MNIST images read from IDX or CSV files, written next to the first source (<file>.cnnd) on the
+// first load and memory-mapped by later loads, which skip reading and decoding the sources. Little-endian:
+//
+//   "CNND" | int version | int count | int height | int width | int source count
+//   per source: long size | long modified millis | long CRC32C
+//   zero padding, then int labels[count] and uint8 pixels[count x height x width], each 64-byte aligned
+//
+// A source whose size or modification time differs from the recorded one is checksummed: the cache is used if the
+// CRC32C still matches (and the new time recorded), and rebuilt otherwise.
+final class MNISTCache {
+
+    static final int VERSION = 1;
+    static final String SUFFIX = ".cnnd";
+
+    private static final byte[] MAGIC = { 'C', 'N', 'N', 'D' };
+    private static final int ALIGNMENT = 64;
+    private static final int FIXED_HEADER_BYTES = 24;
+    private static final int STAMP_BYTES = 3 * Long.BYTES;
+
+    private MNISTCache() {
+    }
+
+    static Path cacheFile(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    // { size, modified millis, CRC32C } of every source, taken before the sources are read.
+    static long[][] stamps(Path... sources) throws IOException {
+        long[][] stamps = new long[sources.length][];
+        for (int s = 0; s < sources.length; s++) {
+            stamps[s] = new long[] { Files.size(sources[s]), Files.getLastModifiedTime(sources[s]).toMillis(),
+                    checksum(sources[s]) };
+        }
+        return stamps;
+    }
+
+    // The cached images of sources, or null if there is no cache or it is stale.
+    static MNISTUtils.RawImages load(Path... sources) throws IOException {
+        Path cache = cacheFile(sources[0]);
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            int headerBytes = FIXED_HEADER_BYTES + sources.length * STAMP_BYTES;
+            ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                continue;
+            }
+            header.flip();
+            if (header.remaining() < headerBytes) {
+                return null;
+            }
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            int version = header.getInt();
+            int count = header.getInt();
+            int height = header.getInt();
+            int width = header.getInt();
+            int sourceCount = header.getInt();
+            long pixelBytes = (long) count * height * width;
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION || sourceCount != sources.length || count <= 0
+                    || height <= 0 || width <= 0 || pixelBytes > Integer.MAX_VALUE
+                    || channel.size() < pixelsOffset(headerBytes, count) + pixelBytes) {
+                return null;
+            }
+            for (int s = 0; s < sources.length; s++) {
+                long size = header.getLong();
+                long modified = header.getLong();
+                long checksum = header.getLong();
+                long sourceModified = Files.getLastModifiedTime(sources[s]).toMillis();
+                if (Files.size(sources[s]) != size) {
+                    return null;
+                }
+                if (sourceModified != modified) {
+                    if (checksum(sources[s]) != checksum) {
+                        return null;
+                    }
+                    restamp(cache, FIXED_HEADER_BYTES + s * STAMP_BYTES + Long.BYTES, sourceModified);
+                }
+            }
+
+            System.out.printf("📁 Loading cached images from %s (%d images)%n", cache, count);
+            int[] labels = new int[count];
+            channel.map(FileChannel.MapMode.READ_ONLY, align(headerBytes), (long) count * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(labels);
+            ByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY, pixelsOffset(headerBytes, count),
+                    pixelBytes);
+            return new MNISTUtils.RawImages(count, height, width, pixels, labels);
+        }
+    }
+
+    static void save(MNISTUtils.RawImages raw, long[][] stamps, Path... sources) throws IOException {
+        Path cache = cacheFile(sources[0]);
+        int headerBytes = FIXED_HEADER_BYTES + sources.length * STAMP_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).putInt(raw.count).putInt(raw.height).putInt(raw.width)
+                .putInt(sources.length);
+        for (long[] stamp : stamps) {
+            header.putLong(stamp[0]).putLong(stamp[1]).putLong(stamp[2]);
+        }
+        header.flip();
+        ByteBuffer labels = ByteBuffer.allocate(raw.count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        labels.asIntBuffer().put(raw.labels, 0, raw.count);
+        ByteBuffer pixels = raw.pixels.duplicate();
+        pixels.limit(pixels.position() + raw.count * raw.height * raw.width);
+
+        Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+            writeFully(channel, labels, align(headerBytes));
+            writeFully(channel, pixels, pixelsOffset(headerBytes, raw.count));
+        }
+        Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Wrote image cache %s%n", cache);
+    }
+
+    private static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    // Records a source's new modification time in place; a read-only cache just keeps paying for the checksum.
+    private static void restamp(Path cache, long offset, long modified) {
+        ByteBuffer stamp = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        stamp.putLong(modified).flip();
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.write(stamp, offset);
+        } catch (IOException e) {
+            return;
+        }
+    }
+
+    private static long pixelsOffset(int headerBytes, int count) {
+        return align(align(headerBytes) + (long) count * Integer.BYTES);
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// MNIST images streamed from IDX files, a Kaggle-style CSV or an MNISTCache, so the training set need not fit in
+// memory. Each pass goes through a BatchIterator, which shuffles the stream through a buffer of shuffleBuffer images
+// and decodes up to prefetch batches ahead on a background thread while the network trains on the current one.
+class MNISTDataset {
+
+    static final int SIZE = 28 * 28;
+
+    // One pass over the images in storage order: stores up to max images from index offset on (pixels row-major,
+    // SIZE bytes each) and returns how many, 0 at the end.
+    interface Reader extends Closeable {
+        int read(byte[] pixels, int[] labels, int offset, int max) throws IOException;
+    }
+
+    interface Source {
+        Reader open() throws IOException;
+    }
+
+    private final String name;
+    private final Source source;
+    private int limit = Integer.MAX_VALUE;
+    private int shuffleBuffer = 10000;
+    private int prefetch = 4;
+
+    MNISTDataset(String name, Source source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    static MNISTDataset idx(String imagesPath, String labelsPath) {
+        return new MNISTDataset(imagesPath, () -> new IdxImages(Paths.get(imagesPath), Paths.get(labelsPath)));
+    }
+
+    // Lines that are not a label and 784 pixels are skipped, with a warning on the first pass only.
+    static MNISTDataset csv(String csvPath, boolean hasHeader) {
+        boolean[] warned = new boolean[1];
+        return new MNISTDataset(csvPath, () -> {
+            boolean warn = !warned[0];
+            warned[0] = true;
+            return new CsvImages(Paths.get(csvPath), hasHeader, warn);
+        });
+    }
+
+    // Images already in memory (or mapped from an MNISTCache).
+    static MNISTDataset of(String name, MNISTUtils.RawImages raw) {
+        if (raw.height * raw.width != SIZE) {
+            throw new IllegalArgumentException("Expected 28x28 images, got " + raw.height + "x" + raw.width + ".");
+        }
+        return new MNISTDataset(name, () -> new Reader() {
+            private int next;
+
+            @Override
+            public int read(byte[] pixels, int[] labels, int offset, int max) {
+                int count = Math.min(max, raw.count - next);
+                raw.pixels.get(raw.pixels.position() + next * SIZE, pixels, offset * SIZE, count * SIZE);
+                System.arraycopy(raw.labels, next, labels, offset, count);
+                next += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    // The training images MNISTUtils.loadMNIST would load: from a current MNISTCache of the first source found if
+    // there is one (mapped, not read into memory), otherwise streamed from the source; simulated if there is none.
+    static MNISTDataset find(int limit) {
+        String[][] idx = { { "train-images-idx3-ubyte", "train-labels-idx1-ubyte" },
+                { "mnist/train-images-idx3-ubyte", "mnist/train-labels-idx1-ubyte" } };
+        MNISTDataset dataset = null;
+        try {
+            for (String[] files : idx) {
+                if (dataset == null && Files.exists(Paths.get(files[0])) && Files.exists(Paths.get(files[1]))) {
+                    MNISTUtils.RawImages cached = MNISTCache.load(Paths.get(files[0]), Paths.get(files[1]));
+                    dataset = cached != null ? of(files[0] + " (cached)", cached) : idx(files[0], files[1]);
+                }
+            }
+            if (dataset == null && Files.exists(Paths.get("train.csv"))) {
+                MNISTUtils.RawImages cached = MNISTCache.load(Paths.get("train.csv"));
+                dataset = cached != null ? of("train.csv (cached)", cached) : csv("train.csv", true);
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening MNIST data: " + e.getMessage());
+            dataset = null;
+        }
+        if (dataset == null) {
+            dataset = of("simulated images", MNISTUtils.simulatedImages(limit));
+        }
+        return dataset.setLimit(limit);
+    }
+
+    // Reads only the first limit images of the source.
+    MNISTDataset setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive.");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // Images the shuffle draws from; 1 keeps the storage order.
+    MNISTDataset setShuffleBuffer(int images) {
+        if (images <= 0) {
+            throw new IllegalArgumentException("Shuffle buffer must hold at least one image.");
+        }
+        this.shuffleBuffer = images;
+        return this;
+    }
+
+    // Batches decoded ahead of the consumer; 0 decodes each batch on the consumer's thread.
+    MNISTDataset setPrefetch(int batches) {
+        if (batches < 0) {
+            throw new IllegalArgumentException("Prefetch cannot be negative.");
+        }
+        this.prefetch = batches;
+        return this;
+    }
+
+    // One pass in batches of batchSize, shuffled by random, or in storage order if random is null.
+    BatchIterator batches(int batchSize, Random random) throws IOException {
+        return new BatchIterator(source.open(), limit, batchSize, random == null ? 1 : shuffleBuffer, random,
+                prefetch);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // A pass over the dataset. Batches are reused: the images of one are valid until the following call to next.
+    static final class BatchIterator implements Closeable {
+
+        private static final Batch END = new Batch(0);
+
+        private final Reader reader;
+        private final int batchSize;
+        private final Random random;
+        private final byte[] bufferPixels;
+        private final int[] bufferLabels;
+        private int buffered;
+        private int remaining;
+        private boolean exhausted;
+
+        private final Thread producer;
+        private final BlockingQueue<Batch> ready;
+        private final BlockingQueue<Batch> free;
+        private volatile boolean closed;
+        private Batch current;
+
+        BatchIterator(Reader reader, int limit, int batchSize, int shuffleBuffer, Random random, int prefetch) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive.");
+            }
+            this.reader = reader;
+            this.remaining = limit;
+            this.batchSize = batchSize;
+            this.random = shuffleBuffer > 1 ? random : null;
+            int capacity = this.random == null ? batchSize : shuffleBuffer;
+            this.bufferPixels = new byte[capacity * SIZE];
+            this.bufferLabels = new int[capacity];
+
+            if (prefetch == 0) {
+                this.producer = null;
+                this.ready = null;
+                this.free = null;
+                this.current = new Batch(batchSize);
+                return;
+            }
+            // prefetch batches queued and one held by the consumer; the queue also has room for the end marker.
+            this.ready = new ArrayBlockingQueue<>(prefetch + 2);
+            this.free = new ArrayBlockingQueue<>(prefetch + 1);
+            for (int i = 0; i < prefetch + 1; i++) {
+                free.add(new Batch(batchSize));
+            }
+            this.producer = new Thread(this::produce, "mnist-prefetch");
+            this.producer.setDaemon(true);
+            this.producer.start();
+        }
+
+        // Moves to the next batch; false once the pass is over.
+        boolean next() {
+            if (current == END) {
+                return false;
+            }
+            Batch batch;
+            if (producer == null) {
+                try {
+                    batch = fill(current) > 0 ? current : END;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                if (current != null) {
+                    free.add(current);
+                }
+                try {
+                    batch = ready.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a batch.", e);
+                }
+            }
+            current = batch;
+            if (batch.error != null) {
+                current = END;
+                if (batch.error instanceof IOException) {
+                    throw new UncheckedIOException((IOException) batch.error);
+                }
+                if (batch.error instanceof RuntimeException) {
+                    throw (RuntimeException) batch.error;
+                }
+                throw (Error) batch.error;
+            }
+            return batch != END;
+        }
+
+        int rows() {
+            return current.rows;
+        }
+
+        // Image i of the batch as the network's 1 x 28 x 28 input, scaled to [0, 1].
+        double[][][] input(int i) {
+            return current.images[i];
+        }
+
+        int label(int i) {
+            return current.labels[i];
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (producer != null) {
+                producer.interrupt();
+                try {
+                    producer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            current = END;
+            reader.close();
+        }
+
+        private void produce() {
+            try {
+                while (!closed) {
+                    Batch batch = free.take();
+                    if (fill(batch) == 0) {
+                        ready.put(END);
+                        return;
+                    }
+                    ready.put(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable t) {
+                if (!closed) {
+                    Batch failed = new Batch(0);
+                    failed.error = t;
+                    ready.offer(failed);
+                }
+            }
+        }
+
+        // Tops the buffer up to capacity (or to the limit).
+        private void refill(int capacity) throws IOException {
+            while (buffered < capacity && remaining > 0 && !exhausted) {
+                int read = reader.read(bufferPixels, bufferLabels, buffered,
+                        Math.min(capacity - buffered, remaining));
+                exhausted = read == 0;
+                buffered += read;
+                remaining -= read;
+            }
+        }
+
+        private int fill(Batch batch) throws IOException {
+            int rows = 0;
+            if (random == null) {
+                buffered = 0;
+                refill(batchSize);
+                for (; rows < buffered; rows++) {
+                    batch.decode(bufferPixels, rows, bufferLabels[rows], rows);
+                }
+            } else {
+                while (rows < batchSize) {
+                    refill(bufferLabels.length);
+                    if (buffered == 0) {
+                        break;
+                    }
+                    int slot = random.nextInt(buffered);
+                    batch.decode(bufferPixels, slot, bufferLabels[slot], rows++);
+                    buffered--;
+                    System.arraycopy(bufferPixels, buffered * SIZE, bufferPixels, slot * SIZE, SIZE);
+                    bufferLabels[slot] = bufferLabels[buffered];
+                }
+            }
+            batch.rows = rows;
+            return rows;
+        }
+    }
+
+    private static final class Batch {
+        final double[][][][] images;
+        final int[] labels;
+        int rows;
+        Throwable error;
+
+        Batch(int size) {
+            this.images = new double[size][1][28][28];
+            this.labels = new int[size];
+        }
+
+        void decode(byte[] pixels, int image, int label, int row) {
+            int base = image * SIZE;
+            double[][] dst = images[row][0];
+            for (int r = 0; r < 28; r++) {
+                for (int c = 0; c < 28; c++) {
+                    dst[r][c] = (pixels[base + r * 28 + c] & 0xFF) / 255.0;
+                }
+            }
+            labels[row] = label;
+        }
+    }
+
+    // IDX image and label files read sequentially.
+    static final class IdxImages implements Reader {
+        private final FileChannel images;
+        private final FileChannel labels;
+        private final long count;
+        private long next;
+        private ByteBuffer labelBytes = ByteBuffer.allocate(0);
+
+        IdxImages(Path imagesPath, Path labelsPath) throws IOException {
+            images = FileChannel.open(imagesPath, StandardOpenOption.READ);
+            try {
+                labels = FileChannel.open(labelsPath, StandardOpenOption.READ);
+            } catch (IOException e) {
+                images.close();
+                throw e;
+            }
+            ByteBuffer imageHeader = ByteBuffer.allocate(16);
+            ByteBuffer labelHeader = ByteBuffer.allocate(8);
+            readFully(images, imageHeader, 0);
+            readFully(labels, labelHeader, 0);
+            if (imageHeader.getInt(0) != 2051 || labelHeader.getInt(0) != 2049) {
+                close();
+                throw new IOException("Invalid MNIST files: incorrect magic numbers.");
+            }
+            if (imageHeader.getInt(8) * imageHeader.getInt(12) != SIZE) {
+                close();
+                throw new IOException("Expected 28x28 images in " + imagesPath + ".");
+            }
+            count = Math.min(imageHeader.getInt(4), labelHeader.getInt(4));
+        }
+
+        @Override
+        public int read(byte[] pixels, int[] labelValues, int offset, int max) throws IOException {
+            int n = (int) Math.min(max, count - next);
+            readFully(images, ByteBuffer.wrap(pixels, offset * SIZE, n * SIZE), 16 + next * SIZE);
+            if (labelBytes.capacity() < n) {
+                labelBytes = ByteBuffer.allocate(n);
+            }
+            labelBytes.clear().limit(n);
+            readFully(labels, labelBytes, 8 + next);
+            for (int i = 0; i < n; i++) {
+                labelValues[offset + i] = labelBytes.get(i) & 0xFF;
+            }
+            next += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                images.close();
+            } finally {
+                labels.close();
+            }
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of file.");
+                }
+                position += read;
+            }
+        }
+    }
+
+    // Kaggle-style CSV: a label then 784 integer pixels per line, scanned straight from the bytes into the caller's
+    // arrays, without a String per line or per field. The scanner's state survives between reads, so a read can stop
+    // after any image. Lines with another field count, a value that is not an integer in 0-255 or a label outside
+    // 0-9 are skipped, with a warning if warn is set.
+    static final class CsvImages implements Reader {
+        private static final int FIELDS = SIZE + 1;
+
+        private final FileChannel channel;
+        private final boolean warn;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private final int[] fields = new int[FIELDS];
+        private int position;
+        private int end;
+        private boolean endOfFile;
+        private int line = 1;
+        private boolean skipping;
+        private boolean lineStarted;
+        private boolean bad;
+        private int field;
+        private int value;
+
+        CsvImages(Path csvPath, boolean hasHeader, boolean warn) throws IOException {
+            this.channel = FileChannel.open(csvPath, StandardOpenOption.READ);
+            this.warn = warn;
+            this.skipping = hasHeader;
+        }
+
+        @Override
+        public int read(byte[] pixels, int[] labels, int offset, int max) throws IOException {
+            byte[] bytes = buffer.array();
+            int count = 0;
+            while (count < max) {
+                if (position == end) {
+                    if (endOfFile) {
+                        break;
+                    }
+                    buffer.clear();
+                    endOfFile = channel.read(buffer) < 0;
+                    position = 0;
+                    end = endOfFile ? 1 : buffer.position();
+                }
+                // The end of the file closes an unterminated last line.
+                byte b = endOfFile ? (byte) '\n' : bytes[position];
+                position++;
+                if (b == '\n') {
+                    if (!skipping && lineStarted) {
+                        if (field < FIELDS) {
+                            fields[field] = value;
+                        }
+                        field++;
+                        if (field != FIELDS || bad || fields[0] > 9) {
+                            if (warn) {
+                                System.err.printf("Warning: Skipping line %d of the CSV (%d fields%s).%n", line,
+                                        field, bad ? ", value out of range" : field == FIELDS
+                                                ? ", label out of range" : "");
+                            }
+                        } else {
+                            int image = offset + count;
+                            labels[image] = fields[0];
+                            for (int pixel = 0; pixel < SIZE; pixel++) {
+                                pixels[image * SIZE + pixel] = (byte) fields[pixel + 1];
+                            }
+                            count++;
+                        }
+                    }
+                    skipping = false;
+                    lineStarted = false;
+                    bad = false;
+                    field = 0;
+                    value = 0;
+                    line++;
+                } else if (skipping) {
+                    continue;
+                } else if (b == ',') {
+                    if (field < FIELDS) {
+                        fields[field] = value;
+                    }
+                    field++;
+                    value = 0;
+                    lineStarted = true;
+                } else if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (value > 255) {
+                        bad = true;
+                        value = 0;
+                    }
+                    lineStarted = true;
+                } else if (b != '\r' && b != ' ') {
+                    bad = true;
+                    lineStarted = true;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,10 +1,16 @@
 import java.util.*;
 import java.io.*;
 import java.nio.file.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
-class ReLU {
+// Element-wise activation that Dense can apply in place while its output is still hot.
+interface ElementwiseActivation {
+    void activateInPlace(double[] values);
+
+    // Multiplies gradient by the derivative at the last activated values.
+    void backwardInPlace(double[] gradient);
+}
+
+class ReLU implements ElementwiseActivation {
     private double[][][] lastOutput;
     private double[] lastOutput1D;
 
@@ -56,6 +62,23 @@ class ReLU {
         }
         return inputGradient;
     }
+
+    @Override
+    public void activateInPlace(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.max(0, values[i]);
+        }
+        lastOutput1D = values;
+    }
+
+    @Override
+    public void backwardInPlace(double[] gradient) {
+        for (int i = 0; i < gradient.length; i++) {
+            if (lastOutput1D[i] <= 0) {
+                gradient[i] = 0;
+            }
+        }
+    }
 }
 
 class ConvolutionLayer {
@@ -171,7 +194,7 @@ class LossFunctions {
     }
 }
 
-class Sigmoid {
+class Sigmoid implements ElementwiseActivation {
 
     private double[][][] lastOutput3D;
     private double[] lastOutput1D;
@@ -220,6 +243,22 @@ class Sigmoid {
         return inputGradient;
     }
 
+    @Override
+    public void activateInPlace(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = sigmoid(values[i]);
+        }
+        lastOutput1D = values;
+    }
+
+    @Override
+    public void backwardInPlace(double[] gradient) {
+        for (int i = 0; i < gradient.length; i++) {
+            double s = lastOutput1D[i];
+            gradient[i] *= s * (1 - s);
+        }
+    }
+
     private double sigmoid(double x) {
 
         return 1.0 / (1.0 + Math.exp(-Math.max(-250, Math.min(250, x))));
@@ -282,6 +321,49 @@ class Dense {
 
         return inputGradient;
     }
+
+    // Fused forward: output = activation(input * W + b). The output starts as the bias, accumulates one input row
+    // of W at a time, and is activated in place before it is handed on.
+    public double[] forward(double[] input, ElementwiseActivation activation) {
+        this.lastInput = input.clone();
+        double[] output = biases.clone();
+
+        for (int i = 0; i < input.length; i++) {
+            double x = input[i];
+            if (x == 0.0) {
+                continue;
+            }
+            double[] row = weights[i];
+            for (int j = 0; j < output.length; j++) {
+                output[j] += x * row[j];
+            }
+        }
+        activation.activateInPlace(output);
+        return output;
+    }
+
+    // Fused backward: returns (W * outputGradient) .* f'(input) for the activation that produced this layer's
+    // input, and applies the SGD update in the same pass over W, without materializing the weight gradient.
+    public double[] backward(double[] outputGradient, double learningRate, ElementwiseActivation inputActivation) {
+        double[] inputGradient = new double[lastInput.length];
+
+        for (int i = 0; i < lastInput.length; i++) {
+            double[] row = weights[i];
+            double step = learningRate * lastInput[i];
+            double sum = 0.0;
+            for (int j = 0; j < outputGradient.length; j++) {
+                sum += row[j] * outputGradient[j];
+                row[j] -= step * outputGradient[j];
+            }
+            inputGradient[i] = sum;
+        }
+        for (int j = 0; j < outputGradient.length; j++) {
+            biases[j] -= learningRate * outputGradient[j];
+        }
+
+        inputActivation.backwardInPlace(inputGradient);
+        return inputGradient;
+    }
 }
 
 public class MNISTTraining {
@@ -312,11 +394,9 @@ public class MNISTTraining {
 
         double[] flattened = MNISTUtils.flatten(relu1_out);
 
-        double[] dense1_out = dense1.forward(flattened);
-        double[] relu2_out = relu2.forward(dense1_out);
+        double[] relu2_out = dense1.forward(flattened, relu2);
 
-        double[] dense2_out = dense2.forward(relu2_out);
-        double[] final_out = sigmoid_final.forward(dense2_out);
+        double[] final_out = dense2.forward(relu2_out, sigmoid_final);
 
         return final_out;
     }
@@ -328,8 +408,7 @@ public class MNISTTraining {
             grad[i] = yPred[i] - yTrue[i];
         }
 
-        grad = dense2.backward(grad, learningRate);
-        grad = relu2.backward(grad);
+        grad = dense2.backward(grad, learningRate, relu2);
         grad = dense1.backward(grad, learningRate);
 
         double[][][] grad3D = MNISTUtils.reshape(grad, 5, 26, 26);
@@ -338,57 +417,64 @@ public class MNISTTraining {
         conv1.backward(grad3D, learningRate);
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=== MNIST Training with CNN ===");
 
         int epochs = 20;
         double learningRate = 0.01;
         int trainLimit = 3000;
         int testLimit = 200;
+        int batchSize = 100;
 
         System.out.println("🔍 Looking for MNIST data...");
-        MNISTUtils.MNISTData trainData = MNISTUtils.loadMNIST(trainLimit);
-        MNISTUtils.MNISTData testData = MNISTUtils.loadMNIST(testLimit);
+        // Training images are streamed, shuffled and decoded a batch ahead of the network; the few test images stay
+        // bytes in memory and are decoded into the same input array as they are used.
+        MNISTDataset trainData = MNISTDataset.find(trainLimit);
+        MNISTUtils.RawImages testData = MNISTUtils.loadMNISTImages(testLimit);
+
+        System.out.printf("✅ Streaming training images from %s, loaded %d test images%n", trainData,
+                testData.count);
 
-        System.out.printf("✅ Loaded data: %d training images, %d test images%n",
-                trainData.images.length, testData.images.length);
+        double[][][] input = new double[1][28][28];
+        double[] yTrue = new double[10];
 
         MNISTTraining network = new MNISTTraining();
+        Random shuffle = new Random();
 
         System.out.println("🚀 Starting training phase...");
         for (int epoch = 0; epoch < epochs; epoch++) {
             double totalError = 0.0;
             int correctInEpoch = 0;
 
-            List<Integer> indices = IntStream.range(0, trainData.images.length).boxed().collect(Collectors.toList());
-            Collections.shuffle(indices);
-
             int processed = 0;
-            for (int idx : indices) {
-                double[][][] input = new double[1][28][28];
-                input[0] = trainData.images[idx];
-
-                double[] yTrue = trainData.labels[idx];
-
-                double[] yPred = network.forward(input);
-
-                double error = LossFunctions.binaryCrossEntropy(yTrue, yPred);
-                totalError += error;
-                if (MNISTUtils.argmax(yPred) == MNISTUtils.argmax(yTrue)) {
-                    correctInEpoch++;
-                }
+            try (MNISTDataset.BatchIterator batches = trainData.batches(batchSize, shuffle)) {
+                while (batches.next()) {
+                    for (int i = 0; i < batches.rows(); i++) {
+                        Arrays.fill(yTrue, 0);
+                        yTrue[batches.label(i)] = 1;
+
+                        double[] yPred = network.forward(batches.input(i));
+
+                        double error = LossFunctions.binaryCrossEntropy(yTrue, yPred);
+                        totalError += error;
+                        if (MNISTUtils.argmax(yPred) == batches.label(i)) {
+                            correctInEpoch++;
+                        }
 
-                network.backward(yTrue, yPred, learningRate);
+                        network.backward(yTrue, yPred, learningRate);
 
-                processed++;
-                if (processed > 0 && processed % 500 == 0) {
-                    System.out.printf("  Epoch %d: %d/%d samples processed...%n",
-                            epoch + 1, processed, trainData.images.length);
+                        processed++;
+                        if (processed % 500 == 0) {
+                            System.out.printf("  Epoch %d: %d samples processed...%n", epoch + 1, processed);
+                        }
+                    }
                 }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
 
-            double avgError = totalError / trainData.images.length;
-            double trainAccuracy = (double) correctInEpoch / trainData.images.length * 100;
+            double avgError = totalError / processed;
+            double trainAccuracy = (double) correctInEpoch / processed * 100;
             System.out.printf("✓ Epoch %d/%d, Average Error: %.6f, Training Accuracy: %.2f%%%n",
                     epoch + 1, epochs, avgError, trainAccuracy);
         }
@@ -396,13 +482,12 @@ public class MNISTTraining {
         System.out.println("\n🧪 Evaluating the network...");
         int correct = 0;
 
-        for (int i = 0; i < testData.images.length; i++) {
-            double[][][] input = new double[1][28][28];
-            input[0] = testData.images[i];
+        for (int i = 0; i < testData.count; i++) {
+            testData.image(i, input[0]);
 
             double[] prediction = network.forward(input);
             int predClass = MNISTUtils.argmax(prediction);
-            int trueClass = MNISTUtils.argmax(testData.labels[i]);
+            int trueClass = testData.labels[i];
 
             if (predClass == trueClass) {
                 correct++;
@@ -414,7 +499,7 @@ public class MNISTTraining {
             }
         }
 
-        double accuracy = (double) correct / testData.images.length * 100;
-        System.out.printf("\n🎯 Final Accuracy: %.2f%% (%d/%d)%n", accuracy, correct, testData.images.length);
+        double accuracy = (double) correct / testData.count * 100;
+        System.out.printf("\n🎯 Final Accuracy: %.2f%% (%d/%d)%n", accuracy, correct, testData.count);
     }
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Random;
 
 class MNISTUtils {
@@ -16,57 +18,102 @@ class MNISTUtils {
         }
     }
 
-    public static MNISTData loadMNISTFromFiles(String imagesPath, String labelsPath, int limit) {
-        try {
-            byte[] imageData = Files.readAllBytes(Paths.get(imagesPath));
-            byte[] labelData = Files.readAllBytes(Paths.get(labelsPath));
-
-            int imageMagic = readInt(imageData, 0);
-            int labelMagic = readInt(labelData, 0);
+    // Undecoded images: count x height x width uint8 pixels, row-major from pixels' position, and class indices. This
+    // is what MNISTCache stores, and what training keeps in memory: image and oneHot decode one sample at a time into
+    // the caller's arrays, a byte a pixel where MNISTData holds 8 (and 10 doubles a label).
+    static final class RawImages {
+        final int count;
+        final int height;
+        final int width;
+        final ByteBuffer pixels;
+        final int[] labels;
+
+        RawImages(int count, int height, int width, ByteBuffer pixels, int[] labels) {
+            this.count = count;
+            this.height = height;
+            this.width = width;
+            this.pixels = pixels;
+            this.labels = labels;
+        }
 
-            if (imageMagic != 2051 || labelMagic != 2049) {
-                throw new RuntimeException("Invalid MNIST files: incorrect magic numbers.");
+        // Image i scaled to [0, 1] into dst (height x width), the same values toMNISTData gives.
+        double[][] image(int i, double[][] dst) {
+            if (i < 0 || i >= count) {
+                throw new IndexOutOfBoundsException("Image " + i + " out of bounds for " + count + " images.");
             }
+            int base = pixels.position() + i * height * width;
+            for (int row = 0; row < height; row++) {
+                double[] line = dst[row];
+                for (int col = 0; col < width; col++) {
+                    line[col] = (pixels.get(base + row * width + col) & 0xFF) / 255.0;
+                }
+            }
+            return dst;
+        }
 
-            int numImages = readInt(imageData, 4);
-            int numRows = readInt(imageData, 8);
-            int numCols = readInt(imageData, 12);
-            int numLabels = readInt(labelData, 4);
-
-            System.out.printf("MNIST: %d images, %dx%d pixels%n", numImages, numRows, numCols);
-
-            int actualLimit = Math.min(limit, numImages);
+        // Label i one-hot encoded into dst (10 classes).
+        double[] oneHot(int i, double[] dst) {
+            Arrays.fill(dst, 0.0);
+            dst[labels[i]] = 1.0;
+            return dst;
+        }
 
-            double[][][] images = new double[actualLimit][numRows][numCols];
+        // The first limit images (all of them if limit is larger), sharing these pixels.
+        RawImages first(int limit) {
+            if (limit >= count) {
+                return this;
+            }
+            return new RawImages(limit, height, width, pixels, Arrays.copyOf(labels, limit));
+        }
+    }
 
-            double[][] labels = new double[actualLimit][10];
+    public static MNISTData loadMNISTFromFiles(String imagesPath, String labelsPath, int limit) {
+        try {
+            return toMNISTData(readIdx(imagesPath, labelsPath), limit);
+        } catch (IOException e) {
+            System.err.println("Error loading MNIST files: " + e.getMessage());
+            System.err.println("Using simulated data instead...");
+            return loadMNISTSimulated(limit);
+        }
+    }
 
-            int imageOffset = 16;
-            int labelOffset = 8;
+    static RawImages readIdx(String imagesPath, String labelsPath) throws IOException {
+        byte[] imageData = Files.readAllBytes(Paths.get(imagesPath));
+        byte[] labelData = Files.readAllBytes(Paths.get(labelsPath));
 
-            for (int i = 0; i < actualLimit; i++) {
+        int imageMagic = readInt(imageData, 0);
+        int labelMagic = readInt(labelData, 0);
 
-                for (int row = 0; row < numRows; row++) {
-                    for (int col = 0; col < numCols; col++) {
-                        int pixelIndex = imageOffset + i * (numRows * numCols) + row * numCols + col;
+        if (imageMagic != 2051 || labelMagic != 2049) {
+            throw new RuntimeException("Invalid MNIST files: incorrect magic numbers.");
+        }
 
-                        images[i][row][col] = (imageData[pixelIndex] & 0xFF) / 255.0;
-                    }
-                }
+        int numImages = readInt(imageData, 4);
+        int numRows = readInt(imageData, 8);
+        int numCols = readInt(imageData, 12);
+        int numLabels = readInt(labelData, 4);
 
-                int label = labelData[labelOffset + i] & 0xFF;
-                for (int j = 0; j < 10; j++) {
-                    labels[i][j] = (j == label) ? 1.0 : 0.0;
-                }
-            }
+        System.out.printf("MNIST: %d images, %dx%d pixels%n", numImages, numRows, numCols);
 
-            return new MNISTData(images, labels);
+        int count = Math.min(numImages, numLabels);
+        int[] labels = new int[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = labelData[8 + i] & 0xFF;
+        }
+        ByteBuffer pixels = ByteBuffer.wrap(imageData, 16, count * numRows * numCols).slice();
+        return new RawImages(count, numRows, numCols, pixels, labels);
+    }
 
-        } catch (IOException e) {
-            System.err.println("Error loading MNIST files: " + e.getMessage());
-            System.err.println("Using simulated data instead...");
-            return loadMNISTSimulated(limit);
+    // The first limit images of raw (all of them if limit is larger), scaled to [0, 1], with one-hot labels.
+    static MNISTData toMNISTData(RawImages raw, int limit) {
+        int count = Math.min(limit, raw.count);
+        double[][][] images = new double[count][raw.height][raw.width];
+        double[][] labels = new double[count][10];
+        for (int i = 0; i < count; i++) {
+            raw.image(i, images[i]);
+            raw.oneHot(i, labels[i]);
         }
+        return new MNISTData(images, labels);
     }
 
     private static int readInt(byte[] data, int offset) {
@@ -78,43 +125,47 @@ class MNISTUtils {
 
     public static MNISTData loadMNISTFromCSV(String csvPath, int limit, boolean hasHeader) {
         try {
-            List<String> lines = Files.readAllLines(Paths.get(csvPath));
-            int startLine = hasHeader ? 1 : 0;
-            int actualLimit = Math.min(limit, lines.size() - startLine);
-
-            double[][][] images = new double[actualLimit][28][28];
-            double[][] labels = new double[actualLimit][10];
-
-            for (int i = 0; i < actualLimit; i++) {
-                String[] values = lines.get(i + startLine).split(",");
-
-                int label = Integer.parseInt(values[0]);
-                for (int j = 0; j < 10; j++) {
-                    labels[i][j] = (j == label) ? 1.0 : 0.0;
-                }
-
-                for (int pixel = 0; pixel < 784; pixel++) {
-                    int row = pixel / 28;
-                    int col = pixel % 28;
-                    double pixelValue = Double.parseDouble(values[pixel + 1]) / 255.0;
-                    images[i][row][col] = pixelValue;
-                }
-            }
-
-            return new MNISTData(images, labels);
-
+            return toMNISTData(readCsv(csvPath, limit, hasHeader), limit);
         } catch (IOException e) {
             System.err.println("Error loading CSV file: " + e.getMessage());
             return loadMNISTSimulated(limit);
         }
     }
 
+    // Kaggle-style CSV: a label then 784 integer pixels per line, scanned by MNISTDataset.CsvImages; lines with
+    // another field count, a value that is not an integer in 0-255 or a label outside 0-9 are skipped with a warning.
+    static RawImages readCsv(String csvPath, int limit, boolean hasHeader) throws IOException {
+        byte[] pixels = new byte[784 * 1024];
+        int[] labels = new int[1024];
+        int count = 0;
+        try (MNISTDataset.CsvImages reader = new MNISTDataset.CsvImages(Paths.get(csvPath), hasHeader, true)) {
+            int read;
+            do {
+                if (count == labels.length) {
+                    labels = Arrays.copyOf(labels, count * 2);
+                    pixels = Arrays.copyOf(pixels, count * 2 * 784);
+                }
+                read = reader.read(pixels, labels, count, Math.min(labels.length, limit) - count);
+                count += read;
+            } while (read > 0 && count < limit);
+        }
+
+        System.out.printf("CSV: %d images%n", count);
+        return new RawImages(count, 28, 28, ByteBuffer.wrap(pixels, 0, count * 784).slice(),
+                Arrays.copyOf(labels, count));
+    }
+
     public static MNISTData loadMNISTSimulated(int limit) {
+        return toMNISTData(simulatedImages(limit), limit);
+    }
+
+    // Smooth patterns plus noise with random labels, quantized to bytes like real MNIST pixels.
+    static RawImages simulatedImages(int limit) {
         System.out.println("⚠️ Using simulated MNIST data for demonstration.");
         Random random = new Random(42);
 
-        double[][][] images = new double[limit][28][28];
-        double[][] labels = new double[limit][10];
+        byte[] pixels = new byte[limit * 784];
+        int[] labels = new int[limit];
 
         for (int i = 0; i < limit; i++) {
 
@@ -122,37 +173,67 @@ class MNISTUtils {
                 for (int k = 0; k < 28; k++) {
                     double noise = random.nextGaussian() * 0.1;
                     double pattern = Math.sin(j * 0.3) * Math.cos(k * 0.3) + 0.5;
-                    images[i][j][k] = Math.max(0, Math.min(1, pattern + noise));
+                    pixels[i * 784 + j * 28 + k] = (byte) Math.round(Math.max(0, Math.min(1, pattern + noise)) * 255);
                 }
             }
 
-            int labelIndex = random.nextInt(10);
-            for (int j = 0; j < 10; j++) {
-                labels[i][j] = (j == labelIndex) ? 1.0 : 0.0;
-            }
+            labels[i] = random.nextInt(10);
         }
-        return new MNISTData(images, labels);
+        return new RawImages(limit, 28, 28, ByteBuffer.wrap(pixels), labels);
     }
 
     public static MNISTData loadMNIST(int limit) {
+        return toMNISTData(loadMNISTImages(limit), limit);
+    }
+
+    // The first limit training images, undecoded, from the first source found (simulated if there is none).
+    static RawImages loadMNISTImages(int limit) {
         if (Files.exists(Paths.get("train-images-idx3-ubyte")) &&
                 Files.exists(Paths.get("train-labels-idx1-ubyte"))) {
             System.out.println("📁 Loading from MNIST binary files...");
-            return loadMNISTFromFiles("train-images-idx3-ubyte", "train-labels-idx1-ubyte", limit);
+            return loadCached(limit, () -> readIdx("train-images-idx3-ubyte", "train-labels-idx1-ubyte"),
+                    Paths.get("train-images-idx3-ubyte"), Paths.get("train-labels-idx1-ubyte"));
         }
 
         if (Files.exists(Paths.get("mnist/train-images-idx3-ubyte")) &&
                 Files.exists(Paths.get("mnist/train-labels-idx1-ubyte"))) {
             System.out.println("📁 Loading from mnist/ directory...");
-            return loadMNISTFromFiles("mnist/train-images-idx3-ubyte", "mnist/train-labels-idx1-ubyte", limit);
+            return loadCached(limit, () -> readIdx("mnist/train-images-idx3-ubyte", "mnist/train-labels-idx1-ubyte"),
+                    Paths.get("mnist/train-images-idx3-ubyte"), Paths.get("mnist/train-labels-idx1-ubyte"));
         }
 
         if (Files.exists(Paths.get("train.csv"))) {
             System.out.println("📁 Loading from train.csv (Kaggle format)...");
-            return loadMNISTFromCSV("train.csv", limit, true);
+            return loadCached(limit, () -> readCsv("train.csv", Integer.MAX_VALUE, true), Paths.get("train.csv"));
         }
 
-        return loadMNISTSimulated(limit);
+        return simulatedImages(limit);
+    }
+
+    interface RawSource {
+        RawImages read() throws IOException;
+    }
+
+    // The first limit images from the MNISTCache of sources, reading every image of the sources (and writing the
+    // cache) only when the cache is missing or stale.
+    static RawImages loadCached(int limit, RawSource source, Path... sources) {
+        try {
+            RawImages raw = MNISTCache.load(sources);
+            if (raw == null) {
+                long[][] stamps = MNISTCache.stamps(sources);
+                raw = source.read();
+                try {
+                    MNISTCache.save(raw, stamps, sources);
+                } catch (IOException e) {
+                    System.err.println("Could not write the image cache: " + e.getMessage());
+                }
+            }
+            return raw.first(limit);
+        } catch (IOException e) {
+            System.err.println("Error loading MNIST data: " + e.getMessage());
+            System.err.println("Using simulated data instead...");
+            return simulatedImages(limit);
+        }
     }
 
     public static double[] flatten(double[][][] matrix) {
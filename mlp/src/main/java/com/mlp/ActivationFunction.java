@@ -10,6 +10,27 @@ public interface ActivationFunction {
         default double derivative(double activatedValue) {
             return 1.0;
         }
+        default void activate(double[] src, double[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = activate(src[i]);
+            }
+        }
+        // dst = upstreamGrad * f'(activated); dst may be the same array as upstreamGrad.
+        default void backward(double[] activated, double[] upstreamGrad, double[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = upstreamGrad[i] * derivative(activated[i]);
+            }
+        }
+        default void activate(float[] src, float[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) activate(src[i]);
+            }
+        }
+        default void backward(float[] activated, float[] upstreamGrad, float[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) (upstreamGrad[i] * derivative(activated[i]));
+            }
+        }
     }
 
     class Linear implements ActivationFunc {
@@ -21,6 +42,30 @@ public interface ActivationFunction {
         public double derivative(double activatedValue) {
             return 1.0;
         }
+        @Override
+        public void activate(double[] src, double[] dst, int off, int len) {
+            if (src != dst) {
+                System.arraycopy(src, off, dst, off, len);
+            }
+        }
+        @Override
+        public void backward(double[] activated, double[] upstreamGrad, double[] dst, int off, int len) {
+            if (upstreamGrad != dst) {
+                System.arraycopy(upstreamGrad, off, dst, off, len);
+            }
+        }
+        @Override
+        public void activate(float[] src, float[] dst, int off, int len) {
+            if (src != dst) {
+                System.arraycopy(src, off, dst, off, len);
+            }
+        }
+        @Override
+        public void backward(float[] activated, float[] upstreamGrad, float[] dst, int off, int len) {
+            if (upstreamGrad != dst) {
+                System.arraycopy(upstreamGrad, off, dst, off, len);
+            }
+        }
     }
 
     class Sigmoid implements ActivationFunc {
@@ -32,6 +77,32 @@ public interface ActivationFunction {
         public double derivative(double activatedValue) {
             return activatedValue * (1.0 - activatedValue);
         }
+        @Override
+        public void activate(double[] src, double[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = 1.0 / (1.0 + Math.exp(-src[i]));
+            }
+        }
+        @Override
+        public void backward(double[] activated, double[] upstreamGrad, double[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                double a = activated[i];
+                dst[i] = upstreamGrad[i] * a * (1.0 - a);
+            }
+        }
+        @Override
+        public void activate(float[] src, float[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = (float) (1.0 / (1.0 + Math.exp(-src[i])));
+            }
+        }
+        @Override
+        public void backward(float[] activated, float[] upstreamGrad, float[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                float a = activated[i];
+                dst[i] = upstreamGrad[i] * a * (1.0f - a);
+            }
+        }
     }
 
     class ReLU implements ActivationFunc {
@@ -43,6 +114,30 @@ public interface ActivationFunction {
         public double derivative(double activatedValue) {
             return activatedValue > 0 ? 1.0 : 0.0;
         }
+        @Override
+        public void activate(double[] src, double[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.max(0, src[i]);
+            }
+        }
+        @Override
+        public void backward(double[] activated, double[] upstreamGrad, double[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = activated[i] > 0 ? upstreamGrad[i] : 0.0;
+            }
+        }
+        @Override
+        public void activate(float[] src, float[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = Math.max(0f, src[i]);
+            }
+        }
+        @Override
+        public void backward(float[] activated, float[] upstreamGrad, float[] dst, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                dst[i] = activated[i] > 0 ? upstreamGrad[i] : 0.0f;
+            }
+        }
     }
 
      class Softmax implements ActivationFunc {
@@ -56,6 +151,56 @@ public interface ActivationFunction {
              return 1.0;
          }
 
+         // The range is one row: dst gets the softmax of src[off, off + len). Use activateMatrixInto for a batch.
+         @Override
+         public void activate(double[] src, double[] dst, int off, int len) {
+             double maxVal = len == 0 ? 0.0 : Double.NEGATIVE_INFINITY;
+             for (int i = off; i < off + len; i++) {
+                 maxVal = Math.max(maxVal, src[i]);
+             }
+             double sumExp = 0.0;
+             for (int i = off; i < off + len; i++) {
+                 dst[i] = Math.exp(src[i] - maxVal);
+                 sumExp += dst[i];
+             }
+             if (sumExp == 0) sumExp = 1e-15;
+             for (int i = off; i < off + len; i++) {
+                 dst[i] /= sumExp;
+             }
+         }
+
+         @Override
+         public void activate(float[] src, float[] dst, int off, int len) {
+             float maxVal = len == 0 ? 0.0f : Float.NEGATIVE_INFINITY;
+             for (int i = off; i < off + len; i++) {
+                 maxVal = Math.max(maxVal, src[i]);
+             }
+             double sumExp = 0.0;
+             for (int i = off; i < off + len; i++) {
+                 dst[i] = (float) Math.exp(src[i] - maxVal);
+                 sumExp += dst[i];
+             }
+             if (sumExp == 0) sumExp = 1e-15;
+             float inv = (float) (1.0 / sumExp);
+             for (int i = off; i < off + len; i++) {
+                 dst[i] *= inv;
+             }
+         }
+
+         @Override
+         public void backward(double[] activated, double[] upstreamGrad, double[] dst, int off, int len) {
+             if (upstreamGrad != dst) {
+                 System.arraycopy(upstreamGrad, off, dst, off, len);
+             }
+         }
+
+         @Override
+         public void backward(float[] activated, float[] upstreamGrad, float[] dst, int off, int len) {
+             if (upstreamGrad != dst) {
+                 System.arraycopy(upstreamGrad, off, dst, off, len);
+             }
+         }
+
          public static double[] activateVector(double[] inputVector) {
              double[] output = new double[inputVector.length];
              double maxVal = Arrays.stream(inputVector).max().orElse(0.0);
@@ -77,5 +222,65 @@ public interface ActivationFunction {
               }
               return outputMatrix;
          }
+         public static DenseMatrix activateMatrix(DenseMatrix inputMatrix) {
+              return activateMatrixInto(new DenseMatrix(inputMatrix.getRows(), inputMatrix.getCols()), inputMatrix);
+         }
+         public static DenseMatrix activateMatrixInto(DenseMatrix outputMatrix, DenseMatrix inputMatrix) {
+              if (!inputMatrix.sameShape(outputMatrix)) {
+                  throw new IllegalArgumentException("Softmax output must have the same shape as its input.");
+              }
+              int rows = inputMatrix.getRows();
+              int cols = inputMatrix.getCols();
+              double[] in = inputMatrix.getData();
+              double[] out = outputMatrix.getData();
+              for (int i = 0; i < rows; ++i) {
+                  int inRow = inputMatrix.getOffset() + i * inputMatrix.getStride();
+                  int outRow = outputMatrix.getOffset() + i * outputMatrix.getStride();
+                  double maxVal = Double.NEGATIVE_INFINITY;
+                  for (int j = 0; j < cols; j++) {
+                      maxVal = Math.max(maxVal, in[inRow + j]);
+                  }
+                  if (cols == 0) maxVal = 0.0;
+                  double sumExp = 0.0;
+                  for (int j = 0; j < cols; j++) {
+                      out[outRow + j] = Math.exp(in[inRow + j] - maxVal);
+                      sumExp += out[outRow + j];
+                  }
+                  if (sumExp == 0) sumExp = 1e-15;
+                  for (int j = 0; j < cols; j++) {
+                      out[outRow + j] /= sumExp;
+                  }
+              }
+              return outputMatrix;
+         }
+         public static FloatMatrix activateMatrixInto(FloatMatrix outputMatrix, FloatMatrix inputMatrix) {
+              if (!inputMatrix.sameShape(outputMatrix)) {
+                  throw new IllegalArgumentException("Softmax output must have the same shape as its input.");
+              }
+              int rows = inputMatrix.getRows();
+              int cols = inputMatrix.getCols();
+              float[] in = inputMatrix.getData();
+              float[] out = outputMatrix.getData();
+              for (int i = 0; i < rows; ++i) {
+                  int inRow = inputMatrix.getOffset() + i * inputMatrix.getStride();
+                  int outRow = outputMatrix.getOffset() + i * outputMatrix.getStride();
+                  float maxVal = Float.NEGATIVE_INFINITY;
+                  for (int j = 0; j < cols; j++) {
+                      maxVal = Math.max(maxVal, in[inRow + j]);
+                  }
+                  if (cols == 0) maxVal = 0.0f;
+                  double sumExp = 0.0;
+                  for (int j = 0; j < cols; j++) {
+                      out[outRow + j] = (float) Math.exp(in[inRow + j] - maxVal);
+                      sumExp += out[outRow + j];
+                  }
+                  if (sumExp == 0) sumExp = 1e-15;
+                  float inv = (float) (1.0 / sumExp);
+                  for (int j = 0; j < cols; j++) {
+                      out[outRow + j] *= inv;
+                  }
+              }
+              return outputMatrix;
+         }
     }
 }
\ No newline at end of file
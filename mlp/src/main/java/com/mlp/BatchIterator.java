@@ -0,0 +1,242 @@
+package com.mlp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// One pass over a Dataset in batches. Samples are read into a buffer of up to shuffleBuffer samples; each batch row
+// is a sample drawn at random from the buffer, which the next sample read then tops up again. With prefetch > 0 a
+// background thread reads, shuffles and decodes batches into a queue of that many, so the consumer only waits when
+// reading falls behind training; the batches are the same as with prefetch 0, where next does the work itself.
+// Batches are reused: the matrices of one are valid until the following call to next. Read errors surface from next
+// (IOExceptions wrapped in UncheckedIOException). Close the iterator to stop the background thread early.
+public final class BatchIterator implements Closeable {
+
+    private static final Batch END = new Batch();
+
+    private final SampleReader reader;
+    private final int features;
+    private final int classes;
+    private final int batchSize;
+    private final Precision precision;
+    private final Random random;
+    private final byte[] bufferFeatures;
+    private final int[] bufferLabels;
+    private int buffered;
+    private boolean exhausted;
+
+    private final Thread producer;
+    private final BlockingQueue<Batch> ready;
+    private final BlockingQueue<Batch> free;
+    private volatile boolean closed;
+    private Batch current;
+    private long waitNanos;
+
+    BatchIterator(Dataset dataset, SampleReader reader, int batchSize, Precision precision, int shuffleBuffer,
+            Random random, int prefetch) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        this.reader = reader;
+        this.features = dataset.getFeatureCount();
+        this.classes = dataset.getClassCount();
+        this.batchSize = batchSize;
+        this.precision = precision;
+        this.random = shuffleBuffer > 1 ? random : null;
+        int capacity = this.random == null ? batchSize : shuffleBuffer;
+        this.bufferFeatures = new byte[Math.multiplyExact(capacity, features)];
+        this.bufferLabels = new int[capacity];
+
+        if (prefetch == 0) {
+            this.producer = null;
+            this.ready = null;
+            this.free = null;
+            this.current = new Batch(batchSize, features, classes, precision);
+            return;
+        }
+        // prefetch batches queued and one held by the consumer; the queue also has room for the end marker.
+        this.ready = new ArrayBlockingQueue<>(prefetch + 2);
+        this.free = new ArrayBlockingQueue<>(prefetch + 1);
+        for (int i = 0; i < prefetch + 1; i++) {
+            free.add(new Batch(batchSize, features, classes, precision));
+        }
+        this.producer = new Thread(this::produce, "mlp-prefetch");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    // Moves to the next batch; false once the pass is over.
+    public boolean next() {
+        if (current == END) {
+            return false;
+        }
+        Batch batch;
+        if (producer == null) {
+            try {
+                batch = fill(current) > 0 ? current : END;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            if (current != null) {
+                free.add(current);
+            }
+            long start = System.nanoTime();
+            try {
+                batch = ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a batch.", e);
+            }
+            waitNanos += System.nanoTime() - start;
+        }
+        current = batch;
+        if (batch.error != null) {
+            current = END;
+            if (batch.error instanceof IOException) {
+                throw new UncheckedIOException((IOException) batch.error);
+            }
+            if (batch.error instanceof RuntimeException) {
+                throw (RuntimeException) batch.error;
+            }
+            throw (Error) batch.error;
+        }
+        return batch != END;
+    }
+
+    // Rows in the current batch: batchSize, fewer in the last one.
+    public int rows() {
+        return current.rows;
+    }
+
+    // The current batch's features, scaled to [0, 1], and one-hot targets, for DOUBLE precision.
+    public DenseMatrix inputs() {
+        return current.inputs.rowRange(0, current.rows);
+    }
+
+    public DenseMatrix targets() {
+        return current.targets.rowRange(0, current.rows);
+    }
+
+    // The same for FLOAT precision.
+    public FloatMatrix floatInputs() {
+        return current.floatInputs.rowRange(0, current.rows);
+    }
+
+    public FloatMatrix floatTargets() {
+        return current.floatTargets.rowRange(0, current.rows);
+    }
+
+    // Time next spent waiting for the background thread.
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (producer != null) {
+            producer.interrupt();
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        current = END;
+        reader.close();
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                Batch batch = free.take();
+                if (fill(batch) == 0) {
+                    ready.put(END);
+                    return;
+                }
+                ready.put(batch);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable t) {
+            if (!closed) {
+                Batch failed = new Batch();
+                failed.error = t;
+                ready.offer(failed);
+            }
+        }
+    }
+
+    // Fills batch with the next rows of the pass and returns how many; 0 at the end.
+    private int fill(Batch batch) throws IOException {
+        if (random == null) {
+            int rows = 0;
+            while (rows < batchSize && !exhausted) {
+                int read = reader.read(bufferFeatures, bufferLabels, rows, batchSize - rows);
+                exhausted = read == 0;
+                rows += read;
+            }
+            for (int i = 0; i < rows; i++) {
+                batch.decode(bufferFeatures, i * features, bufferLabels[i], i, precision);
+            }
+            batch.rows = rows;
+            return rows;
+        }
+        int rows = 0;
+        while (rows < batchSize) {
+            while (buffered < bufferLabels.length && !exhausted) {
+                int read = reader.read(bufferFeatures, bufferLabels, buffered, bufferLabels.length - buffered);
+                exhausted = read == 0;
+                buffered += read;
+            }
+            if (buffered == 0) {
+                break;
+            }
+            int slot = random.nextInt(buffered);
+            batch.decode(bufferFeatures, slot * features, bufferLabels[slot], rows, precision);
+            rows++;
+            // The last buffered sample takes the slot; the refill above reads the next one into the free end.
+            buffered--;
+            System.arraycopy(bufferFeatures, buffered * features, bufferFeatures, slot * features, features);
+            bufferLabels[slot] = bufferLabels[buffered];
+        }
+        batch.rows = rows;
+        return rows;
+    }
+
+    private static final class Batch {
+        final DenseMatrix inputs;
+        final DenseMatrix targets;
+        final FloatMatrix floatInputs;
+        final FloatMatrix floatTargets;
+        int rows;
+        Throwable error;
+
+        Batch() {
+            this.inputs = null;
+            this.targets = null;
+            this.floatInputs = null;
+            this.floatTargets = null;
+        }
+
+        Batch(int batchSize, int features, int classes, Precision precision) {
+            boolean single = precision == Precision.FLOAT;
+            this.inputs = single ? null : new DenseMatrix(batchSize, features);
+            this.targets = single ? null : new DenseMatrix(batchSize, classes);
+            this.floatInputs = single ? new FloatMatrix(batchSize, features) : null;
+            this.floatTargets = single ? new FloatMatrix(batchSize, classes) : null;
+        }
+
+        void decode(byte[] raw, int offset, int label, int row, Precision precision) {
+            if (precision == Precision.FLOAT) {
+                ByteDataset.decode(raw, offset, label, floatInputs, floatTargets, row);
+            } else {
+                ByteDataset.decode(raw, offset, label, inputs, targets, row);
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.mlp;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Labelled samples kept as they come from MNIST-style sources: one uint8 per feature and an int class index per
+// sample, 1 + 4 / features bytes a feature where a DataPair holds 8 (plus a one-hot row of doubles per sample).
+// Features are scaled by 1/255 and labels one-hot encoded only as a batch is gathered, to exactly the values CsvLoader
+// gives, so MLP.train on a ByteDataset takes the same steps as on the equivalent DataPair arrays. The pixels may be a
+// heap array or a memory-mapped DatasetCache.
+public final class ByteDataset implements TrainingData {
+
+    private static final double[] SCALE = new double[256];
+    private static final float[] SCALE_FLOAT = new float[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            SCALE[v] = v / 255.0;
+            SCALE_FLOAT[v] = (float) (v / 255.0);
+        }
+    }
+
+    private final ByteBuffer pixels;
+    private final int[] labels;
+    private final int rows;
+    private final int features;
+    private final int classes;
+
+    // pixels holds labels.length rows of features bytes, row-major.
+    public ByteDataset(byte[] pixels, int[] labels, int features, int classes) {
+        this(ByteBuffer.wrap(pixels), labels, features, classes);
+    }
+
+    // pixels holds labels.length rows of features bytes, row-major from its position.
+    ByteDataset(ByteBuffer pixels, int[] labels, int features, int classes) {
+        if (pixels == null || labels == null || labels.length == 0 || features <= 0 || classes <= 0) {
+            throw new IllegalArgumentException("A dataset needs pixels, labels, features and classes.");
+        }
+        if ((long) labels.length * features > pixels.remaining()) {
+            throw new IllegalArgumentException(String.format("%d rows of %d features need %d bytes, got %d.",
+                    labels.length, features, (long) labels.length * features, pixels.remaining()));
+        }
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] < 0 || labels[i] >= classes) {
+                throw new IllegalArgumentException(
+                        String.format("Label %d of row %d out of bounds [0, %d).", labels[i], i, classes));
+            }
+        }
+        this.pixels = pixels.slice();
+        this.labels = labels;
+        this.rows = labels.length;
+        this.features = features;
+        this.classes = classes;
+    }
+
+    // Packs data, whose features must all be v / 255 for an integer v in [0, 255] and whose labels must be one-hot.
+    public static ByteDataset of(DataPair data) {
+        double[][] x = data.features;
+        double[][] y = data.labels;
+        if (x.length == 0 || x.length != y.length) {
+            throw new IllegalArgumentException("Features and labels must have the same, positive, number of rows.");
+        }
+        int features = x[0].length;
+        int classes = y[0].length;
+        if ((long) x.length * features > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(x.length + " rows of " + features + " features are too many to pack.");
+        }
+        byte[] pixels = new byte[x.length * features];
+        int[] labels = new int[x.length];
+        for (int i = 0; i < x.length; i++) {
+            if (x[i].length != features || y[i].length != classes) {
+                throw new IllegalArgumentException("Jagged input: row " + i + ".");
+            }
+            for (int j = 0; j < features; j++) {
+                long v = Math.round(x[i][j] * 255.0);
+                if (v < 0 || v > 255 || SCALE[(int) v] != x[i][j]) {
+                    throw new IllegalArgumentException(
+                            String.format("Feature %d of row %d (%s) is not a byte / 255.", j, i, x[i][j]));
+                }
+                pixels[i * features + j] = (byte) v;
+            }
+            labels[i] = -1;
+            for (int k = 0; k < classes; k++) {
+                if (y[i][k] == 1.0 && labels[i] < 0) {
+                    labels[i] = k;
+                } else if (y[i][k] != 0.0) {
+                    throw new IllegalArgumentException("Label of row " + i + " is not one-hot.");
+                }
+            }
+            if (labels[i] < 0) {
+                throw new IllegalArgumentException("Label of row " + i + " is not one-hot.");
+            }
+        }
+        return new ByteDataset(pixels, labels, features, classes);
+    }
+
+    // The first count rows (all of them if count is larger), sharing this dataset's storage.
+    public ByteDataset firstRows(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive.");
+        }
+        if (count >= rows) {
+            return this;
+        }
+        ByteBuffer first = pixels.duplicate();
+        first.limit(count * features);
+        return new ByteDataset(first, Arrays.copyOf(labels, count), features, classes);
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public int inputCount() {
+        return features;
+    }
+
+    @Override
+    public int targetCount() {
+        return classes;
+    }
+
+    public int getLabel(int row) {
+        return labels[row];
+    }
+
+    public int getPixel(int row, int feature) {
+        if (feature < 0 || feature >= features) {
+            throw new IndexOutOfBoundsException("Feature " + feature + " out of bounds for " + features + " features.");
+        }
+        return pixels.get(row * features + feature) & 0xFF;
+    }
+
+    // Row row's features scaled to [0, 1], as CsvLoader returns them.
+    public double[] getFeatures(int row) {
+        double[] ret = new double[features];
+        byte[] raw = new byte[features];
+        pixels.get(row * features, raw);
+        for (int j = 0; j < features; j++) {
+            ret[j] = SCALE[raw[j] & 0xFF];
+        }
+        return ret;
+    }
+
+    // Bytes held for the samples: pixels plus labels.
+    public long getMemoryBytes() {
+        return (long) rows * features + (long) rows * Integer.BYTES;
+    }
+
+    // The equivalent DataPair, with every feature and label expanded to doubles.
+    public DataPair toDataPair() {
+        double[][] x = new double[rows][];
+        double[][] y = new double[rows][classes];
+        for (int i = 0; i < rows; i++) {
+            x[i] = getFeatures(i);
+            y[i][labels[i]] = 1.0;
+        }
+        return new DataPair(x, y);
+    }
+
+    @Override
+    public void gather(int[] indices, int from, DenseMatrix inputs, DenseMatrix targets) {
+        checkBatch(indices, from, inputs.getRows(), inputs.getCols(), targets.getRows(), targets.getCols());
+        byte[] raw = new byte[features];
+        for (int i = 0; i < inputs.getRows(); i++) {
+            int row = row(indices, from + i);
+            pixels.get(row * features, raw);
+            decode(raw, 0, labels[row], inputs, targets, i);
+        }
+    }
+
+    @Override
+    public void gather(int[] indices, int from, FloatMatrix inputs, FloatMatrix targets) {
+        checkBatch(indices, from, inputs.getRows(), inputs.getCols(), targets.getRows(), targets.getCols());
+        byte[] raw = new byte[features];
+        for (int i = 0; i < inputs.getRows(); i++) {
+            int row = row(indices, from + i);
+            pixels.get(row * features, raw);
+            decode(raw, 0, labels[row], inputs, targets, i);
+        }
+    }
+
+    // Reads the rows in order, for Dataset.of.
+    SampleReader reader() {
+        return new SampleReader() {
+            private int next;
+
+            @Override
+            public int read(byte[] features, int[] labels, int offset, int max) {
+                int count = Math.min(max, rows - next);
+                pixels.get(next * ByteDataset.this.features, features, offset * ByteDataset.this.features,
+                        count * ByteDataset.this.features);
+                System.arraycopy(ByteDataset.this.labels, next, labels, offset, count);
+                next += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // Row i of inputs and targets from the inputs.getCols() bytes of raw at rawOffset and a class index.
+    static void decode(byte[] raw, int rawOffset, int label, DenseMatrix inputs, DenseMatrix targets, int i) {
+        double[] x = inputs.getData();
+        double[] y = targets.getData();
+        int xi = inputs.getOffset() + i * inputs.getStride();
+        for (int j = 0; j < inputs.getCols(); j++) {
+            x[xi + j] = SCALE[raw[rawOffset + j] & 0xFF];
+        }
+        int yi = targets.getOffset() + i * targets.getStride();
+        for (int k = 0; k < targets.getCols(); k++) {
+            y[yi + k] = 0.0;
+        }
+        y[yi + label] = 1.0;
+    }
+
+    static void decode(byte[] raw, int rawOffset, int label, FloatMatrix inputs, FloatMatrix targets, int i) {
+        float[] x = inputs.getData();
+        float[] y = targets.getData();
+        int xi = inputs.getOffset() + i * inputs.getStride();
+        for (int j = 0; j < inputs.getCols(); j++) {
+            x[xi + j] = SCALE_FLOAT[raw[rawOffset + j] & 0xFF];
+        }
+        int yi = targets.getOffset() + i * targets.getStride();
+        for (int k = 0; k < targets.getCols(); k++) {
+            y[yi + k] = 0.0f;
+        }
+        y[yi + label] = 1.0f;
+    }
+
+    private void checkBatch(int[] indices, int from, int inputRows, int inputCols, int targetRows, int targetCols) {
+        if (indices == null || inputCols != features || targetCols != classes || inputRows != targetRows
+                || from < 0 || from + inputRows > indices.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot gather %d rows starting at index %d into %dx%d inputs and %dx%d targets from %d features "
+                            + "and %d classes.",
+                    inputRows, from, inputRows, inputCols, targetRows, targetCols, features, classes));
+        }
+    }
+
+    private int row(int[] indices, int i) {
+        int row = indices[i];
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + rows + " rows.");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,448 @@
+package com.mlp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mlp.Optimizer.OptimizerState;
+
+// Periodic training checkpoints for MLP.train: every everySteps weight updates and/or every everyEpochs epochs
+// (0 disables either). A checkpoint holds the weights and biases, the optimizer state, the shuffle RNG and the
+// position in the run, so MLP.resume followed by the same train call continues bit for bit. The training thread
+// only copies a snapshot; a background thread writes it to a temporary file, syncs it and renames it over the
+// previous checkpoint, so a crash mid-write leaves the last complete one. Training waits only if the previous
+// checkpoint is still being written when the next one is due. The end of a run, early stopping included, always
+// leaves a checkpoint of the final state.
+public class Checkpointer implements Closeable {
+
+    private static final byte[] MAGIC = { 'M', 'L', 'P', 'C' };
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final int everySteps;
+    private final int everyEpochs;
+    private final ExecutorService writer;
+    private Future<?> pending;
+    private int written;
+    // The progress of the last checkpoint taken, so that the end of a run does not write the same state twice.
+    private int savedEpoch = -1;
+    private long savedSteps = -1;
+    private boolean savedStopped;
+    private long stallNanos;
+    private final AtomicLong writeNanos = new AtomicLong();
+
+    public Checkpointer(Path file, int everySteps, int everyEpochs) {
+        if (file == null) {
+            throw new IllegalArgumentException("Checkpoint file cannot be null.");
+        }
+        if (everySteps < 0 || everyEpochs < 0) {
+            throw new IllegalArgumentException("Checkpoint intervals cannot be negative.");
+        }
+        this.file = file;
+        this.everySteps = everySteps;
+        this.everyEpochs = everyEpochs;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "mlp-checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    // Checkpoints handed to the writer so far, the time training spent taking snapshots and waiting for the writer,
+    // and the time the writer spent on disk.
+    public int getCheckpointsTaken() {
+        return this.written;
+    }
+
+    public long getStallNanos() {
+        return this.stallNanos;
+    }
+
+    public long getWriteNanos() {
+        return this.writeNanos.get();
+    }
+
+    void afterStep(MLP model, TrainingState progress) {
+        if (everySteps > 0 && progress.steps % everySteps == 0) {
+            save(model, progress);
+        }
+    }
+
+    void afterEpoch(MLP model, TrainingState progress) {
+        if (everyEpochs > 0 && progress.epoch % everyEpochs == 0) {
+            save(model, progress);
+        }
+    }
+
+    void afterRun(MLP model, TrainingState progress) {
+        if (progress.epoch != savedEpoch || progress.steps != savedSteps || progress.stopped != savedStopped) {
+            save(model, progress);
+        }
+    }
+
+    private void save(MLP model, TrainingState progress) {
+        long start = System.nanoTime();
+        savedEpoch = progress.epoch;
+        savedSteps = progress.steps;
+        savedStopped = progress.stopped;
+        Snapshot snapshot = Snapshot.capture(model, progress);
+        awaitPending();
+        pending = writer.submit(() -> {
+            write(snapshot);
+            return null;
+        });
+        written++;
+        stallNanos += System.nanoTime() - start;
+    }
+
+    // Blocks until the last checkpoint handed to the writer is on disk.
+    public void await() {
+        awaitPending();
+    }
+
+    private void awaitPending() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a checkpoint to be written.", e);
+        } catch (ExecutionException e) {
+            throw new UncheckedIOException("Writing checkpoint " + file + " failed.",
+                    e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+        } finally {
+            pending = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            awaitPending();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    private void write(Snapshot snapshot) throws IOException {
+        long start = System.nanoTime();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.bytes(MAGIC);
+            out.putInt(VERSION);
+            out.string(snapshot.precision.name());
+            out.putInt(snapshot.weights.length);
+            for (int l = 0; l < snapshot.weights.length; l++) {
+                out.doubles(snapshot.weights[l]);
+                out.doubles(snapshot.biases[l]);
+            }
+            out.string(snapshot.optimizer);
+            out.putLong(snapshot.optimizerState.getStep());
+            out.putInt(snapshot.optimizerState.getArrays().size());
+            for (Map.Entry<String, double[]> entry : snapshot.optimizerState.getArrays().entrySet()) {
+                out.string(entry.getKey());
+                out.doubles(entry.getValue());
+            }
+            TrainingState progress = snapshot.progress;
+            out.putInt(progress.epoch);
+            out.putInt(progress.cursor);
+            out.putLong(progress.steps);
+            out.putDouble(progress.epochLoss);
+            out.putDouble(progress.bestValidationLoss);
+            out.putInt(progress.epochsWithoutImprovement);
+            out.putInt(progress.stopped ? 1 : 0);
+            out.putInt(progress.order.length);
+            for (int index : progress.order) {
+                out.putInt(index);
+            }
+            out.putInt(snapshot.random.length);
+            out.bytes(snapshot.random);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            byte[] magic = in.bytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not an MLP checkpoint.");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + " in " + file + ".");
+            }
+            Snapshot snapshot = new Snapshot();
+            snapshot.precision = Precision.valueOf(in.string());
+            int layers = in.getInt();
+            snapshot.weights = new double[layers][];
+            snapshot.biases = new double[layers][];
+            for (int l = 0; l < layers; l++) {
+                snapshot.weights[l] = in.doubles();
+                snapshot.biases[l] = in.doubles();
+            }
+            snapshot.optimizer = in.string();
+            snapshot.optimizerState = new OptimizerState(in.getLong());
+            int arrays = in.getInt();
+            for (int a = 0; a < arrays; a++) {
+                String key = in.string();
+                snapshot.optimizerState.put(key, in.doubles());
+            }
+            TrainingState progress = new TrainingState(0);
+            progress.epoch = in.getInt();
+            progress.cursor = in.getInt();
+            progress.steps = in.getLong();
+            progress.epochLoss = in.getDouble();
+            progress.bestValidationLoss = in.getDouble();
+            progress.epochsWithoutImprovement = in.getInt();
+            progress.stopped = in.getInt() != 0;
+            progress.order = new int[in.getInt()];
+            for (int i = 0; i < progress.order.length; i++) {
+                progress.order[i] = in.getInt();
+            }
+            snapshot.progress = progress;
+            snapshot.random = in.bytes(in.getInt());
+            return snapshot;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed checkpoint " + file + ".", e);
+        }
+    }
+
+    // Everything a checkpoint holds, copied off the live model. float parameters are widened to double (exact).
+    static final class Snapshot {
+        Precision precision;
+        double[][] weights;
+        double[][] biases;
+        String optimizer;
+        OptimizerState optimizerState;
+        TrainingState progress;
+        byte[] random;
+
+        static Snapshot capture(MLP model, TrainingState progress) {
+            Snapshot snapshot = new Snapshot();
+            snapshot.precision = model.getPrecision();
+            if (snapshot.precision == Precision.FLOAT) {
+                List<FloatLayer> layers = model.getFloatLayers();
+                snapshot.weights = new double[layers.size()][];
+                snapshot.biases = new double[layers.size()][];
+                for (int l = 0; l < layers.size(); l++) {
+                    snapshot.weights[l] = widen(layers.get(l).getWeights());
+                    snapshot.biases[l] = widen(layers.get(l).getBiases());
+                }
+            } else {
+                List<Layer> layers = model.getLayers();
+                snapshot.weights = new double[layers.size()][];
+                snapshot.biases = new double[layers.size()][];
+                for (int l = 0; l < layers.size(); l++) {
+                    if (layers.get(l).isOffHeap()) {
+                        throw new UnsupportedOperationException("Checkpoints do not support off-heap layers.");
+                    }
+                    snapshot.weights[l] = layers.get(l).getWeights().copy().getData();
+                    snapshot.biases[l] = layers.get(l).getBiases().copy().getData();
+                }
+            }
+            snapshot.optimizer = model.getOptimizer().getClass().getName();
+            snapshot.optimizerState = model.getOptimizer().getState(model.getLayers(), model.getFloatLayers());
+            snapshot.progress = progress.copy();
+            snapshot.random = serialize(model.getShuffleRandom());
+            return snapshot;
+        }
+
+        Random random() throws IOException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(random))) {
+                return (Random) in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Checkpoint holds an unknown random generator.", e);
+            }
+        }
+
+        private static double[] widen(FloatMatrix m) {
+            double[] out = new double[m.size()];
+            for (int i = 0, k = 0; i < m.getRows(); i++) {
+                for (int j = 0; j < m.getCols(); j++) {
+                    out[k++] = m.getData()[m.index(i, j)];
+                }
+            }
+            return out;
+        }
+
+        private static byte[] serialize(Random random) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(random);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(v);
+        }
+
+        void putDouble(double v) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(v);
+        }
+
+        void bytes(byte[] v) throws IOException {
+            for (int from = 0; from < v.length; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), v.length - from);
+                buffer.put(v, from, n);
+                from += n;
+            }
+        }
+
+        void string(String v) throws IOException {
+            byte[] b = v.getBytes(StandardCharsets.UTF_8);
+            putInt(b.length);
+            bytes(b);
+        }
+
+        void doubles(double[] v) throws IOException {
+            putInt(v.length);
+            for (int from = 0; from < v.length; ) {
+                ensure(Double.BYTES);
+                int n = Math.min(buffer.remaining() / Double.BYTES, v.length - from);
+                buffer.asDoubleBuffer().put(v, from, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                from += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        double getDouble() throws IOException {
+            require(Double.BYTES);
+            return buffer.getDouble();
+        }
+
+        byte[] bytes(int length) throws IOException {
+            if (length < 0) {
+                throw new IOException("Negative length in checkpoint.");
+            }
+            byte[] v = new byte[length];
+            for (int from = 0; from < length; ) {
+                require(1);
+                int n = Math.min(buffer.remaining(), length - from);
+                buffer.get(v, from, n);
+                from += n;
+            }
+            return v;
+        }
+
+        String string() throws IOException {
+            return new String(bytes(getInt()), StandardCharsets.UTF_8);
+        }
+
+        double[] doubles() throws IOException {
+            int length = getInt();
+            if (length < 0 || (long) length * Double.BYTES > channel.size()) {
+                throw new IOException("Array length " + length + " exceeds the checkpoint size.");
+            }
+            double[] v = new double[length];
+            for (int from = 0; from < length; ) {
+                require(Double.BYTES);
+                int n = Math.min(buffer.remaining() / Double.BYTES, length - from);
+                buffer.asDoubleBuffer().get(v, from, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                from += n;
+            }
+            return v;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Checkpoint is truncated.");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
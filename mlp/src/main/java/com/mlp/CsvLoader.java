@@ -1,64 +1,70 @@
 package com.mlp;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-class DataPair {
-    final double[][] features;
-    final double[][] labels;
+// Loads labelled rows (class index first, then the raw pixel values) from a delimited file, scaling features by 1/255
+// and one-hot encoding labels. The file is memory-mapped in chunks that end on line breaks, the chunks are parsed from
+// their bytes (by CsvReader) concurrently on Matrix.getParallelPool(), and rows, warnings and errors are then taken
+// in file order, so the result is the same as reading the file line by line.
+public class CsvLoader {
 
-    DataPair(double[][] features, double[][] labels) {
-        this.features = features;
-        this.labels = labels;
-    }
-}
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 26;
+    private static final int CHUNKS_PER_THREAD = 4;
 
-public class CsvLoader {
     public static DataPair loadCsvData(String filePath, int numClasses, int expectedFeatures, String delimiter,
             boolean hasHeader, int limit) throws IOException, NumberFormatException {
         System.out.printf("  Loading CSV data from: %s (Limit: %d, Header: %s)\n", filePath, limit, hasHeader);
+        CsvReader.delimiterByte(delimiter);
         List<double[]> featureList = new ArrayList<>();
         List<double[]> labelList = new ArrayList<>();
-        String line;
         int rowsRead = 0;
-        int expectedColumns = expectedFeatures + 1;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            if (hasHeader) {
-                br.readLine();
-            }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = hasHeader ? nextLineStart(channel, 0, size) : 0;
+            long line = hasHeader ? 1 : 0;
+            ForkJoinPool pool = Matrix.getParallelPool();
+            int threads = pool == null ? 1 : pool.getParallelism();
+            long[] bounds = chunkBounds(channel, start, size, threads);
+            int chunks = bounds.length - 1;
+            // With a limit, chunks are parsed one wave of threads at a time, so little is parsed past the limit.
+            int wave = limit > 0 ? threads : chunks;
 
-            while ((line = br.readLine()) != null && (limit <= 0 || rowsRead < limit)) {
-                String[] values = line.split(delimiter);
-                if (values.length != expectedColumns) {
-                    System.err.printf("Warning: Skipping row %d. Expected %d columns, found %d.\n",
-                            (hasHeader ? rowsRead + 2 : rowsRead + 1), expectedColumns, values.length);
-                    continue;
-                }
+            for (int first = 0; first < chunks && (limit <= 0 || rowsRead < limit); first += wave) {
+                Chunk[] parsed = parseChunks(pool, channel, bounds, first, Math.min(wave, chunks - first),
+                        numClasses, expectedFeatures, delimiter);
+                for (Chunk chunk : parsed) {
+                    int skip = 0;
+                    for (int r = 0; r <= chunk.features.size() && (limit <= 0 || rowsRead < limit); r++) {
+                        while (skip < chunk.skipped.size() && chunk.skipped.get(skip).rowsBefore == r) {
+                            Skip s = chunk.skipped.get(skip++);
+                            System.err.printf("Warning: Skipping row %d. %s\n", line + s.line, s.reason);
+                        }
+                        if (r == chunk.features.size()) {
+                            if (chunk.error != null) {
+                                throw new NumberFormatException("Line " + (line + chunk.errorLine) + ", "
+                                        + chunk.error);
+                            }
+                            break;
+                        }
+                        featureList.add(chunk.features.get(r));
+                        labelList.add(chunk.labels.get(r));
 
-                int labelValue = Integer.parseInt(values[0].trim());
-                if (labelValue < 0 || labelValue >= numClasses) {
-                    System.err.printf("Warning: Skipping row %d. Label '%d' out of bounds [0, %d).\n",
-                            (hasHeader ? rowsRead + 2 : rowsRead + 1), labelValue, numClasses);
-                    continue;
-                }
-                double[] oneHotLabel = new double[numClasses];
-                oneHotLabel[labelValue] = 1.0;
-                labelList.add(oneHotLabel);
-
-                double[] features = new double[expectedFeatures];
-                for (int i = 0; i < expectedFeatures; i++) {
-                    double pixelValue = Double.parseDouble(values[i + 1].trim());
-                    features[i] = pixelValue / 255.0;
+                        rowsRead++;
+                        if (rowsRead > 0 && rowsRead % 10000 == 0)
+                            System.out.printf("    ...read %d data rows\n", rowsRead);
+                    }
+                    line += chunk.lines;
                 }
-                featureList.add(features);
-
-                rowsRead++;
-                if (rowsRead > 0 && rowsRead % 10000 == 0)
-                    System.out.printf("    ...read %d data rows\n", rowsRead);
             }
         }
 
@@ -73,4 +79,144 @@ public class CsvLoader {
 
         return new DataPair(featureArray, labelArray);
     }
-}
\ No newline at end of file
+
+    // Offsets [start, ..., size] splitting the rows after start into about CHUNKS_PER_THREAD chunks per thread, each
+    // beginning at the start of a line.
+    private static long[] chunkBounds(FileChannel channel, long start, long size, int threads) throws IOException {
+        long target = Math.max(MIN_CHUNK_BYTES,
+                Math.min(MAX_CHUNK_BYTES, (size - start) / ((long) CHUNKS_PER_THREAD * threads)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long position = start;
+        while (size - position > target) {
+            position = nextLineStart(channel, position + target, size);
+            if (position >= size) {
+                break;
+            }
+            bounds.add(position);
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // Offset just past the first '\n' at or after position, or size if there is none.
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static Chunk[] parseChunks(ForkJoinPool pool, FileChannel channel, long[] bounds, int first, int count,
+            int numClasses, int expectedFeatures, String delimiter) throws IOException {
+        Chunk[] parsed = new Chunk[count];
+        if (count == 1 || pool == null || pool.getParallelism() <= 1) {
+            for (int k = 0; k < count; k++) {
+                parsed[k] = parseChunk(channel, bounds[first + k], bounds[first + k + 1], numClasses,
+                        expectedFeatures, delimiter);
+            }
+            return parsed;
+        }
+        try {
+            pool.invoke(new ParallelFor(0, count, k -> {
+                try {
+                    parsed[k] = parseChunk(channel, bounds[first + k], bounds[first + k + 1], numClasses,
+                            expectedFeatures, delimiter);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return parsed;
+    }
+
+    // Parses the whole lines in [from, to) of the file; line numbers in the result count from the chunk's start.
+    // Parsing stops at the first malformed number, as reading the file line by line would.
+    private static Chunk parseChunk(FileChannel channel, long from, long to, int numClasses, int expectedFeatures,
+            String delimiter) throws IOException {
+        Chunk chunk = new Chunk();
+        if (to <= from) {
+            return chunk;
+        }
+        CsvReader reader = new CsvReader(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from), delimiter);
+        int expectedColumns = expectedFeatures + 1;
+        double[] row = new double[expectedColumns];
+        int columns;
+        while ((columns = reader.readRow(row)) >= 0) {
+            if (columns != expectedColumns) {
+                chunk.skip(reader.getLine(),
+                        String.format("Expected %d columns, found %d.", expectedColumns, columns));
+                continue;
+            }
+            String error = reader.rowError();
+            int labelValue = (int) row[0];
+            if (error == null && labelValue != row[0]) {
+                error = "label " + row[0] + " is not an integer";
+            }
+            if (error != null) {
+                chunk.error = error;
+                chunk.errorLine = reader.getLine();
+                break;
+            }
+            if (labelValue < 0 || labelValue >= numClasses) {
+                chunk.skip(reader.getLine(),
+                        String.format("Label '%d' out of bounds [0, %d).", labelValue, numClasses));
+                continue;
+            }
+            double[] oneHotLabel = new double[numClasses];
+            oneHotLabel[labelValue] = 1.0;
+            chunk.labels.add(oneHotLabel);
+
+            double[] features = new double[expectedFeatures];
+            for (int i = 0; i < expectedFeatures; i++) {
+                features[i] = row[i + 1] / 255.0;
+            }
+            chunk.features.add(features);
+        }
+        chunk.lines = reader.getLine();
+        return chunk;
+    }
+
+    private static final class Chunk {
+        final List<double[]> features = new ArrayList<>();
+        final List<double[]> labels = new ArrayList<>();
+        final List<Skip> skipped = new ArrayList<>();
+        long lines;
+        String error;
+        long errorLine;
+
+        void skip(long line, String reason) {
+            skipped.add(new Skip(features.size(), line, reason));
+        }
+    }
+
+    // A skipped row: how many valid rows of its chunk precede it, its line within the chunk, and why.
+    private static final class Skip {
+        final int rowsBefore;
+        final long line;
+        final String reason;
+
+        Skip(int rowsBefore, long line, String reason) {
+            this.rowsBefore = rowsBefore;
+            this.line = line;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.mlp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads rows of numeric fields straight from the bytes of a delimited file into a caller's double[], without
+// building a String per line or per field. Bytes are copied in blocks into a reused window; integer fields (MNIST
+// pixels and labels) are accumulated digit by digit in one pass, and anything else (decimals, exponents) falls back to
+// Double.parseDouble on that field alone. Fields are counted the way String.split counts them, so callers keep their
+// column checks.
+final class CsvReader implements Closeable {
+
+    private static final int WINDOW_SIZE = 1 << 16;
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final FileChannel channel;
+    private final ByteBuffer source;
+    private final byte delimiter;
+    private byte[] window = new byte[WINDOW_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private long line;
+    private int badColumn = -1;
+    private String badText;
+
+    CsvReader(Path file, String delimiter) throws IOException {
+        this.delimiter = delimiterByte(delimiter);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.source = null;
+    }
+
+    // Reads the rows in data (from its position to its limit), which the caller has already read or mapped.
+    CsvReader(ByteBuffer data, String delimiter) {
+        this.delimiter = delimiterByte(delimiter);
+        this.channel = null;
+        this.source = data;
+    }
+
+    static byte delimiterByte(String delimiter) {
+        if (delimiter == null || delimiter.length() != 1 || delimiter.charAt(0) > 127 || delimiter.charAt(0) == '\n') {
+            throw new IllegalArgumentException("Delimiter must be a single ASCII character.");
+        }
+        return (byte) delimiter.charAt(0);
+    }
+
+    // 1-based number of the line read last (headers and skipped rows included).
+    long getLine() {
+        return this.line;
+    }
+
+    boolean skipRow() throws IOException {
+        int end = nextRowEnd();
+        if (end < 0) {
+            return false;
+        }
+        advance(end);
+        return true;
+    }
+
+    // Parses the next row into values (fields past values.length are counted but not parsed) and returns its number
+    // of fields, or -1 at the end of the input. A field that is not a number does not stop the row; it is reported
+    // by checkRow, so that a row with the wrong column count is still just a row to skip.
+    int readRow(double[] values) throws IOException {
+        int end = nextRowEnd();
+        if (end < 0) {
+            return -1;
+        }
+        int columns = parseRow(position, end, values);
+        advance(end);
+        return columns;
+    }
+
+    // Throws the NumberFormatException that parsing the last row's bad field would have thrown, if there was one.
+    void checkRow() {
+        String error = rowError();
+        if (error != null) {
+            throw new NumberFormatException("Line " + line + ", " + error);
+        }
+    }
+
+    // The last row's bad field without the line number (which a caller reading a chunk of a file only knows later),
+    // or null.
+    String rowError() {
+        return badColumn < 0 ? null : "column " + (badColumn + 1) + ": For input string: \"" + badText + "\"";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void advance(int end) {
+        position = Math.min(end + 1, limit);
+        line++;
+    }
+
+    // Index in the window of the '\n' ending the row at position (or of the end of the input for an unterminated
+    // last line), reading more input as needed; -1 when no row is left.
+    private int nextRowEnd() throws IOException {
+        int scanned = position;
+        while (true) {
+            byte[] w = this.window;
+            for (int i = scanned; i < limit; i++) {
+                if (w[i] == '\n') {
+                    return i;
+                }
+            }
+            if (endOfInput) {
+                return position < limit ? limit : -1;
+            }
+            scanned = limit - position;
+            fill();
+        }
+    }
+
+    // Moves the unread bytes to the front of the window (growing it for a row longer than the window) and appends
+    // the next block of input.
+    private void fill() throws IOException {
+        int unread = limit - position;
+        if (unread == window.length) {
+            byte[] larger = new byte[window.length * 2];
+            System.arraycopy(window, position, larger, 0, unread);
+            window = larger;
+        } else {
+            System.arraycopy(window, position, window, 0, unread);
+        }
+        position = 0;
+        limit = unread;
+        int read;
+        if (channel != null) {
+            read = channel.read(ByteBuffer.wrap(window, limit, window.length - limit));
+        } else {
+            read = Math.min(source.remaining(), window.length - limit);
+            source.get(window, limit, read);
+            if (read == 0) {
+                read = -1;
+            }
+        }
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private int parseRow(int from, int end, double[] values) {
+        badColumn = -1;
+        if (from == end) {
+            // "".split(d) is one empty field.
+            return 1;
+        }
+        byte[] w = this.window;
+        byte delim = this.delimiter;
+        int column = 0;
+        int nonEmpty = 0;
+        int i = from;
+        while (true) {
+            int start = i;
+            long value = 0;
+            int digit;
+            while (i < end && (digit = w[i] - '0') >= 0 && digit <= 9) {
+                value = value * 10 + digit;
+                i++;
+            }
+            if (i > start && i - start <= MAX_FAST_DIGITS && (i == end || w[i] == delim)) {
+                // The common case, a bare unsigned integer.
+                if (column < values.length) {
+                    values[column] = (double) value;
+                }
+                nonEmpty = column + 1;
+            } else {
+                i = parseField(start, end, values, column);
+                if (i > start) {
+                    nonEmpty = column + 1;
+                }
+            }
+            column++;
+            if (i == end) {
+                break;
+            }
+            i++;
+        }
+        // String.split drops trailing empty fields.
+        return nonEmpty;
+    }
+
+    // Parses the field starting at start (surrounding blanks, a sign, digits or any other number) into
+    // values[column] if there is room, and returns the index of the delimiter or row end that closes it.
+    private int parseField(int start, int end, double[] values, int column) {
+        byte[] w = this.window;
+        byte delim = this.delimiter;
+        int i = start;
+        while (i < end && w[i] <= ' ' && w[i] != delim) {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && (w[i] == '-' || w[i] == '+')) {
+            negative = w[i] == '-';
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        int digit;
+        while (i < end && (digit = w[i] - '0') >= 0 && digit <= 9) {
+            value = value * 10 + digit;
+            i++;
+        }
+        int digits = i - digitsStart;
+        while (i < end && w[i] <= ' ' && w[i] != delim) {
+            i++;
+        }
+        boolean fieldEnd = i == end || w[i] == delim;
+        while (i < end && w[i] != delim) {
+            i++;
+        }
+        if (column < values.length) {
+            if (fieldEnd && digits > 0 && digits <= MAX_FAST_DIGITS) {
+                // (double) of a long is correctly rounded, as Double.parseDouble is, and keeps the sign of "-0".
+                values[column] = negative ? -(double) value : (double) value;
+            } else {
+                values[column] = parseSlow(start, i, column);
+            }
+        }
+        return i;
+    }
+
+    private double parseSlow(int from, int to, int column) {
+        String text = new String(window, from, to - from, StandardCharsets.US_ASCII).trim();
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            if (badColumn < 0) {
+                badColumn = column;
+                badText = text;
+            }
+            return Double.NaN;
+        }
+    }
+}
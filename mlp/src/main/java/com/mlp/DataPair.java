@@ -0,0 +1,19 @@
+package com.mlp;
+
+public class DataPair {
+    final double[][] features;
+    final double[][] labels;
+
+    DataPair(double[][] features, double[][] labels) {
+        this.features = features;
+        this.labels = labels;
+    }
+
+    public double[][] getFeatures() {
+        return features;
+    }
+
+    public double[][] getLabels() {
+        return labels;
+    }
+}
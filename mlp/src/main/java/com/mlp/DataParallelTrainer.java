@@ -0,0 +1,161 @@
+package com.mlp;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Synchronous data-parallel training. Every step splits the batch into one contiguous shard per worker; each worker
+// runs forward and backward on its own replica of the model, which reads the shared weights and keeps its own
+// activations and gradients. The shard gradients are then reduced into the model's layers and the optimizer runs
+// once, on the model, exactly as a single-threaded step over the whole batch would.
+public class DataParallelTrainer implements Closeable {
+
+    private final MLP model;
+    private final int workers;
+    private final ForkJoinPool pool;
+    private final MLP[] replicas;
+    private final int[] shardFrom;
+    private final double[] shardLoss;
+    private final Random shuffleRandom = new Random();
+
+    public DataParallelTrainer(MLP model, int workers) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null.");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be positive.");
+        }
+        for (Layer layer : model.getLayers()) {
+            if (layer.isOffHeap()) {
+                throw new UnsupportedOperationException("Data-parallel training does not support off-heap layers.");
+            }
+        }
+        this.model = model;
+        this.workers = workers;
+        this.pool = new ForkJoinPool(workers);
+        this.replicas = new MLP[workers];
+        for (int k = 0; k < workers; k++) {
+            this.replicas[k] = model.replica();
+        }
+        this.shardFrom = new int[workers + 1];
+        this.shardLoss = new double[workers];
+    }
+
+    public MLP getModel() {
+        return this.model;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    public void train(double[][] trainingInputs, double[][] trainingTargets, int maxEpochs, int batchSize) {
+        if (trainingInputs == null || trainingTargets == null || trainingInputs.length != trainingTargets.length
+                || trainingInputs.length == 0) {
+            throw new IllegalArgumentException("Invalid training data or targets.");
+        }
+        if (maxEpochs <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("maxEpochs and batchSize must be positive.");
+        }
+        System.out.printf("=== Starting Data-Parallel Training ===\nWorkers: %d, Max Epochs: %d, Batch Size: %d\n",
+                workers, maxEpochs, batchSize);
+
+        DenseMatrix x = DenseMatrix.of(trainingInputs);
+        DenseMatrix y = DenseMatrix.of(trainingTargets);
+        int[] order = new int[x.getRows()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        DenseMatrix inputBatch = null;
+        DenseMatrix targetBatch = null;
+        for (int epoch = 0; epoch < maxEpochs; epoch++) {
+            MLP.shuffle(order, shuffleRandom);
+            double loss = 0.0;
+            for (int from = 0; from < order.length; from += batchSize) {
+                int rows = Math.min(batchSize, order.length - from);
+                if (inputBatch == null || inputBatch.getRows() != rows) {
+                    inputBatch = new DenseMatrix(rows, x.getCols());
+                    targetBatch = new DenseMatrix(rows, y.getCols());
+                }
+                inputBatch.gatherRows(x, order, from);
+                targetBatch.gatherRows(y, order, from);
+                loss += step(inputBatch, targetBatch) * rows;
+            }
+            System.out.printf("Epoch %d/%d - Train Loss: %.6f\n", epoch + 1, maxEpochs, loss / order.length);
+        }
+    }
+
+    // One synchronous training step over the batch; returns the mean loss before the update.
+    public double step(DenseMatrix inputs, DenseMatrix targets) {
+        if (inputs == null || targets == null || inputs.getRows() != targets.getRows() || inputs.getRows() == 0) {
+            throw new IllegalArgumentException("Inputs and targets must have the same, non-zero number of rows.");
+        }
+        int rows = inputs.getRows();
+        int shards = Math.min(workers, rows);
+        for (int k = 0; k <= shards; k++) {
+            shardFrom[k] = (int) ((long) k * rows / shards);
+        }
+
+        pool.invoke(new ParallelFor(0, shards, k -> runShard(k, inputs, targets)));
+        pool.invoke(new ParallelFor(0, workers, stripe -> reduceStripe(stripe, shards, rows)));
+        model.updateWeights();
+
+        double loss = 0.0;
+        for (int k = 0; k < shards; k++) {
+            loss += shardLoss[k];
+        }
+        return loss / rows;
+    }
+
+    private void runShard(int k, DenseMatrix inputs, DenseMatrix targets) {
+        int from = shardFrom[k];
+        int to = shardFrom[k + 1];
+        MLP replica = replicas[k];
+        replica.syncParameters(model);
+        DenseMatrix shardTargets = targets.rowRange(from, to);
+        DenseMatrix prediction = replica.forwardLayers(inputs.rowRange(from, to));
+        shardLoss[k] = replica.calculateLoss(prediction, shardTargets) * (to - from);
+        replica.backward(shardTargets);
+    }
+
+    // Each replica averaged its gradients over its own shard, so the batch gradient is their shard-size weighted sum.
+    // A stripe task owns one contiguous slice of every gradient array and adds the replicas in a fixed order: no two
+    // threads write the same element and the result does not depend on scheduling.
+    private void reduceStripe(int stripe, int shards, int rows) {
+        List<Layer> layers = model.getLayers();
+        for (int l = 0; l < layers.size(); l++) {
+            reduce(layers.get(l).getWeightsGradient(), stripe, shards, rows, l, true);
+            reduce(layers.get(l).getBiasGradient(), stripe, shards, rows, l, false);
+        }
+    }
+
+    private void reduce(DenseMatrix dst, int stripe, int shards, int rows, int layer, boolean weights) {
+        // The model's gradients are views into its flat gradient array (see FlatParameters), the replicas' are not.
+        double[] d = dst.getData();
+        int offset = dst.getOffset();
+        int begin = (int) ((long) stripe * dst.size() / workers);
+        int end = (int) ((long) (stripe + 1) * dst.size() / workers);
+        for (int k = 0; k < shards; k++) {
+            Layer replicaLayer = replicas[k].getLayers().get(layer);
+            DenseMatrix src = weights ? replicaLayer.getWeightsGradient() : replicaLayer.getBiasGradient();
+            double[] g = src.getData();
+            int shift = src.getOffset() - offset;
+            double scale = (double) (shardFrom[k + 1] - shardFrom[k]) / rows;
+            if (k == 0) {
+                for (int i = offset + begin; i < offset + end; i++) {
+                    d[i] = scale * g[i + shift];
+                }
+            } else {
+                for (int i = offset + begin; i < offset + end; i++) {
+                    d[i] += scale * g[i + shift];
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,243 @@
+package com.mlp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// Labelled uint8 samples streamed from disk, so a training set need not fit in the heap. MLP.train(Dataset, ...)
+// reads every epoch through a BatchIterator, which shuffles the stream through a buffer of getShuffleBuffer() samples
+// and decodes up to getPrefetch() batches ahead on a background thread while the model trains on the current one.
+// Sources: a CSV as CsvLoader reads it (every feature an integer in [0, 255]), IDX image and label files, a CSV's
+// DatasetCache, or a ByteDataset. Only the shuffle buffer and the batches in flight are held in memory.
+public abstract class Dataset {
+
+    private final int features;
+    private final int classes;
+    private int shuffleBuffer = 10000;
+    private int prefetch = 4;
+
+    Dataset(int features, int classes) {
+        if (features <= 0 || classes <= 0) {
+            throw new IllegalArgumentException("Feature and class counts must be positive.");
+        }
+        this.features = features;
+        this.classes = classes;
+    }
+
+    // Rows of filePath as CsvLoader.loadCsvData would read them; rows it would skip are skipped with a warning (on
+    // the first pass only), and a malformed number or a feature outside [0, 255] fails the pass.
+    public static Dataset csv(String filePath, int numClasses, int expectedFeatures, String delimiter,
+            boolean hasHeader) {
+        CsvReader.delimiterByte(delimiter);
+        return new Dataset(expectedFeatures, numClasses) {
+            private volatile boolean warned;
+
+            @Override
+            SampleReader open() throws IOException {
+                CsvReader reader = new CsvReader(Paths.get(filePath), delimiter);
+                if (hasHeader) {
+                    reader.skipRow();
+                }
+                boolean warn = !warned;
+                double[] row = new double[expectedFeatures + 1];
+                return new SampleReader() {
+                    @Override
+                    public int read(byte[] features, int[] labels, int offset, int max) throws IOException {
+                        int count = 0;
+                        int columns;
+                        while (count < max && (columns = reader.readRow(row)) >= 0) {
+                            if (columns != row.length) {
+                                skip(String.format("Expected %d columns, found %d.", row.length, columns));
+                                continue;
+                            }
+                            reader.checkRow();
+                            int labelValue = (int) row[0];
+                            if (labelValue != row[0]) {
+                                throw new NumberFormatException("Line " + reader.getLine() + ", label " + row[0]
+                                        + " is not an integer");
+                            }
+                            if (labelValue < 0 || labelValue >= numClasses) {
+                                skip(String.format("Label '%d' out of bounds [0, %d).", labelValue, numClasses));
+                                continue;
+                            }
+                            int base = (offset + count) * expectedFeatures;
+                            for (int j = 0; j < expectedFeatures; j++) {
+                                double v = row[j + 1];
+                                if (!(v >= 0 && v <= 255) || v != (int) v) {
+                                    throw new NumberFormatException("Line " + reader.getLine() + ", column "
+                                            + (j + 2) + ": " + v + " is not a byte");
+                                }
+                                features[base + j] = (byte) v;
+                            }
+                            labels[offset + count] = labelValue;
+                            count++;
+                        }
+                        if (count < max) {
+                            warned = true;
+                        }
+                        return count;
+                    }
+
+                    private void skip(String reason) {
+                        if (warn) {
+                            System.err.printf("Warning: Skipping row %d. %s\n", reader.getLine(), reason);
+                        }
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        reader.close();
+                    }
+                };
+            }
+        };
+    }
+
+    // The images and labels of an IDX pair (as published for MNIST), pixels row-major.
+    public static Dataset idx(String imagesPath, String labelsPath, int numClasses) throws IOException {
+        int[] shape = idxShape(imagesPath, labelsPath);
+        return new Dataset(shape[1] * shape[2], numClasses) {
+            @Override
+            SampleReader open() throws IOException {
+                FileChannel images = FileChannel.open(Paths.get(imagesPath), StandardOpenOption.READ);
+                FileChannel labels;
+                try {
+                    labels = FileChannel.open(Paths.get(labelsPath), StandardOpenOption.READ);
+                } catch (IOException e) {
+                    images.close();
+                    throw e;
+                }
+                int count = shape[0];
+                int size = getFeatureCount();
+                return new SampleReader() {
+                    private long next;
+                    private ByteBuffer labelBytes = ByteBuffer.allocate(0);
+
+                    @Override
+                    public int read(byte[] features, int[] labelValues, int offset, int max) throws IOException {
+                        int n = (int) Math.min(max, count - next);
+                        readFully(images, ByteBuffer.wrap(features, offset * size, n * size), 16 + next * size);
+                        if (labelBytes.capacity() < n) {
+                            labelBytes = ByteBuffer.allocate(n);
+                        }
+                        labelBytes.clear().limit(n);
+                        readFully(labels, labelBytes, 8 + next);
+                        for (int i = 0; i < n; i++) {
+                            int label = labelBytes.get(i) & 0xFF;
+                            if (label >= numClasses) {
+                                throw new IOException("Label " + label + " of sample " + (next + i) + " in "
+                                        + labelsPath + " out of bounds [0, " + numClasses + ").");
+                            }
+                            labelValues[offset + i] = label;
+                        }
+                        next += n;
+                        return n;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            images.close();
+                        } finally {
+                            labels.close();
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    // filePath's DatasetCache (written first if it is missing or stale), read from the mapped file: the heap holds
+    // only the labels. The features must be pixels, as for DatasetCache.loadBytes.
+    public static Dataset cached(String filePath, int numClasses, int expectedFeatures, String delimiter,
+            boolean hasHeader) throws IOException {
+        return of(DatasetCache.loadBytes(filePath, numClasses, expectedFeatures, delimiter, hasHeader, -1));
+    }
+
+    public static Dataset of(ByteDataset data) {
+        return new Dataset(data.inputCount(), data.targetCount()) {
+            @Override
+            SampleReader open() {
+                return data.reader();
+            }
+        };
+    }
+
+    public int getFeatureCount() {
+        return features;
+    }
+
+    public int getClassCount() {
+        return classes;
+    }
+
+    // Samples the shuffle draws from; 1 keeps the storage order. Larger buffers shuffle better and hold more memory.
+    public Dataset setShuffleBuffer(int samples) {
+        if (samples <= 0) {
+            throw new IllegalArgumentException("Shuffle buffer must hold at least one sample.");
+        }
+        this.shuffleBuffer = samples;
+        return this;
+    }
+
+    public int getShuffleBuffer() {
+        return shuffleBuffer;
+    }
+
+    // Batches decoded ahead of the consumer; 0 reads and decodes each batch on the consumer's thread.
+    public Dataset setPrefetch(int batches) {
+        if (batches < 0) {
+            throw new IllegalArgumentException("Prefetch cannot be negative.");
+        }
+        this.prefetch = batches;
+        return this;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    // One pass over the samples in batches of batchSize (the last holds the remainder) decoded in precision,
+    // shuffled by random, or in storage order if random is null.
+    public BatchIterator batches(int batchSize, Precision precision, Random random) throws IOException {
+        return new BatchIterator(this, open(), batchSize, precision, random == null ? 1 : shuffleBuffer, random,
+                prefetch);
+    }
+
+    abstract SampleReader open() throws IOException;
+
+    // { count, rows, columns } from the headers of an IDX image file and its label file.
+    private static int[] idxShape(String imagesPath, String labelsPath) throws IOException {
+        ByteBuffer imageHeader = ByteBuffer.allocate(16);
+        ByteBuffer labelHeader = ByteBuffer.allocate(8);
+        try (FileChannel images = FileChannel.open(Paths.get(imagesPath), StandardOpenOption.READ);
+                FileChannel labels = FileChannel.open(Paths.get(labelsPath), StandardOpenOption.READ)) {
+            readFully(images, imageHeader, 0);
+            readFully(labels, labelHeader, 0);
+            if (imageHeader.getInt(0) != 2051 || labelHeader.getInt(0) != 2049) {
+                throw new IOException("Invalid IDX files: incorrect magic numbers.");
+            }
+            int count = Math.min(imageHeader.getInt(4), labelHeader.getInt(4));
+            int rows = imageHeader.getInt(8);
+            int columns = imageHeader.getInt(12);
+            if (count < 0 || rows <= 0 || columns <= 0
+                    || images.size() < 16 + (long) count * rows * columns || labels.size() < 8 + (long) count) {
+                throw new IOException("Invalid IDX files: truncated or bad dimensions.");
+            }
+            return new int[] { count, rows, columns };
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.mlp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// Binary cache of a labelled CSV, written next to the source (<file>.mlpd) the first time CsvLoader parses it and
+// memory-mapped by later loads, which skip parsing entirely. Everything is little-endian:
+//
+//   "MLPD" | int version | byte encoding (1 = uint8, 4 = float32) | int rows | int features | int classes
+//   | byte header flag | byte delimiter | long source size | long source modified millis | long source CRC32C
+//   zero padding, then int labels[rows] (class indices) at offset 64, then the features (rows x features,
+//   row-major) at the next 64-byte aligned offset
+//
+// Features are stored as the raw uint8 values when every one is v / 255 for an integer v in [0, 255] (MNIST pixels),
+// so a cached load gives exactly the values of parsing the CSV; otherwise as float32. The cache holds every row of
+// the source and a limit takes its first rows, as CsvLoader's limit does; loadBytes hands out a uint8 cache's mapped
+// pixels as a ByteDataset without decoding them. A cache whose recorded size or modification time no longer match the
+// source is still used if the source's checksum matches, and rebuilt otherwise.
+public final class DatasetCache {
+
+    public static final int VERSION = 1;
+    public static final String SUFFIX = ".mlpd";
+
+    static final int UINT8 = 1;
+    static final int FLOAT32 = 4;
+    static final int LABELS_OFFSET = 64;
+
+    private static final byte[] MAGIC = { 'M', 'L', 'P', 'D' };
+    private static final int ALIGNMENT = 64;
+    private static final int SOURCE_OFFSET = 23;
+    private static final int MAX_MAP_BYTES = 1 << 30;
+
+    private DatasetCache() {
+    }
+
+    public static Path cacheFile(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    // CsvLoader.loadCsvData through the cache of filePath.
+    public static DataPair loadCsv(String filePath, int numClasses, int expectedFeatures, String delimiter,
+            boolean hasHeader, int limit) throws IOException {
+        Path source = Paths.get(filePath);
+        Path cache = cacheFile(source);
+        byte delim = CsvReader.delimiterByte(delimiter);
+        DataPair cached = read(cache, source, numClasses, expectedFeatures, hasHeader, delim, limit);
+        if (cached != null) {
+            return cached;
+        }
+        return parse(filePath, cache, numClasses, expectedFeatures, delimiter, hasHeader, delim, limit);
+    }
+
+    // The cached features of filePath as bytes, mapped straight from a uint8 cache without decoding them; the CSV is
+    // parsed (and the cache written) first if there is no current cache. Throws IllegalArgumentException if the
+    // features are not all v / 255 for a byte v.
+    public static ByteDataset loadBytes(String filePath, int numClasses, int expectedFeatures, String delimiter,
+            boolean hasHeader, int limit) throws IOException {
+        Path source = Paths.get(filePath);
+        Path cache = cacheFile(source);
+        byte delim = CsvReader.delimiterByte(delimiter);
+        ByteDataset cached = readBytes(cache, source, numClasses, expectedFeatures, hasHeader, delim, limit);
+        if (cached != null) {
+            return cached;
+        }
+        DataPair parsed = parse(filePath, cache, numClasses, expectedFeatures, delimiter, hasHeader, delim, limit);
+        cached = readBytes(cache, source, numClasses, expectedFeatures, hasHeader, delim, limit);
+        return cached != null ? cached : ByteDataset.of(parsed);
+    }
+
+    // Parses the whole CSV and writes its cache, returning the first limit rows.
+    private static DataPair parse(String filePath, Path cache, int numClasses, int expectedFeatures, String delimiter,
+            boolean hasHeader, byte delim, int limit) throws IOException {
+        Path source = Paths.get(filePath);
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        long checksum = checksum(source);
+        DataPair all;
+        try {
+            all = CsvLoader.loadCsvData(filePath, numClasses, expectedFeatures, delimiter, hasHeader, -1);
+        } catch (NumberFormatException e) {
+            // A malformed row that a limited load may never reach: load as asked, without a cache.
+            if (limit <= 0) {
+                throw e;
+            }
+            return CsvLoader.loadCsvData(filePath, numClasses, expectedFeatures, delimiter, hasHeader, limit);
+        }
+        try {
+            write(cache, all, hasHeader, delim, size, modified, checksum);
+            System.out.printf("  Wrote dataset cache %s\n", cache);
+        } catch (IOException e) {
+            System.err.printf("Warning: Could not write dataset cache %s: %s\n", cache, e.getMessage());
+        }
+        return firstRows(all, limit);
+    }
+
+    // CRC32C of the whole file.
+    static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    static long featuresOffset(int rows) {
+        return align(LABELS_OFFSET + (long) rows * Integer.BYTES);
+    }
+
+    private static DataPair read(Path cache, Path source, int numClasses, int expectedFeatures, boolean hasHeader,
+            byte delimiter, int limit) throws IOException {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            int[] shape = header(channel, cache, source, numClasses, expectedFeatures, hasHeader, delimiter);
+            if (shape == null) {
+                return null;
+            }
+            int encoding = shape[0];
+            int rows = shape[1];
+            int features = expectedFeatures;
+            int count = limit > 0 ? Math.min(limit, rows) : rows;
+            System.out.printf("  Loading cached data from: %s (%d of %d rows)\n", cache, count, rows);
+            int[] labels = new int[count];
+            channel.map(FileChannel.MapMode.READ_ONLY, LABELS_OFFSET, (long) count * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(labels);
+            double[][] x = new double[count][features];
+            double[][] y = new double[count][numClasses];
+            long rowBytes = (long) features * encoding;
+            int rowsPerMap = (int) Math.max(1, MAX_MAP_BYTES / rowBytes);
+            byte[] raw = new byte[features];
+            float[] floats = new float[features];
+            for (int first = 0; first < count; first += rowsPerMap) {
+                int n = Math.min(rowsPerMap, count - first);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        featuresOffset(rows) + first * rowBytes, n * rowBytes);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = first; i < first + n; i++) {
+                    double[] row = x[i];
+                    if (encoding == UINT8) {
+                        mapped.get(raw);
+                        for (int j = 0; j < features; j++) {
+                            row[j] = (raw[j] & 0xFF) / 255.0;
+                        }
+                    } else {
+                        mapped.asFloatBuffer().get(floats);
+                        mapped.position(mapped.position() + features * Float.BYTES);
+                        for (int j = 0; j < features; j++) {
+                            row[j] = floats[j];
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (labels[i] < 0 || labels[i] >= numClasses) {
+                    return null;
+                }
+                y[i][labels[i]] = 1.0;
+            }
+            return new DataPair(x, y);
+        }
+    }
+
+    // The cache as a ByteDataset over its mapped pixels, or null if it is missing or stale.
+    private static ByteDataset readBytes(Path cache, Path source, int numClasses, int expectedFeatures,
+            boolean hasHeader, byte delimiter, int limit) throws IOException {
+        if (!Files.isRegularFile(cache)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            int[] shape = header(channel, cache, source, numClasses, expectedFeatures, hasHeader, delimiter);
+            if (shape == null) {
+                return null;
+            }
+            if (shape[0] != UINT8) {
+                throw new IllegalArgumentException("Features of " + source + " are not all bytes / 255.");
+            }
+            int rows = shape[1];
+            int count = limit > 0 ? Math.min(limit, rows) : rows;
+            if ((long) count * expectedFeatures > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(count + " rows of " + expectedFeatures
+                        + " features are too many for one ByteDataset.");
+            }
+            System.out.printf("  Mapping cached data from: %s (%d of %d rows)\n", cache, count, rows);
+            int[] labels = new int[count];
+            channel.map(FileChannel.MapMode.READ_ONLY, LABELS_OFFSET, (long) count * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(labels);
+            for (int label : labels) {
+                if (label < 0 || label >= numClasses) {
+                    return null;
+                }
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer pixels = channel.map(FileChannel.MapMode.READ_ONLY, featuresOffset(rows),
+                    (long) count * expectedFeatures);
+            return new ByteDataset(pixels, labels, expectedFeatures, numClasses);
+        }
+    }
+
+    // { encoding, rows } from the cache's header if the cache was written for these settings and source is unchanged
+    // since, else null.
+    private static int[] header(FileChannel channel, Path cache, Path source, int numClasses, int expectedFeatures,
+            boolean hasHeader, byte delimiter) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LABELS_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            continue;
+        }
+        header.flip();
+        if (header.remaining() < LABELS_OFFSET) {
+            return null;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        int version = header.getInt();
+        int encoding = header.get();
+        int rows = header.getInt();
+        int features = header.getInt();
+        int classes = header.getInt();
+        boolean headerRow = header.get() != 0;
+        byte delim = header.get();
+        long size = header.getLong();
+        long modified = header.getLong();
+        long checksum = header.getLong();
+        if (!Arrays.equals(magic, MAGIC) || version != VERSION || (encoding != UINT8 && encoding != FLOAT32)
+                || rows <= 0 || features != expectedFeatures || classes != numClasses || headerRow != hasHeader
+                || delim != delimiter || channel.size() < featuresOffset(rows) + (long) rows * features * encoding) {
+            return null;
+        }
+        long sourceSize = Files.size(source);
+        long sourceModified = Files.getLastModifiedTime(source).toMillis();
+        if (sourceSize != size || sourceModified != modified) {
+            if (sourceSize != size || checksum(source) != checksum) {
+                return null;
+            }
+            restamp(cache, sourceModified);
+        }
+        return new int[] { encoding, rows };
+    }
+
+    // Same bytes, new timestamp (a copy or a touch): records it so the next load skips the checksum. A read-only
+    // cache just keeps paying for the checksum.
+    private static void restamp(Path cache, long modified) {
+        ByteBuffer stamp = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        stamp.putLong(modified).flip();
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+            channel.write(stamp, SOURCE_OFFSET + Long.BYTES);
+        } catch (IOException e) {
+            return;
+        }
+    }
+
+    private static void write(Path cache, DataPair data, boolean hasHeader, byte delimiter, long size,
+            long modified, long checksum) throws IOException {
+        double[][] x = data.features;
+        double[][] y = data.labels;
+        int rows = x.length;
+        int features = x[0].length;
+        int encoding = isUint8(x) ? UINT8 : FLOAT32;
+
+        ByteBuffer header = ByteBuffer.allocate(LABELS_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).put((byte) encoding).putInt(rows).putInt(features).putInt(y[0].length)
+                .put((byte) (hasHeader ? 1 : 0)).put(delimiter).putLong(size).putLong(modified).putLong(checksum);
+        header.clear();
+
+        Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < rows; i++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(argmax(y[i]));
+            }
+            flush(channel, buffer);
+            channel.position(featuresOffset(rows));
+            for (double[] row : x) {
+                for (double v : row) {
+                    if (buffer.remaining() < Float.BYTES) {
+                        flush(channel, buffer);
+                    }
+                    if (encoding == UINT8) {
+                        buffer.put((byte) Math.round(v * 255.0));
+                    } else {
+                        buffer.putFloat((float) v);
+                    }
+                }
+            }
+            flush(channel, buffer);
+        }
+        Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isUint8(double[][] x) {
+        for (double[] row : x) {
+            for (double v : row) {
+                long raw = Math.round(v * 255.0);
+                if (raw < 0 || raw > 255 || raw / 255.0 != v) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int argmax(double[] oneHot) {
+        int best = 0;
+        for (int k = 1; k < oneHot.length; k++) {
+            if (oneHot[k] > oneHot[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    private static DataPair firstRows(DataPair data, int limit) {
+        if (limit <= 0 || limit >= data.features.length) {
+            return data;
+        }
+        return new DataPair(Arrays.copyOf(data.features, limit), Arrays.copyOf(data.labels, limit));
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
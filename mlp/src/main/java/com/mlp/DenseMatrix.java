@@ -0,0 +1,189 @@
+package com.mlp;
+
+import java.util.Arrays;
+
+public class DenseMatrix {
+
+    private final double[] data;
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    private final int stride;
+
+    public DenseMatrix(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions cannot be negative: " + rows + " x " + cols);
+        }
+        this.data = new double[rows * cols];
+        this.offset = 0;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols;
+    }
+
+    public DenseMatrix(double[] data, int offset, int rows, int cols, int stride) {
+        if (data == null) {
+            throw new IllegalArgumentException("Backing array cannot be null.");
+        }
+        if (rows < 0 || cols < 0 || stride < cols || offset < 0
+                || (rows > 0 && offset + (rows - 1) * stride + cols > data.length)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid matrix view: offset %d, shape (%d x %d), stride %d over array of length %d",
+                    offset, rows, cols, stride, data.length));
+        }
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = stride;
+    }
+
+    public DenseMatrix(double[] data, int rows, int cols) {
+        this(data, 0, rows, cols, cols);
+    }
+
+    public static DenseMatrix of(double[][] a) {
+        if (a == null) {
+            throw new IllegalArgumentException("Input matrix cannot be null.");
+        }
+        int rows = a.length;
+        int cols = rows == 0 ? 0 : a[0].length;
+        DenseMatrix ret = new DenseMatrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            if (a[i] == null || a[i].length != cols) {
+                throw new IllegalArgumentException("Jagged input: row " + i + " does not have " + cols + " columns.");
+            }
+            System.arraycopy(a[i], 0, ret.data, i * cols, cols);
+        }
+        return ret;
+    }
+
+    public static DenseMatrix rowVector(double[] v) {
+        if (v == null) {
+            return new DenseMatrix(1, 0);
+        }
+        return new DenseMatrix(Arrays.copyOf(v, v.length), 1, v.length);
+    }
+
+    public double[][] toArray() {
+        double[][] ret = new double[rows][];
+        for (int i = 0; i < rows; ++i) {
+            ret[i] = getRow(i);
+        }
+        return ret;
+    }
+
+    public double[] getRow(int i) {
+        checkRow(i);
+        int start = offset + i * stride;
+        return Arrays.copyOfRange(data, start, start + cols);
+    }
+
+    public DenseMatrix rowRange(int from, int to) {
+        if (from < 0 || to > rows || from > to) {
+            throw new IndexOutOfBoundsException("Row range [" + from + ", " + to + ") out of bounds for " + rows + " rows.");
+        }
+        return new DenseMatrix(data, offset + from * stride, to - from, cols, stride);
+    }
+
+    public DenseMatrix copyRowsFrom(DenseMatrix src, int fromRow) {
+        if (src == null || src.cols != cols || fromRow < 0 || fromRow + rows > src.rows) {
+            throw new IllegalArgumentException(String.format("Cannot copy %d rows starting at %d from %s into %s",
+                    rows, fromRow, src, this));
+        }
+        for (int i = 0; i < rows; ++i) {
+            System.arraycopy(src.data, src.offset + (fromRow + i) * src.stride, data, offset + i * stride, cols);
+        }
+        return this;
+    }
+
+    // Fills this matrix with the rows indices[from], indices[from + 1], ... of src.
+    public DenseMatrix gatherRows(DenseMatrix src, int[] indices, int from) {
+        if (src == null || indices == null || src.cols != cols || from < 0 || from + rows > indices.length) {
+            throw new IllegalArgumentException(String.format("Cannot gather %d rows starting at index %d from %s into %s",
+                    rows, from, src, this));
+        }
+        for (int i = 0; i < rows; ++i) {
+            int row = indices[from + i];
+            if (row < 0 || row >= src.rows) {
+                throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + src.rows + " rows.");
+            }
+            System.arraycopy(src.data, src.offset + row * src.stride, data, offset + i * stride, cols);
+        }
+        return this;
+    }
+
+    public DenseMatrix copy() {
+        DenseMatrix ret = new DenseMatrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            System.arraycopy(data, offset + i * stride, ret.data, i * cols, cols);
+        }
+        return ret;
+    }
+
+    public void fill(double value) {
+        for (int i = 0; i < rows; ++i) {
+            int start = offset + i * stride;
+            Arrays.fill(data, start, start + cols, value);
+        }
+    }
+
+    public double get(int i, int j) {
+        return data[index(i, j)];
+    }
+
+    public void set(int i, int j, double value) {
+        data[index(i, j)] = value;
+    }
+
+    public int index(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("Index (" + i + ", " + j + ") out of bounds for (" + rows + " x "
+                    + cols + ") matrix.");
+        }
+        return offset + i * stride + j;
+    }
+
+    public boolean isContiguous() {
+        return stride == cols || rows <= 1;
+    }
+
+    public boolean sameShape(DenseMatrix other) {
+        return other != null && rows == other.rows && cols == other.cols;
+    }
+
+    public int size() {
+        return rows * cols;
+    }
+
+    public double[] getData() {
+        return data;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    private void checkRow(int i) {
+        if (i < 0 || i >= rows) {
+            throw new IndexOutOfBoundsException("Row " + i + " out of bounds for " + rows + " rows.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DenseMatrix(" + rows + " x " + cols + ")";
+    }
+}
@@ -0,0 +1,94 @@
+package com.mlp;
+
+import java.util.List;
+
+// All weights and biases of a heap model in one array, and all their gradients in a second array with the same
+// layout: layer l's weights (row-major) start at getWeightOffset(l), directly followed by its biases at
+// getBiasOffset(l). The layers' parameter and gradient matrices are views of these arrays, so an optimizer can update
+// the whole model in one pass over a few flat arrays instead of layer by layer.
+public final class FlatParameters {
+
+    private final List<Layer> layers;
+    private final double[] values;
+    private final double[] gradients;
+    private final int[] weightOffsets;
+    private final int[] biasOffsets;
+
+    private FlatParameters(List<Layer> layers) {
+        this.layers = layers;
+        this.weightOffsets = new int[layers.size()];
+        this.biasOffsets = new int[layers.size()];
+        long size = 0;
+        for (int l = 0; l < layers.size(); l++) {
+            Layer layer = layers.get(l);
+            weightOffsets[l] = (int) size;
+            size += (long) layer.getNumOutputs() * layer.getNumInputs();
+            biasOffsets[l] = (int) size;
+            size += layer.getNumOutputs();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Model has too many parameters for a flat parameter array.");
+            }
+        }
+        this.values = new double[(int) size];
+        this.gradients = new double[(int) size];
+    }
+
+    // Moves the parameters of layers (heap layers only) into a new block; called once when a model is built.
+    static FlatParameters pack(List<Layer> layers) {
+        FlatParameters flat = new FlatParameters(layers);
+        for (int l = 0; l < layers.size(); l++) {
+            layers.get(l).pack(flat, flat.weightOffsets[l], flat.biasOffsets[l]);
+        }
+        return flat;
+    }
+
+    // The block holding exactly these layers in this order, or null if they are not packed together (off-heap
+    // layers, replicas, or a subset of a model).
+    public static FlatParameters of(List<Layer> layers) {
+        if (layers.isEmpty()) {
+            return null;
+        }
+        FlatParameters flat = layers.get(0).getFlatParameters();
+        if (flat == null || flat.layers.size() != layers.size()) {
+            return null;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            if (flat.layers.get(l) != layers.get(l)) {
+                return null;
+            }
+        }
+        return flat;
+    }
+
+    public double[] getValues() {
+        return this.values;
+    }
+
+    public double[] getGradients() {
+        return this.gradients;
+    }
+
+    public int size() {
+        return this.values.length;
+    }
+
+    public int getLayerCount() {
+        return this.layers.size();
+    }
+
+    public int getWeightOffset(int layer) {
+        return this.weightOffsets[layer];
+    }
+
+    public int getWeightCount(int layer) {
+        return this.biasOffsets[layer] - this.weightOffsets[layer];
+    }
+
+    public int getBiasOffset(int layer) {
+        return this.biasOffsets[layer];
+    }
+
+    public int getBiasCount(int layer) {
+        return this.layers.get(layer).getNumOutputs();
+    }
+}
@@ -0,0 +1,88 @@
+package com.mlp;
+
+import java.util.List;
+
+// Single-precision counterpart of FlatParameters, for models built with Precision.FLOAT.
+public final class FloatFlatParameters {
+
+    private final List<FloatLayer> layers;
+    private final float[] values;
+    private final float[] gradients;
+    private final int[] weightOffsets;
+    private final int[] biasOffsets;
+
+    private FloatFlatParameters(List<FloatLayer> layers) {
+        this.layers = layers;
+        this.weightOffsets = new int[layers.size()];
+        this.biasOffsets = new int[layers.size()];
+        long size = 0;
+        for (int l = 0; l < layers.size(); l++) {
+            FloatLayer layer = layers.get(l);
+            weightOffsets[l] = (int) size;
+            size += (long) layer.getNumOutputs() * layer.getNumInputs();
+            biasOffsets[l] = (int) size;
+            size += layer.getNumOutputs();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Model has too many parameters for a flat parameter array.");
+            }
+        }
+        this.values = new float[(int) size];
+        this.gradients = new float[(int) size];
+    }
+
+    static FloatFlatParameters pack(List<FloatLayer> layers) {
+        FloatFlatParameters flat = new FloatFlatParameters(layers);
+        for (int l = 0; l < layers.size(); l++) {
+            layers.get(l).pack(flat, flat.weightOffsets[l], flat.biasOffsets[l]);
+        }
+        return flat;
+    }
+
+    public static FloatFlatParameters of(List<FloatLayer> layers) {
+        if (layers.isEmpty()) {
+            return null;
+        }
+        FloatFlatParameters flat = layers.get(0).getFlatParameters();
+        if (flat == null || flat.layers.size() != layers.size()) {
+            return null;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            if (flat.layers.get(l) != layers.get(l)) {
+                return null;
+            }
+        }
+        return flat;
+    }
+
+    public float[] getValues() {
+        return this.values;
+    }
+
+    public float[] getGradients() {
+        return this.gradients;
+    }
+
+    public int size() {
+        return this.values.length;
+    }
+
+    public int getLayerCount() {
+        return this.layers.size();
+    }
+
+    public int getWeightOffset(int layer) {
+        return this.weightOffsets[layer];
+    }
+
+    public int getWeightCount(int layer) {
+        return this.biasOffsets[layer] - this.weightOffsets[layer];
+    }
+
+    public int getBiasOffset(int layer) {
+        return this.biasOffsets[layer];
+    }
+
+    public int getBiasCount(int layer) {
+        return this.layers.get(layer).getNumOutputs();
+    }
+}
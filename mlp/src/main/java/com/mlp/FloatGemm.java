@@ -0,0 +1,177 @@
+package com.mlp;
+
+import static com.mlp.Gemm.BLOCK_I;
+import static com.mlp.Gemm.BLOCK_J;
+import static com.mlp.Gemm.BLOCK_K;
+
+import java.util.Arrays;
+
+import com.mlp.ActivationFunction.ActivationFunc;
+
+// Single-precision counterparts of the Gemm tile kernels; scheduling is shared through Gemm.run.
+final class FloatGemm {
+
+    private FloatGemm() {
+    }
+
+    // c[i0:i1, j0:j1] += a * b, with a (m x k) and b (k x n).
+    static void multiplyTile(FloatMatrix a, FloatMatrix b, FloatMatrix c, int i0, int i1, int j0, int j1) {
+        FloatKernels kernels = Matrix.floatKernels();
+        float[] ad = a.getData();
+        float[] bd = b.getData();
+        float[] cd = c.getData();
+        int ao = a.getOffset(), as = a.getStride();
+        int bo = b.getOffset(), bs = b.getStride();
+        int co = c.getOffset(), cs = c.getStride();
+        int depth = a.getCols();
+
+        for (int kk = 0; kk < depth; kk += BLOCK_K) {
+            int kEnd = Math.min(kk + BLOCK_K, depth);
+            for (int jj = j0; jj < j1; jj += BLOCK_J) {
+                int width = Math.min(jj + BLOCK_J, j1) - jj;
+                int i = i0;
+                for (; i + 3 < i1; i += 4) {
+                    int a0 = ao + i * as, a1 = a0 + as, a2 = a1 + as, a3 = a2 + as;
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        kernels.axpy4(ad[a0 + k], ad[a1 + k], ad[a2 + k], ad[a3 + k], bd, bo + k * bs + jj,
+                                cd, c0, c0 + cs, c0 + 2 * cs, c0 + 3 * cs, width);
+                    }
+                }
+                for (; i < i1; ++i) {
+                    int a0 = ao + i * as;
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        kernels.axpy(ad[a0 + k], bd, bo + k * bs + jj, cd, c0, width);
+                    }
+                }
+            }
+        }
+    }
+
+    // c[i0:i1, j0:j1] += a^T * b, with a (k x m) and b (k x n).
+    static void multiplyTransATile(FloatMatrix a, FloatMatrix b, FloatMatrix c, int i0, int i1, int j0, int j1) {
+        FloatKernels kernels = Matrix.floatKernels();
+        float[] ad = a.getData();
+        float[] bd = b.getData();
+        float[] cd = c.getData();
+        int ao = a.getOffset(), as = a.getStride();
+        int bo = b.getOffset(), bs = b.getStride();
+        int co = c.getOffset(), cs = c.getStride();
+        int depth = a.getRows();
+
+        for (int kk = 0; kk < depth; kk += BLOCK_K) {
+            int kEnd = Math.min(kk + BLOCK_K, depth);
+            for (int jj = j0; jj < j1; jj += BLOCK_J) {
+                int width = Math.min(jj + BLOCK_J, j1) - jj;
+                int i = i0;
+                for (; i + 3 < i1; i += 4) {
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        int ak = ao + k * as + i;
+                        kernels.axpy4(ad[ak], ad[ak + 1], ad[ak + 2], ad[ak + 3], bd, bo + k * bs + jj,
+                                cd, c0, c0 + cs, c0 + 2 * cs, c0 + 3 * cs, width);
+                    }
+                }
+                for (; i < i1; ++i) {
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        kernels.axpy(ad[ao + k * as + i], bd, bo + k * bs + jj, cd, c0, width);
+                    }
+                }
+            }
+        }
+    }
+
+    // c[i0:i1, j0:j1] += a * b^T, with a (m x k) and b (n x k), as 2 x 4 blocks of row dot products.
+    static void multiplyTransBTile(FloatMatrix a, FloatMatrix b, FloatMatrix c, int i0, int i1, int j0, int j1) {
+        FloatKernels kernels = Matrix.floatKernels();
+        float[] ad = a.getData();
+        float[] bd = b.getData();
+        float[] cd = c.getData();
+        int ao = a.getOffset(), as = a.getStride();
+        int bo = b.getOffset(), bs = b.getStride();
+        int co = c.getOffset(), cs = c.getStride();
+        int depth = a.getCols();
+
+        for (int kk = 0; kk < depth; kk += BLOCK_K) {
+            int len = Math.min(kk + BLOCK_K, depth) - kk;
+            for (int ii = i0; ii < i1; ii += BLOCK_I) {
+                int iEnd = Math.min(ii + BLOCK_I, i1);
+                int j = j0;
+                for (; j + 3 < j1; j += 4) {
+                    int b0 = bo + j * bs + kk;
+                    int i = ii;
+                    for (; i + 1 < iEnd; i += 2) {
+                        int a0 = ao + i * as + kk;
+                        int c0 = co + i * cs + j;
+                        kernels.dot2x4(ad, a0, a0 + as, bd, b0, b0 + bs, b0 + 2 * bs, b0 + 3 * bs, len,
+                                cd, c0, c0 + cs);
+                    }
+                    for (; i < iEnd; ++i) {
+                        kernels.dot1x4(ad, ao + i * as + kk, bd, b0, b0 + bs, b0 + 2 * bs, b0 + 3 * bs, len,
+                                cd, co + i * cs + j);
+                    }
+                }
+                for (; j < j1; ++j) {
+                    int b0 = bo + j * bs + kk;
+                    for (int i = ii; i < iEnd; ++i) {
+                        cd[co + i * cs + j] += kernels.dot(ad, ao + i * as + kk, bd, b0, len);
+                    }
+                }
+            }
+        }
+    }
+
+    // c = act(a * b^T + bias). Rows are produced BLOCK_I at a time: each block is seeded with the bias, accumulated,
+    // and activated before moving on, so the epilogue reads the block while it is still in cache. A null
+    // activation leaves the biased sum (used for Softmax, which needs whole rows).
+    static final class DenseForward implements Gemm.TileKernel<FloatMatrix> {
+        FloatMatrix bias;
+        ActivationFunc activation;
+
+        @Override
+        public void compute(FloatMatrix a, FloatMatrix b, FloatMatrix c, int i0, int i1, int j0, int j1) {
+            float[] bd = bias.getData();
+            float[] cd = c.getData();
+            int co = c.getOffset(), cs = c.getStride();
+            int width = j1 - j0;
+            for (int ii = i0; ii < i1; ii += BLOCK_I) {
+                int iEnd = Math.min(ii + BLOCK_I, i1);
+                for (int i = ii; i < iEnd; ++i) {
+                    System.arraycopy(bd, bias.getOffset() + j0, cd, co + i * cs + j0, width);
+                }
+                multiplyTransBTile(a, b, c, ii, iEnd, j0, j1);
+                if (activation != null) {
+                    for (int i = ii; i < iEnd; ++i) {
+                        activation.activate(cd, cd, co + i * cs + j0, width);
+                    }
+                }
+            }
+        }
+    }
+
+    // c = (a * b) .* f'(activated), where activated has the same layout as c.
+    static final class DenseBackward implements Gemm.TileKernel<FloatMatrix> {
+        FloatMatrix activated;
+        ActivationFunc activation;
+
+        @Override
+        public void compute(FloatMatrix a, FloatMatrix b, FloatMatrix c, int i0, int i1, int j0, int j1) {
+            float[] cd = c.getData();
+            float[] xd = activated.getData();
+            int co = c.getOffset(), cs = c.getStride();
+            int width = j1 - j0;
+            for (int ii = i0; ii < i1; ii += BLOCK_I) {
+                int iEnd = Math.min(ii + BLOCK_I, i1);
+                for (int i = ii; i < iEnd; ++i) {
+                    Arrays.fill(cd, co + i * cs + j0, co + i * cs + j1, 0.0f);
+                }
+                multiplyTile(a, b, c, ii, iEnd, j0, j1);
+                for (int i = ii; i < iEnd; ++i) {
+                    activation.backward(xd, cd, cd, co + i * cs + j0, width);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mlp;
+
+interface FloatKernels {
+
+    void add(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n);
+
+    void subtract(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n);
+
+    void multiply(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n);
+
+    void divide(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n);
+
+    void scale(float[] a, int ao, float scalar, float[] r, int ro, int n);
+
+    void sqrt(float[] a, int ao, float[] r, int ro, int n);
+
+    float dot(float[] a, int ao, float[] b, int bo, int n);
+
+    // c[c0 + j] += x0 * b[bo + j]
+    void axpy(float x0, float[] b, int bo, float[] c, int c0, int n);
+
+    // c[cr + j] += xr * b[bo + j] for the four rows r = 0..3
+    void axpy4(float x0, float x1, float x2, float x3, float[] b, int bo,
+            float[] c, int c0, int c1, int c2, int c3, int n);
+
+    // c[c0 + q] += dot(a[a0..], b[bq..]) for q = 0..3
+    void dot1x4(float[] a, int a0, float[] b, int b0, int b1, int b2, int b3, int n, float[] c, int c0);
+
+    // c[cr + q] += dot(a[ar..], b[bq..]) for r = 0..1, q = 0..3
+    void dot2x4(float[] a, int a0, int a1, float[] b, int b0, int b1, int b2, int b3, int n,
+            float[] c, int c0, int c1);
+
+    static FloatKernels create(KernelBackend backend) {
+        if (backend == KernelBackend.VECTOR) {
+            if (!backend.isAvailable()) {
+                throw new IllegalStateException(
+                        "Vector kernels need the jdk.incubator.vector module (run with --add-modules jdk.incubator.vector).");
+            }
+            try {
+                return (FloatKernels) Class.forName("com.mlp.VectorFloatKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                throw new IllegalStateException("Could not load vector kernels: " + e, e);
+            }
+        }
+        return new ScalarFloatKernels();
+    }
+}
@@ -0,0 +1,242 @@
+package com.mlp;
+
+import com.mlp.ActivationFunction.ActivationFunc;
+
+// Single-precision counterpart of Layer, used by MLP when it is built with Precision.FLOAT.
+public class FloatLayer {
+
+    private int numInputs;
+    private int numOutputs;
+    private FloatMatrix weights;
+    private FloatMatrix biases;
+
+    private ActivationFunc activationFunction;
+
+    private static final int WORKSPACE_SLOTS = 4;
+    private final Workspace[] workspaces = new Workspace[WORKSPACE_SLOTS];
+    private Workspace workspace;
+    private final FloatGemm.DenseForward forwardKernel = new FloatGemm.DenseForward();
+    private final FloatGemm.DenseBackward backwardKernel = new FloatGemm.DenseBackward();
+
+    private FloatMatrix lastInput;
+    private FloatMatrix activatedData;
+
+    private FloatMatrix weightGradients;
+    private FloatMatrix biasGradients;
+    private FloatMatrix delta;
+    private FloatFlatParameters flatParameters;
+
+    // See Layer.
+    private boolean accumulating;
+    private int accumulatedRows;
+
+    public FloatLayer(int numInputs, int numOutputs, ActivationFunc activation, WeighInit initMethod) {
+        this.numInputs = numInputs;
+        this.numOutputs = numOutputs;
+        this.activationFunction = activation;
+
+        this.weights = new FloatMatrix(numOutputs, numInputs);
+        this.biases = new FloatMatrix(1, numOutputs);
+
+        initializeWeightsAndBiases(initMethod);
+
+        this.weightGradients = new FloatMatrix(numOutputs, numInputs);
+        this.biasGradients = new FloatMatrix(1, numOutputs);
+    }
+
+    // Adopts trained parameters (see ModelFile).
+    FloatLayer(ActivationFunc activation, FloatMatrix weights, FloatMatrix biases) {
+        this.numInputs = weights.getCols();
+        this.numOutputs = weights.getRows();
+        this.activationFunction = activation;
+        this.weights = weights;
+        this.biases = biases;
+        this.weightGradients = new FloatMatrix(numOutputs, numInputs);
+        this.biasGradients = new FloatMatrix(1, numOutputs);
+    }
+
+    // See Layer.pack.
+    void pack(FloatFlatParameters flat, int weightOffset, int biasOffset) {
+        FloatMatrix packedWeights = new FloatMatrix(flat.getValues(), weightOffset, numOutputs, numInputs, numInputs);
+        FloatMatrix packedBiases = new FloatMatrix(flat.getValues(), biasOffset, 1, numOutputs, numOutputs);
+        Matrix.copyInto(packedWeights, this.weights);
+        Matrix.copyInto(packedBiases, this.biases);
+        this.weights = packedWeights;
+        this.biases = packedBiases;
+        this.weightGradients = new FloatMatrix(flat.getGradients(), weightOffset, numOutputs, numInputs, numInputs);
+        this.biasGradients = new FloatMatrix(flat.getGradients(), biasOffset, 1, numOutputs, numOutputs);
+        this.flatParameters = flat;
+    }
+
+    FloatFlatParameters getFlatParameters() {
+        return this.flatParameters;
+    }
+
+    private void initializeWeightsAndBiases(WeighInit initMethod) {
+        for (int i = 0; i < numOutputs; i++) {
+            for (int j = 0; j < numInputs; j++) {
+                weights.set(i, j, (float) Layer.initialWeight(initMethod, numInputs, numOutputs));
+            }
+            biases.set(0, i, 0.0f);
+        }
+    }
+
+    // Returns the layer's activations in its reused workspace, as Layer.forward does.
+    public FloatMatrix forward(FloatMatrix inputs) {
+        if (inputs == null || inputs.getRows() == 0 || inputs.getCols() != numInputs) {
+            throw new IllegalArgumentException("Input matrix dimensions incorrect. Expected [batch_size][" + numInputs
+                    + "], got [" + (inputs == null ? 0 : inputs.getRows()) + "]["
+                    + (inputs == null ? 0 : inputs.getCols()) + "]");
+        }
+        this.lastInput = inputs;
+        this.workspace = workspaceFor(inputs.getRows());
+
+        this.activatedData = Matrix.denseForwardInto(this.forwardKernel, workspace.activatedData, this.lastInput,
+                this.weights, this.biases, this.activationFunction);
+
+        return this.activatedData;
+    }
+
+    // Reentrant forward pass for inference: reads the parameters only and stores nothing on the layer.
+    FloatMatrix infer(FloatMatrix input, FloatMatrix out, FloatGemm.DenseForward kernel) {
+        return Matrix.denseForwardInto(kernel, out, input, this.weights, this.biases, this.activationFunction);
+    }
+
+    // Takes this layer's error with its activation derivative already applied, and returns the same quantity for
+    // the previous layer, whose activation produced lastInput. The derivative is applied in the epilogue of the
+    // propagation matmul. With a null inputActivation (first layer) nothing is propagated and null is returned.
+    public FloatMatrix backwardToInput(FloatMatrix delta, ActivationFunc inputActivation) {
+        this.delta = delta;
+        computeGradients();
+
+        if (inputActivation == null) {
+            return null;
+        }
+        return Matrix.denseBackwardInto(this.backwardKernel, workspace.propagatedDelta, this.delta, this.weights,
+                this.lastInput, inputActivation);
+    }
+
+    private void computeGradients() {
+        if (this.delta == null || this.lastInput == null) {
+            throw new IllegalStateException(
+                    "Delta or lastInput is null during gradient calculation in FloatLayer.backward.");
+        }
+
+        int batchSize = this.lastInput.getRows();
+        if (accumulating && accumulatedRows > 0) {
+            Matrix.multiplyTransAAddInto(this.weightGradients, this.delta, this.lastInput);
+            Matrix.sumColumnsAddInto(this.biasGradients, this.delta);
+        } else {
+            Matrix.multiplyTransAInto(this.weightGradients, this.delta, this.lastInput);
+            Matrix.sumColumnsInto(this.biasGradients, this.delta);
+        }
+
+        if (accumulating) {
+            accumulatedRows += batchSize;
+            return;
+        }
+        accumulatedRows = 0;
+        if (batchSize > 0) {
+            Matrix.multiplyInPlace(this.weightGradients, 1.0f / batchSize);
+            Matrix.multiplyInPlace(this.biasGradients, 1.0f / batchSize);
+        }
+    }
+
+    void setAccumulating(boolean accumulating) {
+        this.accumulating = accumulating;
+    }
+
+    void finishAccumulation() {
+        if (accumulatedRows == 0) {
+            return;
+        }
+        Matrix.multiplyInPlace(this.weightGradients, 1.0f / accumulatedRows);
+        Matrix.multiplyInPlace(this.biasGradients, 1.0f / accumulatedRows);
+        accumulatedRows = 0;
+    }
+
+    // Buffers are keyed by batch size and kept in most-recently-used order, so alternating between a training
+    // batch size and an evaluation batch size does not reallocate.
+    private Workspace workspaceFor(int batchSize) {
+        if (workspace != null && workspace.batchSize == batchSize) {
+            return workspace;
+        }
+        int slot = 0;
+        while (slot < WORKSPACE_SLOTS - 1 && workspaces[slot] != null && workspaces[slot].batchSize != batchSize) {
+            slot++;
+        }
+        Workspace found = workspaces[slot];
+        if (found == null || found.batchSize != batchSize) {
+            found = new Workspace(batchSize, numInputs, numOutputs);
+        }
+        System.arraycopy(workspaces, 0, workspaces, 1, slot);
+        workspaces[0] = found;
+        return found;
+    }
+
+    private static final class Workspace {
+        final int batchSize;
+        final FloatMatrix activatedData;
+        final FloatMatrix propagatedDelta;
+
+        Workspace(int batchSize, int numInputs, int numOutputs) {
+            this.batchSize = batchSize;
+            this.activatedData = new FloatMatrix(batchSize, numOutputs);
+            this.propagatedDelta = new FloatMatrix(batchSize, numInputs);
+        }
+    }
+
+    public int getNumInputs() {
+        return this.numInputs;
+    }
+
+    public int getNumOutputs() {
+        return this.numOutputs;
+    }
+
+    public ActivationFunc getActivationFunction() {
+        return this.activationFunction;
+    }
+
+    public FloatMatrix getActivatedData() {
+        return this.activatedData;
+    }
+
+    public FloatMatrix getWeights() {
+        return this.weights;
+    }
+
+    public FloatMatrix getBiases() {
+        return this.biases;
+    }
+
+    public FloatMatrix getWeightsGradient() {
+        return this.weightGradients;
+    }
+
+    public FloatMatrix getBiasGradient() {
+        return this.biasGradients;
+    }
+
+    public void setWeights(FloatMatrix weights) {
+        if (weights == null || !weights.sameShape(this.weights)) {
+            throw new IllegalArgumentException("New weights dimensions do not match layer dimensions.");
+        }
+        if (flatParameters != null) {
+            Matrix.copyInto(this.weights, weights);
+            return;
+        }
+        this.weights = weights;
+    }
+
+    public void setBiases(FloatMatrix biases) {
+        if (biases == null || !biases.sameShape(this.biases)) {
+            throw new IllegalArgumentException("New biases dimensions do not match layer dimensions.");
+        }
+        if (flatParameters != null) {
+            Matrix.copyInto(this.biases, biases);
+            return;
+        }
+        this.biases = biases;
+    }
+}
\ No newline at end of file
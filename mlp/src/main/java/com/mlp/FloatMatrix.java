@@ -0,0 +1,221 @@
+package com.mlp;
+
+import java.util.Arrays;
+
+public class FloatMatrix {
+
+    private final float[] data;
+    private final int offset;
+    private final int rows;
+    private final int cols;
+    private final int stride;
+
+    public FloatMatrix(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions cannot be negative: " + rows + " x " + cols);
+        }
+        this.data = new float[rows * cols];
+        this.offset = 0;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols;
+    }
+
+    public FloatMatrix(float[] data, int offset, int rows, int cols, int stride) {
+        if (data == null) {
+            throw new IllegalArgumentException("Backing array cannot be null.");
+        }
+        if (rows < 0 || cols < 0 || stride < cols || offset < 0
+                || (rows > 0 && offset + (rows - 1) * stride + cols > data.length)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid matrix view: offset %d, shape (%d x %d), stride %d over array of length %d",
+                    offset, rows, cols, stride, data.length));
+        }
+        this.data = data;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = stride;
+    }
+
+    public FloatMatrix(float[] data, int rows, int cols) {
+        this(data, 0, rows, cols, cols);
+    }
+
+    public static FloatMatrix of(double[][] a) {
+        return of(DenseMatrix.of(a));
+    }
+
+    public static FloatMatrix of(DenseMatrix a) {
+        if (a == null) {
+            throw new IllegalArgumentException("Input matrix cannot be null.");
+        }
+        FloatMatrix ret = new FloatMatrix(a.getRows(), a.getCols());
+        double[] ad = a.getData();
+        for (int i = 0; i < a.getRows(); ++i) {
+            int ai = a.getOffset() + i * a.getStride();
+            int ri = i * ret.cols;
+            for (int j = 0; j < ret.cols; ++j) {
+                ret.data[ri + j] = (float) ad[ai + j];
+            }
+        }
+        return ret;
+    }
+
+    public static FloatMatrix of(float[][] a) {
+        if (a == null) {
+            throw new IllegalArgumentException("Input matrix cannot be null.");
+        }
+        int rows = a.length;
+        int cols = rows == 0 ? 0 : a[0].length;
+        FloatMatrix ret = new FloatMatrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            if (a[i] == null || a[i].length != cols) {
+                throw new IllegalArgumentException("Jagged input: row " + i + " does not have " + cols + " columns.");
+            }
+            System.arraycopy(a[i], 0, ret.data, i * cols, cols);
+        }
+        return ret;
+    }
+
+    public static FloatMatrix rowVector(float[] v) {
+        if (v == null) {
+            return new FloatMatrix(1, 0);
+        }
+        return new FloatMatrix(Arrays.copyOf(v, v.length), 1, v.length);
+    }
+
+    public DenseMatrix toDense() {
+        DenseMatrix ret = new DenseMatrix(rows, cols);
+        double[] rd = ret.getData();
+        for (int i = 0; i < rows; ++i) {
+            int start = offset + i * stride;
+            for (int j = 0; j < cols; ++j) {
+                rd[i * cols + j] = data[start + j];
+            }
+        }
+        return ret;
+    }
+
+    public float[][] toArray() {
+        float[][] ret = new float[rows][];
+        for (int i = 0; i < rows; ++i) {
+            ret[i] = getRow(i);
+        }
+        return ret;
+    }
+
+    public float[] getRow(int i) {
+        checkRow(i);
+        int start = offset + i * stride;
+        return Arrays.copyOfRange(data, start, start + cols);
+    }
+
+    public FloatMatrix rowRange(int from, int to) {
+        if (from < 0 || to > rows || from > to) {
+            throw new IndexOutOfBoundsException("Row range [" + from + ", " + to + ") out of bounds for " + rows + " rows.");
+        }
+        return new FloatMatrix(data, offset + from * stride, to - from, cols, stride);
+    }
+
+    public FloatMatrix copyRowsFrom(FloatMatrix src, int fromRow) {
+        if (src == null || src.cols != cols || fromRow < 0 || fromRow + rows > src.rows) {
+            throw new IllegalArgumentException(String.format("Cannot copy %d rows starting at %d from %s into %s",
+                    rows, fromRow, src, this));
+        }
+        for (int i = 0; i < rows; ++i) {
+            System.arraycopy(src.data, src.offset + (fromRow + i) * src.stride, data, offset + i * stride, cols);
+        }
+        return this;
+    }
+
+    // Fills this matrix with the rows indices[from], indices[from + 1], ... of src.
+    public FloatMatrix gatherRows(FloatMatrix src, int[] indices, int from) {
+        if (src == null || indices == null || src.cols != cols || from < 0 || from + rows > indices.length) {
+            throw new IllegalArgumentException(String.format("Cannot gather %d rows starting at index %d from %s into %s",
+                    rows, from, src, this));
+        }
+        for (int i = 0; i < rows; ++i) {
+            int row = indices[from + i];
+            if (row < 0 || row >= src.rows) {
+                throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + src.rows + " rows.");
+            }
+            System.arraycopy(src.data, src.offset + row * src.stride, data, offset + i * stride, cols);
+        }
+        return this;
+    }
+
+    public FloatMatrix copy() {
+        FloatMatrix ret = new FloatMatrix(rows, cols);
+        for (int i = 0; i < rows; ++i) {
+            System.arraycopy(data, offset + i * stride, ret.data, i * cols, cols);
+        }
+        return ret;
+    }
+
+    public void fill(float value) {
+        for (int i = 0; i < rows; ++i) {
+            int start = offset + i * stride;
+            Arrays.fill(data, start, start + cols, value);
+        }
+    }
+
+    public float get(int i, int j) {
+        return data[index(i, j)];
+    }
+
+    public void set(int i, int j, float value) {
+        data[index(i, j)] = value;
+    }
+
+    public int index(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("Index (" + i + ", " + j + ") out of bounds for (" + rows + " x "
+                    + cols + ") matrix.");
+        }
+        return offset + i * stride + j;
+    }
+
+    public boolean isContiguous() {
+        return stride == cols || rows <= 1;
+    }
+
+    public boolean sameShape(FloatMatrix other) {
+        return other != null && rows == other.rows && cols == other.cols;
+    }
+
+    public int size() {
+        return rows * cols;
+    }
+
+    public float[] getData() {
+        return data;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    private void checkRow(int i) {
+        if (i < 0 || i >= rows) {
+            throw new IndexOutOfBoundsException("Row " + i + " out of bounds for " + rows + " rows.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FloatMatrix(" + rows + " x " + cols + ")";
+    }
+}
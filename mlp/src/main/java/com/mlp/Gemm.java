@@ -0,0 +1,254 @@
+package com.mlp;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import com.mlp.ActivationFunction.ActivationFunc;
+
+final class Gemm {
+
+    static final int BLOCK_I = 64;
+    static final int BLOCK_J = 256;
+    static final int BLOCK_K = 128;
+
+    private static final long LEAF_FLOPS = 1L << 18;
+    private static final int MIN_TILE_ROWS = 4;
+    private static final int MIN_TILE_COLS = 16;
+
+    @FunctionalInterface
+    interface TileKernel<M> {
+        void compute(M a, M b, M c, int i0, int i1, int j0, int j1);
+    }
+
+    private Gemm() {
+    }
+
+    static void run(TileKernel<DenseMatrix> kernel, DenseMatrix a, DenseMatrix b, DenseMatrix c, int depth) {
+        run(kernel, a, b, c, c.getRows(), c.getCols(), depth);
+    }
+
+    static <M> void run(TileKernel<M> kernel, M a, M b, M c, int rows, int cols, int depth) {
+        long flops = 2L * rows * cols * depth;
+        ForkJoinPool pool = Matrix.getParallelPool();
+        // A caller already running on another fork-join pool (a DataParallelTrainer worker, say) has split the work
+        // itself; handing its tiles to a second pool would only oversubscribe the cores.
+        if (pool == null || pool.getParallelism() <= 1 || flops < Matrix.getParallelThreshold()
+                || onOtherPool(pool)) {
+            kernel.compute(a, b, c, 0, rows, 0, cols);
+            return;
+        }
+        pool.invoke(new TileTask<>(kernel, a, b, c, depth, 0, rows, 0, cols));
+    }
+
+    private static boolean onOtherPool(ForkJoinPool pool) {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() != pool;
+    }
+
+    private static final class TileTask<M> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TileKernel<M> kernel;
+        private final M a;
+        private final M b;
+        private final M c;
+        private final int depth;
+        private final int i0, i1, j0, j1;
+
+        TileTask(TileKernel<M> kernel, M a, M b, M c, int depth, int i0, int i1, int j0, int j1) {
+            this.kernel = kernel;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.depth = depth;
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = i1 - i0;
+            int cols = j1 - j0;
+            boolean canSplitRows = rows >= 2 * MIN_TILE_ROWS;
+            boolean canSplitCols = cols >= 2 * MIN_TILE_COLS;
+            if (2L * rows * cols * depth <= LEAF_FLOPS || (!canSplitRows && !canSplitCols)) {
+                kernel.compute(a, b, c, i0, i1, j0, j1);
+                return;
+            }
+            if (canSplitRows && (rows >= cols || !canSplitCols)) {
+                int mid = i0 + (rows / 2 / MIN_TILE_ROWS) * MIN_TILE_ROWS;
+                invokeAll(new TileTask<>(kernel, a, b, c, depth, i0, mid, j0, j1),
+                        new TileTask<>(kernel, a, b, c, depth, mid, i1, j0, j1));
+            } else {
+                int mid = j0 + (cols / 2 / MIN_TILE_COLS) * MIN_TILE_COLS;
+                invokeAll(new TileTask<>(kernel, a, b, c, depth, i0, i1, j0, mid),
+                        new TileTask<>(kernel, a, b, c, depth, i0, i1, mid, j1));
+            }
+        }
+    }
+
+    // c[i0:i1, j0:j1] += a * b, with a (m x k) and b (k x n).
+    static void multiplyTile(DenseMatrix a, DenseMatrix b, DenseMatrix c, int i0, int i1, int j0, int j1) {
+        Kernels kernels = Matrix.kernels();
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] cd = c.getData();
+        int ao = a.getOffset(), as = a.getStride();
+        int bo = b.getOffset(), bs = b.getStride();
+        int co = c.getOffset(), cs = c.getStride();
+        int depth = a.getCols();
+
+        for (int kk = 0; kk < depth; kk += BLOCK_K) {
+            int kEnd = Math.min(kk + BLOCK_K, depth);
+            for (int jj = j0; jj < j1; jj += BLOCK_J) {
+                int width = Math.min(jj + BLOCK_J, j1) - jj;
+                int i = i0;
+                for (; i + 3 < i1; i += 4) {
+                    int a0 = ao + i * as, a1 = a0 + as, a2 = a1 + as, a3 = a2 + as;
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        kernels.axpy4(ad[a0 + k], ad[a1 + k], ad[a2 + k], ad[a3 + k], bd, bo + k * bs + jj,
+                                cd, c0, c0 + cs, c0 + 2 * cs, c0 + 3 * cs, width);
+                    }
+                }
+                for (; i < i1; ++i) {
+                    int a0 = ao + i * as;
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        kernels.axpy(ad[a0 + k], bd, bo + k * bs + jj, cd, c0, width);
+                    }
+                }
+            }
+        }
+    }
+
+    // c[i0:i1, j0:j1] += a^T * b, with a (k x m) and b (k x n).
+    static void multiplyTransATile(DenseMatrix a, DenseMatrix b, DenseMatrix c, int i0, int i1, int j0, int j1) {
+        Kernels kernels = Matrix.kernels();
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] cd = c.getData();
+        int ao = a.getOffset(), as = a.getStride();
+        int bo = b.getOffset(), bs = b.getStride();
+        int co = c.getOffset(), cs = c.getStride();
+        int depth = a.getRows();
+
+        for (int kk = 0; kk < depth; kk += BLOCK_K) {
+            int kEnd = Math.min(kk + BLOCK_K, depth);
+            for (int jj = j0; jj < j1; jj += BLOCK_J) {
+                int width = Math.min(jj + BLOCK_J, j1) - jj;
+                int i = i0;
+                for (; i + 3 < i1; i += 4) {
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        int ak = ao + k * as + i;
+                        kernels.axpy4(ad[ak], ad[ak + 1], ad[ak + 2], ad[ak + 3], bd, bo + k * bs + jj,
+                                cd, c0, c0 + cs, c0 + 2 * cs, c0 + 3 * cs, width);
+                    }
+                }
+                for (; i < i1; ++i) {
+                    int c0 = co + i * cs + jj;
+                    for (int k = kk; k < kEnd; ++k) {
+                        kernels.axpy(ad[ao + k * as + i], bd, bo + k * bs + jj, cd, c0, width);
+                    }
+                }
+            }
+        }
+    }
+
+    // c[i0:i1, j0:j1] += a * b^T, with a (m x k) and b (n x k), as 2 x 4 blocks of row dot products.
+    static void multiplyTransBTile(DenseMatrix a, DenseMatrix b, DenseMatrix c, int i0, int i1, int j0, int j1) {
+        Kernels kernels = Matrix.kernels();
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] cd = c.getData();
+        int ao = a.getOffset(), as = a.getStride();
+        int bo = b.getOffset(), bs = b.getStride();
+        int co = c.getOffset(), cs = c.getStride();
+        int depth = a.getCols();
+
+        for (int kk = 0; kk < depth; kk += BLOCK_K) {
+            int len = Math.min(kk + BLOCK_K, depth) - kk;
+            for (int ii = i0; ii < i1; ii += BLOCK_I) {
+                int iEnd = Math.min(ii + BLOCK_I, i1);
+                int j = j0;
+                for (; j + 3 < j1; j += 4) {
+                    int b0 = bo + j * bs + kk;
+                    int i = ii;
+                    for (; i + 1 < iEnd; i += 2) {
+                        int a0 = ao + i * as + kk;
+                        int c0 = co + i * cs + j;
+                        kernels.dot2x4(ad, a0, a0 + as, bd, b0, b0 + bs, b0 + 2 * bs, b0 + 3 * bs, len,
+                                cd, c0, c0 + cs);
+                    }
+                    for (; i < iEnd; ++i) {
+                        kernels.dot1x4(ad, ao + i * as + kk, bd, b0, b0 + bs, b0 + 2 * bs, b0 + 3 * bs, len,
+                                cd, co + i * cs + j);
+                    }
+                }
+                for (; j < j1; ++j) {
+                    int b0 = bo + j * bs + kk;
+                    for (int i = ii; i < iEnd; ++i) {
+                        cd[co + i * cs + j] += kernels.dot(ad, ao + i * as + kk, bd, b0, len);
+                    }
+                }
+            }
+        }
+    }
+
+    // c = act(a * b^T + bias). Rows are produced BLOCK_I at a time: each block is seeded with the bias, accumulated,
+    // and activated before moving on, so the epilogue reads the block while it is still in cache. A null
+    // activation leaves the biased sum (used for Softmax, which needs whole rows).
+    static final class DenseForward implements TileKernel<DenseMatrix> {
+        DenseMatrix bias;
+        ActivationFunc activation;
+
+        @Override
+        public void compute(DenseMatrix a, DenseMatrix b, DenseMatrix c, int i0, int i1, int j0, int j1) {
+            double[] bd = bias.getData();
+            double[] cd = c.getData();
+            int co = c.getOffset(), cs = c.getStride();
+            int width = j1 - j0;
+            for (int ii = i0; ii < i1; ii += BLOCK_I) {
+                int iEnd = Math.min(ii + BLOCK_I, i1);
+                for (int i = ii; i < iEnd; ++i) {
+                    System.arraycopy(bd, bias.getOffset() + j0, cd, co + i * cs + j0, width);
+                }
+                multiplyTransBTile(a, b, c, ii, iEnd, j0, j1);
+                if (activation != null) {
+                    for (int i = ii; i < iEnd; ++i) {
+                        activation.activate(cd, cd, co + i * cs + j0, width);
+                    }
+                }
+            }
+        }
+    }
+
+    // c = (a * b) .* f'(activated), where activated has the same layout as c.
+    static final class DenseBackward implements TileKernel<DenseMatrix> {
+        DenseMatrix activated;
+        ActivationFunc activation;
+
+        @Override
+        public void compute(DenseMatrix a, DenseMatrix b, DenseMatrix c, int i0, int i1, int j0, int j1) {
+            double[] cd = c.getData();
+            double[] xd = activated.getData();
+            int co = c.getOffset(), cs = c.getStride();
+            int width = j1 - j0;
+            for (int ii = i0; ii < i1; ii += BLOCK_I) {
+                int iEnd = Math.min(ii + BLOCK_I, i1);
+                for (int i = ii; i < iEnd; ++i) {
+                    Arrays.fill(cd, co + i * cs + j0, co + i * cs + j1, 0.0);
+                }
+                multiplyTile(a, b, c, ii, iEnd, j0, j1);
+                for (int i = ii; i < iEnd; ++i) {
+                    activation.backward(xd, cd, cd, co + i * cs + j0, width);
+                }
+            }
+        }
+    }
+}
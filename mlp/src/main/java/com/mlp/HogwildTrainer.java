@@ -0,0 +1,137 @@
+package com.mlp;
+
+import java.io.Closeable;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.mlp.Optimizer.Optimizer;
+
+// Asynchronous, lock-free ("Hogwild") training. Workers claim batches of the shuffled sample order from a shared
+// cursor, run forward and backward on their own replica of the model and apply their optimizer straight into the
+// shared weight arrays, without waiting for each other or locking. Updates may therefore be computed against weights
+// other workers are changing at the same time; with sparse-ish inputs and SGD or momentum that staleness costs
+// little, and no thread ever waits. Each worker owns its optimizer, so momentum velocities are per worker.
+public class HogwildTrainer implements Closeable {
+
+    private final MLP model;
+    private final int workers;
+    private final ForkJoinPool pool;
+    private final Worker[] workerStates;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final Random shuffleRandom = new Random();
+    private int[] order = new int[0];
+
+    public HogwildTrainer(MLP model, int workers, Supplier<Optimizer> optimizerFactory) {
+        if (model == null || optimizerFactory == null) {
+            throw new IllegalArgumentException("Model and optimizer factory cannot be null.");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be positive.");
+        }
+        for (Layer layer : model.getLayers()) {
+            if (layer.isOffHeap()) {
+                throw new UnsupportedOperationException("Hogwild training does not support off-heap layers.");
+            }
+        }
+        this.model = model;
+        this.workers = workers;
+        this.pool = new ForkJoinPool(workers);
+        this.workerStates = new Worker[workers];
+        for (int k = 0; k < workers; k++) {
+            this.workerStates[k] = new Worker(model.replica(), optimizerFactory.get());
+        }
+    }
+
+    public MLP getModel() {
+        return this.model;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    public void train(double[][] trainingInputs, double[][] trainingTargets, int maxEpochs, int batchSize) {
+        if (trainingInputs == null || trainingTargets == null || trainingInputs.length != trainingTargets.length
+                || trainingInputs.length == 0) {
+            throw new IllegalArgumentException("Invalid training data or targets.");
+        }
+        if (maxEpochs <= 0) {
+            throw new IllegalArgumentException("maxEpochs must be positive.");
+        }
+        System.out.printf("=== Starting Hogwild Training ===\nWorkers: %d, Max Epochs: %d, Batch Size: %d\n",
+                workers, maxEpochs, batchSize);
+
+        DenseMatrix x = DenseMatrix.of(trainingInputs);
+        DenseMatrix y = DenseMatrix.of(trainingTargets);
+        for (int epoch = 0; epoch < maxEpochs; epoch++) {
+            double loss = trainEpoch(x, y, batchSize);
+            System.out.printf("Epoch %d/%d - Train Loss: %.6f\n", epoch + 1, maxEpochs, loss);
+        }
+    }
+
+    // One pass over the shuffled samples; returns the mean loss, each batch measured before its own update.
+    public double trainEpoch(DenseMatrix inputs, DenseMatrix targets, int batchSize) {
+        if (inputs == null || targets == null || inputs.getRows() != targets.getRows() || inputs.getRows() == 0) {
+            throw new IllegalArgumentException("Inputs and targets must have the same, non-zero number of rows.");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        if (order.length != inputs.getRows()) {
+            order = new int[inputs.getRows()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+        }
+        MLP.shuffle(order, shuffleRandom);
+        cursor.set(0);
+
+        pool.invoke(new ParallelFor(0, workers, k -> workerStates[k].run(inputs, targets, batchSize)));
+
+        double loss = 0.0;
+        for (int k = 0; k < workers; k++) {
+            loss += workerStates[k].loss;
+        }
+        return loss / order.length;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private final class Worker {
+        private final MLP replica;
+        private final Optimizer optimizer;
+        private DenseMatrix inputBatch;
+        private DenseMatrix targetBatch;
+        private double loss;
+
+        Worker(MLP replica, Optimizer optimizer) {
+            this.replica = replica;
+            this.optimizer = optimizer;
+        }
+
+        void run(DenseMatrix inputs, DenseMatrix targets, int batchSize) {
+            loss = 0.0;
+            int from;
+            while ((from = cursor.getAndAdd(batchSize)) < order.length) {
+                int rows = Math.min(batchSize, order.length - from);
+                if (inputBatch == null || inputBatch.getRows() != rows || inputBatch.getCols() != inputs.getCols()) {
+                    inputBatch = new DenseMatrix(rows, inputs.getCols());
+                    targetBatch = new DenseMatrix(rows, targets.getCols());
+                }
+                inputBatch.gatherRows(inputs, order, from);
+                targetBatch.gatherRows(targets, order, from);
+
+                replica.syncParameters(model);
+                DenseMatrix prediction = replica.forwardLayers(inputBatch);
+                loss += replica.calculateLoss(prediction, targetBatch) * rows;
+                replica.backward(targetBatch);
+                optimizer.update(replica.getLayers());
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.mlp;
+
+import java.util.List;
+
+// Reentrant inference over a trained MLP. Layer.forward keeps the batch's input and activations on the layer for
+// backpropagation, so one model cannot serve concurrent forward calls; a session instead runs every layer into
+// scratch buffers owned by the calling thread and stores nothing on the model. Any number of threads may predict
+// through one session without locking, and once a thread has seen a batch size its calls no longer allocate
+// (apart from the result arrays of the double[] convenience methods). Training the model while it serves
+// predictions is not supported.
+public class InferenceSession {
+
+    private final MLP model;
+    private final int inputSize;
+    private final int outputSize;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public InferenceSession(MLP model) {
+        if (model == null) {
+            throw new IllegalArgumentException("Model cannot be null.");
+        }
+        this.model = model;
+        if (model.getPrecision() == Precision.FLOAT) {
+            List<FloatLayer> layers = model.getFloatLayers();
+            this.inputSize = layers.get(0).getNumInputs();
+            this.outputSize = layers.get(layers.size() - 1).getNumOutputs();
+        } else {
+            List<Layer> layers = model.getLayers();
+            this.inputSize = layers.get(0).getNumInputs();
+            this.outputSize = layers.get(layers.size() - 1).getNumOutputs();
+        }
+    }
+
+    public MLP getModel() {
+        return this.model;
+    }
+
+    public int getInputSize() {
+        return this.inputSize;
+    }
+
+    public int getOutputSize() {
+        return this.outputSize;
+    }
+
+    public double[] predict(double[] input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input cannot be null.");
+        }
+        double[] output = new double[outputSize];
+        predictInto(new DenseMatrix(output, 1, outputSize), new DenseMatrix(input, 1, input.length));
+        return output;
+    }
+
+    public double[][] predict(double[][] inputs) {
+        DenseMatrix input = DenseMatrix.of(inputs);
+        return predictInto(new DenseMatrix(input.getRows(), outputSize), input).toArray();
+    }
+
+    public DenseMatrix predictInto(DenseMatrix dst, DenseMatrix input) {
+        checkDimensions(dst == null ? -1 : dst.getRows(), dst == null ? -1 : dst.getCols(), input == null ? -1
+                : input.getRows(), input == null ? -1 : input.getCols());
+        Scratch s = scratch.get();
+        if (model.getPrecision() == Precision.FLOAT) {
+            FloatMatrix floatInput = s.floatInput(input.getRows());
+            double[] id = input.getData();
+            float[] fd = floatInput.getData();
+            for (int i = 0; i < input.getRows(); i++) {
+                int row = input.getOffset() + i * input.getStride();
+                for (int j = 0; j < inputSize; j++) {
+                    fd[i * inputSize + j] = (float) id[row + j];
+                }
+            }
+            FloatMatrix out = runFloat(s, floatInput, s.floatOutput(input.getRows()));
+            float[] od = out.getData();
+            double[] dd = dst.getData();
+            for (int i = 0; i < dst.getRows(); i++) {
+                int row = dst.getOffset() + i * dst.getStride();
+                for (int j = 0; j < outputSize; j++) {
+                    dd[row + j] = od[i * outputSize + j];
+                }
+            }
+            return dst;
+        }
+        List<Layer> layers = model.getLayers();
+        DenseMatrix current = input;
+        for (int l = 0; l < layers.size(); l++) {
+            DenseMatrix out = l == layers.size() - 1 ? dst : s.hidden(l, input.getRows());
+            current = layers.get(l).infer(current, out, s.kernel, s.window);
+        }
+        return current;
+    }
+
+    public FloatMatrix predictInto(FloatMatrix dst, FloatMatrix input) {
+        checkDimensions(dst == null ? -1 : dst.getRows(), dst == null ? -1 : dst.getCols(), input == null ? -1
+                : input.getRows(), input == null ? -1 : input.getCols());
+        if (model.getPrecision() == Precision.DOUBLE) {
+            throw new UnsupportedOperationException("Float inference needs a model built with Precision.FLOAT.");
+        }
+        return runFloat(scratch.get(), input, dst);
+    }
+
+    private FloatMatrix runFloat(Scratch s, FloatMatrix input, FloatMatrix dst) {
+        List<FloatLayer> layers = model.getFloatLayers();
+        FloatMatrix current = input;
+        for (int l = 0; l < layers.size(); l++) {
+            FloatMatrix out = l == layers.size() - 1 ? dst : s.floatHidden(l, input.getRows());
+            current = layers.get(l).infer(current, out, s.floatKernel);
+        }
+        return current;
+    }
+
+    private void checkDimensions(int dstRows, int dstCols, int inputRows, int inputCols) {
+        if (inputRows <= 0 || inputCols != inputSize || dstRows != inputRows || dstCols != outputSize) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected input [batch_size][%d] and output [batch_size][%d], got [%d][%d] and [%d][%d]",
+                    inputSize, outputSize, inputRows, inputCols, dstRows, dstCols));
+        }
+    }
+
+    // Per-thread buffers for the hidden activations. The backing arrays only grow; the matrix views over them are
+    // rebuilt when the batch size changes.
+    private final class Scratch {
+        final Gemm.DenseForward kernel = new Gemm.DenseForward();
+        final FloatGemm.DenseForward floatKernel = new FloatGemm.DenseForward();
+        final double[] window;
+        final double[][] hiddenData;
+        final float[][] floatHiddenData;
+        final DenseMatrix[] hidden;
+        final FloatMatrix[] floatHidden;
+        float[] floatInputData = new float[0];
+        float[] floatOutputData = new float[0];
+        FloatMatrix floatInput;
+        FloatMatrix floatOutput;
+
+        Scratch() {
+            int layerCount = model.getPrecision() == Precision.FLOAT ? model.getFloatLayers().size()
+                    : model.getLayers().size();
+            int windowSize = 0;
+            if (model.getPrecision() == Precision.DOUBLE) {
+                for (Layer layer : model.getLayers()) {
+                    windowSize = Math.max(windowSize, layer.getInferenceWindowSize());
+                }
+            }
+            this.window = new double[windowSize];
+            this.hiddenData = new double[layerCount][0];
+            this.floatHiddenData = new float[layerCount][0];
+            this.hidden = new DenseMatrix[layerCount];
+            this.floatHidden = new FloatMatrix[layerCount];
+        }
+
+        DenseMatrix hidden(int l, int rows) {
+            if (hidden[l] == null || hidden[l].getRows() != rows) {
+                int cols = model.getLayers().get(l).getNumOutputs();
+                if (hiddenData[l].length < rows * cols) {
+                    hiddenData[l] = new double[rows * cols];
+                }
+                hidden[l] = new DenseMatrix(hiddenData[l], rows, cols);
+            }
+            return hidden[l];
+        }
+
+        FloatMatrix floatHidden(int l, int rows) {
+            if (floatHidden[l] == null || floatHidden[l].getRows() != rows) {
+                int cols = model.getFloatLayers().get(l).getNumOutputs();
+                if (floatHiddenData[l].length < rows * cols) {
+                    floatHiddenData[l] = new float[rows * cols];
+                }
+                floatHidden[l] = new FloatMatrix(floatHiddenData[l], rows, cols);
+            }
+            return floatHidden[l];
+        }
+
+        FloatMatrix floatInput(int rows) {
+            if (floatInput == null || floatInput.getRows() != rows) {
+                if (floatInputData.length < rows * inputSize) {
+                    floatInputData = new float[rows * inputSize];
+                }
+                floatInput = new FloatMatrix(floatInputData, rows, inputSize);
+            }
+            return floatInput;
+        }
+
+        FloatMatrix floatOutput(int rows) {
+            if (floatOutput == null || floatOutput.getRows() != rows) {
+                if (floatOutputData.length < rows * outputSize) {
+                    floatOutputData = new float[rows * outputSize];
+                }
+                floatOutput = new FloatMatrix(floatOutputData, rows, outputSize);
+            }
+            return floatOutput;
+        }
+    }
+}
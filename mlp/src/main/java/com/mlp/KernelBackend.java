@@ -0,0 +1,10 @@
+package com.mlp;
+
+public enum KernelBackend {
+    SCALAR,
+    VECTOR;
+
+    public boolean isAvailable() {
+        return this == SCALAR || ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+}
@@ -0,0 +1,55 @@
+package com.mlp;
+
+interface Kernels {
+
+    void add(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n);
+
+    void subtract(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n);
+
+    void multiply(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n);
+
+    void divide(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n);
+
+    void scale(double[] a, int ao, double scalar, double[] r, int ro, int n);
+
+    void sqrt(double[] a, int ao, double[] r, int ro, int n);
+
+    double dot(double[] a, int ao, double[] b, int bo, int n);
+
+    // c[c0 + j] += x0 * b[bo + j]
+    void axpy(double x0, double[] b, int bo, double[] c, int c0, int n);
+
+    // c[cr + j] += xr * b[bo + j] for the four rows r = 0..3
+    void axpy4(double x0, double x1, double x2, double x3, double[] b, int bo,
+            double[] c, int c0, int c1, int c2, int c3, int n);
+
+    // c[c0 + q] += dot(a[a0..], b[bq..]) for q = 0..3
+    void dot1x4(double[] a, int a0, double[] b, int b0, int b1, int b2, int b3, int n, double[] c, int c0);
+
+    // c[cr + q] += dot(a[ar..], b[bq..]) for r = 0..1, q = 0..3
+    void dot2x4(double[] a, int a0, int a1, double[] b, int b0, int b1, int b2, int b3, int n,
+            double[] c, int c0, int c1);
+
+    static Kernels create(KernelBackend backend) {
+        if (backend == KernelBackend.VECTOR) {
+            if (!backend.isAvailable()) {
+                throw new IllegalStateException(
+                        "Vector kernels need the jdk.incubator.vector module (run with --add-modules jdk.incubator.vector).");
+            }
+            try {
+                return (Kernels) Class.forName("com.mlp.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                throw new IllegalStateException("Could not load vector kernels: " + e, e);
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    static KernelBackend defaultBackend() {
+        String requested = System.getProperty("mlp.kernels");
+        if (requested != null) {
+            return KernelBackend.valueOf(requested.trim().toUpperCase());
+        }
+        return KernelBackend.VECTOR.isAvailable() ? KernelBackend.VECTOR : KernelBackend.SCALAR;
+    }
+}
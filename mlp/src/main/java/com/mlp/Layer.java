@@ -1,191 +1,548 @@
 package com.mlp;
 
-import java.util.Arrays;
 import java.util.Random;
 
 import com.mlp.ActivationFunction.ActivationFunc;
+import com.mlp.ActivationFunction.Linear;
 import com.mlp.ActivationFunction.Softmax;
 
 public class Layer {
 
     private int numInputs;
     private int numOutputs;
-    private double[][] weights;
-    private double[] biases;
+    private DenseMatrix weights;
+    private DenseMatrix biases;
 
     private ActivationFunc activationFunction;
 
-    private double[][] lastInput;
-    private double[][] weightedSum;
-    private double[][] activatedData;
-
-    private double[][] weightGradients;
-    private double[] biasGradients;
-    private double[][] delta;
+    private static final int WORKSPACE_SLOTS = 4;
+    private final Workspace[] workspaces = new Workspace[WORKSPACE_SLOTS];
+    private Workspace workspace;
+    private final Gemm.DenseForward forwardKernel = new Gemm.DenseForward();
+    private final Gemm.DenseBackward backwardKernel = new Gemm.DenseBackward();
+
+    private DenseMatrix lastInput;
+    private DenseMatrix activatedData;
+
+    private DenseMatrix weightGradients;
+    private DenseMatrix biasGradients;
+    private DenseMatrix delta;
+    private FlatParameters flatParameters;
+
+    // While accumulating, backward adds unscaled gradient sums to those of the previous micro-batches and
+    // finishAccumulation divides by the rows seen, so no batch-sized buffer outlives a micro-batch.
+    private boolean accumulating;
+    private int accumulatedRows;
+
+    // Off-heap parameters replace weights/weightGradients and are streamed through the windows a block of rows at a
+    // time.
+    private static final int WINDOW_ELEMENTS = 1 << 19;
+    private static final ActivationFunc LINEAR = new Linear();
+    private final ParameterStore parameterStore;
+    private ParameterBuffer offHeapWeights;
+    private ParameterBuffer offHeapWeightGradients;
+    private DenseMatrix weightWindow;
+    private DenseMatrix gradientWindow;
+    private double[][] stateWindows = new double[0][];
 
     private static final Random rand = new Random(System.currentTimeMillis());
 
     public Layer(int numInputs, int numOutputs, ActivationFunc activation, WeighInit initMethod) {
+        this(numInputs, numOutputs, activation, initMethod, ParameterStore.heap());
+    }
+
+    public Layer(int numInputs, int numOutputs, ActivationFunc activation, WeighInit initMethod,
+            ParameterStore parameterStore) {
+        if (parameterStore == null) {
+            throw new IllegalArgumentException("Parameter store cannot be null.");
+        }
         this.numInputs = numInputs;
         this.numOutputs = numOutputs;
         this.activationFunction = activation;
+        this.parameterStore = parameterStore;
 
-        this.weights = new double[numOutputs][numInputs];
-        this.biases = new double[numOutputs];
+        if (parameterStore.isOffHeap()) {
+            long size = (long) numOutputs * numInputs;
+            this.offHeapWeights = parameterStore.allocate(size);
+            this.offHeapWeightGradients = parameterStore.allocate(size);
+            createWindows();
+        } else {
+            this.weights = new DenseMatrix(numOutputs, numInputs);
+        }
+        this.biases = new DenseMatrix(1, numOutputs);
 
         initializeWeightsAndBiases(initMethod);
 
-        this.weightGradients = new double[numOutputs][numInputs];
-        this.biasGradients = new double[numOutputs];
+        if (!parameterStore.isOffHeap()) {
+            this.weightGradients = new DenseMatrix(numOutputs, numInputs);
+        }
+        this.biasGradients = new DenseMatrix(1, numOutputs);
+    }
+
+    // Adopts trained parameters (see ModelFile): either heap weights, or a weight buffer that makes the layer off-heap.
+    // The gradients of an adopted buffer are only allocated from parameterStore if the layer is ever trained.
+    Layer(ActivationFunc activation, DenseMatrix weights, ParameterBuffer weightBuffer, DenseMatrix biases,
+            ParameterStore parameterStore) {
+        this.numInputs = weights != null ? weights.getCols() : (int) (weightBuffer.size() / biases.getCols());
+        this.numOutputs = biases.getCols();
+        this.activationFunction = activation;
+        this.parameterStore = parameterStore;
+        this.biases = biases;
+        this.biasGradients = new DenseMatrix(1, numOutputs);
+        if (weightBuffer != null) {
+            this.offHeapWeights = weightBuffer;
+            createWindows();
+        } else {
+            this.weights = weights;
+            this.weightGradients = new DenseMatrix(numOutputs, numInputs);
+        }
+    }
+
+    private void createWindows() {
+        int windowRows = Math.max(1, Math.min(numOutputs, WINDOW_ELEMENTS / Math.max(1, numInputs)));
+        this.weightWindow = new DenseMatrix(windowRows, numInputs);
+        this.gradientWindow = new DenseMatrix(windowRows, numInputs);
+    }
+
+    // A replica reads the weights and biases of master but has its own activations, deltas and gradients, so several
+    // replicas can run forward and backward passes concurrently while nothing writes the shared parameters.
+    private Layer(Layer master) {
+        if (master.offHeapWeights != null) {
+            throw new UnsupportedOperationException("Off-heap layers cannot be replicated.");
+        }
+        this.numInputs = master.numInputs;
+        this.numOutputs = master.numOutputs;
+        this.activationFunction = master.activationFunction;
+        this.parameterStore = master.parameterStore;
+        this.weights = master.weights;
+        this.biases = master.biases;
+        this.weightGradients = new DenseMatrix(numOutputs, numInputs);
+        this.biasGradients = new DenseMatrix(1, numOutputs);
+    }
+
+    Layer replica() {
+        return new Layer(this);
+    }
+
+    // Moves the parameters into flat's arrays and makes the parameter and gradient matrices views of them.
+    void pack(FlatParameters flat, int weightOffset, int biasOffset) {
+        DenseMatrix packedWeights = new DenseMatrix(flat.getValues(), weightOffset, numOutputs, numInputs, numInputs);
+        DenseMatrix packedBiases = new DenseMatrix(flat.getValues(), biasOffset, 1, numOutputs, numOutputs);
+        Matrix.copyInto(packedWeights, this.weights);
+        Matrix.copyInto(packedBiases, this.biases);
+        this.weights = packedWeights;
+        this.biases = packedBiases;
+        this.weightGradients = new DenseMatrix(flat.getGradients(), weightOffset, numOutputs, numInputs, numInputs);
+        this.biasGradients = new DenseMatrix(flat.getGradients(), biasOffset, 1, numOutputs, numOutputs);
+        this.flatParameters = flat;
+    }
+
+    FlatParameters getFlatParameters() {
+        return this.flatParameters;
+    }
+
+    // Picks up parameter matrices the master may have swapped in through setWeights/setBiases.
+    void syncParameters(Layer master) {
+        this.weights = master.weights;
+        this.biases = master.biases;
     }
 
     private void initializeWeightsAndBiases(WeighInit initMethod) {
+        if (offHeapWeights != null) {
+            double[] window = weightWindow.getData();
+            for (int r0 = 0; r0 < numOutputs; r0 += weightWindow.getRows()) {
+                int length = (Math.min(r0 + weightWindow.getRows(), numOutputs) - r0) * numInputs;
+                for (int k = 0; k < length; k++) {
+                    window[k] = initialWeight(initMethod, numInputs, numOutputs);
+                }
+                offHeapWeights.put((long) r0 * numInputs, window, 0, length);
+            }
+            return;
+        }
+        for (int i = 0; i < numOutputs; i++) {
+            for (int j = 0; j < numInputs; j++) {
+                weights.set(i, j, initialWeight(initMethod, numInputs, numOutputs));
+            }
+            biases.set(0, i, 0.0);
+        }
+    }
+
+    static double initialWeight(WeighInit initMethod, int numInputs, int numOutputs) {
         switch (initMethod) {
             case GLOROT_UNIFORM:
                 double limitGlorot = Math.sqrt(6.0 / (numInputs + numOutputs));
-                for (int i = 0; i < numOutputs; i++) {
-                    for (int j = 0; j < numInputs; j++) {
-                        weights[i][j] = (rand.nextDouble() * 2.0 - 1.0) * limitGlorot;
-                    }
-                    biases[i] = 0.0;
-                }
-                break;
+                return (rand.nextDouble() * 2.0 - 1.0) * limitGlorot;
             case HE_UNIFORM:
                 double limitHe = Math.sqrt(6.0 / numInputs);
-                for (int i = 0; i < numOutputs; i++) {
-                    for (int j = 0; j < numInputs; j++) {
-                        weights[i][j] = (rand.nextDouble() * 2.0 - 1.0) * limitHe;
-                    }
-                    biases[i] = 0.0;
-                }
-                break;
+                return (rand.nextDouble() * 2.0 - 1.0) * limitHe;
             case RANDOM_NORMAL:
                 double stdDev = 0.01;
-                for (int i = 0; i < numOutputs; i++) {
-                    for (int j = 0; j < numInputs; j++) {
-                        weights[i][j] = rand.nextGaussian() * stdDev;
-                    }
-                    biases[i] = 0.0;
-                }
-                break;
+                return rand.nextGaussian() * stdDev;
             case RANDOM_UNIFORM:
                 double range = 0.01;
-                for (int i = 0; i < numOutputs; i++) {
-                    for (int j = 0; j < numInputs; j++) {
-                        weights[i][j] = (rand.nextDouble() * 2.0 - 1.0) * range;
-                    }
-                    biases[i] = 0.0;
-                }
-                break;
+                return (rand.nextDouble() * 2.0 - 1.0) * range;
             case ZEROS:
             default:
-                for (int i = 0; i < numOutputs; i++) {
-                    for (int j = 0; j < numInputs; j++) {
-                        weights[i][j] = 0.0;
-                    }
-                    biases[i] = 0.0;
-                }
-                break;
+                return 0.0;
         }
     }
 
-    public double[][] forward(double[][] inputs) {
-        if (inputs == null || inputs.length == 0 || inputs[0].length != numInputs) {
+    // Returns the layer's activations, which backward reads: a workspace the next forward or backward with the same
+    // batch size overwrites, so copy it to keep it (MLP.forward returns a copy).
+    public DenseMatrix forward(DenseMatrix inputs) {
+        if (inputs == null || inputs.getRows() == 0 || inputs.getCols() != numInputs) {
             throw new IllegalArgumentException("Input matrix dimensions incorrect. Expected [batch_size][" + numInputs
-                    + "], got [" + (inputs == null ? 0 : inputs.length) + "]["
-                    + (inputs == null || inputs.length == 0 ? 0 : inputs[0].length) + "]");
+                    + "], got [" + (inputs == null ? 0 : inputs.getRows()) + "]["
+                    + (inputs == null ? 0 : inputs.getCols()) + "]");
         }
         this.lastInput = inputs;
+        this.workspace = workspaceFor(inputs.getRows());
 
-        double[][] weightsTransposed = Matrix.transpose(this.weights);
-        this.weightedSum = Matrix.multiply(this.lastInput, weightsTransposed);
-
-        this.weightedSum = Matrix.addBiasVectorToRows(this.weightedSum, this.biases);
-
-        if (this.activationFunction instanceof Softmax) {
-            this.activatedData = Softmax.activateMatrix(this.weightedSum);
-        } else {
-            this.activatedData = Matrix.applyFunc(this.weightedSum, this.activationFunction::activate);
+        if (offHeapWeights != null) {
+            this.activatedData = forwardOffHeap(this.forwardKernel, workspace.activatedData, this.lastInput,
+                    weightWindow.getData());
+            return this.activatedData;
         }
+        this.activatedData = Matrix.denseForwardInto(this.forwardKernel, workspace.activatedData, this.lastInput,
+                this.weights, this.biases, this.activationFunction);
 
         return this.activatedData;
     }
 
-    public double[][] backward(double[][] deltaOrPropagatedError, double[][] weightsFromNextLayer) {
+    public DenseMatrix backward(DenseMatrix deltaOrPropagatedError, DenseMatrix weightsFromNextLayer) {
 
         if (weightsFromNextLayer == null) {
             this.delta = deltaOrPropagatedError;
         } else {
-            double[][] activationDerivative;
-            if (this.activationFunction instanceof Softmax) {
-                activationDerivative = Matrix.applyFunc(this.activatedData, activationFunction::derivative);
-            } else {
-                activationDerivative = Matrix.applyFunc(this.activatedData, activationFunction::derivative);
-            }
-            if (deltaOrPropagatedError.length != activationDerivative.length
-                    || deltaOrPropagatedError[0].length != activationDerivative[0].length) {
+            if (!deltaOrPropagatedError.sameShape(this.activatedData)) {
                 throw new IllegalStateException(String.format(
                         "Dimension mismatch in Layer.backward: propagatedError [%d,%d] vs activationDerivative [%d,%d]",
-                        deltaOrPropagatedError.length, deltaOrPropagatedError[0].length,
-                        activationDerivative.length, activationDerivative[0].length));
+                        deltaOrPropagatedError.getRows(), deltaOrPropagatedError.getCols(),
+                        this.activatedData.getRows(), this.activatedData.getCols()));
             }
+            DenseMatrix upstream = deltaOrPropagatedError;
+            if (!upstream.isContiguous() || upstream.getOffset() != 0) {
+                upstream = Matrix.copyInto(workspace.delta, upstream);
+            }
+            this.delta = workspace.delta;
+            this.activationFunction.backward(this.activatedData.getData(), upstream.getData(), this.delta.getData(), 0,
+                    this.delta.size());
+        }
+        computeGradients();
+
+        if (offHeapWeights != null) {
+            return propagateOffHeap(workspace.propagatedDelta, this.delta);
+        }
+        return Matrix.multiplyInto(workspace.propagatedDelta, this.delta, this.weights);
+    }
+
+    // Takes this layer's error with its activation derivative already applied, and returns the same quantity for
+    // the previous layer, whose activation produced lastInput. The derivative is applied in the epilogue of the
+    // propagation matmul. With a null inputActivation (first layer) nothing is propagated and null is returned.
+    public DenseMatrix backwardToInput(DenseMatrix delta, ActivationFunc inputActivation) {
+        this.delta = delta;
+        computeGradients();
 
-            this.delta = Matrix.multiplyElementWise(deltaOrPropagatedError, activationDerivative);
+        if (inputActivation == null) {
+            return null;
         }
+        if (offHeapWeights != null) {
+            propagateOffHeap(workspace.propagatedDelta, this.delta);
+            applyDerivative(workspace.propagatedDelta, this.lastInput, inputActivation);
+            return workspace.propagatedDelta;
+        }
+        return Matrix.denseBackwardInto(this.backwardKernel, workspace.propagatedDelta, this.delta, this.weights,
+                this.lastInput, inputActivation);
+    }
+
+    private void computeGradients() {
         if (this.delta == null || this.lastInput == null) {
             throw new IllegalStateException(
                     "Delta or lastInput is null during gradient calculation in Layer.backward.");
         }
 
-        double[][] deltaTransposed = Matrix.transpose(this.delta);
-        this.weightGradients = Matrix.multiply(deltaTransposed, this.lastInput);
+        int batchSize = this.lastInput.getRows();
+        boolean add = accumulating && accumulatedRows > 0;
+        if (offHeapWeights != null) {
+            for (int r0 = 0; r0 < numOutputs; r0 += gradientWindow.getRows()) {
+                int r1 = Math.min(r0 + gradientWindow.getRows(), numOutputs);
+                DenseMatrix rows = new DenseMatrix(gradientWindow.getData(), r1 - r0, numInputs);
+                if (add) {
+                    weightGradientBuffer().get((long) r0 * numInputs, rows.getData(), 0, rows.size());
+                    Matrix.multiplyTransAAddInto(rows, columns(this.delta, r0, r1), this.lastInput);
+                } else {
+                    Matrix.multiplyTransAInto(rows, columns(this.delta, r0, r1), this.lastInput);
+                }
+                if (batchSize > 0 && !accumulating) {
+                    Matrix.multiplyInPlace(rows, 1.0 / batchSize);
+                }
+                weightGradientBuffer().put((long) r0 * numInputs, rows.getData(), 0, rows.size());
+            }
+        } else if (add) {
+            Matrix.multiplyTransAAddInto(this.weightGradients, this.delta, this.lastInput);
+        } else {
+            Matrix.multiplyTransAInto(this.weightGradients, this.delta, this.lastInput);
+        }
 
-        this.biasGradients = Matrix.sumColumns(this.delta);
+        if (add) {
+            Matrix.sumColumnsAddInto(this.biasGradients, this.delta);
+        } else {
+            Matrix.sumColumnsInto(this.biasGradients, this.delta);
+        }
 
-        int batchSize = this.lastInput.length;
+        if (accumulating) {
+            accumulatedRows += batchSize;
+            return;
+        }
+        accumulatedRows = 0;
         if (batchSize > 0) {
-            this.weightGradients = Matrix.multiply(this.weightGradients, 1.0 / batchSize);
-            for (int i = 0; i < this.biasGradients.length; ++i) {
-                this.biasGradients[i] /= batchSize;
+            if (offHeapWeights == null) {
+                Matrix.multiplyInPlace(this.weightGradients, 1.0 / batchSize);
             }
+            Matrix.multiplyInPlace(this.biasGradients, 1.0 / batchSize);
         }
+    }
 
-        double[][] deltaForPreviousLayer = Matrix.multiply(this.delta, this.weights);
+    // Reentrant forward pass for inference: it only reads the parameters and stores nothing on the layer, so any
+    // number of threads may run it at once, each with its own out, kernel and (off-heap) window of
+    // getInferenceWindowSize() doubles.
+    DenseMatrix infer(DenseMatrix input, DenseMatrix out, Gemm.DenseForward kernel, double[] window) {
+        if (offHeapWeights != null) {
+            return forwardOffHeap(kernel, out, input, window);
+        }
+        return Matrix.denseForwardInto(kernel, out, input, this.weights, this.biases, this.activationFunction);
+    }
 
-        return deltaForPreviousLayer;
+    int getInferenceWindowSize() {
+        return offHeapWeights == null ? 0 : weightWindow.getData().length;
     }
 
-    public double[][] getActivatedData() {
+    // Each block of weight rows yields a block of output columns. Softmax needs whole rows, so it runs afterwards.
+    private DenseMatrix forwardOffHeap(Gemm.DenseForward kernel, DenseMatrix out, DenseMatrix input, double[] window) {
+        boolean softmax = activationFunction instanceof Softmax;
+        ActivationFunc blockActivation = softmax ? LINEAR : activationFunction;
+        for (int r0 = 0; r0 < numOutputs; r0 += weightWindow.getRows()) {
+            int r1 = Math.min(r0 + weightWindow.getRows(), numOutputs);
+            Matrix.denseForwardInto(kernel, columns(out, r0, r1), input, loadWeightRows(window, r0, r1),
+                    columns(this.biases, r0, r1), blockActivation);
+        }
+        if (softmax) {
+            Softmax.activateMatrixInto(out, out);
+        }
+        return out;
+    }
+
+    private DenseMatrix propagateOffHeap(DenseMatrix dst, DenseMatrix delta) {
+        dst.fill(0.0);
+        for (int r0 = 0; r0 < numOutputs; r0 += weightWindow.getRows()) {
+            int r1 = Math.min(r0 + weightWindow.getRows(), numOutputs);
+            Gemm.run(Gemm::multiplyTile, columns(delta, r0, r1), loadWeightRows(weightWindow.getData(), r0, r1), dst,
+                    r1 - r0);
+        }
+        return dst;
+    }
+
+    private DenseMatrix loadWeightRows(double[] window, int r0, int r1) {
+        offHeapWeights.get((long) r0 * numInputs, window, 0, (r1 - r0) * numInputs);
+        return new DenseMatrix(window, r1 - r0, numInputs);
+    }
+
+    private static DenseMatrix columns(DenseMatrix m, int c0, int c1) {
+        return new DenseMatrix(m.getData(), m.getOffset() + c0, m.getRows(), c1 - c0, m.getStride());
+    }
+
+    private static void applyDerivative(DenseMatrix dst, DenseMatrix activated, ActivationFunc activation) {
+        if (dst.isContiguous() && activated.isContiguous() && dst.getOffset() == activated.getOffset()) {
+            activation.backward(activated.getData(), dst.getData(), dst.getData(), dst.getOffset(), dst.size());
+            return;
+        }
+        for (int i = 0; i < dst.getRows(); i++) {
+            for (int j = 0; j < dst.getCols(); j++) {
+                int index = dst.index(i, j);
+                dst.getData()[index] *= activation.derivative(activated.get(i, j));
+            }
+        }
+    }
+
+    // Runs update over the off-heap weights in window-sized chunks. The weights, their gradients and each state
+    // buffer (allocated from getParameterStore() with the weight count as size) are copied into heap arrays that
+    // hold the chunk from index 0; the weights and the state are written back afterwards.
+    public void updateOffHeapWeights(WeightUpdate update, ParameterBuffer[] state) {
+        if (offHeapWeights == null) {
+            throw new IllegalStateException("Layer parameters are not stored off-heap.");
+        }
+        double[] w = weightWindow.getData();
+        double[] g = gradientWindow.getData();
+        if (stateWindows.length < state.length) {
+            stateWindows = new double[state.length][w.length];
+        }
+        long total = offHeapWeights.size();
+        for (long from = 0; from < total; from += w.length) {
+            int length = (int) Math.min(w.length, total - from);
+            offHeapWeights.get(from, w, 0, length);
+            weightGradientBuffer().get(from, g, 0, length);
+            for (int s = 0; s < state.length; s++) {
+                state[s].get(from, stateWindows[s], 0, length);
+            }
+            update.apply(w, g, stateWindows, length);
+            offHeapWeights.put(from, w, 0, length);
+            for (int s = 0; s < state.length; s++) {
+                state[s].put(from, stateWindows[s], 0, length);
+            }
+        }
+    }
+
+    void setAccumulating(boolean accumulating) {
+        this.accumulating = accumulating;
+    }
+
+    // Turns the accumulated sums into the mean over all accumulated rows, the same operation a single backward over
+    // those rows ends with.
+    void finishAccumulation() {
+        if (accumulatedRows == 0) {
+            return;
+        }
+        if (offHeapWeights != null) {
+            double[] g = gradientWindow.getData();
+            long total = offHeapWeights.size();
+            for (long from = 0; from < total; from += g.length) {
+                int length = (int) Math.min(g.length, total - from);
+                weightGradientBuffer().get(from, g, 0, length);
+                Matrix.multiplyInPlace(new DenseMatrix(g, 1, length), 1.0 / accumulatedRows);
+                weightGradientBuffer().put(from, g, 0, length);
+            }
+        } else {
+            Matrix.multiplyInPlace(this.weightGradients, 1.0 / accumulatedRows);
+        }
+        Matrix.multiplyInPlace(this.biasGradients, 1.0 / accumulatedRows);
+        accumulatedRows = 0;
+    }
+
+    private ParameterBuffer weightGradientBuffer() {
+        if (offHeapWeightGradients == null) {
+            offHeapWeightGradients = parameterStore.allocate(offHeapWeights.size());
+        }
+        return offHeapWeightGradients;
+    }
+
+    public interface WeightUpdate {
+        void apply(double[] weights, double[] gradients, double[][] state, int length);
+    }
+
+    // Buffers are keyed by batch size and kept in most-recently-used order, so alternating between a training
+    // batch size and an evaluation batch size does not reallocate.
+    private Workspace workspaceFor(int batchSize) {
+        if (workspace != null && workspace.batchSize == batchSize) {
+            return workspace;
+        }
+        int slot = 0;
+        while (slot < WORKSPACE_SLOTS - 1 && workspaces[slot] != null && workspaces[slot].batchSize != batchSize) {
+            slot++;
+        }
+        Workspace found = workspaces[slot];
+        if (found == null || found.batchSize != batchSize) {
+            found = new Workspace(batchSize, numInputs, numOutputs);
+        }
+        System.arraycopy(workspaces, 0, workspaces, 1, slot);
+        workspaces[0] = found;
+        return found;
+    }
+
+    private static final class Workspace {
+        final int batchSize;
+        final DenseMatrix activatedData;
+        final DenseMatrix delta;
+        final DenseMatrix propagatedDelta;
+
+        Workspace(int batchSize, int numInputs, int numOutputs) {
+            this.batchSize = batchSize;
+            this.activatedData = new DenseMatrix(batchSize, numOutputs);
+            this.delta = new DenseMatrix(batchSize, numOutputs);
+            this.propagatedDelta = new DenseMatrix(batchSize, numInputs);
+        }
+    }
+
+    public int getNumInputs() {
+        return this.numInputs;
+    }
+
+    public int getNumOutputs() {
+        return this.numOutputs;
+    }
+
+    public ActivationFunc getActivationFunction() {
+        return this.activationFunction;
+    }
+
+    public DenseMatrix getActivatedData() {
         return this.activatedData;
     }
 
-    public double[][] getWeights() {
+    public boolean isOffHeap() {
+        return this.offHeapWeights != null;
+    }
+
+    public ParameterStore getParameterStore() {
+        return this.parameterStore;
+    }
+
+    public ParameterBuffer getWeightBuffer() {
+        return this.offHeapWeights;
+    }
+
+    public ParameterBuffer getWeightGradientBuffer() {
+        return this.offHeapWeights == null ? null : weightGradientBuffer();
+    }
+
+    public DenseMatrix getWeights() {
+        if (offHeapWeights != null) {
+            throw new IllegalStateException("Off-heap layer weights are accessed through getWeightBuffer().");
+        }
         return this.weights;
     }
 
-    public double[] getBiases() {
+    public DenseMatrix getBiases() {
         return this.biases;
     }
 
-    public double[][] getWeightsGradient() {
+    public DenseMatrix getWeightsGradient() {
+        if (offHeapWeights != null) {
+            throw new IllegalStateException(
+                    "Off-heap layer weight gradients are accessed through getWeightGradientBuffer().");
+        }
         return this.weightGradients;
     }
 
-    public double[] getBiasGradient() {
+    public DenseMatrix getBiasGradient() {
         return this.biasGradients;
     }
 
-    public void setWeights(double[][] weights) {
-        if (weights == null || weights.length != this.weights.length || weights[0].length != this.weights[0].length) {
+    // Packed layers (see FlatParameters) copy new parameters into their slice instead of adopting the matrix.
+    public void setWeights(DenseMatrix weights) {
+        if (weights == null || weights.getRows() != numOutputs || weights.getCols() != numInputs) {
             throw new IllegalArgumentException("New weights dimensions do not match layer dimensions.");
         }
+        if (offHeapWeights != null) {
+            for (int i = 0; i < numOutputs; i++) {
+                offHeapWeights.put((long) i * numInputs, weights.getData(), weights.index(i, 0), numInputs);
+            }
+            return;
+        }
+        if (flatParameters != null) {
+            Matrix.copyInto(this.weights, weights);
+            return;
+        }
         this.weights = weights;
     }
 
-    public void setBiases(double[] biases) {
-        if (biases == null || biases.length != this.biases.length) {
+    public void setBiases(DenseMatrix biases) {
+        if (biases == null || !biases.sameShape(this.biases)) {
             throw new IllegalArgumentException("New biases dimensions do not match layer dimensions.");
         }
+        if (flatParameters != null) {
+            Matrix.copyInto(this.biases, biases);
+            return;
+        }
         this.biases = biases;
     }
 }
\ No newline at end of file
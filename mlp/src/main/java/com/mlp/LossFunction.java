@@ -12,6 +12,14 @@ public interface LossFunction {
 
     double[][] derivative(double[][] predicted, double[][] target);
 
+    double compute(DenseMatrix predicted, DenseMatrix target);
+
+    DenseMatrix derivative(DenseMatrix predicted, DenseMatrix target);
+
+    double compute(FloatMatrix predicted, FloatMatrix target);
+
+    FloatMatrix derivative(FloatMatrix predicted, FloatMatrix target);
+
     class MeanSquaredError implements LossFunction {
         @Override
         public double compute(double[][] predicted, double[][] target) {
@@ -31,10 +39,64 @@ public interface LossFunction {
             return sumSquaredError / (numSamples * numOutputs);
         }
 
+        @Override
+        public double compute(DenseMatrix predicted, DenseMatrix target) {
+            if (!predicted.sameShape(target)) {
+                throw new IllegalArgumentException("Prediction and target dimensions must match.");
+            }
+            double sumSquaredError = 0.0;
+            int numSamples = predicted.getRows();
+            int numOutputs = predicted.getCols();
+            double[] p = predicted.getData();
+            double[] t = target.getData();
+
+            for (int i = 0; i < numSamples; i++) {
+                int pi = predicted.getOffset() + i * predicted.getStride();
+                int ti = target.getOffset() + i * target.getStride();
+                for (int j = 0; j < numOutputs; j++) {
+                    double error = p[pi + j] - t[ti + j];
+                    sumSquaredError += error * error;
+                }
+            }
+            return sumSquaredError / (numSamples * numOutputs);
+        }
+
+        @Override
+        public double compute(FloatMatrix predicted, FloatMatrix target) {
+            if (!predicted.sameShape(target)) {
+                throw new IllegalArgumentException("Prediction and target dimensions must match.");
+            }
+            double sumSquaredError = 0.0;
+            int numSamples = predicted.getRows();
+            int numOutputs = predicted.getCols();
+            float[] p = predicted.getData();
+            float[] t = target.getData();
+
+            for (int i = 0; i < numSamples; i++) {
+                int pi = predicted.getOffset() + i * predicted.getStride();
+                int ti = target.getOffset() + i * target.getStride();
+                for (int j = 0; j < numOutputs; j++) {
+                    double error = p[pi + j] - t[ti + j];
+                    sumSquaredError += error * error;
+                }
+            }
+            return sumSquaredError / (numSamples * numOutputs);
+        }
+
         @Override
         public double[][] derivative(double[][] predicted, double[][] target) {
             return Matrix.substract(predicted, target);
         }
+
+        @Override
+        public DenseMatrix derivative(DenseMatrix predicted, DenseMatrix target) {
+            return Matrix.substract(predicted, target);
+        }
+
+        @Override
+        public FloatMatrix derivative(FloatMatrix predicted, FloatMatrix target) {
+            return Matrix.substract(predicted, target);
+        }
     }
 
     class CrossEntropyLoss implements LossFunction {
@@ -62,9 +124,71 @@ public interface LossFunction {
             return loss / numSamples;
         }
 
+        @Override
+        public double compute(DenseMatrix predicted, DenseMatrix target) {
+            if (!predicted.sameShape(target)) {
+                throw new IllegalArgumentException("Prediction and target dimensions must match.");
+            }
+            double loss = 0.0;
+            int numSamples = predicted.getRows();
+            int numClasses = predicted.getCols();
+            double[] pd = predicted.getData();
+            double[] td = target.getData();
+
+            for (int i = 0; i < numSamples; i++) {
+                int pi = predicted.getOffset() + i * predicted.getStride();
+                int ti = target.getOffset() + i * target.getStride();
+                for (int j = 0; j < numClasses; j++) {
+                    double p = Math.max(EPSILON, Math.min(1.0 - EPSILON, pd[pi + j]));
+                    double t = td[ti + j];
+                    loss -= t * Math.log(p);
+                    if (numClasses == 1) {
+                        loss -= (1.0 - t) * Math.log(1.0 - p);
+                    }
+                }
+            }
+            return loss / numSamples;
+        }
+
         @Override
         public double[][] derivative(double[][] predicted, double[][] target) {
             return Matrix.substract(predicted, target);
         }
+
+        @Override
+        public DenseMatrix derivative(DenseMatrix predicted, DenseMatrix target) {
+            return Matrix.substract(predicted, target);
+        }
+
+        @Override
+        public double compute(FloatMatrix predicted, FloatMatrix target) {
+            if (!predicted.sameShape(target)) {
+                throw new IllegalArgumentException("Prediction and target dimensions must match.");
+            }
+            double loss = 0.0;
+            int numSamples = predicted.getRows();
+            int numClasses = predicted.getCols();
+            float[] pd = predicted.getData();
+            float[] td = target.getData();
+
+            for (int i = 0; i < numSamples; i++) {
+                int pi = predicted.getOffset() + i * predicted.getStride();
+                int ti = target.getOffset() + i * target.getStride();
+                for (int j = 0; j < numClasses; j++) {
+                    double p = Math.max(EPSILON, Math.min(1.0 - EPSILON, pd[pi + j]));
+                    double t = td[ti + j];
+                    loss -= t * Math.log(p);
+                    if (numClasses == 1) {
+                        loss -= (1.0 - t) * Math.log(1.0 - p);
+                    }
+                }
+            }
+            return loss / numSamples;
+        }
+
+        @Override
+        public FloatMatrix derivative(FloatMatrix predicted, FloatMatrix target) {
+            return Matrix.substract(predicted, target);
+        }
     }
 }
\ No newline at end of file
@@ -1,7 +1,12 @@
 package com.mlp;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
 
 import com.mlp.ActivationFunction.*;
 import com.mlp.LossFunction.*;
@@ -9,23 +14,71 @@ import com.mlp.Optimizer.Optimizer;
 
 public class MLP {
     private List<Layer> layers;
+    private List<FloatLayer> floatLayers;
+    private final Precision precision;
     private Optimizer optimizer;
     private LossFunction lossFunction;
     private TaskType taskType;
+    private DenseMatrix outputDelta;
+    private FloatMatrix floatOutputDelta;
+    private Random shuffleRandom = new Random();
+    private TrainingState resumeState;
+    private int microBatchSize;
+    private boolean gradientsAccumulated;
+    private volatile InferenceSession inferenceSession;
 
     public MLP(Optimizer optimizer,
             TaskType taskType,
             WeighInit weighType,
             ActivationFunc hiddenActivationFunc,
             int... layerSizes) {
+        this(optimizer, taskType, weighType, hiddenActivationFunc, Precision.DOUBLE, layerSizes);
+    }
+
+    public MLP(Optimizer optimizer,
+            TaskType taskType,
+            WeighInit weighType,
+            ActivationFunc hiddenActivationFunc,
+            Precision precision,
+            int... layerSizes) {
+        this(optimizer, taskType, weighType, hiddenActivationFunc, precision, ParameterStore.heap(), layerSizes);
+    }
+
+    public MLP(Optimizer optimizer,
+            TaskType taskType,
+            WeighInit weighType,
+            ActivationFunc hiddenActivationFunc,
+            ParameterStore parameterStore,
+            int... layerSizes) {
+        this(optimizer, taskType, weighType, hiddenActivationFunc, Precision.DOUBLE, parameterStore, layerSizes);
+    }
+
+    public MLP(Optimizer optimizer,
+            TaskType taskType,
+            WeighInit weighType,
+            ActivationFunc hiddenActivationFunc,
+            Precision precision,
+            ParameterStore parameterStore,
+            int... layerSizes) {
 
         if (layerSizes == null || layerSizes.length < 2) {
             throw new IllegalArgumentException("Need at least an input and output layer size.");
         }
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision cannot be null.");
+        }
+        if (parameterStore == null) {
+            throw new IllegalArgumentException("Parameter store cannot be null.");
+        }
+        if (precision == Precision.FLOAT && parameterStore.isOffHeap()) {
+            throw new IllegalArgumentException("Off-heap parameter storage is only supported in DOUBLE precision.");
+        }
 
         this.optimizer = optimizer;
         this.taskType = taskType;
+        this.precision = precision;
         this.layers = new ArrayList<>();
+        this.floatLayers = new ArrayList<>();
 
         ActivationFunc outputActivation;
         switch (taskType) {
@@ -49,7 +102,8 @@ public class MLP {
                 throw new IllegalArgumentException("Task type not supported: " + taskType);
         }
         System.out.println("Task: " + taskType + ", Output Activation: " + outputActivation.getClass().getSimpleName()
-                + ", Loss: " + lossFunction.getClass().getSimpleName());
+                + ", Loss: " + lossFunction.getClass().getSimpleName() + ", Precision: " + precision
+                + (parameterStore.isOffHeap() ? ", Parameters: off-heap" : ""));
 
         for (int i = 0; i < layerSizes.length - 1; i++) {
             int numInputs = layerSizes[i];
@@ -66,18 +120,247 @@ public class MLP {
 
             System.out.printf("Adding Layer %d: %d inputs, %d outputs, Activation: %s, Init: %s\n",
                     i, numInputs, numOutputs, currentActivation.getClass().getSimpleName(), currentInit);
-            layers.add(new Layer(numInputs, numOutputs, currentActivation, currentInit));
+            if (precision == Precision.FLOAT) {
+                floatLayers.add(new FloatLayer(numInputs, numOutputs, currentActivation, currentInit));
+            } else {
+                layers.add(new Layer(numInputs, numOutputs, currentActivation, currentInit, parameterStore));
+            }
+        }
+        packParameters();
+    }
+
+    // Assembles a model around layers that already hold trained parameters (see ModelFile).
+    MLP(Optimizer optimizer, TaskType taskType, Precision precision, List<Layer> layers, List<FloatLayer> floatLayers) {
+        this.optimizer = optimizer;
+        this.taskType = taskType;
+        this.precision = precision;
+        this.layers = layers;
+        this.floatLayers = floatLayers;
+        this.lossFunction = taskType == TaskType.REGRESSION ? new MeanSquaredError() : new CrossEntropyLoss();
+        packParameters();
+    }
+
+    // Heap models keep all parameters and gradients in one flat block each (see FlatParameters), which the
+    // optimizers update in a single pass. Off-heap layers stream their weights and stay unpacked.
+    private void packParameters() {
+        if (!this.floatLayers.isEmpty()) {
+            FloatFlatParameters.pack(this.floatLayers);
+        }
+        if (this.layers.isEmpty()) {
+            return;
+        }
+        for (Layer layer : this.layers) {
+            if (layer.isOffHeap()) {
+                return;
+            }
+        }
+        FlatParameters.pack(this.layers);
+    }
+
+    // Shares the layer parameters of master (see Layer.replica); used by the parallel trainers, which run forward and
+    // backward on replicas and apply the optimizer to master only.
+    private MLP(MLP master) {
+        this.precision = master.precision;
+        this.taskType = master.taskType;
+        this.lossFunction = master.lossFunction;
+        this.layers = new ArrayList<>();
+        this.floatLayers = new ArrayList<>();
+        for (int i = 0; i < master.layers.size(); i++) {
+            this.layers.add(master.layers.get(i).replica());
+        }
+    }
+
+    MLP replica() {
+        if (this.precision != Precision.DOUBLE) {
+            throw new UnsupportedOperationException("Only DOUBLE precision models can be replicated.");
+        }
+        return new MLP(this);
+    }
+
+    void syncParameters(MLP master) {
+        for (int i = 0; i < this.layers.size(); i++) {
+            this.layers.get(i).syncParameters(master.layers.get(i));
+        }
+    }
+
+    public TaskType getTaskType() {
+        return this.taskType;
+    }
+
+    public Precision getPrecision() {
+        return this.precision;
+    }
+
+    public List<Layer> getLayers() {
+        return this.layers;
+    }
+
+    public List<FloatLayer> getFloatLayers() {
+        return this.floatLayers;
+    }
+
+    public Optimizer getOptimizer() {
+        return this.optimizer;
+    }
+
+    // With a positive microBatchSize, train splits every batch into micro-batches of at most that many rows and
+    // accumulates their gradients before the one weight update, so activation and delta buffers are sized by the
+    // micro-batch rather than the batch. The update is exactly the one the whole batch would give. 0 turns it off.
+    public void setMicroBatchSize(int microBatchSize) {
+        if (microBatchSize < 0) {
+            throw new IllegalArgumentException("Micro-batch size cannot be negative.");
+        }
+        this.microBatchSize = microBatchSize;
+    }
+
+    public int getMicroBatchSize() {
+        return this.microBatchSize;
+    }
+
+    // Seeds the per-epoch shuffle, so two runs on the same data visit the samples in the same order.
+    public void setShuffleSeed(long seed) {
+        this.shuffleRandom = new Random(seed);
+    }
+
+    Random getShuffleRandom() {
+        return this.shuffleRandom;
+    }
+
+    // Loads a checkpoint written by a Checkpointer into this model, which must have the same layer sizes, precision
+    // and optimizer type as the one that wrote it. The next train call on the same data continues the interrupted
+    // run where the checkpoint was taken (maxEpochs still counts from the start of the run).
+    public void resume(Path checkpointFile) throws IOException {
+        Checkpointer.Snapshot snapshot = Checkpointer.read(checkpointFile);
+        if (snapshot.precision != this.precision) {
+            throw new IllegalArgumentException("Checkpoint was written by a " + snapshot.precision + " model.");
+        }
+        if (this.optimizer == null || !this.optimizer.getClass().getName().equals(snapshot.optimizer)) {
+            throw new IllegalArgumentException("Checkpoint was written with optimizer " + snapshot.optimizer + ".");
+        }
+        int count = this.precision == Precision.FLOAT ? floatLayers.size() : layers.size();
+        if (snapshot.weights.length != count) {
+            throw new IllegalArgumentException("Checkpoint has " + snapshot.weights.length + " layers, model has "
+                    + count + ".");
+        }
+        for (int l = 0; l < count; l++) {
+            if (this.precision == Precision.FLOAT) {
+                FloatLayer layer = floatLayers.get(l);
+                restore(layer.getWeights(), snapshot.weights[l]);
+                restore(layer.getBiases(), snapshot.biases[l]);
+            } else {
+                Layer layer = layers.get(l);
+                if (layer.isOffHeap()) {
+                    throw new UnsupportedOperationException("Checkpoints do not support off-heap layers.");
+                }
+                restore(layer.getWeights(), snapshot.weights[l]);
+                restore(layer.getBiases(), snapshot.biases[l]);
+            }
+        }
+        this.optimizer.setState(layers, floatLayers, snapshot.optimizerState);
+        this.shuffleRandom = snapshot.random();
+        this.resumeState = snapshot.progress;
+    }
+
+    private static void restore(DenseMatrix dst, double[] values) {
+        if (values.length != dst.size()) {
+            throw new IllegalArgumentException("Checkpoint parameter shapes do not match the model.");
+        }
+        for (int i = 0, k = 0; i < dst.getRows(); i++) {
+            for (int j = 0; j < dst.getCols(); j++) {
+                dst.getData()[dst.index(i, j)] = values[k++];
+            }
+        }
+    }
+
+    private static void restore(FloatMatrix dst, double[] values) {
+        if (values.length != dst.size()) {
+            throw new IllegalArgumentException("Checkpoint parameter shapes do not match the model.");
+        }
+        for (int i = 0, k = 0; i < dst.getRows(); i++) {
+            for (int j = 0; j < dst.getCols(); j++) {
+                dst.getData()[dst.index(i, j)] = (float) values[k++];
+            }
         }
     }
 
     public double[][] forward(double[][] networkInput) {
-        double[][] currentData = networkInput;
-        for (Layer curLayer : this.layers) {
-            currentData = curLayer.forward(currentData);
+        return forward(DenseMatrix.of(networkInput)).toArray();
+    }
+
+    // The forward pass of a training step (backward follows it), returning a new matrix the caller owns.
+    public DenseMatrix forward(DenseMatrix networkInput) {
+        DenseMatrix prediction = forwardLayers(networkInput);
+        return this.precision == Precision.DOUBLE ? prediction.copy() : prediction;
+    }
+
+    public FloatMatrix forward(FloatMatrix networkInput) {
+        FloatMatrix prediction = forwardLayers(networkInput);
+        return this.precision == Precision.FLOAT ? prediction.copy() : prediction;
+    }
+
+    // As forward, writing the prediction into dst: with the model's own precision, the step allocates nothing.
+    public DenseMatrix forwardInto(DenseMatrix dst, DenseMatrix networkInput) {
+        DenseMatrix prediction = forwardLayers(networkInput);
+        if (dst == null || !dst.sameShape(prediction)) {
+            throw new IllegalArgumentException("Cannot write a prediction of " + prediction + " into " + dst);
+        }
+        return dst.copyRowsFrom(prediction, 0);
+    }
+
+    public FloatMatrix forwardInto(FloatMatrix dst, FloatMatrix networkInput) {
+        FloatMatrix prediction = forwardLayers(networkInput);
+        if (dst == null || !dst.sameShape(prediction)) {
+            throw new IllegalArgumentException("Cannot write a prediction of " + prediction + " into " + dst);
+        }
+        return dst.copyRowsFrom(prediction, 0);
+    }
+
+    // The forward pass returning the output layer's workspace, which the next forward or backward overwrites; for
+    // training loops that are done with the prediction before then.
+    DenseMatrix forwardLayers(DenseMatrix networkInput) {
+        if (this.precision == Precision.FLOAT) {
+            return forwardLayers(FloatMatrix.of(networkInput)).toDense();
+        }
+        DenseMatrix currentData = networkInput;
+        for (int i = 0; i < this.layers.size(); i++) {
+            currentData = this.layers.get(i).forward(currentData);
         }
         return currentData;
     }
 
+    FloatMatrix forwardLayers(FloatMatrix networkInput) {
+        if (this.precision == Precision.DOUBLE) {
+            return FloatMatrix.of(forwardLayers(networkInput.toDense()));
+        }
+        FloatMatrix currentData = networkInput;
+        for (int i = 0; i < this.floatLayers.size(); i++) {
+            currentData = this.floatLayers.get(i).forward(currentData);
+        }
+        return currentData;
+    }
+
+    // Reentrant inference (see InferenceSession): safe to call from many threads at once, unlike forward.
+    public double[] predict(double[] input) {
+        return getInferenceSession().predict(input);
+    }
+
+    public double[][] predict(double[][] inputs) {
+        return getInferenceSession().predict(inputs);
+    }
+
+    public DenseMatrix predictInto(DenseMatrix dst, DenseMatrix input) {
+        return getInferenceSession().predictInto(dst, input);
+    }
+
+    public InferenceSession getInferenceSession() {
+        InferenceSession session = this.inferenceSession;
+        if (session == null) {
+            session = new InferenceSession(this);
+            this.inferenceSession = session;
+        }
+        return session;
+    }
+
     public double calculateLoss(double[][] predicted, double[][] target) {
         if (this.lossFunction == null) {
             throw new IllegalStateException("Loss function has not been set.");
@@ -85,32 +368,108 @@ public class MLP {
         return this.lossFunction.compute(predicted, target);
     }
 
+    public double calculateLoss(DenseMatrix predicted, DenseMatrix target) {
+        if (this.lossFunction == null) {
+            throw new IllegalStateException("Loss function has not been set.");
+        }
+        return this.lossFunction.compute(predicted, target);
+    }
+
+    public double calculateLoss(FloatMatrix predicted, FloatMatrix target) {
+        if (this.lossFunction == null) {
+            throw new IllegalStateException("Loss function has not been set.");
+        }
+        return this.lossFunction.compute(predicted, target);
+    }
+
     public void backward(double[][] targetOutput) {
+        backward(DenseMatrix.of(targetOutput));
+    }
+
+    public void backward(DenseMatrix targetOutput) {
+        if (this.precision == Precision.FLOAT) {
+            backward(FloatMatrix.of(targetOutput));
+            return;
+        }
         if (this.layers == null || this.layers.isEmpty())
             return;
 
         Layer outputLayer = this.layers.get(this.layers.size() - 1);
-        double[][] prediction = outputLayer.getActivatedData();
+        DenseMatrix prediction = outputLayer.getActivatedData();
 
-        if (prediction == null || targetOutput == null || prediction.length != targetOutput.length
-                || prediction[0].length != targetOutput[0].length) {
+        if (prediction == null || !prediction.sameShape(targetOutput)) {
             throw new IllegalArgumentException(
                     "Prediction and target dimensions mismatch during backward pass or prediction is null.");
         }
 
-        double[][] deltaOutput = Matrix.substract(prediction, targetOutput);
+        if (this.outputDelta == null || !this.outputDelta.sameShape(prediction)) {
+            this.outputDelta = new DenseMatrix(prediction.getRows(), prediction.getCols());
+        }
+        DenseMatrix deltaOutput = Matrix.substractInto(this.outputDelta, prediction, targetOutput);
 
-        double[][] deltaForCurrentLayer = deltaOutput;
-        double[][] weightsFromNextLayer = null;
+        DenseMatrix deltaForCurrentLayer = deltaOutput;
 
         for (int i = this.layers.size() - 1; i >= 0; i--) {
-            Layer currentLayer = this.layers.get(i);
+            ActivationFunc inputActivation = i > 0 ? this.layers.get(i - 1).getActivationFunction() : null;
+            deltaForCurrentLayer = this.layers.get(i).backwardToInput(deltaForCurrentLayer, inputActivation);
+        }
+    }
+
+    public void backward(FloatMatrix targetOutput) {
+        if (this.precision == Precision.DOUBLE) {
+            backward(targetOutput.toDense());
+            return;
+        }
+        if (this.floatLayers.isEmpty())
+            return;
+
+        FloatLayer outputLayer = this.floatLayers.get(this.floatLayers.size() - 1);
+        FloatMatrix prediction = outputLayer.getActivatedData();
 
-            double[][] deltaToPropagate = currentLayer.backward(deltaForCurrentLayer, weightsFromNextLayer);
+        if (prediction == null || !prediction.sameShape(targetOutput)) {
+            throw new IllegalArgumentException(
+                    "Prediction and target dimensions mismatch during backward pass or prediction is null.");
+        }
 
-            weightsFromNextLayer = currentLayer.getWeights();
-            deltaForCurrentLayer = deltaToPropagate;
+        if (this.floatOutputDelta == null || !this.floatOutputDelta.sameShape(prediction)) {
+            this.floatOutputDelta = new FloatMatrix(prediction.getRows(), prediction.getCols());
+        }
+        FloatMatrix deltaForCurrentLayer = Matrix.substractInto(this.floatOutputDelta, prediction, targetOutput);
+
+        for (int i = this.floatLayers.size() - 1; i >= 0; i--) {
+            ActivationFunc inputActivation = i > 0 ? this.floatLayers.get(i - 1).getActivationFunction() : null;
+            deltaForCurrentLayer = this.floatLayers.get(i).backwardToInput(deltaForCurrentLayer, inputActivation);
+        }
+    }
+
+    // Like backward, but adds the gradients of this batch to those accumulated since the last updateWeights, which
+    // then applies their mean over every accumulated row.
+    public void backwardAccumulate(DenseMatrix targetOutput) {
+        setAccumulating(true);
+        try {
+            backward(targetOutput);
+        } finally {
+            setAccumulating(false);
+        }
+    }
+
+    public void backwardAccumulate(FloatMatrix targetOutput) {
+        setAccumulating(true);
+        try {
+            backward(targetOutput);
+        } finally {
+            setAccumulating(false);
+        }
+    }
+
+    private void setAccumulating(boolean accumulating) {
+        for (Layer layer : this.layers) {
+            layer.setAccumulating(accumulating);
+        }
+        for (FloatLayer layer : this.floatLayers) {
+            layer.setAccumulating(accumulating);
         }
+        this.gradientsAccumulated |= accumulating;
     }
 
     public void updateWeights() {
@@ -118,7 +477,20 @@ public class MLP {
             System.err.println("Optimizer not set. Cannot update weights.");
             return;
         }
-        this.optimizer.update(this.layers);
+        if (this.gradientsAccumulated) {
+            for (Layer layer : this.layers) {
+                layer.finishAccumulation();
+            }
+            for (FloatLayer layer : this.floatLayers) {
+                layer.finishAccumulation();
+            }
+            this.gradientsAccumulated = false;
+        }
+        if (this.precision == Precision.FLOAT) {
+            this.optimizer.updateFloat(this.floatLayers);
+        } else {
+            this.optimizer.update(this.layers);
+        }
     }
 
     public void train(double[][] trainingInputs, double[][] trainingTargets,
@@ -126,6 +498,31 @@ public class MLP {
             int maxEpochs,
             int patience,
             double stopLossThreshold) {
+        train(trainingInputs, trainingTargets, validationInputs, validationTargets, maxEpochs, patience,
+                stopLossThreshold, 1);
+    }
+
+    // Every step runs forward, backward and the weight update on batchSize samples at once, with the gradients
+    // averaged over the batch. Samples are shuffled each epoch; the last batch of an epoch holds the remainder.
+    public void train(double[][] trainingInputs, double[][] trainingTargets,
+            double[][] validationInputs, double[][] validationTargets,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize) {
+        train(trainingInputs, trainingTargets, validationInputs, validationTargets, maxEpochs, patience,
+                stopLossThreshold, batchSize, null);
+    }
+
+    // As above, handing the run to checkpointer (may be null) after every step and epoch. If resume was called
+    // before, the run continues from the loaded checkpoint instead of starting over.
+    public void train(double[][] trainingInputs, double[][] trainingTargets,
+            double[][] validationInputs, double[][] validationTargets,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize,
+            Checkpointer checkpointer) {
         if (trainingInputs == null || trainingTargets == null || trainingInputs.length != trainingTargets.length
                 || trainingInputs.length == 0) {
             System.err.println("ERROR: Invalid training data or targets.");
@@ -133,6 +530,100 @@ public class MLP {
         }
         boolean useValidation = (validationInputs != null && validationTargets != null
                 && validationInputs.length == validationTargets.length && validationInputs.length > 0);
+        train(TrainingData.of(trainingInputs, trainingTargets, this.precision),
+                useValidation ? TrainingData.of(validationInputs, validationTargets, this.precision) : null,
+                maxEpochs, patience, stopLossThreshold, batchSize, checkpointer);
+    }
+
+    // As the array version, with the pixels kept as bytes and each batch scaled to [0, 1] as it is gathered: the same
+    // steps as training on training.toDataPair(), in a fraction of the memory. validation may be null.
+    public void train(ByteDataset training, ByteDataset validation,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize) {
+        train(training, validation, maxEpochs, patience, stopLossThreshold, batchSize, null);
+    }
+
+    public void train(ByteDataset training, ByteDataset validation,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize,
+            Checkpointer checkpointer) {
+        if (training == null) {
+            System.err.println("ERROR: Invalid training data or targets.");
+            return;
+        }
+        train((TrainingData) training, validation, maxEpochs, patience, stopLossThreshold, batchSize, checkpointer);
+    }
+
+    // Streams each epoch from training through a BatchIterator (shuffled through its buffer, with batches prefetched
+    // on a background thread) and validation, if not null, likewise in storage order. Checkpoints cannot resume a
+    // streamed run, so there is no Checkpointer overload.
+    public void train(Dataset training, Dataset validation,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize) throws IOException {
+        if (training == null) {
+            System.err.println("ERROR: Invalid training data or targets.");
+            return;
+        }
+        if (this.resumeState != null) {
+            throw new IllegalStateException("A checkpoint resumes training on arrays or a ByteDataset, not a stream.");
+        }
+        try {
+            runEpochs(state -> trainEpoch(training, state, batchSize),
+                    validation == null ? null : evaluationBatch -> evaluateLoss(validation, evaluationBatch),
+                    () -> new TrainingState(0), maxEpochs, patience, stopLossThreshold, batchSize, null);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void train(TrainingData training, TrainingData validation,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize,
+            Checkpointer checkpointer) {
+        boolean single = this.precision == Precision.FLOAT;
+        EpochRunner epochs = state -> {
+            if (single) {
+                trainEpochFloat(training, state, batchSize, checkpointer);
+            } else {
+                trainEpoch(training, state, batchSize, checkpointer);
+            }
+            return training.size();
+        };
+        Validator validator = null;
+        if (validation != null) {
+            int[] validationOrder = new TrainingState(validation.size()).order;
+            validator = evaluationBatch -> (single ? evaluateLossFloat(validation, validationOrder, evaluationBatch)
+                    : evaluateLoss(validation, validationOrder, evaluationBatch)) / validation.size();
+        }
+        Supplier<TrainingState> start = () -> {
+            TrainingState state = this.resumeState != null ? this.resumeState : new TrainingState(training.size());
+            this.resumeState = null;
+            if (state.order.length != training.size()) {
+                throw new IllegalArgumentException("Checkpoint was taken on " + state.order.length
+                        + " training samples, got " + training.size() + ".");
+            }
+            return state;
+        };
+        runEpochs(epochs, validator, start, maxEpochs, patience, stopLossThreshold, batchSize, checkpointer);
+    }
+
+    // The epoch loop shared by every train method: epochs runs the rest of an epoch and returns its sample count,
+    // validation (null for none) gives the average validation loss, and start the state to begin or resume from.
+    private void runEpochs(EpochRunner epochs, Validator validation, Supplier<TrainingState> start,
+            int maxEpochs,
+            int patience,
+            double stopLossThreshold,
+            int batchSize,
+            Checkpointer checkpointer) {
+        boolean useValidation = validation != null;
         if (patience > 0 && !useValidation) {
             System.out.println("WARN: Patience requires validation data. Disabling early stopping.");
             patience = 0;
@@ -141,46 +632,40 @@ public class MLP {
             System.err.println("ERROR: maxEpochs must be positive.");
             return;
         }
+        if (batchSize <= 0) {
+            System.err.println("ERROR: batchSize must be positive.");
+            return;
+        }
 
         System.out.printf(
-                "=== Starting Training ===\nTask: %s, Max Epochs: %d, Patience: %d, Stop Loss: %.4f, Validation: %s\n",
-                taskType, maxEpochs, patience, stopLossThreshold, useValidation);
-        System.out.println("Layers: " + layers.size() + ", Optimizer: " + optimizer.getClass().getSimpleName());
+                "=== Starting Training ===\nTask: %s, Max Epochs: %d, Batch Size: %d, Patience: %d, Stop Loss: %.4f, Validation: %s\n",
+                taskType, maxEpochs, batchSize, patience, stopLossThreshold, useValidation);
+        System.out.println("Layers: " + (layers.size() + floatLayers.size()) + ", Optimizer: "
+                + optimizer.getClass().getSimpleName());
+        if (microBatchSize > 0 && microBatchSize < batchSize) {
+            System.out.println("Gradient accumulation over micro-batches of " + microBatchSize);
+        }
         System.out.println("-------------------------");
 
-        double bestValidationLoss = Double.POSITIVE_INFINITY;
-        int epochsWithoutImprovement = 0;
-        String stopReason = "Reached max epochs (" + maxEpochs + ")";
-
-        for (int epoch = 0; epoch < maxEpochs; epoch++) {
-
-            double epochTrainLoss = 0.0;
-
-            for (int i = 0; i < trainingInputs.length; i++) {
-
-                double[][] inputSample = Matrix.rowVectorToMatrix(trainingInputs[i]);
-                double[][] targetSample = Matrix.rowVectorToMatrix(trainingTargets[i]);
+        TrainingState state = start.get();
+        String stopReason = state.stopped ? "Resumed from the checkpoint of a run that had stopped early"
+                : "Reached max epochs (" + maxEpochs + ")";
 
-                double[][] prediction = this.forward(inputSample);
+        while (!state.stopped && state.epoch < maxEpochs) {
+            int epoch = state.epoch;
 
-                epochTrainLoss += this.calculateLoss(prediction, targetSample);
-
-                this.backward(targetSample);
-
-                this.updateWeights();
+            if (state.cursor == 0) {
+                shuffle(state.order, shuffleRandom);
             }
-            double avgTrainLoss = epochTrainLoss / trainingInputs.length;
+            int samples = epochs.run(state);
+            double avgTrainLoss = state.epochLoss / samples;
+            state.cursor = 0;
+            state.epochLoss = 0.0;
 
             double avgValidationLoss = -1.0;
             if (useValidation) {
-                double epochValidationLoss = 0.0;
-                for (int i = 0; i < validationInputs.length; i++) {
-                    double[][] valInputSample = Matrix.rowVectorToMatrix(validationInputs[i]);
-                    double[][] valTargetSample = Matrix.rowVectorToMatrix(validationTargets[i]);
-                    double[][] valPrediction = this.forward(valInputSample);
-                    epochValidationLoss += this.calculateLoss(valPrediction, valTargetSample);
-                }
-                avgValidationLoss = epochValidationLoss / validationInputs.length;
+                int evaluationBatch = microBatchSize > 0 ? Math.min(microBatchSize, batchSize) : batchSize;
+                avgValidationLoss = validation.averageLoss(evaluationBatch);
                 System.out.printf("Epoch %d/%d - Train Loss: %.6f, Val Loss: %.6f\n",
                         epoch + 1, maxEpochs, avgTrainLoss, avgValidationLoss);
             } else {
@@ -194,36 +679,234 @@ public class MLP {
                 stopReason = String.format("Loss (%.6f) reached threshold (%.4f) at epoch %d",
                         lossToCheck, stopLossThreshold, epoch + 1);
                 System.out.println("STOPPING: " + stopReason);
-                break;
+                state.stopped = true;
             }
 
-            if (useValidation && patience > 0) {
-                if (avgValidationLoss < bestValidationLoss) {
+            if (!state.stopped && useValidation && patience > 0) {
+                if (avgValidationLoss < state.bestValidationLoss) {
                     System.out.println("  Validation loss improved.");
-                    bestValidationLoss = avgValidationLoss;
-                    epochsWithoutImprovement = 0;
+                    state.bestValidationLoss = avgValidationLoss;
+                    state.epochsWithoutImprovement = 0;
                 } else {
-                    epochsWithoutImprovement++;
-                    System.out.printf("  Validation loss did not improve (%d/%d)\n", epochsWithoutImprovement,
+                    state.epochsWithoutImprovement++;
+                    System.out.printf("  Validation loss did not improve (%d/%d)\n", state.epochsWithoutImprovement,
                             patience);
-                    if (epochsWithoutImprovement >= patience) {
+                    if (state.epochsWithoutImprovement >= patience) {
                         stopReason = String.format(
                                 "Validation loss did not improve for %d epochs. Stopping at epoch %d.",
                                 patience, epoch + 1);
                         System.out.println("STOPPING: " + stopReason);
-                        break;
+                        state.stopped = true;
                     }
                 }
             }
-            System.out.println("---");
+            state.epoch++;
+            if (checkpointer != null) {
+                checkpointer.afterEpoch(this, state);
+            }
+            if (!state.stopped) {
+                System.out.println("---");
+            }
+        }
+        if (checkpointer != null) {
+            checkpointer.afterRun(this, state);
         }
 
         System.out.println("=========================");
         System.out.println("Training Finished!");
         System.out.println("Reason: " + stopReason);
         if (useValidation) {
-            System.out.printf("Best Validation Loss achieved: %.6f\n", bestValidationLoss);
+            System.out.printf("Best Validation Loss achieved: %.6f\n", state.bestValidationLoss);
         }
         System.out.println("=========================");
     }
+
+    // Runs the remaining steps of the current epoch from state.cursor, keeping state current after each one.
+    private void trainEpoch(TrainingData data, TrainingState state, int batchSize, Checkpointer checkpointer) {
+        int[] order = state.order;
+        DenseMatrix inputBatch = null;
+        DenseMatrix targetBatch = null;
+        for (int from = state.cursor; from < order.length; from += batchSize) {
+            int rows = Math.min(batchSize, order.length - from);
+            int chunk = microBatchSize > 0 ? Math.min(microBatchSize, rows) : rows;
+            for (int m = from; m < from + rows; m += chunk) {
+                int microRows = Math.min(chunk, from + rows - m);
+                if (inputBatch == null || inputBatch.getRows() != microRows) {
+                    inputBatch = new DenseMatrix(microRows, data.inputCount());
+                    targetBatch = new DenseMatrix(microRows, data.targetCount());
+                }
+                data.gather(order, m, inputBatch, targetBatch);
+                state.epochLoss += this.trainMicroBatch(inputBatch, targetBatch, chunk < rows);
+            }
+
+            this.updateWeights();
+
+            state.cursor = from + rows;
+            state.steps++;
+            if (checkpointer != null) {
+                checkpointer.afterStep(this, state);
+            }
+        }
+    }
+
+    // Runs the remaining steps of the current epoch from state.cursor, keeping state current after each one.
+    private void trainEpochFloat(TrainingData data, TrainingState state, int batchSize, Checkpointer checkpointer) {
+        int[] order = state.order;
+        FloatMatrix inputBatch = null;
+        FloatMatrix targetBatch = null;
+        for (int from = state.cursor; from < order.length; from += batchSize) {
+            int rows = Math.min(batchSize, order.length - from);
+            int chunk = microBatchSize > 0 ? Math.min(microBatchSize, rows) : rows;
+            for (int m = from; m < from + rows; m += chunk) {
+                int microRows = Math.min(chunk, from + rows - m);
+                if (inputBatch == null || inputBatch.getRows() != microRows) {
+                    inputBatch = new FloatMatrix(microRows, data.inputCount());
+                    targetBatch = new FloatMatrix(microRows, data.targetCount());
+                }
+                data.gather(order, m, inputBatch, targetBatch);
+                state.epochLoss += this.trainMicroBatch(inputBatch, targetBatch, chunk < rows);
+            }
+
+            this.updateWeights();
+
+            state.cursor = from + rows;
+            state.steps++;
+            if (checkpointer != null) {
+                checkpointer.afterStep(this, state);
+            }
+        }
+    }
+
+    // Forward and backward pass over one micro-batch; returns its loss summed over the rows. With accumulate the
+    // gradients are added to those of the earlier micro-batches of the step instead of replacing them.
+    private double trainMicroBatch(DenseMatrix inputs, DenseMatrix targets, boolean accumulate) {
+        DenseMatrix prediction = this.forwardLayers(inputs);
+        double loss = this.calculateLoss(prediction, targets) * inputs.getRows();
+        if (accumulate) {
+            this.backwardAccumulate(targets);
+        } else {
+            this.backward(targets);
+        }
+        return loss;
+    }
+
+    private double trainMicroBatch(FloatMatrix inputs, FloatMatrix targets, boolean accumulate) {
+        FloatMatrix prediction = this.forwardLayers(inputs);
+        double loss = this.calculateLoss(prediction, targets) * inputs.getRows();
+        if (accumulate) {
+            this.backwardAccumulate(targets);
+        } else {
+            this.backward(targets);
+        }
+        return loss;
+    }
+
+    // Loss summed over every sample of data, in order, batchSize samples at a time.
+    private double evaluateLoss(TrainingData data, int[] order, int batchSize) {
+        double loss = 0.0;
+        DenseMatrix inputBatch = null;
+        DenseMatrix targetBatch = null;
+        for (int from = 0; from < order.length; from += batchSize) {
+            int rows = Math.min(batchSize, order.length - from);
+            if (inputBatch == null || inputBatch.getRows() != rows) {
+                inputBatch = new DenseMatrix(rows, data.inputCount());
+                targetBatch = new DenseMatrix(rows, data.targetCount());
+            }
+            data.gather(order, from, inputBatch, targetBatch);
+            DenseMatrix prediction = this.forwardLayers(inputBatch);
+            loss += this.calculateLoss(prediction, targetBatch) * rows;
+        }
+        return loss;
+    }
+
+    private double evaluateLossFloat(TrainingData data, int[] order, int batchSize) {
+        double loss = 0.0;
+        FloatMatrix inputBatch = null;
+        FloatMatrix targetBatch = null;
+        for (int from = 0; from < order.length; from += batchSize) {
+            int rows = Math.min(batchSize, order.length - from);
+            if (inputBatch == null || inputBatch.getRows() != rows) {
+                inputBatch = new FloatMatrix(rows, data.inputCount());
+                targetBatch = new FloatMatrix(rows, data.targetCount());
+            }
+            data.gather(order, from, inputBatch, targetBatch);
+            FloatMatrix prediction = this.forwardLayers(inputBatch);
+            loss += this.calculateLoss(prediction, targetBatch) * rows;
+        }
+        return loss;
+    }
+
+    // Runs one epoch from a fresh pass over data, shuffled with a seed drawn from shuffleRandom; returns its samples.
+    private int trainEpoch(Dataset data, TrainingState state, int batchSize) {
+        boolean single = this.precision == Precision.FLOAT;
+        int samples = 0;
+        try (BatchIterator batches = data.batches(batchSize, this.precision, new Random(shuffleRandom.nextLong()))) {
+            while (batches.next()) {
+                int rows = batches.rows();
+                int chunk = microBatchSize > 0 ? Math.min(microBatchSize, rows) : rows;
+                for (int m = 0; m < rows; m += chunk) {
+                    int to = Math.min(m + chunk, rows);
+                    if (single) {
+                        state.epochLoss += this.trainMicroBatch(batches.floatInputs().rowRange(m, to),
+                                batches.floatTargets().rowRange(m, to), chunk < rows);
+                    } else {
+                        state.epochLoss += this.trainMicroBatch(batches.inputs().rowRange(m, to),
+                                batches.targets().rowRange(m, to), chunk < rows);
+                    }
+                }
+
+                this.updateWeights();
+
+                samples += rows;
+                state.steps++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (samples == 0) {
+            throw new IllegalArgumentException("The training dataset has no samples.");
+        }
+        return samples;
+    }
+
+    // Average loss over one pass of data in storage order.
+    private double evaluateLoss(Dataset data, int batchSize) {
+        double loss = 0.0;
+        int samples = 0;
+        try (BatchIterator batches = data.batches(batchSize, this.precision, null)) {
+            while (batches.next()) {
+                if (this.precision == Precision.FLOAT) {
+                    loss += this.calculateLoss(this.forwardLayers(batches.floatInputs()), batches.floatTargets())
+                            * batches.rows();
+                } else {
+                    loss += this.calculateLoss(this.forwardLayers(batches.inputs()), batches.targets())
+                            * batches.rows();
+                }
+                samples += batches.rows();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (samples == 0) {
+            throw new IllegalArgumentException("The validation dataset has no samples.");
+        }
+        return loss / samples;
+    }
+
+    private interface EpochRunner {
+        int run(TrainingState state);
+    }
+
+    private interface Validator {
+        double averageLoss(int batchSize);
+    }
+
+    static void shuffle(int[] order, Random rand) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
 }
\ No newline at end of file
@@ -17,7 +17,8 @@ public class Main {
     private static final int INPUT_FEATURES = 28 * 28;
 
     private static final int MAX_EPOCHS = 10;
-    private static final double LEARNING_RATE = 0.05;
+    private static final int BATCH_SIZE = 32;
+    private static final double LEARNING_RATE = 0.1;
     private static final int PATIENCE = 3;
     private static final double STOP_LOSS_THRESHOLD = 0.1;
     private static final int LOAD_LIMIT = 10000;
@@ -27,7 +28,7 @@ public class Main {
 
         try {
             System.out.println("Loading MNIST training data...");
-            DataPair trainData = CsvLoader.loadCsvData(MNIST_TRAIN_CSV_PATH, NUM_CLASSES, INPUT_FEATURES, CSV_DELIMITER,
+            DataPair trainData = DatasetCache.loadCsv(MNIST_TRAIN_CSV_PATH, NUM_CLASSES, INPUT_FEATURES, CSV_DELIMITER,
                     HAS_HEADER, LOAD_LIMIT);
             System.out.printf("Loaded %d training samples.\n", trainData.features.length);
 
@@ -35,7 +36,7 @@ public class Main {
             int validationLimit = (LOAD_LIMIT > 0 && LOAD_LIMIT < 60000) ? LOAD_LIMIT / 6 : 2000;
             if (LOAD_LIMIT == -1)
                 validationLimit = -1;
-            DataPair validationData = CsvLoader.loadCsvData(MNIST_TEST_CSV_PATH, NUM_CLASSES, INPUT_FEATURES,
+            DataPair validationData = DatasetCache.loadCsv(MNIST_TEST_CSV_PATH, NUM_CLASSES, INPUT_FEATURES,
                     CSV_DELIMITER, HAS_HEADER, validationLimit);
             System.out.printf("Loaded %d validation samples.\n", validationData.features.length);
 
@@ -51,7 +52,8 @@ public class Main {
                     validationData.features, validationData.labels,
                     MAX_EPOCHS,
                     PATIENCE,
-                    STOP_LOSS_THRESHOLD);
+                    STOP_LOSS_THRESHOLD,
+                    BATCH_SIZE);
             long endTime = System.currentTimeMillis();
             System.out.printf("Training completed in %.2f seconds.\n", (endTime - startTime) / 1000.0);
 
@@ -59,7 +61,7 @@ public class Main {
             DataPair fullTestData;
             if (validationLimit != -1) {
                 System.out.println("(Reloading full test set for final evaluation)");
-                fullTestData = CsvLoader.loadCsvData(MNIST_TEST_CSV_PATH, NUM_CLASSES, INPUT_FEATURES, CSV_DELIMITER,
+                fullTestData = DatasetCache.loadCsv(MNIST_TEST_CSV_PATH, NUM_CLASSES, INPUT_FEATURES, CSV_DELIMITER,
                         HAS_HEADER, -1);
             } else {
                 fullTestData = validationData;
@@ -157,9 +159,8 @@ public class Main {
         int correctCount = 0;
         long startTime = System.currentTimeMillis();
         for (int i = 0; i < testImages.length; i++) {
-            double[][] inputSample = Matrix.rowVectorToMatrix(testImages[i]);
-            double[][] prediction = mlp.forward(inputSample);
-            int predictedClass = findIndexOfMax(prediction[0]);
+            double[] prediction = mlp.predict(testImages[i]);
+            int predictedClass = findIndexOfMax(prediction);
             int trueClass = findIndexOfMax(testLabelsOneHot[i]);
 
             if (predictedClass == trueClass) {
@@ -190,11 +191,9 @@ public class Main {
             return -1;
         }
 
-        double[][] inputMatrix = Matrix.rowVectorToMatrix(imageSample);
+        double[] predictionProbabilities = mlp.predict(imageSample);
 
-        double[][] predictionProbabilities = mlp.forward(inputMatrix);
-
-        int predictedClass = findIndexOfMax(predictionProbabilities[0]);
+        int predictedClass = findIndexOfMax(predictionProbabilities);
 
         return predictedClass;
     }
@@ -1,13 +1,96 @@
 package com.mlp;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
+import com.mlp.ActivationFunction.ActivationFunc;
+import com.mlp.ActivationFunction.Softmax;
+
 public class Matrix {
 
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 20;
+
+    private static volatile ForkJoinPool parallelPool = ForkJoinPool.commonPool();
+    private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private static ForkJoinPool ownedPool;
+    private static volatile KernelBackend kernelBackend = Kernels.defaultBackend();
+    private static volatile Kernels kernels = Kernels.create(kernelBackend);
+    private static volatile FloatKernels floatKernels = FloatKernels.create(kernelBackend);
+    // Kernels for the dense*Into overloads without one. Their operand fields are set for the length of a call, so each
+    // thread has its own instance (a Layer owns its kernels instead).
+    private static final ThreadLocal<Gemm.DenseForward> denseForwardKernel =
+            ThreadLocal.withInitial(Gemm.DenseForward::new);
+    private static final ThreadLocal<Gemm.DenseBackward> denseBackwardKernel =
+            ThreadLocal.withInitial(Gemm.DenseBackward::new);
+    private static final ThreadLocal<FloatGemm.DenseForward> floatDenseForwardKernel =
+            ThreadLocal.withInitial(FloatGemm.DenseForward::new);
+    private static final ThreadLocal<FloatGemm.DenseBackward> floatDenseBackwardKernel =
+            ThreadLocal.withInitial(FloatGemm.DenseBackward::new);
+
     private Matrix() {
     }
 
+    public static ForkJoinPool getParallelPool() {
+        return parallelPool;
+    }
+
+    public static synchronized void setParallelPool(ForkJoinPool pool) {
+        releaseOwnedPool();
+        parallelPool = pool;
+    }
+
+    public static synchronized void setParallelism(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        releaseOwnedPool();
+        if (threads > 1) {
+            ownedPool = new ForkJoinPool(threads);
+        }
+        parallelPool = ownedPool;
+    }
+
+    private static void releaseOwnedPool() {
+        if (ownedPool != null) {
+            ownedPool.shutdown();
+            ownedPool = null;
+        }
+    }
+
+    public static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(long flops) {
+        if (flops < 0) {
+            throw new IllegalArgumentException("Parallel threshold cannot be negative.");
+        }
+        parallelThreshold = flops;
+    }
+
+    public static KernelBackend getKernelBackend() {
+        return kernelBackend;
+    }
+
+    public static synchronized void setKernelBackend(KernelBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Kernel backend cannot be null.");
+        }
+        kernels = Kernels.create(backend);
+        floatKernels = FloatKernels.create(backend);
+        kernelBackend = backend;
+    }
+
+    static Kernels kernels() {
+        return kernels;
+    }
+
+    static FloatKernels floatKernels() {
+        return floatKernels;
+    }
+
     public static double[][] transpose(double[][] a) {
         if (a == null || a.length == 0 || a[0].length == 0) {
             throw new IllegalArgumentException("Input matrix cannot be null or empty for transpose.");
@@ -31,9 +114,7 @@ public class Matrix {
         int cols = a[0].length;
         double[][] result = new double[rows][cols];
         for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                result[i][j] = a[i][j] * b[i][j];
-            }
+            kernels.multiply(a[i], 0, b[i], 0, result[i], 0, cols);
         }
         return result;
     }
@@ -46,9 +127,7 @@ public class Matrix {
         int cols = a[0].length;
         double[][] ret = new double[rows][cols];
         for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                ret[i][j] = a[i][j] + b[i][j];
-            }
+            kernels.add(a[i], 0, b[i], 0, ret[i], 0, cols);
         }
         return ret;
     }
@@ -61,9 +140,7 @@ public class Matrix {
         int cols = a[0].length;
         double[][] ret = new double[rows][cols];
         for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                ret[i][j] = a[i][j] - b[i][j];
-            }
+            kernels.subtract(a[i], 0, b[i], 0, ret[i], 0, cols);
         }
         return ret;
     }
@@ -92,9 +169,7 @@ public class Matrix {
         int cols = a[0].length;
         double[][] ret = new double[rows][cols];
         for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                ret[i][j] = a[i][j] + bias[j];
-            }
+            kernels.add(a[i], 0, bias, 0, ret[i], 0, cols);
         }
         return ret;
     }
@@ -103,11 +178,7 @@ public class Matrix {
         if (a == null || b == null || a.length != b.length) {
             throw new IllegalArgumentException("Vector dimensions are not compatible for dot product.");
         }
-        double result = 0;
-        for (int i = 0; i < a.length; ++i) {
-            result += a[i] * b[i];
-        }
-        return result;
+        return kernels.dot(a, 0, b, 0, a.length);
     }
 
     public static double[][] rowVectorToMatrix(double[] v) {
@@ -124,23 +195,7 @@ public class Matrix {
                     String.format("Matrix dimensions are not compatible for multiplication: A(%d x %d), B(%d x %d)",
                             a.length, a[0].length, b.length, b[0].length));
         }
-
-        int aRows = a.length;
-        int aCols = a[0].length;
-        int bCols = b[0].length;
-
-        double[][] result = new double[aRows][bCols];
-
-        for (int i = 0; i < aRows; ++i) {
-            for (int j = 0; j < bCols; ++j) {
-                double sum = 0.0;
-                for (int k = 0; k < aCols; ++k) {
-                    sum += a[i][k] * b[k][j];
-                }
-                result[i][j] = sum;
-            }
-        }
-        return result;
+        return multiply(DenseMatrix.of(a), DenseMatrix.of(b)).toArray();
     }
 
     public static double[][] multiply(double[][] a, double scalar) {
@@ -152,9 +207,7 @@ public class Matrix {
         int cols = a[0].length;
         double[][] ret = new double[rows][cols];
         for (int i = 0; i < rows; ++i) {
-            for (int j = 0; j < cols; ++j) {
-                ret[i][j] = a[i][j] * scalar;
-            }
+            kernels.scale(a[i], 0, scalar, ret[i], 0, cols);
         }
         return ret;
     }
@@ -206,8 +259,7 @@ public class Matrix {
             return null;
         double[][] result = new double[a.length][a[0].length];
         for (int i = 0; i < a.length; ++i)
-            for (int j = 0; j < a[0].length; ++j)
-                result[i][j] = a[i][j] * a[i][j];
+            kernels.multiply(a[i], 0, a[i], 0, result[i], 0, a[0].length);
         return result;
     }
 
@@ -215,8 +267,7 @@ public class Matrix {
         if (a == null)
             return null;
         double[] result = new double[a.length];
-        for (int i = 0; i < a.length; ++i)
-            result[i] = a[i] * a[i];
+        kernels.multiply(a, 0, a, 0, result, 0, a.length);
         return result;
     }
 
@@ -225,8 +276,7 @@ public class Matrix {
             return null;
         double[][] result = new double[a.length][a[0].length];
         for (int i = 0; i < a.length; ++i)
-            for (int j = 0; j < a[0].length; ++j)
-                result[i][j] = Math.sqrt(a[i][j]);
+            kernels.sqrt(a[i], 0, result[i], 0, a[0].length);
         return result;
     }
 
@@ -234,8 +284,7 @@ public class Matrix {
         if (a == null)
             return null;
         double[] result = new double[a.length];
-        for (int i = 0; i < a.length; ++i)
-            result[i] = Math.sqrt(a[i]);
+        kernels.sqrt(a, 0, result, 0, a.length);
         return result;
     }
 
@@ -245,12 +294,7 @@ public class Matrix {
         }
         double[][] result = new double[a.length][a[0].length];
         for (int i = 0; i < a.length; ++i)
-            for (int j = 0; j < a[0].length; ++j) {
-                if (b[i][j] == 0)
-                    throw new ArithmeticException("Division by zero.");
-                result[i][j] = a[i][j] / b[i][j];
-            }
-
+            kernels.divide(a[i], 0, b[i], 0, result[i], 0, a[0].length);
         return result;
     }
 
@@ -259,12 +303,757 @@ public class Matrix {
             throw new IllegalArgumentException("Vector dimensions must be the same for division.");
         }
         double[] result = new double[a.length];
-        for (int i = 0; i < a.length; ++i) {
-            if (b[i] == 0)
-                throw new ArithmeticException("Division by zero.");
-            result[i] = a[i] / b[i];
-        }
+        kernels.divide(a, 0, b, 0, result, 0, a.length);
         return result;
     }
 
-}
\ No newline at end of file
+    public static DenseMatrix transpose(DenseMatrix a) {
+        if (a == null || a.getRows() == 0 || a.getCols() == 0) {
+            throw new IllegalArgumentException("Input matrix cannot be null or empty for transpose.");
+        }
+        return transposeInto(new DenseMatrix(a.getCols(), a.getRows()), a);
+    }
+
+    public static DenseMatrix transposeInto(DenseMatrix dst, DenseMatrix a) {
+        if (a == null || dst == null || dst.getRows() != a.getCols() || dst.getCols() != a.getRows()) {
+            throw new IllegalArgumentException("Destination must have the transposed shape of the input matrix.");
+        }
+        checkNoAlias(dst, a);
+        double[] ad = a.getData();
+        double[] rd = dst.getData();
+        int ro = dst.getOffset();
+        int rs = dst.getStride();
+        for (int i = 0; i < a.getRows(); ++i) {
+            int ai = a.getOffset() + i * a.getStride();
+            for (int j = 0; j < a.getCols(); ++j) {
+                rd[ro + j * rs + i] = ad[ai + j];
+            }
+        }
+        return dst;
+    }
+
+    public static DenseMatrix multiplyElementWise(DenseMatrix a, DenseMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for element-wise multiplication.");
+        }
+        return multiplyElementWiseInto(new DenseMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static DenseMatrix multiplyElementWiseInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        checkSameShape(dst, a, b, "element-wise multiplication");
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] rd = dst.getData();
+        int cols = a.getCols();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.multiply(ad, a.getOffset() + i * a.getStride(), bd, b.getOffset() + i * b.getStride(),
+                    rd, dst.getOffset() + i * dst.getStride(), cols);
+        }
+        return dst;
+    }
+
+    public static DenseMatrix multiplyElementWiseInPlace(DenseMatrix a, DenseMatrix b) {
+        return multiplyElementWiseInto(a, a, b);
+    }
+
+    public static DenseMatrix add(DenseMatrix a, DenseMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for addition.");
+        }
+        return addInto(new DenseMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static DenseMatrix addInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        checkSameShape(dst, a, b, "addition");
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] rd = dst.getData();
+        int cols = a.getCols();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.add(ad, a.getOffset() + i * a.getStride(), bd, b.getOffset() + i * b.getStride(),
+                    rd, dst.getOffset() + i * dst.getStride(), cols);
+        }
+        return dst;
+    }
+
+    public static DenseMatrix addInPlace(DenseMatrix a, DenseMatrix b) {
+        return addInto(a, a, b);
+    }
+
+    public static DenseMatrix substract(DenseMatrix a, DenseMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for subtraction.");
+        }
+        return substractInto(new DenseMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static DenseMatrix substractInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        checkSameShape(dst, a, b, "subtraction");
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] rd = dst.getData();
+        int cols = a.getCols();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.subtract(ad, a.getOffset() + i * a.getStride(), bd, b.getOffset() + i * b.getStride(),
+                    rd, dst.getOffset() + i * dst.getStride(), cols);
+        }
+        return dst;
+    }
+
+    public static DenseMatrix substractInPlace(DenseMatrix a, DenseMatrix b) {
+        return substractInto(a, a, b);
+    }
+
+    public static DenseMatrix applyFunc(DenseMatrix a, Function<Double, Double> func) {
+        if (a == null)
+            return null;
+        return applyFuncInto(new DenseMatrix(a.getRows(), a.getCols()), a, func::apply);
+    }
+
+    public static DenseMatrix applyFuncInto(DenseMatrix dst, DenseMatrix a, DoubleUnaryOperator func) {
+        checkSameShape(dst, a, a, "function application");
+        double[] ad = a.getData();
+        double[] rd = dst.getData();
+        int cols = a.getCols();
+        for (int i = 0; i < a.getRows(); ++i) {
+            int ai = a.getOffset() + i * a.getStride();
+            int ri = dst.getOffset() + i * dst.getStride();
+            for (int j = 0; j < cols; ++j) {
+                rd[ri + j] = func.applyAsDouble(ad[ai + j]);
+            }
+        }
+        return dst;
+    }
+
+    public static DenseMatrix applyFuncInPlace(DenseMatrix a, DoubleUnaryOperator func) {
+        return applyFuncInto(a, a, func);
+    }
+
+    public static DenseMatrix addBiasVectorToRows(DenseMatrix a, DenseMatrix bias) {
+        if (a == null || bias == null || a.getRows() == 0 || bias.getRows() != 1 || a.getCols() != bias.getCols()) {
+            throw new IllegalArgumentException("Matrix columns must match bias vector length.");
+        }
+        return addBiasVectorToRowsInto(new DenseMatrix(a.getRows(), a.getCols()), a, bias);
+    }
+
+    public static DenseMatrix addBiasVectorToRowsInto(DenseMatrix dst, DenseMatrix a, DenseMatrix bias) {
+        if (a == null || bias == null || bias.getRows() != 1 || a.getCols() != bias.getCols() || !a.sameShape(dst)) {
+            throw new IllegalArgumentException("Matrix columns must match bias vector length.");
+        }
+        double[] ad = a.getData();
+        double[] bd = bias.getData();
+        double[] rd = dst.getData();
+        int cols = a.getCols();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.add(ad, a.getOffset() + i * a.getStride(), bd, bias.getOffset(),
+                    rd, dst.getOffset() + i * dst.getStride(), cols);
+        }
+        return dst;
+    }
+
+    public static DenseMatrix addBiasVectorToRowsInPlace(DenseMatrix a, DenseMatrix bias) {
+        return addBiasVectorToRowsInto(a, a, bias);
+    }
+
+    public static DenseMatrix multiply(DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null || a.getRows() == 0 || b.getRows() == 0 || a.getCols() != b.getRows()) {
+            throw new IllegalArgumentException(
+                    String.format("Matrix dimensions are not compatible for multiplication: %s, %s", a, b));
+        }
+        return multiplyInto(new DenseMatrix(a.getRows(), b.getCols()), a, b);
+    }
+
+    public static DenseMatrix multiplyInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null || dst == null || a.getCols() != b.getRows()
+                || dst.getRows() != a.getRows() || dst.getCols() != b.getCols()) {
+            throw new IllegalArgumentException(String.format(
+                    "Matrix dimensions are not compatible for multiplication: %s * %s into %s", a, b, dst));
+        }
+        checkNoAlias(dst, a);
+        checkNoAlias(dst, b);
+        dst.fill(0.0);
+        Gemm.run(Gemm::multiplyTile, a, b, dst, a.getCols());
+        return dst;
+    }
+
+    public static DenseMatrix multiplyTransA(DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null || a.getRows() == 0 || a.getRows() != b.getRows()) {
+            throw new IllegalArgumentException(
+                    String.format("Matrix dimensions are not compatible for multiplication A^T * B: %s, %s", a, b));
+        }
+        return multiplyTransAInto(new DenseMatrix(a.getCols(), b.getCols()), a, b);
+    }
+
+    public static DenseMatrix multiplyTransAInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        checkTransA(dst, a, b);
+        dst.fill(0.0);
+        Gemm.run(Gemm::multiplyTransATile, a, b, dst, a.getRows());
+        return dst;
+    }
+
+    // dst += a^T * b. The rows of a and b are added in order, so accumulating a batch in consecutive row blocks
+    // gives exactly the result of multiplyTransAInto over the whole batch.
+    public static DenseMatrix multiplyTransAAddInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        checkTransA(dst, a, b);
+        Gemm.run(Gemm::multiplyTransATile, a, b, dst, a.getRows());
+        return dst;
+    }
+
+    private static void checkTransA(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null || dst == null || a.getRows() != b.getRows()
+                || dst.getRows() != a.getCols() || dst.getCols() != b.getCols()) {
+            throw new IllegalArgumentException(String.format(
+                    "Matrix dimensions are not compatible for multiplication A^T * B: %s, %s into %s", a, b, dst));
+        }
+        checkNoAlias(dst, a);
+        checkNoAlias(dst, b);
+    }
+
+    public static DenseMatrix multiplyTransB(DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null || a.getRows() == 0 || b.getRows() == 0 || a.getCols() != b.getCols()) {
+            throw new IllegalArgumentException(
+                    String.format("Matrix dimensions are not compatible for multiplication A * B^T: %s, %s", a, b));
+        }
+        return multiplyTransBInto(new DenseMatrix(a.getRows(), b.getRows()), a, b);
+    }
+
+    public static DenseMatrix multiplyTransBInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        if (a == null || b == null || dst == null || a.getCols() != b.getCols()
+                || dst.getRows() != a.getRows() || dst.getCols() != b.getRows()) {
+            throw new IllegalArgumentException(String.format(
+                    "Matrix dimensions are not compatible for multiplication A * B^T: %s, %s into %s", a, b, dst));
+        }
+        checkNoAlias(dst, a);
+        checkNoAlias(dst, b);
+        dst.fill(0.0);
+        Gemm.run(Gemm::multiplyTransBTile, a, b, dst, a.getCols());
+        return dst;
+    }
+
+    public static DenseMatrix denseForward(DenseMatrix input, DenseMatrix weights, DenseMatrix bias,
+            ActivationFunc activation) {
+        if (input == null || weights == null) {
+            throw new IllegalArgumentException("Input and weights cannot be null.");
+        }
+        return denseForwardInto(new DenseMatrix(input.getRows(), weights.getRows()), input, weights, bias,
+                activation);
+    }
+
+    // dst = activation(input * weights^T + bias), with bias and activation applied per output tile.
+    public static DenseMatrix denseForwardInto(DenseMatrix dst, DenseMatrix input, DenseMatrix weights,
+            DenseMatrix bias, ActivationFunc activation) {
+        Gemm.DenseForward kernel = denseForwardKernel.get();
+        try {
+            return denseForwardInto(kernel, dst, input, weights, bias, activation);
+        } finally {
+            kernel.bias = null;
+            kernel.activation = null;
+        }
+    }
+
+    static DenseMatrix denseForwardInto(Gemm.DenseForward kernel, DenseMatrix dst, DenseMatrix input,
+            DenseMatrix weights, DenseMatrix bias, ActivationFunc activation) {
+        if (input == null || weights == null || dst == null || bias == null || input.getCols() != weights.getCols()
+                || dst.getRows() != input.getRows() || dst.getCols() != weights.getRows()
+                || bias.getRows() != 1 || bias.getCols() != weights.getRows()) {
+            throw new IllegalArgumentException(String.format(
+                    "Dimensions are not compatible for a dense layer: input %s, weights %s, bias %s into %s",
+                    input, weights, bias, dst));
+        }
+        checkNoAlias(dst, input);
+        checkNoAlias(dst, weights);
+        checkNoAlias(dst, bias);
+        boolean softmax = activation instanceof Softmax;
+        kernel.bias = bias;
+        kernel.activation = softmax ? null : activation;
+        Gemm.run(kernel, input, weights, dst, input.getCols());
+        if (softmax) {
+            Softmax.activateMatrixInto(dst, dst);
+        }
+        return dst;
+    }
+
+    // dst = (delta * weights) .* f'(activated): the error of the layer whose activations feed these weights.
+    public static DenseMatrix denseBackwardInto(DenseMatrix dst, DenseMatrix delta, DenseMatrix weights,
+            DenseMatrix activated, ActivationFunc activation) {
+        Gemm.DenseBackward kernel = denseBackwardKernel.get();
+        try {
+            return denseBackwardInto(kernel, dst, delta, weights, activated, activation);
+        } finally {
+            kernel.activated = null;
+            kernel.activation = null;
+        }
+    }
+
+    static DenseMatrix denseBackwardInto(Gemm.DenseBackward kernel, DenseMatrix dst, DenseMatrix delta,
+            DenseMatrix weights, DenseMatrix activated, ActivationFunc activation) {
+        if (delta == null || weights == null || dst == null || activated == null || activation == null
+                || delta.getCols() != weights.getRows() || dst.getRows() != delta.getRows()
+                || dst.getCols() != weights.getCols() || !dst.sameShape(activated)) {
+            throw new IllegalArgumentException(String.format(
+                    "Dimensions are not compatible for a dense backward pass: delta %s, weights %s, activated %s into %s",
+                    delta, weights, activated, dst));
+        }
+        checkNoAlias(dst, delta);
+        checkNoAlias(dst, weights);
+        if (activated.getOffset() != dst.getOffset() || activated.getStride() != dst.getStride()) {
+            multiplyInto(dst, delta, weights);
+            double[] xd = activated.getData();
+            double[] rd = dst.getData();
+            for (int i = 0; i < dst.getRows(); ++i) {
+                int xi = activated.getOffset() + i * activated.getStride();
+                int ri = dst.getOffset() + i * dst.getStride();
+                for (int j = 0; j < dst.getCols(); ++j) {
+                    rd[ri + j] *= activation.derivative(xd[xi + j]);
+                }
+            }
+            return dst;
+        }
+        kernel.activated = activated;
+        kernel.activation = activation;
+        Gemm.run(kernel, delta, weights, dst, delta.getCols());
+        return dst;
+    }
+
+    public static DenseMatrix multiply(DenseMatrix a, double scalar) {
+        if (a == null)
+            return null;
+        return multiplyInto(new DenseMatrix(a.getRows(), a.getCols()), a, scalar);
+    }
+
+    public static DenseMatrix multiplyInto(DenseMatrix dst, DenseMatrix a, double scalar) {
+        checkSameShape(dst, a, a, "scalar multiplication");
+        double[] ad = a.getData();
+        double[] rd = dst.getData();
+        int cols = a.getCols();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.scale(ad, a.getOffset() + i * a.getStride(), scalar, rd, dst.getOffset() + i * dst.getStride(),
+                    cols);
+        }
+        return dst;
+    }
+
+    public static DenseMatrix multiplyInPlace(DenseMatrix a, double scalar) {
+        return multiplyInto(a, a, scalar);
+    }
+
+    public static DenseMatrix sumColumns(DenseMatrix a) {
+        if (a == null)
+            return new DenseMatrix(1, 0);
+        return sumColumnsInto(new DenseMatrix(1, a.getCols()), a);
+    }
+
+    public static DenseMatrix sumColumnsInto(DenseMatrix dst, DenseMatrix a) {
+        checkSumColumns(dst, a);
+        dst.fill(0.0);
+        return sumColumnsAddInto(dst, a);
+    }
+
+    // dst += the column sums of a, adding the rows in order (see multiplyTransAAddInto).
+    public static DenseMatrix sumColumnsAddInto(DenseMatrix dst, DenseMatrix a) {
+        checkSumColumns(dst, a);
+        double[] ad = a.getData();
+        double[] sd = dst.getData();
+        int so = dst.getOffset();
+        for (int i = 0; i < a.getRows(); i++) {
+            kernels.add(sd, so, ad, a.getOffset() + i * a.getStride(), sd, so, a.getCols());
+        }
+        return dst;
+    }
+
+    private static void checkSumColumns(DenseMatrix dst, DenseMatrix a) {
+        if (a == null || dst == null || dst.getRows() != 1 || dst.getCols() != a.getCols()) {
+            throw new IllegalArgumentException("Destination must be a row vector with one entry per column.");
+        }
+        checkNoAlias(dst, a);
+    }
+
+    public static double sumRows(DenseMatrix a) {
+        if (a == null)
+            return 0;
+        double sum = 0;
+        double[] ad = a.getData();
+        for (int i = 0; i < a.getRows(); i++) {
+            int ai = a.getOffset() + i * a.getStride();
+            for (int j = 0; j < a.getCols(); j++) {
+                sum += ad[ai + j];
+            }
+        }
+        return sum;
+    }
+
+    public static DenseMatrix deepCopy(DenseMatrix original) {
+        if (original == null)
+            return null;
+        return original.copy();
+    }
+
+    public static DenseMatrix copyInto(DenseMatrix dst, DenseMatrix a) {
+        checkSameShape(dst, a, a, "copy");
+        double[] ad = a.getData();
+        double[] rd = dst.getData();
+        for (int i = 0; i < a.getRows(); ++i) {
+            System.arraycopy(ad, a.getOffset() + i * a.getStride(), rd, dst.getOffset() + i * dst.getStride(),
+                    a.getCols());
+        }
+        return dst;
+    }
+
+    public static DenseMatrix square(DenseMatrix a) {
+        if (a == null)
+            return null;
+        return multiplyElementWise(a, a);
+    }
+
+    public static DenseMatrix squareInto(DenseMatrix dst, DenseMatrix a) {
+        return multiplyElementWiseInto(dst, a, a);
+    }
+
+    public static DenseMatrix squareInPlace(DenseMatrix a) {
+        return multiplyElementWiseInto(a, a, a);
+    }
+
+    public static DenseMatrix sqrt(DenseMatrix a) {
+        if (a == null)
+            return null;
+        return sqrtInto(new DenseMatrix(a.getRows(), a.getCols()), a);
+    }
+
+    public static DenseMatrix sqrtInto(DenseMatrix dst, DenseMatrix a) {
+        checkSameShape(dst, a, a, "square root");
+        double[] ad = a.getData();
+        double[] rd = dst.getData();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.sqrt(ad, a.getOffset() + i * a.getStride(), rd, dst.getOffset() + i * dst.getStride(),
+                    a.getCols());
+        }
+        return dst;
+    }
+
+    public static DenseMatrix sqrtInPlace(DenseMatrix a) {
+        return sqrtInto(a, a);
+    }
+
+    public static DenseMatrix divide(DenseMatrix a, DenseMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for division.");
+        }
+        return divideInto(new DenseMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static DenseMatrix divideInto(DenseMatrix dst, DenseMatrix a, DenseMatrix b) {
+        checkSameShape(dst, a, b, "division");
+        double[] ad = a.getData();
+        double[] bd = b.getData();
+        double[] rd = dst.getData();
+        for (int i = 0; i < a.getRows(); ++i) {
+            kernels.divide(ad, a.getOffset() + i * a.getStride(), bd, b.getOffset() + i * b.getStride(),
+                    rd, dst.getOffset() + i * dst.getStride(), a.getCols());
+        }
+        return dst;
+    }
+
+    public static DenseMatrix divideInPlace(DenseMatrix a, DenseMatrix b) {
+        return divideInto(a, a, b);
+    }
+
+    public static FloatMatrix multiplyElementWise(FloatMatrix a, FloatMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for element-wise multiplication.");
+        }
+        return multiplyElementWiseInto(new FloatMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static FloatMatrix multiplyElementWiseInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        checkSameShape(dst, a, b, "element-wise multiplication");
+        for (int i = 0; i < a.getRows(); ++i) {
+            floatKernels.multiply(a.getData(), a.getOffset() + i * a.getStride(), b.getData(),
+                    b.getOffset() + i * b.getStride(), dst.getData(), dst.getOffset() + i * dst.getStride(),
+                    a.getCols());
+        }
+        return dst;
+    }
+
+    public static FloatMatrix add(FloatMatrix a, FloatMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for addition.");
+        }
+        return addInto(new FloatMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static FloatMatrix addInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        checkSameShape(dst, a, b, "addition");
+        for (int i = 0; i < a.getRows(); ++i) {
+            floatKernels.add(a.getData(), a.getOffset() + i * a.getStride(), b.getData(),
+                    b.getOffset() + i * b.getStride(), dst.getData(), dst.getOffset() + i * dst.getStride(),
+                    a.getCols());
+        }
+        return dst;
+    }
+
+    public static FloatMatrix substract(FloatMatrix a, FloatMatrix b) {
+        if (a == null || !a.sameShape(b)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for subtraction.");
+        }
+        return substractInto(new FloatMatrix(a.getRows(), a.getCols()), a, b);
+    }
+
+    public static FloatMatrix substractInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        checkSameShape(dst, a, b, "subtraction");
+        for (int i = 0; i < a.getRows(); ++i) {
+            floatKernels.subtract(a.getData(), a.getOffset() + i * a.getStride(), b.getData(),
+                    b.getOffset() + i * b.getStride(), dst.getData(), dst.getOffset() + i * dst.getStride(),
+                    a.getCols());
+        }
+        return dst;
+    }
+
+    public static FloatMatrix multiply(FloatMatrix a, FloatMatrix b) {
+        if (a == null || b == null || a.getRows() == 0 || b.getRows() == 0 || a.getCols() != b.getRows()) {
+            throw new IllegalArgumentException(
+                    String.format("Matrix dimensions are not compatible for multiplication: %s, %s", a, b));
+        }
+        return multiplyInto(new FloatMatrix(a.getRows(), b.getCols()), a, b);
+    }
+
+    public static FloatMatrix multiplyInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        if (a == null || b == null || dst == null || a.getCols() != b.getRows()
+                || dst.getRows() != a.getRows() || dst.getCols() != b.getCols()) {
+            throw new IllegalArgumentException(String.format(
+                    "Matrix dimensions are not compatible for multiplication: %s * %s into %s", a, b, dst));
+        }
+        checkNoAlias(dst, a);
+        checkNoAlias(dst, b);
+        dst.fill(0.0f);
+        Gemm.run(FloatGemm::multiplyTile, a, b, dst, dst.getRows(), dst.getCols(), a.getCols());
+        return dst;
+    }
+
+    public static FloatMatrix multiplyTransA(FloatMatrix a, FloatMatrix b) {
+        if (a == null || b == null || a.getRows() == 0 || a.getRows() != b.getRows()) {
+            throw new IllegalArgumentException(
+                    String.format("Matrix dimensions are not compatible for multiplication A^T * B: %s, %s", a, b));
+        }
+        return multiplyTransAInto(new FloatMatrix(a.getCols(), b.getCols()), a, b);
+    }
+
+    public static FloatMatrix multiplyTransAInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        checkTransA(dst, a, b);
+        dst.fill(0.0f);
+        Gemm.run(FloatGemm::multiplyTransATile, a, b, dst, dst.getRows(), dst.getCols(), a.getRows());
+        return dst;
+    }
+
+    // dst += a^T * b. The rows of a and b are added in order, so accumulating a batch in consecutive row blocks
+    // gives exactly the result of multiplyTransAInto over the whole batch.
+    public static FloatMatrix multiplyTransAAddInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        checkTransA(dst, a, b);
+        Gemm.run(FloatGemm::multiplyTransATile, a, b, dst, dst.getRows(), dst.getCols(), a.getRows());
+        return dst;
+    }
+
+    private static void checkTransA(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        if (a == null || b == null || dst == null || a.getRows() != b.getRows()
+                || dst.getRows() != a.getCols() || dst.getCols() != b.getCols()) {
+            throw new IllegalArgumentException(String.format(
+                    "Matrix dimensions are not compatible for multiplication A^T * B: %s, %s into %s", a, b, dst));
+        }
+        checkNoAlias(dst, a);
+        checkNoAlias(dst, b);
+    }
+
+    public static FloatMatrix multiplyTransB(FloatMatrix a, FloatMatrix b) {
+        if (a == null || b == null || a.getRows() == 0 || b.getRows() == 0 || a.getCols() != b.getCols()) {
+            throw new IllegalArgumentException(
+                    String.format("Matrix dimensions are not compatible for multiplication A * B^T: %s, %s", a, b));
+        }
+        return multiplyTransBInto(new FloatMatrix(a.getRows(), b.getRows()), a, b);
+    }
+
+    public static FloatMatrix multiplyTransBInto(FloatMatrix dst, FloatMatrix a, FloatMatrix b) {
+        if (a == null || b == null || dst == null || a.getCols() != b.getCols()
+                || dst.getRows() != a.getRows() || dst.getCols() != b.getRows()) {
+            throw new IllegalArgumentException(String.format(
+                    "Matrix dimensions are not compatible for multiplication A * B^T: %s, %s into %s", a, b, dst));
+        }
+        checkNoAlias(dst, a);
+        checkNoAlias(dst, b);
+        dst.fill(0.0f);
+        Gemm.run(FloatGemm::multiplyTransBTile, a, b, dst, dst.getRows(), dst.getCols(), a.getCols());
+        return dst;
+    }
+
+    public static FloatMatrix denseForward(FloatMatrix input, FloatMatrix weights, FloatMatrix bias,
+            ActivationFunc activation) {
+        if (input == null || weights == null) {
+            throw new IllegalArgumentException("Input and weights cannot be null.");
+        }
+        return denseForwardInto(new FloatMatrix(input.getRows(), weights.getRows()), input, weights, bias,
+                activation);
+    }
+
+    public static FloatMatrix denseForwardInto(FloatMatrix dst, FloatMatrix input, FloatMatrix weights,
+            FloatMatrix bias, ActivationFunc activation) {
+        FloatGemm.DenseForward kernel = floatDenseForwardKernel.get();
+        try {
+            return denseForwardInto(kernel, dst, input, weights, bias, activation);
+        } finally {
+            kernel.bias = null;
+            kernel.activation = null;
+        }
+    }
+
+    static FloatMatrix denseForwardInto(FloatGemm.DenseForward kernel, FloatMatrix dst, FloatMatrix input,
+            FloatMatrix weights, FloatMatrix bias, ActivationFunc activation) {
+        if (input == null || weights == null || dst == null || bias == null || input.getCols() != weights.getCols()
+                || dst.getRows() != input.getRows() || dst.getCols() != weights.getRows()
+                || bias.getRows() != 1 || bias.getCols() != weights.getRows()) {
+            throw new IllegalArgumentException(String.format(
+                    "Dimensions are not compatible for a dense layer: input %s, weights %s, bias %s into %s",
+                    input, weights, bias, dst));
+        }
+        checkNoAlias(dst, input);
+        checkNoAlias(dst, weights);
+        checkNoAlias(dst, bias);
+        boolean softmax = activation instanceof Softmax;
+        kernel.bias = bias;
+        kernel.activation = softmax ? null : activation;
+        Gemm.run(kernel, input, weights, dst, dst.getRows(), dst.getCols(), input.getCols());
+        if (softmax) {
+            Softmax.activateMatrixInto(dst, dst);
+        }
+        return dst;
+    }
+
+    public static FloatMatrix denseBackwardInto(FloatMatrix dst, FloatMatrix delta, FloatMatrix weights,
+            FloatMatrix activated, ActivationFunc activation) {
+        FloatGemm.DenseBackward kernel = floatDenseBackwardKernel.get();
+        try {
+            return denseBackwardInto(kernel, dst, delta, weights, activated, activation);
+        } finally {
+            kernel.activated = null;
+            kernel.activation = null;
+        }
+    }
+
+    static FloatMatrix denseBackwardInto(FloatGemm.DenseBackward kernel, FloatMatrix dst, FloatMatrix delta,
+            FloatMatrix weights, FloatMatrix activated, ActivationFunc activation) {
+        if (delta == null || weights == null || dst == null || activated == null || activation == null
+                || delta.getCols() != weights.getRows() || dst.getRows() != delta.getRows()
+                || dst.getCols() != weights.getCols() || !dst.sameShape(activated)) {
+            throw new IllegalArgumentException(String.format(
+                    "Dimensions are not compatible for a dense backward pass: delta %s, weights %s, activated %s into %s",
+                    delta, weights, activated, dst));
+        }
+        checkNoAlias(dst, delta);
+        checkNoAlias(dst, weights);
+        if (activated.getOffset() != dst.getOffset() || activated.getStride() != dst.getStride()) {
+            multiplyInto(dst, delta, weights);
+            float[] xd = activated.getData();
+            float[] rd = dst.getData();
+            for (int i = 0; i < dst.getRows(); ++i) {
+                int xi = activated.getOffset() + i * activated.getStride();
+                int ri = dst.getOffset() + i * dst.getStride();
+                for (int j = 0; j < dst.getCols(); ++j) {
+                    rd[ri + j] *= (float) activation.derivative(xd[xi + j]);
+                }
+            }
+            return dst;
+        }
+        kernel.activated = activated;
+        kernel.activation = activation;
+        Gemm.run(kernel, delta, weights, dst, dst.getRows(), dst.getCols(), delta.getCols());
+        return dst;
+    }
+
+    public static FloatMatrix multiply(FloatMatrix a, float scalar) {
+        if (a == null)
+            return null;
+        return multiplyInto(new FloatMatrix(a.getRows(), a.getCols()), a, scalar);
+    }
+
+    public static FloatMatrix multiplyInto(FloatMatrix dst, FloatMatrix a, float scalar) {
+        checkSameShape(dst, a, a, "scalar multiplication");
+        for (int i = 0; i < a.getRows(); ++i) {
+            floatKernels.scale(a.getData(), a.getOffset() + i * a.getStride(), scalar, dst.getData(),
+                    dst.getOffset() + i * dst.getStride(), a.getCols());
+        }
+        return dst;
+    }
+
+    public static FloatMatrix multiplyInPlace(FloatMatrix a, float scalar) {
+        return multiplyInto(a, a, scalar);
+    }
+
+    public static FloatMatrix sumColumns(FloatMatrix a) {
+        if (a == null)
+            return new FloatMatrix(1, 0);
+        return sumColumnsInto(new FloatMatrix(1, a.getCols()), a);
+    }
+
+    public static FloatMatrix sumColumnsInto(FloatMatrix dst, FloatMatrix a) {
+        checkSumColumns(dst, a);
+        dst.fill(0.0f);
+        return sumColumnsAddInto(dst, a);
+    }
+
+    public static FloatMatrix sumColumnsAddInto(FloatMatrix dst, FloatMatrix a) {
+        checkSumColumns(dst, a);
+        float[] sd = dst.getData();
+        int so = dst.getOffset();
+        for (int i = 0; i < a.getRows(); i++) {
+            floatKernels.add(sd, so, a.getData(), a.getOffset() + i * a.getStride(), sd, so, a.getCols());
+        }
+        return dst;
+    }
+
+    private static void checkSumColumns(FloatMatrix dst, FloatMatrix a) {
+        if (a == null || dst == null || dst.getRows() != 1 || dst.getCols() != a.getCols()) {
+            throw new IllegalArgumentException("Destination must be a row vector with one entry per column.");
+        }
+        checkNoAlias(dst, a);
+    }
+
+    public static FloatMatrix copyInto(FloatMatrix dst, FloatMatrix a) {
+        checkSameShape(dst, a, a, "copy");
+        for (int i = 0; i < a.getRows(); ++i) {
+            System.arraycopy(a.getData(), a.getOffset() + i * a.getStride(), dst.getData(),
+                    dst.getOffset() + i * dst.getStride(), a.getCols());
+        }
+        return dst;
+    }
+
+    private static void checkSameShape(DenseMatrix dst, DenseMatrix a, DenseMatrix b, String operation) {
+        if (a == null || !a.sameShape(b) || !a.sameShape(dst)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for " + operation + ".");
+        }
+    }
+
+    private static void checkNoAlias(DenseMatrix dst, DenseMatrix src) {
+        if (dst.getData() == src.getData() && dst.size() > 0 && src.size() > 0
+                && dst.getOffset() < end(src) && src.getOffset() < end(dst)) {
+            throw new IllegalArgumentException("Destination matrix must not share storage with an input.");
+        }
+    }
+
+    private static int end(DenseMatrix m) {
+        return m.getOffset() + (m.getRows() - 1) * m.getStride() + m.getCols();
+    }
+
+    private static void checkSameShape(FloatMatrix dst, FloatMatrix a, FloatMatrix b, String operation) {
+        if (a == null || !a.sameShape(b) || !a.sameShape(dst)) {
+            throw new IllegalArgumentException("Matrices dimensions must be the same for " + operation + ".");
+        }
+    }
+
+    private static void checkNoAlias(FloatMatrix dst, FloatMatrix src) {
+        if (dst.getData() == src.getData() && dst.size() > 0 && src.size() > 0
+                && dst.getOffset() < end(src) && src.getOffset() < end(dst)) {
+            throw new IllegalArgumentException("Destination matrix must not share storage with an input.");
+        }
+    }
+
+    private static int end(FloatMatrix m) {
+        return m.getOffset() + (m.getRows() - 1) * m.getStride() + m.getCols();
+    }
+}
@@ -0,0 +1,327 @@
+package com.mlp;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mlp.ActivationFunction.ActivationFunc;
+import com.mlp.ActivationFunction.Linear;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.ActivationFunction.Sigmoid;
+import com.mlp.ActivationFunction.Softmax;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.Optimizer;
+
+// Binary model format. Everything is little-endian:
+//
+//   "MLPM" | int version | short+bytes task type | byte element size (8 = DOUBLE, 4 = FLOAT) | int layer count
+//   per layer: int inputs | int outputs | short+bytes activation | long weights offset | long biases offset
+//   zero padding, then each layer's weights (outputs x inputs, row-major) and biases, every array 64-byte aligned
+//
+// load copies the arrays onto the heap with bulk reads (no parsing). map goes further for DOUBLE models: the layers
+// keep their weights off-heap in the mapped file itself, so opening a model costs the header parse and the page
+// faults of whatever is actually read. Mapped weights are copy-on-write when the file is writable (training the
+// model never changes the file) and read-only otherwise.
+public final class ModelFile {
+
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = { 'M', 'L', 'P', 'M' };
+    private static final int ALIGNMENT = 64;
+    private static final int MAX_MAP_BYTES = 1 << 30;
+    private static final int MAX_HEADER_BYTES = 1 << 16;
+
+    private ModelFile() {
+    }
+
+    public static void save(MLP model, Path file) throws IOException {
+        if (model == null || file == null) {
+            throw new IllegalArgumentException("Model and file cannot be null.");
+        }
+        boolean floats = model.getPrecision() == Precision.FLOAT;
+        int count = floats ? model.getFloatLayers().size() : model.getLayers().size();
+        int[] inputs = new int[count];
+        int[] outputs = new int[count];
+        byte[][] activations = new byte[count][];
+        for (int l = 0; l < count; l++) {
+            FloatLayer floatLayer = floats ? model.getFloatLayers().get(l) : null;
+            Layer layer = floats ? null : model.getLayers().get(l);
+            inputs[l] = floats ? floatLayer.getNumInputs() : layer.getNumInputs();
+            outputs[l] = floats ? floatLayer.getNumOutputs() : layer.getNumOutputs();
+            ActivationFunc activation = floats ? floatLayer.getActivationFunction() : layer.getActivationFunction();
+            activations[l] = activation.getClass().getSimpleName().getBytes(StandardCharsets.US_ASCII);
+        }
+        byte[] task = model.getTaskType().name().getBytes(StandardCharsets.US_ASCII);
+        int elementSize = floats ? Float.BYTES : Double.BYTES;
+
+        int headerBytes = MAGIC.length + Integer.BYTES + Short.BYTES + task.length + 1 + Integer.BYTES;
+        for (int l = 0; l < count; l++) {
+            headerBytes += 2 * Integer.BYTES + Short.BYTES + activations[l].length + 2 * Long.BYTES;
+        }
+        long[] weightOffsets = new long[count];
+        long[] biasOffsets = new long[count];
+        long position = align(headerBytes);
+        for (int l = 0; l < count; l++) {
+            weightOffsets[l] = position;
+            position = align(position + (long) inputs[l] * outputs[l] * elementSize);
+            biasOffsets[l] = position;
+            position = align(position + (long) outputs[l] * elementSize);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(VERSION).putShort((short) task.length).put(task).put((byte) elementSize)
+                .putInt(count);
+        for (int l = 0; l < count; l++) {
+            header.putInt(inputs[l]).putInt(outputs[l]).putShort((short) activations[l].length).put(activations[l])
+                    .putLong(weightOffsets[l]).putLong(biasOffsets[l]);
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+            ChunkWriter writer = new ChunkWriter(channel);
+            for (int l = 0; l < count; l++) {
+                if (floats) {
+                    FloatLayer layer = model.getFloatLayers().get(l);
+                    writer.writeFloats(weightOffsets[l], layer.getWeights());
+                    writer.writeFloats(biasOffsets[l], layer.getBiases());
+                } else {
+                    Layer layer = model.getLayers().get(l);
+                    if (layer.isOffHeap()) {
+                        writer.writeDoubles(weightOffsets[l], layer.getWeightBuffer());
+                    } else {
+                        writer.writeDoubles(weightOffsets[l], layer.getWeights());
+                    }
+                    writer.writeDoubles(biasOffsets[l], layer.getBiases());
+                }
+            }
+            // Pads the file to its full aligned length, so the last array can be mapped in whole pages.
+            if (channel.size() < position) {
+                writeFully(channel, ByteBuffer.allocate(1), position - 1);
+            }
+        }
+    }
+
+    public static MLP load(Path file, Optimizer optimizer) throws IOException {
+        return open(file, optimizer, false);
+    }
+
+    public static MLP map(Path file, Optimizer optimizer) throws IOException {
+        return open(file, optimizer, true);
+    }
+
+    private static MLP open(Path file, Optimizer optimizer, boolean mapWeights) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        boolean writable = mapWeights && Files.isWritable(file);
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY;
+        try (FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(fileSize, MAX_HEADER_BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                continue;
+            }
+            header.flip();
+
+            try {
+                byte[] magic = new byte[MAGIC.length];
+                header.get(magic);
+                if (!Arrays.equals(magic, MAGIC)) {
+                    throw new IOException(file + " is not an MLP model file.");
+                }
+                int version = header.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported model file version " + version + " in " + file + ".");
+                }
+                TaskType taskType = TaskType.valueOf(readString(header));
+                int elementSize = header.get();
+                if (elementSize != Double.BYTES && elementSize != Float.BYTES) {
+                    throw new IOException("Unsupported element size " + elementSize + " in " + file + ".");
+                }
+                boolean floats = elementSize == Float.BYTES;
+                int count = header.getInt();
+                if (count <= 0) {
+                    throw new IOException("Model file " + file + " has no layers.");
+                }
+
+                List<Layer> layers = new ArrayList<>();
+                List<FloatLayer> floatLayers = new ArrayList<>();
+                // Gradients and optimizer state of mapped layers only come into existence if the model is trained.
+                ParameterStore store = mapWeights ? ParameterStore.direct() : ParameterStore.heap();
+                int previousOutputs = -1;
+                for (int l = 0; l < count; l++) {
+                    int inputs = header.getInt();
+                    int outputs = header.getInt();
+                    ActivationFunc activation = activation(readString(header), file);
+                    long weightOffset = header.getLong();
+                    long biasOffset = header.getLong();
+                    long weightCount = (long) inputs * outputs;
+                    if (inputs <= 0 || outputs <= 0 || (previousOutputs != -1 && inputs != previousOutputs)
+                            || weightOffset < 0 || weightOffset + weightCount * elementSize > fileSize
+                            || biasOffset < 0 || biasOffset + (long) outputs * elementSize > fileSize) {
+                        throw new IOException("Layer " + l + " of " + file + " is inconsistent or truncated.");
+                    }
+                    previousOutputs = outputs;
+
+                    if (floats) {
+                        FloatMatrix weights = new FloatMatrix(outputs, inputs);
+                        readFloats(channel, weightOffset, weights.getData());
+                        FloatMatrix biases = new FloatMatrix(1, outputs);
+                        readFloats(channel, biasOffset, biases.getData());
+                        floatLayers.add(new FloatLayer(activation, weights, biases));
+                        continue;
+                    }
+                    ParameterBuffer weightBuffer = mapDoubles(channel, mode, weightOffset, weightCount);
+                    DenseMatrix biases = new DenseMatrix(1, outputs);
+                    mapDoubles(channel, FileChannel.MapMode.READ_ONLY, biasOffset, outputs)
+                            .get(0, biases.getData(), 0, outputs);
+                    if (mapWeights) {
+                        layers.add(new Layer(activation, null, weightBuffer, biases, store));
+                    } else {
+                        DenseMatrix weights = new DenseMatrix(outputs, inputs);
+                        weightBuffer.get(0, weights.getData(), 0, weights.size());
+                        layers.add(new Layer(activation, weights, null, biases, store));
+                    }
+                }
+                return new MLP(optimizer, taskType, floats ? Precision.FLOAT : Precision.DOUBLE, layers,
+                        floatLayers);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Malformed model file header in " + file + ".", e);
+            }
+        }
+    }
+
+    private static ActivationFunc activation(String name, Path file) throws IOException {
+        switch (name) {
+            case "Linear":
+                return new Linear();
+            case "Sigmoid":
+                return new Sigmoid();
+            case "ReLU":
+                return new ReLU();
+            case "Softmax":
+                return new Softmax();
+            default:
+                throw new IOException("Unknown activation " + name + " in " + file + ".");
+        }
+    }
+
+    private static String readString(ByteBuffer header) {
+        byte[] bytes = new byte[header.getShort()];
+        header.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    // One mapping per ParameterBuffer segment, so tensors beyond the 2 GB a single mapping can cover still work.
+    private static ParameterBuffer mapDoubles(FileChannel channel, FileChannel.MapMode mode, long offset, long count)
+            throws IOException {
+        DoubleBuffer[] segments = new DoubleBuffer[(int) ((count + ParameterBuffer.SEGMENT_SIZE - 1)
+                >>> ParameterBuffer.SEGMENT_SHIFT)];
+        for (int s = 0; s < segments.length; s++) {
+            long first = (long) s << ParameterBuffer.SEGMENT_SHIFT;
+            long length = Math.min(count - first, ParameterBuffer.SEGMENT_SIZE);
+            segments[s] = channel.map(mode, offset + first * Double.BYTES, length * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        return new ParameterBuffer(count, segments);
+    }
+
+    private static void readFloats(FileChannel channel, long offset, float[] dst) throws IOException {
+        int chunk = MAX_MAP_BYTES / Float.BYTES;
+        for (int from = 0; from < dst.length; from += chunk) {
+            int length = Math.min(chunk, dst.length - from);
+            FloatBuffer floats = channel.map(FileChannel.MapMode.READ_ONLY, offset + (long) from * Float.BYTES,
+                    (long) length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            floats.get(dst, from, length);
+        }
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static final class ChunkWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private final double[] window = new double[1 << 13];
+        private long position;
+
+        ChunkWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeDoubles(long offset, DenseMatrix m) throws IOException {
+            position = offset;
+            double[] d = m.getData();
+            for (int i = 0; i < m.getRows(); i++) {
+                int row = m.index(i, 0);
+                for (int j = 0; j < m.getCols(); j++) {
+                    if (buffer.remaining() < Double.BYTES) {
+                        flush();
+                    }
+                    buffer.putDouble(d[row + j]);
+                }
+            }
+            flush();
+        }
+
+        void writeDoubles(long offset, ParameterBuffer b) throws IOException {
+            position = offset;
+            for (long from = 0; from < b.size(); from += window.length) {
+                int length = (int) Math.min(window.length, b.size() - from);
+                b.get(from, window, 0, length);
+                for (int k = 0; k < length; k++) {
+                    if (buffer.remaining() < Double.BYTES) {
+                        flush();
+                    }
+                    buffer.putDouble(window[k]);
+                }
+            }
+            flush();
+        }
+
+        void writeFloats(long offset, FloatMatrix m) throws IOException {
+            position = offset;
+            float[] d = m.getData();
+            for (int i = 0; i < m.getRows(); i++) {
+                int row = m.index(i, 0);
+                for (int j = 0; j < m.getCols(); j++) {
+                    if (buffer.remaining() < Float.BYTES) {
+                        flush();
+                    }
+                    buffer.putFloat(d[row + j]);
+                }
+            }
+            flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(channel, buffer, position);
+            position += buffer.limit();
+            buffer.clear();
+        }
+    }
+}
@@ -2,9 +2,17 @@ package com.mlp.Optimizer;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.Map;
 
+import com.mlp.DenseMatrix;
+import com.mlp.FlatParameters;
+import com.mlp.FloatFlatParameters;
+import com.mlp.FloatLayer;
+import com.mlp.FloatMatrix;
 import com.mlp.Layer;
+import com.mlp.Matrix;
+import com.mlp.ParameterBuffer;
 
 public class AdamOptimizer implements Optimizer {
 
@@ -13,11 +21,38 @@ public class AdamOptimizer implements Optimizer {
     private final double beta2;
     private final double epsilon;
 
-    private final Map<Layer, double[][]> mWeights;
+    private final Map<Layer, double[]> mWeights;
+    private final Map<FloatLayer, float[]> mWeightsFloat;
     private final Map<Layer, double[]> mBiases;
-    private final Map<Layer, double[][]> vWeights;
+    private final Map<FloatLayer, float[]> mBiasesFloat;
+    private final Map<Layer, double[]> vWeights;
+    private final Map<FloatLayer, float[]> vWeightsFloat;
     private final Map<Layer, double[]> vBiases;
+    private final Map<FloatLayer, float[]> vBiasesFloat;
     private int t;
+    // 1 - beta^t for the current step, computed once per update rather than per element.
+    private double biasCorrection1;
+    private double biasCorrection2;
+
+    // State of each packed model (see FlatParameters), kept per block in the layout of that block so that a step is
+    // one fused pass; flat and the arrays after it are those of the block bound last.
+    private FlatParameters flat;
+    private double[] mFlat;
+    private double[] vFlat;
+    private FloatFlatParameters flatFloat;
+    private float[] mFlatFloat;
+    private float[] vFlatFloat;
+    private final Map<FlatParameters, double[]> mFlatStates = new HashMap<>();
+    private final Map<FlatParameters, double[]> vFlatStates = new HashMap<>();
+    private final Map<FloatFlatParameters, float[]> mFlatStatesFloat = new HashMap<>();
+    private final Map<FloatFlatParameters, float[]> vFlatStatesFloat = new HashMap<>();
+    private final ParallelChunks.Range flatStep = (from, to) -> step(this.flat.getValues(), from,
+            this.flat.getGradients(), from, this.mFlat, this.vFlat, from, to - from);
+    private final ParallelChunks.Range flatStepFloat = (from, to) -> step(this.flatFloat.getValues(), from,
+            this.flatFloat.getGradients(), from, this.mFlatFloat, this.vFlatFloat, from, to - from);
+
+    private final Map<Layer, ParameterBuffer[]> offHeapWeightState = new HashMap<>();
+    private final Layer.WeightUpdate offHeapStep = (w, g, s, n) -> step(w, 0, g, 0, s[0], s[1], 0, n);
 
     public AdamOptimizer(double learningRate, double beta1, double beta2, double epsilon) {
         if (learningRate <= 0)
@@ -33,9 +68,13 @@ public class AdamOptimizer implements Optimizer {
         this.beta2 = beta2;
         this.epsilon = epsilon;
         this.mWeights = new HashMap<>();
+        this.mWeightsFloat = new HashMap<>();
         this.mBiases = new HashMap<>();
+        this.mBiasesFloat = new HashMap<>();
         this.vWeights = new HashMap<>();
+        this.vWeightsFloat = new HashMap<>();
         this.vBiases = new HashMap<>();
+        this.vBiasesFloat = new HashMap<>();
         this.t = 0;
     }
 
@@ -45,43 +84,226 @@ public class AdamOptimizer implements Optimizer {
 
     @Override
     public void update(List<Layer> layers) {
-        t++;
+        update(layers, Matrix.getParallelPool());
+    }
 
-        for (Layer layer : layers) {
-            double[][] w = layer.getWeights();
-            double[] b = layer.getBiases();
-            double[][] dw = layer.getWeightsGradient();
-            double[] db = layer.getBiasGradient();
+    @Override
+    public void update(List<Layer> layers, ForkJoinPool pool) {
+        nextStep();
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            ParallelChunks.run(pool, packed.size(), this.flatStep);
+            return;
+        }
+
+        for (int l = 0; l < layers.size(); l++) {
+            Layer layer = layers.get(l);
+            if (layer.isOffHeap()) {
+                layer.updateOffHeapWeights(this.offHeapStep, offHeapState(offHeapWeightState, layer, 2));
+                DenseMatrix b = layer.getBiases();
+                DenseMatrix db = layer.getBiasGradient();
+                double[] mb = state(mBiases, layer, b.size());
+                double[] vb = state(vBiases, layer, b.size());
+                step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), mb, vb, 0, b.size());
+                continue;
+            }
+            DenseMatrix w = layer.getWeights();
+            DenseMatrix b = layer.getBiases();
+            DenseMatrix dw = layer.getWeightsGradient();
+            DenseMatrix db = layer.getBiasGradient();
 
             if (w == null || b == null || dw == null || db == null)
                 continue;
 
-            double[][] mw = mWeights.computeIfAbsent(layer, k -> new double[w.length][w[0].length]);
-            double[] mb = mBiases.computeIfAbsent(layer, k -> new double[b.length]);
-            double[][] vw = vWeights.computeIfAbsent(layer, k -> new double[w.length][w[0].length]);
-            double[] vb = vBiases.computeIfAbsent(layer, k -> new double[b.length]);
+            double[] mw = state(mWeights, layer, w.size());
+            double[] mb = state(mBiases, layer, b.size());
+            double[] vw = state(vWeights, layer, w.size());
+            double[] vb = state(vBiases, layer, b.size());
 
-            for (int i = 0; i < w.length; i++) {
-                for (int j = 0; j < w[0].length; j++) {
-                    mw[i][j] = this.beta1 * mw[i][j] + (1.0 - this.beta1) * dw[i][j];
-                    vw[i][j] = this.beta2 * vw[i][j] + (1.0 - this.beta2) * (dw[i][j] * dw[i][j]);
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), mw, vw, 0, w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), mb, vb, 0, b.size());
+        }
+    }
 
-                    double mw_corr = mw[i][j] / (1.0 - Math.pow(this.beta1, t));
-                    double vw_corr = vw[i][j] / (1.0 - Math.pow(this.beta2, t));
+    @Override
+    public void updateFloat(List<FloatLayer> layers) {
+        updateFloat(layers, Matrix.getParallelPool());
+    }
 
-                    w[i][j] -= this.learningRate * mw_corr / (Math.sqrt(vw_corr) + this.epsilon);
-                }
-            }
+    @Override
+    public void updateFloat(List<FloatLayer> layers, ForkJoinPool pool) {
+        nextStep();
+        FloatFlatParameters packed = FloatFlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            ParallelChunks.run(pool, packed.size(), this.flatStepFloat);
+            return;
+        }
+
+        for (int l = 0; l < layers.size(); l++) {
+            FloatLayer layer = layers.get(l);
+            FloatMatrix w = layer.getWeights();
+            FloatMatrix b = layer.getBiases();
+            FloatMatrix dw = layer.getWeightsGradient();
+            FloatMatrix db = layer.getBiasGradient();
+
+            if (w == null || b == null || dw == null || db == null)
+                continue;
+
+            float[] mw = stateFloat(mWeightsFloat, layer, w.size());
+            float[] mb = stateFloat(mBiasesFloat, layer, b.size());
+            float[] vw = stateFloat(vWeightsFloat, layer, w.size());
+            float[] vb = stateFloat(vBiasesFloat, layer, b.size());
+
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), mw, vw, 0, w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), mb, vb, 0, b.size());
+        }
+    }
 
-            for (int i = 0; i < b.length; i++) {
-                mb[i] = this.beta1 * mb[i] + (1.0 - this.beta1) * db[i];
-                vb[i] = this.beta2 * vb[i] + (1.0 - this.beta2) * (db[i] * db[i]);
+    @Override
+    public OptimizerState getState(List<Layer> layers, List<FloatLayer> floatLayers) {
+        OptimizerState state = new OptimizerState(t);
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null && mFlatStates.containsKey(packed)) {
+            bind(packed);
+            state.captureFlat("mWeights", "mBiases", packed, mFlat);
+            state.captureFlat("vWeights", "vBiases", packed, vFlat);
+        } else {
+            state.capture("mWeights", layers, mWeights);
+            state.capture("mBiases", layers, mBiases);
+            state.capture("vWeights", layers, vWeights);
+            state.capture("vBiases", layers, vBiases);
+        }
+        FloatFlatParameters packedFloat = FloatFlatParameters.of(floatLayers);
+        if (packedFloat != null && mFlatStatesFloat.containsKey(packedFloat)) {
+            bind(packedFloat);
+            state.captureFlat("mWeightsFloat", "mBiasesFloat", packedFloat, mFlatFloat);
+            state.captureFlat("vWeightsFloat", "vBiasesFloat", packedFloat, vFlatFloat);
+        } else {
+            state.captureFloat("mWeightsFloat", floatLayers, mWeightsFloat);
+            state.captureFloat("mBiasesFloat", floatLayers, mBiasesFloat);
+            state.captureFloat("vWeightsFloat", floatLayers, vWeightsFloat);
+            state.captureFloat("vBiasesFloat", floatLayers, vBiasesFloat);
+        }
+        return state;
+    }
 
-                double mb_corr = mb[i] / (1.0 - Math.pow(this.beta1, t));
-                double vb_corr = vb[i] / (1.0 - Math.pow(this.beta2, t));
+    @Override
+    public void setState(List<Layer> layers, List<FloatLayer> floatLayers, OptimizerState state) {
+        this.t = (int) state.getStep();
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            state.restoreFlat("mWeights", "mBiases", packed, mFlat);
+            state.restoreFlat("vWeights", "vBiases", packed, vFlat);
+        } else {
+            state.restore("mWeights", layers, mWeights);
+            state.restore("mBiases", layers, mBiases);
+            state.restore("vWeights", layers, vWeights);
+            state.restore("vBiases", layers, vBiases);
+        }
+        FloatFlatParameters packedFloat = FloatFlatParameters.of(floatLayers);
+        if (packedFloat != null) {
+            bind(packedFloat);
+            state.restoreFlat("mWeightsFloat", "mBiasesFloat", packedFloat, mFlatFloat);
+            state.restoreFlat("vWeightsFloat", "vBiasesFloat", packedFloat, vFlatFloat);
+        } else {
+            state.restoreFloat("mWeightsFloat", floatLayers, mWeightsFloat);
+            state.restoreFloat("mBiasesFloat", floatLayers, mBiasesFloat);
+            state.restoreFloat("vWeightsFloat", floatLayers, vWeightsFloat);
+            state.restoreFloat("vBiasesFloat", floatLayers, vBiasesFloat);
+        }
+    }
+
+    private void nextStep() {
+        t++;
+        biasCorrection1 = 1.0 - Math.pow(this.beta1, t);
+        biasCorrection2 = 1.0 - Math.pow(this.beta2, t);
+    }
+
+    private void bind(FlatParameters packed) {
+        if (packed != flat) {
+            flat = packed;
+            mFlat = state(mFlatStates, packed, packed.size());
+            vFlat = state(vFlatStates, packed, packed.size());
+        }
+    }
+
+    private void bind(FloatFlatParameters packed) {
+        if (packed != flatFloat) {
+            flatFloat = packed;
+            mFlatFloat = stateFloat(mFlatStatesFloat, packed, packed.size());
+            vFlatFloat = stateFloat(vFlatStatesFloat, packed, packed.size());
+        }
+    }
+
+    // Straight-line element loops with loop-invariant coefficients in locals, which C2 vectorizes.
+    private void step(double[] p, int po, double[] g, int go, double[] m, double[] v, int so, int n) {
+        double b1 = this.beta1;
+        double b2 = this.beta2;
+        double lr = this.learningRate;
+        double eps = this.epsilon;
+        double bc1 = this.biasCorrection1;
+        double bc2 = this.biasCorrection2;
+        for (int i = 0; i < n; i++) {
+            double grad = g[go + i];
+            m[so + i] = b1 * m[so + i] + (1.0 - b1) * grad;
+            v[so + i] = b2 * v[so + i] + (1.0 - b2) * (grad * grad);
+
+            double m_corr = m[so + i] / bc1;
+            double v_corr = v[so + i] / bc2;
+
+            p[po + i] -= lr * m_corr / (Math.sqrt(v_corr) + eps);
+        }
+    }
+
+    private void step(float[] p, int po, float[] g, int go, float[] m, float[] v, int so, int n) {
+        float b1 = (float) this.beta1;
+        float b2 = (float) this.beta2;
+        float lr = (float) this.learningRate;
+        float eps = (float) this.epsilon;
+        double bc1 = this.biasCorrection1;
+        double bc2 = this.biasCorrection2;
+        for (int i = 0; i < n; i++) {
+            float grad = g[go + i];
+            m[so + i] = b1 * m[so + i] + (1.0f - b1) * grad;
+            v[so + i] = b2 * v[so + i] + (1.0f - b2) * (grad * grad);
+
+            float m_corr = (float) (m[so + i] / bc1);
+            float v_corr = (float) (v[so + i] / bc2);
+
+            p[po + i] -= lr * m_corr / ((float) Math.sqrt(v_corr) + eps);
+        }
+    }
+
+    private static <K> double[] state(Map<K, double[]> states, K key, int size) {
+        double[] s = states.get(key);
+        if (s == null) {
+            s = new double[size];
+            states.put(key, s);
+        }
+        return s;
+    }
+
+    private static <K> float[] stateFloat(Map<K, float[]> states, K key, int size) {
+        float[] s = states.get(key);
+        if (s == null) {
+            s = new float[size];
+            states.put(key, s);
+        }
+        return s;
+    }
 
-                b[i] -= this.learningRate * mb_corr / (Math.sqrt(vb_corr) + this.epsilon);
+    private static ParameterBuffer[] offHeapState(Map<Layer, ParameterBuffer[]> states, Layer layer, int count) {
+        ParameterBuffer[] s = states.get(layer);
+        if (s == null) {
+            s = new ParameterBuffer[count];
+            for (int i = 0; i < count; i++) {
+                s[i] = layer.getParameterStore().allocate(layer.getWeightBuffer().size());
             }
+            states.put(layer, s);
         }
+        return s;
     }
 }
\ No newline at end of file
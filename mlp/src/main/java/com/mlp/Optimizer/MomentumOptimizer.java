@@ -2,17 +2,43 @@ package com.mlp.Optimizer;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.Map;
 
+import com.mlp.DenseMatrix;
+import com.mlp.FlatParameters;
+import com.mlp.FloatFlatParameters;
+import com.mlp.FloatLayer;
+import com.mlp.FloatMatrix;
 import com.mlp.Layer;
+import com.mlp.Matrix;
+import com.mlp.ParameterBuffer;
 
 public class MomentumOptimizer implements Optimizer {
 
     private double learningRate;
     private double momentum;
 
-    private Map<Layer, double[][]> velocityWeights;
+    private Map<Layer, double[]> velocityWeights;
+    private Map<FloatLayer, float[]> velocityWeightsFloat;
     private Map<Layer, double[]> velocityBiases;
+    private Map<FloatLayer, float[]> velocityBiasesFloat;
+
+    // State of each packed model (see FlatParameters), kept per block in the layout of that block; flat and the
+    // arrays after it are those of the block bound last.
+    private FlatParameters flat;
+    private double[] velocityFlat;
+    private FloatFlatParameters flatFloat;
+    private float[] velocityFlatFloat;
+    private final Map<FlatParameters, double[]> velocityFlatStates = new HashMap<>();
+    private final Map<FloatFlatParameters, float[]> velocityFlatStatesFloat = new HashMap<>();
+    private final ParallelChunks.Range flatStep = (from, to) -> step(this.flat.getValues(), from,
+            this.flat.getGradients(), from, this.velocityFlat, from, to - from);
+    private final ParallelChunks.Range flatStepFloat = (from, to) -> step(this.flatFloat.getValues(), from,
+            this.flatFloat.getGradients(), from, this.velocityFlatFloat, from, to - from);
+
+    private final Map<Layer, ParameterBuffer[]> velocityWeightsOffHeap = new HashMap<>();
+    private final Layer.WeightUpdate offHeapStep = (w, g, s, n) -> step(w, 0, g, 0, s[0], 0, n);
 
     public MomentumOptimizer(double learningRate, double momentum) {
         if (learningRate <= 0)
@@ -22,37 +48,182 @@ public class MomentumOptimizer implements Optimizer {
         this.learningRate = learningRate;
         this.momentum = momentum;
         this.velocityBiases = new HashMap<>();
+        this.velocityBiasesFloat = new HashMap<>();
         this.velocityWeights = new HashMap<>();
+        this.velocityWeightsFloat = new HashMap<>();
     }
 
     @Override
     public void update(List<Layer> layers) {
-        for (Layer layer : layers) {
-            double[][] w = layer.getWeights();
-            double[] b = layer.getBiases();
-            double[][] dw = layer.getWeightsGradient();
-            double[] db = layer.getBiasGradient();
+        update(layers, Matrix.getParallelPool());
+    }
+
+    @Override
+    public void update(List<Layer> layers, ForkJoinPool pool) {
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            ParallelChunks.run(pool, packed.size(), this.flatStep);
+            return;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            Layer layer = layers.get(l);
+            if (layer.isOffHeap()) {
+                layer.updateOffHeapWeights(this.offHeapStep, offHeapState(velocityWeightsOffHeap, layer, 1));
+                DenseMatrix b = layer.getBiases();
+                DenseMatrix db = layer.getBiasGradient();
+                double[] vb = state(velocityBiases, layer, b.size());
+                step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), vb, 0, b.size());
+                continue;
+            }
+            DenseMatrix w = layer.getWeights();
+            DenseMatrix b = layer.getBiases();
+            DenseMatrix dw = layer.getWeightsGradient();
+            DenseMatrix db = layer.getBiasGradient();
 
             if (w == null || b == null || dw == null || db == null)
                 continue;
 
-            double[][] vw = velocityWeights.computeIfAbsent(layer,
-                    k -> new double[w.length][w[0].length]);
-            double[] vb = velocityBiases.computeIfAbsent(layer,
-                    k -> new double[b.length]);
+            double[] vw = state(velocityWeights, layer, w.size());
+            double[] vb = state(velocityBiases, layer, b.size());
 
-            for (int i = 0; i < w.length; i++) {
-                for (int j = 0; j < w[0].length; j++) {
-                    vw[i][j] = this.momentum * vw[i][j] + this.learningRate * dw[i][j];
-                    w[i][j] -= vw[i][j];
-                }
-            }
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), vw, 0, w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), vb, 0, b.size());
+        }
+    }
 
-            for (int i = 0; i < b.length; i++) {
-                vb[i] = this.momentum * vb[i] + this.learningRate * db[i];
-                b[i] -= vb[i];
-            }
+    @Override
+    public void updateFloat(List<FloatLayer> layers) {
+        updateFloat(layers, Matrix.getParallelPool());
+    }
 
+    @Override
+    public void updateFloat(List<FloatLayer> layers, ForkJoinPool pool) {
+        FloatFlatParameters packed = FloatFlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            ParallelChunks.run(pool, packed.size(), this.flatStepFloat);
+            return;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            FloatLayer layer = layers.get(l);
+            FloatMatrix w = layer.getWeights();
+            FloatMatrix b = layer.getBiases();
+            FloatMatrix dw = layer.getWeightsGradient();
+            FloatMatrix db = layer.getBiasGradient();
+
+            if (w == null || b == null || dw == null || db == null)
+                continue;
+
+            float[] vw = stateFloat(velocityWeightsFloat, layer, w.size());
+            float[] vb = stateFloat(velocityBiasesFloat, layer, b.size());
+
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), vw, 0, w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), vb, 0, b.size());
+        }
+    }
+
+    @Override
+    public OptimizerState getState(List<Layer> layers, List<FloatLayer> floatLayers) {
+        OptimizerState state = new OptimizerState(0);
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null && velocityFlatStates.containsKey(packed)) {
+            bind(packed);
+            state.captureFlat("velocityWeights", "velocityBiases", packed, velocityFlat);
+        } else {
+            state.capture("velocityWeights", layers, velocityWeights);
+            state.capture("velocityBiases", layers, velocityBiases);
+        }
+        FloatFlatParameters packedFloat = FloatFlatParameters.of(floatLayers);
+        if (packedFloat != null && velocityFlatStatesFloat.containsKey(packedFloat)) {
+            bind(packedFloat);
+            state.captureFlat("velocityWeightsFloat", "velocityBiasesFloat", packedFloat, velocityFlatFloat);
+        } else {
+            state.captureFloat("velocityWeightsFloat", floatLayers, velocityWeightsFloat);
+            state.captureFloat("velocityBiasesFloat", floatLayers, velocityBiasesFloat);
+        }
+        return state;
+    }
+
+    @Override
+    public void setState(List<Layer> layers, List<FloatLayer> floatLayers, OptimizerState state) {
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            state.restoreFlat("velocityWeights", "velocityBiases", packed, velocityFlat);
+        } else {
+            state.restore("velocityWeights", layers, velocityWeights);
+            state.restore("velocityBiases", layers, velocityBiases);
+        }
+        FloatFlatParameters packedFloat = FloatFlatParameters.of(floatLayers);
+        if (packedFloat != null) {
+            bind(packedFloat);
+            state.restoreFlat("velocityWeightsFloat", "velocityBiasesFloat", packedFloat, velocityFlatFloat);
+        } else {
+            state.restoreFloat("velocityWeightsFloat", floatLayers, velocityWeightsFloat);
+            state.restoreFloat("velocityBiasesFloat", floatLayers, velocityBiasesFloat);
+        }
+    }
+
+    private void bind(FlatParameters packed) {
+        if (packed != flat) {
+            flat = packed;
+            velocityFlat = state(velocityFlatStates, packed, packed.size());
+        }
+    }
+
+    private void bind(FloatFlatParameters packed) {
+        if (packed != flatFloat) {
+            flatFloat = packed;
+            velocityFlatFloat = stateFloat(velocityFlatStatesFloat, packed, packed.size());
+        }
+    }
+
+    private void step(double[] p, int po, double[] g, int go, double[] v, int so, int n) {
+        double mu = this.momentum;
+        double lr = this.learningRate;
+        for (int i = 0; i < n; i++) {
+            v[so + i] = mu * v[so + i] + lr * g[go + i];
+            p[po + i] -= v[so + i];
+        }
+    }
+
+    private void step(float[] p, int po, float[] g, int go, float[] v, int so, int n) {
+        float mu = (float) this.momentum;
+        float lr = (float) this.learningRate;
+        for (int i = 0; i < n; i++) {
+            v[so + i] = mu * v[so + i] + lr * g[go + i];
+            p[po + i] -= v[so + i];
+        }
+    }
+
+    private static <K> double[] state(Map<K, double[]> states, K key, int size) {
+        double[] s = states.get(key);
+        if (s == null) {
+            s = new double[size];
+            states.put(key, s);
+        }
+        return s;
+    }
+
+    private static <K> float[] stateFloat(Map<K, float[]> states, K key, int size) {
+        float[] s = states.get(key);
+        if (s == null) {
+            s = new float[size];
+            states.put(key, s);
+        }
+        return s;
+    }
+
+    private static ParameterBuffer[] offHeapState(Map<Layer, ParameterBuffer[]> states, Layer layer, int count) {
+        ParameterBuffer[] s = states.get(layer);
+        if (s == null) {
+            s = new ParameterBuffer[count];
+            for (int i = 0; i < count; i++) {
+                s[i] = layer.getParameterStore().allocate(layer.getWeightBuffer().size());
+            }
+            states.put(layer, s);
         }
+        return s;
     }
 }
\ No newline at end of file
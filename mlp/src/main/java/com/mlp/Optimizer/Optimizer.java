@@ -1,9 +1,35 @@
 package com.mlp.Optimizer;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import com.mlp.FloatLayer;
 import com.mlp.Layer;
 
 public interface Optimizer {
     void update(List<Layer> layers);
+
+    default void updateFloat(List<FloatLayer> layers) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support float32 layers.");
+    }
+
+    // The same step with the parameters of a packed model split into cache-sized chunks across pool (serial when
+    // pool is null or has one thread). The built-in optimizers give identical weights for any pool; update(layers)
+    // uses Matrix.getParallelPool().
+    default void update(List<Layer> layers, ForkJoinPool pool) {
+        update(layers);
+    }
+
+    default void updateFloat(List<FloatLayer> layers, ForkJoinPool pool) {
+        updateFloat(layers);
+    }
+
+    // For checkpoints: a copy of the training state for the given layers, and its restoration onto (possibly new)
+    // layers in the same order. Stateless optimizers keep the defaults.
+    default OptimizerState getState(List<Layer> layers, List<FloatLayer> floatLayers) {
+        return new OptimizerState(0);
+    }
+
+    default void setState(List<Layer> layers, List<FloatLayer> floatLayers, OptimizerState state) {
+    }
 }
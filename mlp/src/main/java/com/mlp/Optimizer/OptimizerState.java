@@ -0,0 +1,148 @@
+package com.mlp.Optimizer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mlp.FlatParameters;
+import com.mlp.FloatFlatParameters;
+
+// A copy of an optimizer's training state: its step counter and every per-layer state array. The live state is kept
+// in maps keyed by layer identity, which does not survive a restart, so arrays are stored here under
+// "<name>/<layer index>". float state is widened to double, which is exact.
+public final class OptimizerState {
+
+    private final long step;
+    private final Map<String, double[]> arrays = new LinkedHashMap<>();
+
+    public OptimizerState(long step) {
+        this.step = step;
+    }
+
+    public long getStep() {
+        return this.step;
+    }
+
+    public Map<String, double[]> getArrays() {
+        return Collections.unmodifiableMap(this.arrays);
+    }
+
+    public void put(String key, double[] values) {
+        arrays.put(key, values);
+    }
+
+    public <L> void capture(String name, List<L> layers, Map<L, double[]> states) {
+        for (int l = 0; l < layers.size(); l++) {
+            double[] s = states.get(layers.get(l));
+            if (s != null) {
+                arrays.put(name + "/" + l, s.clone());
+            }
+        }
+    }
+
+    public <L> void captureFloat(String name, List<L> layers, Map<L, float[]> states) {
+        for (int l = 0; l < layers.size(); l++) {
+            float[] s = states.get(layers.get(l));
+            if (s != null) {
+                double[] wide = new double[s.length];
+                for (int i = 0; i < s.length; i++) {
+                    wide[i] = s[i];
+                }
+                arrays.put(name + "/" + l, wide);
+            }
+        }
+    }
+
+    public <L> void restore(String name, List<L> layers, Map<L, double[]> states) {
+        states.clear();
+        for (int l = 0; l < layers.size(); l++) {
+            double[] s = arrays.get(name + "/" + l);
+            if (s != null) {
+                states.put(layers.get(l), s.clone());
+            }
+        }
+    }
+
+    public <L> void restoreFloat(String name, List<L> layers, Map<L, float[]> states) {
+        states.clear();
+        for (int l = 0; l < layers.size(); l++) {
+            double[] s = arrays.get(name + "/" + l);
+            if (s != null) {
+                float[] narrow = new float[s.length];
+                for (int i = 0; i < s.length; i++) {
+                    narrow[i] = (float) s[i];
+                }
+                states.put(layers.get(l), narrow);
+            }
+        }
+    }
+
+    // The same entries for state kept in one array with the layout of a FlatParameters block, so checkpoints do not
+    // depend on whether the model was packed.
+    public void captureFlat(String weightsName, String biasesName, FlatParameters flat, double[] state) {
+        for (int l = 0; l < flat.getLayerCount(); l++) {
+            arrays.put(weightsName + "/" + l, slice(state, flat.getWeightOffset(l), flat.getWeightCount(l)));
+            arrays.put(biasesName + "/" + l, slice(state, flat.getBiasOffset(l), flat.getBiasCount(l)));
+        }
+    }
+
+    public void captureFlat(String weightsName, String biasesName, FloatFlatParameters flat, float[] state) {
+        for (int l = 0; l < flat.getLayerCount(); l++) {
+            arrays.put(weightsName + "/" + l, slice(state, flat.getWeightOffset(l), flat.getWeightCount(l)));
+            arrays.put(biasesName + "/" + l, slice(state, flat.getBiasOffset(l), flat.getBiasCount(l)));
+        }
+    }
+
+    // Fills state (zeroed first) from the entries for each layer; missing entries leave zeros.
+    public void restoreFlat(String weightsName, String biasesName, FlatParameters flat, double[] state) {
+        Arrays.fill(state, 0.0);
+        for (int l = 0; l < flat.getLayerCount(); l++) {
+            copy(arrays.get(weightsName + "/" + l), state, flat.getWeightOffset(l), flat.getWeightCount(l));
+            copy(arrays.get(biasesName + "/" + l), state, flat.getBiasOffset(l), flat.getBiasCount(l));
+        }
+    }
+
+    public void restoreFlat(String weightsName, String biasesName, FloatFlatParameters flat, float[] state) {
+        Arrays.fill(state, 0.0f);
+        for (int l = 0; l < flat.getLayerCount(); l++) {
+            copy(arrays.get(weightsName + "/" + l), state, flat.getWeightOffset(l), flat.getWeightCount(l));
+            copy(arrays.get(biasesName + "/" + l), state, flat.getBiasOffset(l), flat.getBiasCount(l));
+        }
+    }
+
+    private static double[] slice(double[] state, int from, int length) {
+        return Arrays.copyOfRange(state, from, from + length);
+    }
+
+    private static double[] slice(float[] state, int from, int length) {
+        double[] wide = new double[length];
+        for (int i = 0; i < length; i++) {
+            wide[i] = state[from + i];
+        }
+        return wide;
+    }
+
+    private static void copy(double[] values, double[] state, int from, int length) {
+        if (values == null) {
+            return;
+        }
+        if (values.length != length) {
+            throw new IllegalArgumentException("Optimizer state does not match the layer sizes.");
+        }
+        System.arraycopy(values, 0, state, from, length);
+    }
+
+    private static void copy(double[] values, float[] state, int from, int length) {
+        if (values == null) {
+            return;
+        }
+        if (values.length != length) {
+            throw new IllegalArgumentException("Optimizer state does not match the layer sizes.");
+        }
+        for (int i = 0; i < length; i++) {
+            state[from + i] = (float) values[i];
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mlp.Optimizer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Splits an element-wise optimizer step over [0, size) into chunks of CHUNK parameters run as fork-join tasks. A chunk
+// of parameters, gradients and two state arrays stays within a core's L2 cache, and every element is updated by
+// exactly one task with the same arithmetic, so the result does not depend on the number of threads.
+final class ParallelChunks extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int CHUNK = 1 << 13;
+
+    // The body of a step over [from, to). Optimizers create theirs once, as fields, so that a step allocates
+    // nothing on the serial path.
+    interface Range {
+        void apply(int from, int to);
+    }
+
+    private final Range range;
+    private final int from;
+    private final int to;
+
+    private ParallelChunks(Range range, int from, int to) {
+        this.range = range;
+        this.from = from;
+        this.to = to;
+    }
+
+    static void run(ForkJoinPool pool, int size, Range range) {
+        // As in Gemm: a caller already on another pool (a DataParallelTrainer worker) has split the work itself.
+        if (pool == null || pool.getParallelism() <= 1 || size <= 2 * CHUNK || onOtherPool(pool)) {
+            range.apply(0, size);
+            return;
+        }
+        pool.invoke(new ParallelChunks(range, 0, size));
+    }
+
+    private static boolean onOtherPool(ForkJoinPool pool) {
+        Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() != pool;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= CHUNK) {
+            range.apply(from, to);
+            return;
+        }
+        int chunks = (to - from + CHUNK - 1) / CHUNK;
+        int mid = from + (chunks / 2) * CHUNK;
+        invokeAll(new ParallelChunks(range, from, mid), new ParallelChunks(range, mid, to));
+    }
+}
@@ -2,17 +2,43 @@ package com.mlp.Optimizer;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.Map;
 
+import com.mlp.DenseMatrix;
+import com.mlp.FlatParameters;
+import com.mlp.FloatFlatParameters;
+import com.mlp.FloatLayer;
+import com.mlp.FloatMatrix;
 import com.mlp.Layer;
+import com.mlp.Matrix;
+import com.mlp.ParameterBuffer;
 
 public class RMSPropOptimizer implements Optimizer {
     private double learningRate;
     private double beta2;
     private double epsilon;
 
-    private Map<Layer, double[][]> cacheWeights;
+    private Map<Layer, double[]> cacheWeights;
+    private Map<FloatLayer, float[]> cacheWeightsFloat;
     private Map<Layer, double[]> cacheBiases;
+    private Map<FloatLayer, float[]> cacheBiasesFloat;
+
+    // State of each packed model (see FlatParameters), kept per block in the layout of that block; flat and the
+    // arrays after it are those of the block bound last.
+    private FlatParameters flat;
+    private double[] cacheFlat;
+    private FloatFlatParameters flatFloat;
+    private float[] cacheFlatFloat;
+    private final Map<FlatParameters, double[]> cacheFlatStates = new HashMap<>();
+    private final Map<FloatFlatParameters, float[]> cacheFlatStatesFloat = new HashMap<>();
+    private final ParallelChunks.Range flatStep = (from, to) -> step(this.flat.getValues(), from,
+            this.flat.getGradients(), from, this.cacheFlat, from, to - from);
+    private final ParallelChunks.Range flatStepFloat = (from, to) -> step(this.flatFloat.getValues(), from,
+            this.flatFloat.getGradients(), from, this.cacheFlatFloat, from, to - from);
+
+    private final Map<Layer, ParameterBuffer[]> cacheWeightsOffHeap = new HashMap<>();
+    private final Layer.WeightUpdate offHeapStep = (w, g, s, n) -> step(w, 0, g, 0, s[0], 0, n);
 
     public RMSPropOptimizer(double learningRate, double beta, double epsilon) {
         if (learningRate <= 0)
@@ -25,7 +51,9 @@ public class RMSPropOptimizer implements Optimizer {
         this.beta2 = beta;
         this.epsilon = epsilon;
         this.cacheWeights = new HashMap<>();
+        this.cacheWeightsFloat = new HashMap<>();
         this.cacheBiases = new HashMap<>();
+        this.cacheBiasesFloat = new HashMap<>();
 
     }
 
@@ -35,29 +63,179 @@ public class RMSPropOptimizer implements Optimizer {
 
     @Override
     public void update(List<Layer> layers) {
-        for (Layer layer : layers) {
-            double[][] w = layer.getWeights();
-            double[] b = layer.getBiases();
-            double[][] dw = layer.getWeightsGradient();
-            double[] db = layer.getBiasGradient();
+        update(layers, Matrix.getParallelPool());
+    }
+
+    @Override
+    public void update(List<Layer> layers, ForkJoinPool pool) {
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            ParallelChunks.run(pool, packed.size(), this.flatStep);
+            return;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            Layer layer = layers.get(l);
+            if (layer.isOffHeap()) {
+                layer.updateOffHeapWeights(this.offHeapStep, offHeapState(cacheWeightsOffHeap, layer, 1));
+                DenseMatrix b = layer.getBiases();
+                DenseMatrix db = layer.getBiasGradient();
+                double[] sb = state(cacheBiases, layer, b.size());
+                step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), sb, 0, b.size());
+                continue;
+            }
+            DenseMatrix w = layer.getWeights();
+            DenseMatrix b = layer.getBiases();
+            DenseMatrix dw = layer.getWeightsGradient();
+            DenseMatrix db = layer.getBiasGradient();
 
             if (w == null || b == null || dw == null || db == null)
                 continue;
 
-            double[][] sw = cacheWeights.computeIfAbsent(layer, k -> new double[w.length][w[0].length]);
-            double[] sb = cacheBiases.computeIfAbsent(layer, k -> new double[b.length]);
+            double[] sw = state(cacheWeights, layer, w.size());
+            double[] sb = state(cacheBiases, layer, b.size());
 
-            for (int i = 0; i < w.length; i++) {
-                for (int j = 0; j < w[0].length; j++) {
-                    sw[i][j] = this.beta2 * sw[i][j] + (1.0 - this.beta2) * (dw[i][j] * dw[i][j]);
-                    w[i][j] -= this.learningRate * dw[i][j] / (Math.sqrt(sw[i][j]) + this.epsilon);
-                }
-            }
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), sw, 0, w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), sb, 0, b.size());
+        }
+    }
+
+    @Override
+    public void updateFloat(List<FloatLayer> layers) {
+        updateFloat(layers, Matrix.getParallelPool());
+    }
+
+    @Override
+    public void updateFloat(List<FloatLayer> layers, ForkJoinPool pool) {
+        FloatFlatParameters packed = FloatFlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            ParallelChunks.run(pool, packed.size(), this.flatStepFloat);
+            return;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            FloatLayer layer = layers.get(l);
+            FloatMatrix w = layer.getWeights();
+            FloatMatrix b = layer.getBiases();
+            FloatMatrix dw = layer.getWeightsGradient();
+            FloatMatrix db = layer.getBiasGradient();
+
+            if (w == null || b == null || dw == null || db == null)
+                continue;
+
+            float[] sw = stateFloat(cacheWeightsFloat, layer, w.size());
+            float[] sb = stateFloat(cacheBiasesFloat, layer, b.size());
+
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), sw, 0, w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), sb, 0, b.size());
+        }
+    }
+
+    @Override
+    public OptimizerState getState(List<Layer> layers, List<FloatLayer> floatLayers) {
+        OptimizerState state = new OptimizerState(0);
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null && cacheFlatStates.containsKey(packed)) {
+            bind(packed);
+            state.captureFlat("cacheWeights", "cacheBiases", packed, cacheFlat);
+        } else {
+            state.capture("cacheWeights", layers, cacheWeights);
+            state.capture("cacheBiases", layers, cacheBiases);
+        }
+        FloatFlatParameters packedFloat = FloatFlatParameters.of(floatLayers);
+        if (packedFloat != null && cacheFlatStatesFloat.containsKey(packedFloat)) {
+            bind(packedFloat);
+            state.captureFlat("cacheWeightsFloat", "cacheBiasesFloat", packedFloat, cacheFlatFloat);
+        } else {
+            state.captureFloat("cacheWeightsFloat", floatLayers, cacheWeightsFloat);
+            state.captureFloat("cacheBiasesFloat", floatLayers, cacheBiasesFloat);
+        }
+        return state;
+    }
+
+    @Override
+    public void setState(List<Layer> layers, List<FloatLayer> floatLayers, OptimizerState state) {
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            bind(packed);
+            state.restoreFlat("cacheWeights", "cacheBiases", packed, cacheFlat);
+        } else {
+            state.restore("cacheWeights", layers, cacheWeights);
+            state.restore("cacheBiases", layers, cacheBiases);
+        }
+        FloatFlatParameters packedFloat = FloatFlatParameters.of(floatLayers);
+        if (packedFloat != null) {
+            bind(packedFloat);
+            state.restoreFlat("cacheWeightsFloat", "cacheBiasesFloat", packedFloat, cacheFlatFloat);
+        } else {
+            state.restoreFloat("cacheWeightsFloat", floatLayers, cacheWeightsFloat);
+            state.restoreFloat("cacheBiasesFloat", floatLayers, cacheBiasesFloat);
+        }
+    }
+
+    private void bind(FlatParameters packed) {
+        if (packed != flat) {
+            flat = packed;
+            cacheFlat = state(cacheFlatStates, packed, packed.size());
+        }
+    }
+
+    private void bind(FloatFlatParameters packed) {
+        if (packed != flatFloat) {
+            flatFloat = packed;
+            cacheFlatFloat = stateFloat(cacheFlatStatesFloat, packed, packed.size());
+        }
+    }
+
+    private void step(double[] p, int po, double[] g, int go, double[] s, int so, int n) {
+        double beta = this.beta2;
+        double lr = this.learningRate;
+        double eps = this.epsilon;
+        for (int i = 0; i < n; i++) {
+            double grad = g[go + i];
+            s[so + i] = beta * s[so + i] + (1.0 - beta) * (grad * grad);
+            p[po + i] -= lr * grad / (Math.sqrt(s[so + i]) + eps);
+        }
+    }
+
+    private void step(float[] p, int po, float[] g, int go, float[] s, int so, int n) {
+        float beta = (float) this.beta2;
+        float lr = (float) this.learningRate;
+        float eps = (float) this.epsilon;
+        for (int i = 0; i < n; i++) {
+            float grad = g[go + i];
+            s[so + i] = beta * s[so + i] + (1.0f - beta) * (grad * grad);
+            p[po + i] -= lr * grad / ((float) Math.sqrt(s[so + i]) + eps);
+        }
+    }
+
+    private static <K> double[] state(Map<K, double[]> states, K key, int size) {
+        double[] s = states.get(key);
+        if (s == null) {
+            s = new double[size];
+            states.put(key, s);
+        }
+        return s;
+    }
+
+    private static <K> float[] stateFloat(Map<K, float[]> states, K key, int size) {
+        float[] s = states.get(key);
+        if (s == null) {
+            s = new float[size];
+            states.put(key, s);
+        }
+        return s;
+    }
 
-            for (int i = 0; i < b.length; i++) {
-                sb[i] = this.beta2 * sb[i] + (1.0 - this.beta2) * (db[i] * db[i]);
-                b[i] -= this.learningRate * db[i] / (Math.sqrt(sb[i]) + this.epsilon);
+    private static ParameterBuffer[] offHeapState(Map<Layer, ParameterBuffer[]> states, Layer layer, int count) {
+        ParameterBuffer[] s = states.get(layer);
+        if (s == null) {
+            s = new ParameterBuffer[count];
+            for (int i = 0; i < count; i++) {
+                s[i] = layer.getParameterStore().allocate(layer.getWeightBuffer().size());
             }
+            states.put(layer, s);
         }
+        return s;
     }
 }
\ No newline at end of file
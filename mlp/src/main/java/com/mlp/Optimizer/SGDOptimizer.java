@@ -1,13 +1,33 @@
 package com.mlp.Optimizer;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import com.mlp.DenseMatrix;
+import com.mlp.FlatParameters;
+import com.mlp.FloatFlatParameters;
+import com.mlp.FloatLayer;
+import com.mlp.FloatMatrix;
 import com.mlp.Layer;
+import com.mlp.Matrix;
+import com.mlp.ParameterBuffer;
 
 public class SGDOptimizer implements Optimizer {
 
     private double learningRate;
 
+    private static final ParameterBuffer[] NO_STATE = new ParameterBuffer[0];
+    private final Layer.WeightUpdate offHeapStep = (w, g, s, n) -> step(w, 0, g, 0, n);
+
+    // The packed model being stepped, and chunk bodies reading it, created once so that a step allocates nothing on
+    // the serial path.
+    private FlatParameters flat;
+    private FloatFlatParameters flatFloat;
+    private final ParallelChunks.Range flatStep = (from, to) -> step(this.flat.getValues(), from,
+            this.flat.getGradients(), from, to - from);
+    private final ParallelChunks.Range flatStepFloat = (from, to) -> step(this.flatFloat.getValues(), from,
+            this.flatFloat.getGradients(), from, to - from);
+
     public SGDOptimizer(double learningRate) {
         if (learningRate <= 0) {
             throw new IllegalArgumentException("Learning rate must be positive");
@@ -17,25 +37,82 @@ public class SGDOptimizer implements Optimizer {
 
     @Override
     public void update(List<Layer> layers) {
-        for (Layer layer: layers) {
-            double[][] w = layer.getWeights();
-            double[] b = layer.getBiases();
-            double[][] dw = layer.getWeightsGradient();
-            double[] db = layer.getBiasGradient();
+        update(layers, Matrix.getParallelPool());
+    }
+
+    @Override
+    public void update(List<Layer> layers, ForkJoinPool pool) {
+        FlatParameters packed = FlatParameters.of(layers);
+        if (packed != null) {
+            this.flat = packed;
+            ParallelChunks.run(pool, packed.size(), this.flatStep);
+            return;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            Layer layer = layers.get(l);
+            if (layer.isOffHeap()) {
+                layer.updateOffHeapWeights(this.offHeapStep, NO_STATE);
+                DenseMatrix b = layer.getBiases();
+                DenseMatrix db = layer.getBiasGradient();
+                step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), b.size());
+                continue;
+            }
+            DenseMatrix w = layer.getWeights();
+            DenseMatrix b = layer.getBiases();
+            DenseMatrix dw = layer.getWeightsGradient();
+            DenseMatrix db = layer.getBiasGradient();
 
             if (w == null || b ==null || dw == null || db == null) {
                 System.err.println("Warning: Gradients or params missing for a layer during update");
                 continue;
             }
 
-            for (int i = 0; i < w.length; ++i) {
-                for (int j = 0; j < w[0].length; ++j) {
-                    w[i][j] -= this.learningRate * dw[i][j];
-                }
-            }
-            for (int i = 0; i < b.length; ++i) {
-                b[i] -= this.learningRate * db[i];
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), b.size());
+        }
+    }
+
+    @Override
+    public void updateFloat(List<FloatLayer> layers) {
+        updateFloat(layers, Matrix.getParallelPool());
+    }
+
+    @Override
+    public void updateFloat(List<FloatLayer> layers, ForkJoinPool pool) {
+        FloatFlatParameters packed = FloatFlatParameters.of(layers);
+        if (packed != null) {
+            this.flatFloat = packed;
+            ParallelChunks.run(pool, packed.size(), this.flatStepFloat);
+            return;
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            FloatLayer layer = layers.get(l);
+            FloatMatrix w = layer.getWeights();
+            FloatMatrix b = layer.getBiases();
+            FloatMatrix dw = layer.getWeightsGradient();
+            FloatMatrix db = layer.getBiasGradient();
+
+            if (w == null || b ==null || dw == null || db == null) {
+                System.err.println("Warning: Gradients or params missing for a layer during update");
+                continue;
             }
+
+            step(w.getData(), w.getOffset(), dw.getData(), dw.getOffset(), w.size());
+            step(b.getData(), b.getOffset(), db.getData(), db.getOffset(), b.size());
+        }
+    }
+
+    private void step(double[] p, int po, double[] g, int go, int n) {
+        double lr = this.learningRate;
+        for (int i = 0; i < n; ++i) {
+            p[po + i] -= lr * g[go + i];
+        }
+    }
+
+    private void step(float[] p, int po, float[] g, int go, int n) {
+        float lr = (float) this.learningRate;
+        for (int i = 0; i < n; ++i) {
+            p[po + i] -= lr * g[go + i];
         }
     }
 }
\ No newline at end of file
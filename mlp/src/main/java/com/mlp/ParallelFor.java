@@ -0,0 +1,32 @@
+package com.mlp;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+// Runs body for every index in [from, to) as separate fork-join tasks.
+final class ParallelFor extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final IntConsumer body;
+
+    ParallelFor(int from, int to, IntConsumer body) {
+        this.from = from;
+        this.to = to;
+        this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= 1) {
+            if (to > from) {
+                body.accept(from);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new ParallelFor(from, mid, body), new ParallelFor(mid, to, body));
+    }
+}
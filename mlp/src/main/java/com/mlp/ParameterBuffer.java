@@ -0,0 +1,64 @@
+package com.mlp;
+
+import java.nio.DoubleBuffer;
+
+// A flat array of doubles split across NIO buffers of at most SEGMENT_SIZE elements, so a single parameter tensor
+// can be larger than the 2 GB a ByteBuffer can address.
+public final class ParameterBuffer {
+
+    static final int SEGMENT_SHIFT = 26;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private final long size;
+    private final DoubleBuffer[] segments;
+
+    ParameterBuffer(long size, DoubleBuffer[] segments) {
+        this.size = size;
+        this.segments = segments;
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    public double get(long index) {
+        checkRange(index, 1);
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & (SEGMENT_SIZE - 1)));
+    }
+
+    public void set(long index, double value) {
+        checkRange(index, 1);
+        segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & (SEGMENT_SIZE - 1)), value);
+    }
+
+    public void get(long from, double[] dst, int offset, int length) {
+        checkRange(from, length);
+        while (length > 0) {
+            int position = (int) (from & (SEGMENT_SIZE - 1));
+            int n = Math.min(length, SEGMENT_SIZE - position);
+            segments[(int) (from >>> SEGMENT_SHIFT)].get(position, dst, offset, n);
+            from += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    public void put(long from, double[] src, int offset, int length) {
+        checkRange(from, length);
+        while (length > 0) {
+            int position = (int) (from & (SEGMENT_SIZE - 1));
+            int n = Math.min(length, SEGMENT_SIZE - position);
+            segments[(int) (from >>> SEGMENT_SHIFT)].put(position, src, offset, n);
+            from += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void checkRange(long from, int length) {
+        if (from < 0 || length < 0 || from + length > size) {
+            throw new IndexOutOfBoundsException(
+                    "Range [" + from + ", " + (from + length) + ") out of bounds for parameter buffer of size " + size);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.mlp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Where a layer keeps its weights, weight gradients and the optimizer state that mirrors them. The heap store is the
+// default and keeps plain DenseMatrix parameters; the direct and mapped stores move them out of the Java heap, and
+// layers then stream them through small on-heap windows for the matrix kernels.
+public abstract class ParameterStore implements Closeable {
+
+    private static final ParameterStore HEAP = new Heap();
+
+    public static ParameterStore heap() {
+        return HEAP;
+    }
+
+    public static ParameterStore direct() {
+        return new Direct();
+    }
+
+    // Parameters are mapped from the given file, which is created or truncated. The operating system pages them in
+    // and out, so the total can exceed physical memory.
+    public static ParameterStore mapped(Path file) throws IOException {
+        return new Mapped(file);
+    }
+
+    public abstract boolean isOffHeap();
+
+    public ParameterBuffer allocate(long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Parameter buffer size cannot be negative: " + size);
+        }
+        DoubleBuffer[] segments = new DoubleBuffer[(int) ((size + ParameterBuffer.SEGMENT_SIZE - 1)
+                >>> ParameterBuffer.SEGMENT_SHIFT)];
+        for (int s = 0; s < segments.length; s++) {
+            long remaining = size - ((long) s << ParameterBuffer.SEGMENT_SHIFT);
+            segments[s] = allocateSegment((int) Math.min(remaining, ParameterBuffer.SEGMENT_SIZE));
+        }
+        return new ParameterBuffer(size, segments);
+    }
+
+    protected abstract DoubleBuffer allocateSegment(int size);
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    private static final class Heap extends ParameterStore {
+        @Override
+        public boolean isOffHeap() {
+            return false;
+        }
+
+        @Override
+        protected DoubleBuffer allocateSegment(int size) {
+            return DoubleBuffer.wrap(new double[size]);
+        }
+    }
+
+    private static final class Direct extends ParameterStore {
+        @Override
+        public boolean isOffHeap() {
+            return true;
+        }
+
+        @Override
+        protected DoubleBuffer allocateSegment(int size) {
+            return ByteBuffer.allocateDirect(size * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+    }
+
+    private static final class Mapped extends ParameterStore {
+        private final FileChannel channel;
+        private long position;
+
+        Mapped(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return true;
+        }
+
+        @Override
+        protected synchronized DoubleBuffer allocateSegment(int size) {
+            long bytes = (long) size * Double.BYTES;
+            try {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+                position += bytes;
+                return mapped.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map " + bytes + " bytes of parameter storage.", e);
+            }
+        }
+
+        // Mapped regions stay valid after the channel is closed and are released once they become unreachable.
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.mlp;
+
+public enum Precision {
+    DOUBLE,
+    FLOAT,
+}
@@ -0,0 +1,11 @@
+package com.mlp;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// One pass over a Dataset's samples in storage order. read stores up to max samples from index offset on: features
+// as uint8 rows (offset * feature count into features) and class indices. It returns how many it stored, 0 at the end.
+interface SampleReader extends Closeable {
+
+    int read(byte[] features, int[] labels, int offset, int max) throws IOException;
+}
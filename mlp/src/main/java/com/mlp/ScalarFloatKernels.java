@@ -0,0 +1,119 @@
+package com.mlp;
+
+final class ScalarFloatKernels implements FloatKernels {
+
+    @Override
+    public void add(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        for (int i = 0; i < n; ++i) {
+            r[ro + i] = a[ao + i] + b[bo + i];
+        }
+    }
+
+    @Override
+    public void subtract(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        for (int i = 0; i < n; ++i) {
+            r[ro + i] = a[ao + i] - b[bo + i];
+        }
+    }
+
+    @Override
+    public void multiply(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        for (int i = 0; i < n; ++i) {
+            r[ro + i] = a[ao + i] * b[bo + i];
+        }
+    }
+
+    @Override
+    public void divide(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        for (int i = 0; i < n; ++i) {
+            if (b[bo + i] == 0)
+                throw new ArithmeticException("Division by zero.");
+            r[ro + i] = a[ao + i] / b[bo + i];
+        }
+    }
+
+    @Override
+    public void scale(float[] a, int ao, float scalar, float[] r, int ro, int n) {
+        for (int i = 0; i < n; ++i) {
+            r[ro + i] = a[ao + i] * scalar;
+        }
+    }
+
+    @Override
+    public void sqrt(float[] a, int ao, float[] r, int ro, int n) {
+        for (int i = 0; i < n; ++i) {
+            r[ro + i] = (float) Math.sqrt(a[ao + i]);
+        }
+    }
+
+    @Override
+    public float dot(float[] a, int ao, float[] b, int bo, int n) {
+        float result = 0;
+        for (int i = 0; i < n; ++i) {
+            result += a[ao + i] * b[bo + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void axpy(float x0, float[] b, int bo, float[] c, int c0, int n) {
+        for (int j = 0; j < n; ++j) {
+            c[c0 + j] += x0 * b[bo + j];
+        }
+    }
+
+    @Override
+    public void axpy4(float x0, float x1, float x2, float x3, float[] b, int bo,
+            float[] c, int c0, int c1, int c2, int c3, int n) {
+        for (int j = 0; j < n; ++j) {
+            float bv = b[bo + j];
+            c[c0 + j] += x0 * bv;
+            c[c1 + j] += x1 * bv;
+            c[c2 + j] += x2 * bv;
+            c[c3 + j] += x3 * bv;
+        }
+    }
+
+    @Override
+    public void dot1x4(float[] a, int a0, float[] b, int b0, int b1, int b2, int b3, int n, float[] c, int c0) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (int k = 0; k < n; ++k) {
+            float x0 = a[a0 + k];
+            s0 += x0 * b[b0 + k];
+            s1 += x0 * b[b1 + k];
+            s2 += x0 * b[b2 + k];
+            s3 += x0 * b[b3 + k];
+        }
+        c[c0] += s0;
+        c[c0 + 1] += s1;
+        c[c0 + 2] += s2;
+        c[c0 + 3] += s3;
+    }
+
+    @Override
+    public void dot2x4(float[] a, int a0, int a1, float[] b, int b0, int b1, int b2, int b3, int n,
+            float[] c, int c0, int c1) {
+        float s00 = 0, s01 = 0, s02 = 0, s03 = 0;
+        float s10 = 0, s11 = 0, s12 = 0, s13 = 0;
+        for (int k = 0; k < n; ++k) {
+            float x0 = a[a0 + k], x1 = a[a1 + k];
+            float y0 = b[b0 + k], y1 = b[b1 + k], y2 = b[b2 + k], y3 = b[b3 + k];
+            s00 += x0 * y0;
+            s01 += x0 * y1;
+            s02 += x0 * y2;
+            s03 += x0 * y3;
+            s10 += x1 * y0;
+            s11 += x1 * y1;
+            s12 += x1 * y2;
+            s13 += x1 * y3;
+        }
+        c[c0] += s00;
+        c[c0 + 1] += s01;
+        c[c0 + 2] += s02;
+        c[c0 + 3] += s03;
+        c[c1] += s10;
+        c[c1 + 1] += s11;
+        c[c1 + 2] += s12;
+        c[c1 + 3] += s13;
+    }
+}
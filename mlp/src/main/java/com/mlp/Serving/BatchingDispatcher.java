@@ -0,0 +1,179 @@
+package com.mlp.Serving;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.mlp.DenseMatrix;
+import com.mlp.InferenceSession;
+
+// Coalesces concurrent single-sample requests into batched forward passes. A single dispatcher thread takes the
+// first waiting request, then keeps collecting until maxBatch requests are in hand or maxWaitNanos have passed since
+// that first one, and runs them as one predictInto over preallocated batch buffers. Under light load a request waits
+// at most maxWaitNanos; under heavy load batches fill up and the per-sample cost of the matmuls drops.
+public class BatchingDispatcher implements Closeable {
+
+    private final InferenceSession session;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final LatencyRecorder recorder = new LatencyRecorder(1 << 16);
+    private final DenseMatrix inputBatch;
+    private final DenseMatrix outputBatch;
+    private final List<Request> pending;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public BatchingDispatcher(InferenceSession session, int maxBatch, long maxWaitNanos) {
+        if (session == null) {
+            throw new IllegalArgumentException("Inference session cannot be null.");
+        }
+        if (maxBatch <= 0 || maxWaitNanos < 0) {
+            throw new IllegalArgumentException("maxBatch must be positive and maxWaitNanos non-negative.");
+        }
+        this.session = session;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWaitNanos;
+        this.inputBatch = new DenseMatrix(maxBatch, session.getInputSize());
+        this.outputBatch = new DenseMatrix(maxBatch, session.getOutputSize());
+        this.pending = new ArrayList<>(maxBatch);
+        this.thread = new Thread(this::run, "mlp-batching-dispatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public int getMaxBatch() {
+        return this.maxBatch;
+    }
+
+    public long getMaxWaitNanos() {
+        return this.maxWaitNanos;
+    }
+
+    public LatencyRecorder getRecorder() {
+        return this.recorder;
+    }
+
+    public boolean isClosed() {
+        return !this.running;
+    }
+
+    public CompletableFuture<double[]> submit(double[] input) {
+        if (input == null || input.length != session.getInputSize()) {
+            throw new IllegalArgumentException("Expected an input of " + session.getInputSize() + " features, got "
+                    + (input == null ? 0 : input.length) + ".");
+        }
+        Request request = new Request(input);
+        if (!running) {
+            request.result.completeExceptionally(new IllegalStateException("Dispatcher is closed."));
+            return request.result;
+        }
+        queue.add(request);
+        // close() may have drained the queue between the check above and the add; whoever removes the request
+        // from the queue is the one that completes it.
+        if (!running && queue.remove(request)) {
+            request.result.completeExceptionally(new IllegalStateException("Dispatcher is closed."));
+        }
+        return request.result;
+    }
+
+    // Blocks the calling thread (cheap on a virtual thread) until the batch holding this input has run.
+    public double[] predict(double[] input) throws InterruptedException {
+        try {
+            return submit(input).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Prediction failed.", e.getCause());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                pending.add(first);
+                long deadline = first.enqueuedNanos + maxWaitNanos;
+                while (pending.size() < maxBatch) {
+                    Request next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                    }
+                    pending.add(next);
+                }
+                runBatch();
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                for (Request request : pending) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+            pending.clear();
+        }
+        failPending(new IllegalStateException("Dispatcher is closed."));
+    }
+
+    private void runBatch() {
+        int n = pending.size();
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(pending.get(i).input, 0, inputBatch.getData(), inputBatch.index(i, 0),
+                    inputBatch.getCols());
+        }
+        session.predictInto(outputBatch.rowRange(0, n), inputBatch.rowRange(0, n));
+        long now = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            Request request = pending.get(i);
+            double[] output = new double[outputBatch.getCols()];
+            System.arraycopy(outputBatch.getData(), outputBatch.index(i, 0), output, 0, output.length);
+            recorder.record(now - request.enqueuedNanos);
+            request.result.complete(output);
+        }
+        recorder.recordBatch();
+    }
+
+    private void failPending(Exception cause) {
+        for (Request request : pending) {
+            request.result.completeExceptionally(cause);
+        }
+        pending.clear();
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending(new IllegalStateException("Dispatcher is closed."));
+    }
+
+    private static final class Request {
+        final double[] input;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<double[]> result = new CompletableFuture<>();
+
+        Request(double[] input) {
+            this.input = input;
+        }
+    }
+}
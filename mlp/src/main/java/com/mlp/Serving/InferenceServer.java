@@ -0,0 +1,173 @@
+package com.mlp.Serving;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.mlp.MLP;
+import com.mlp.Main;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Embedded HTTP front end for a trained model.
+//   POST /predict  body: the input features, comma separated    ->  {"class":k,"probabilities":[...]}
+//   GET  /stats    latency percentiles, throughput and mean batch size of the dispatcher
+// Every exchange runs on its own thread and blocks until the BatchingDispatcher has run the batch holding its
+// request. On a JDK with virtual threads (21+) those are virtual threads, so thousands of waiting requests cost
+// little; older runtimes fall back to a cached platform thread pool.
+public class InferenceServer implements Closeable {
+
+    private final HttpServer server;
+    private final BatchingDispatcher dispatcher;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public InferenceServer(MLP model, InetSocketAddress address, int maxBatch, long maxWaitMicros)
+            throws IOException {
+        if (model == null || address == null) {
+            throw new IllegalArgumentException("Model and address cannot be null.");
+        }
+        this.dispatcher = new BatchingDispatcher(model.getInferenceSession(), maxBatch, maxWaitMicros * 1000L);
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtualThreads ? virtual : Executors.newCachedThreadPool();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/predict", this::handlePredict);
+        this.server.createContext("/stats", this::handleStats);
+    }
+
+    public InferenceServer start() {
+        server.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public BatchingDispatcher getDispatcher() {
+        return this.dispatcher;
+    }
+
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"use POST\"}");
+                return;
+            }
+            double[] input;
+            try (InputStream body = exchange.getRequestBody()) {
+                input = parseFeatures(new String(body.readAllBytes(), StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, "{\"error\":\"features must be comma separated numbers\"}");
+                return;
+            }
+            double[] probabilities;
+            try {
+                probabilities = dispatcher.predict(input);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, "{\"error\":" + jsonString(e.getMessage()) + "}");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "{\"error\":\"interrupted\"}");
+                return;
+            } catch (IllegalStateException e) {
+                if (dispatcher.isClosed()) {
+                    respond(exchange, 503, "{\"error\":\"dispatcher closed\"}");
+                } else {
+                    respond(exchange, 500, "{\"error\":\"prediction failed\"}");
+                }
+                return;
+            }
+            StringBuilder json = new StringBuilder(32 + 24 * probabilities.length);
+            json.append("{\"class\":").append(Main.findIndexOfMax(probabilities)).append(",\"probabilities\":[");
+            for (int i = 0; i < probabilities.length; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                // JSON has no NaN or Infinity literals.
+                if (Double.isFinite(probabilities[i])) {
+                    json.append(probabilities[i]);
+                } else {
+                    json.append("null");
+                }
+            }
+            respond(exchange, 200, json.append("]}").toString());
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            respond(exchange, 200, dispatcher.getRecorder().snapshot().toJson());
+        }
+    }
+
+    static String jsonString(String text) {
+        if (text == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    static double[] parseFeatures(String body) {
+        String[] parts = body.trim().split(",");
+        double[] features = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            features[i] = Double.parseDouble(parts[i].trim());
+        }
+        return features;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when the runtime has it, else null; looked up reflectively so the
+    // module still builds for Java 17.
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    public boolean usesVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        dispatcher.close();
+        executor.shutdown();
+    }
+}
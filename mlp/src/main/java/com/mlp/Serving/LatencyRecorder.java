@@ -0,0 +1,85 @@
+package com.mlp.Serving;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Keeps the most recent request latencies in a ring and reports percentiles and throughput over them. Recording is
+// cheap (one array store under a lock held by the dispatcher thread); sorting happens only when a snapshot is taken.
+public class LatencyRecorder {
+
+    private final long[] latencies;
+    private long recorded;
+    private long batches;
+    private long startNanos = System.nanoTime();
+
+    public LatencyRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.latencies = new long[capacity];
+    }
+
+    public synchronized void record(long latencyNanos) {
+        latencies[(int) (recorded % latencies.length)] = latencyNanos;
+        recorded++;
+    }
+
+    public synchronized void recordBatch() {
+        batches++;
+    }
+
+    public synchronized void reset() {
+        recorded = 0;
+        batches = 0;
+        startNanos = System.nanoTime();
+    }
+
+    public synchronized Snapshot snapshot() {
+        int n = (int) Math.min(recorded, latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return new Snapshot(recorded, batches, recorded / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    public static final class Snapshot {
+        public final long requests;
+        public final long batches;
+        public final double requestsPerSecond;
+        public final double p50Millis;
+        public final double p99Millis;
+
+        Snapshot(long requests, long batches, double requestsPerSecond, double p50Millis, double p99Millis) {
+            this.requests = requests;
+            this.batches = batches;
+            this.requestsPerSecond = requestsPerSecond;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        public double meanBatchSize() {
+            return batches == 0 ? 0.0 : (double) requests / batches;
+        }
+
+        public String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"requests\":%d,\"batches\":%d,\"meanBatchSize\":%.2f,\"requestsPerSecond\":%.1f,"
+                            + "\"p50Millis\":%.3f,\"p99Millis\":%.3f}",
+                    requests, batches, meanBatchSize(), requestsPerSecond, p50Millis, p99Millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests in %d batches (mean %.1f), %.0f req/s, p50 %.3f ms, p99 %.3f ms",
+                    requests, batches, meanBatchSize(), requestsPerSecond, p50Millis, p99Millis);
+        }
+    }
+}
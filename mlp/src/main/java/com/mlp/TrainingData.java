@@ -0,0 +1,96 @@
+package com.mlp;
+
+// Samples MLP.train reads its batches from: gather fills a batch with the inputs and targets of samples
+// indices[from], indices[from + 1], ... (one per batch row), in the model's precision.
+interface TrainingData {
+
+    int size();
+
+    int inputCount();
+
+    int targetCount();
+
+    void gather(int[] indices, int from, DenseMatrix inputs, DenseMatrix targets);
+
+    void gather(int[] indices, int from, FloatMatrix inputs, FloatMatrix targets);
+
+    // The arrays copied into one matrix each, in double or float as precision says.
+    static TrainingData of(double[][] inputs, double[][] targets, Precision precision) {
+        if (precision == Precision.FLOAT) {
+            return new Floats(FloatMatrix.of(inputs), FloatMatrix.of(targets));
+        }
+        return new Doubles(DenseMatrix.of(inputs), DenseMatrix.of(targets));
+    }
+
+    final class Doubles implements TrainingData {
+        private final DenseMatrix x;
+        private final DenseMatrix y;
+
+        Doubles(DenseMatrix x, DenseMatrix y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public int size() {
+            return x.getRows();
+        }
+
+        @Override
+        public int inputCount() {
+            return x.getCols();
+        }
+
+        @Override
+        public int targetCount() {
+            return y.getCols();
+        }
+
+        @Override
+        public void gather(int[] indices, int from, DenseMatrix inputs, DenseMatrix targets) {
+            inputs.gatherRows(x, indices, from);
+            targets.gatherRows(y, indices, from);
+        }
+
+        @Override
+        public void gather(int[] indices, int from, FloatMatrix inputs, FloatMatrix targets) {
+            throw new UnsupportedOperationException("Samples are held in double precision.");
+        }
+    }
+
+    final class Floats implements TrainingData {
+        private final FloatMatrix x;
+        private final FloatMatrix y;
+
+        Floats(FloatMatrix x, FloatMatrix y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public int size() {
+            return x.getRows();
+        }
+
+        @Override
+        public int inputCount() {
+            return x.getCols();
+        }
+
+        @Override
+        public int targetCount() {
+            return y.getCols();
+        }
+
+        @Override
+        public void gather(int[] indices, int from, DenseMatrix inputs, DenseMatrix targets) {
+            throw new UnsupportedOperationException("Samples are held in float precision.");
+        }
+
+        @Override
+        public void gather(int[] indices, int from, FloatMatrix inputs, FloatMatrix targets) {
+            inputs.gatherRows(x, indices, from);
+            targets.gatherRows(y, indices, from);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.mlp;
+
+// Where MLP.train is within a run: the epoch, the position in that epoch's shuffled sample order, the loss summed so
+// far in the epoch and the early-stopping counters. A cursor of 0 means the epoch has not been shuffled yet; stopped
+// means early stopping ended the run, so a resumed run has nothing left to do.
+final class TrainingState {
+    int epoch;
+    int cursor;
+    long steps;
+    double epochLoss;
+    double bestValidationLoss = Double.POSITIVE_INFINITY;
+    int epochsWithoutImprovement;
+    boolean stopped;
+    int[] order;
+
+    TrainingState(int samples) {
+        this.order = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            order[i] = i;
+        }
+    }
+
+    TrainingState copy() {
+        TrainingState copy = new TrainingState(0);
+        copy.epoch = epoch;
+        copy.cursor = cursor;
+        copy.steps = steps;
+        copy.epochLoss = epochLoss;
+        copy.bestValidationLoss = bestValidationLoss;
+        copy.epochsWithoutImprovement = epochsWithoutImprovement;
+        copy.stopped = stopped;
+        copy.order = order.clone();
+        return copy;
+    }
+}
@@ -0,0 +1,220 @@
+package com.mlp;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorFloatKernels implements FloatKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public void add(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, ao + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + i);
+            va.add(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] + b[bo + i];
+        }
+    }
+
+    @Override
+    public void subtract(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, ao + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + i);
+            va.sub(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] - b[bo + i];
+        }
+    }
+
+    @Override
+    public void multiply(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, ao + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + i);
+            va.mul(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] * b[bo + i];
+        }
+    }
+
+    @Override
+    public void divide(float[] a, int ao, float[] b, int bo, float[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, ao + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + i);
+            VectorMask<Float> zero = vb.eq(0.0f);
+            if (zero.anyTrue())
+                throw new ArithmeticException("Division by zero.");
+            va.div(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            if (b[bo + i] == 0)
+                throw new ArithmeticException("Division by zero.");
+            r[ro + i] = a[ao + i] / b[bo + i];
+        }
+    }
+
+    @Override
+    public void scale(float[] a, int ao, float scalar, float[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector.fromArray(SPECIES, a, ao + i).mul(scalar).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] * scalar;
+        }
+    }
+
+    @Override
+    public void sqrt(float[] a, int ao, float[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector.fromArray(SPECIES, a, ao + i).lanewise(VectorOperators.SQRT).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = (float) Math.sqrt(a[ao + i]);
+        }
+    }
+
+    @Override
+    public float dot(float[] a, int ao, float[] b, int bo, int n) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, ao + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + i);
+            acc = va.fma(vb, acc);
+        }
+        float result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            result += a[ao + i] * b[bo + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void axpy(float x0, float[] b, int bo, float[] c, int c0, int n) {
+        FloatVector v0 = FloatVector.broadcast(SPECIES, x0);
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES) {
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + j);
+            vb.fma(v0, FloatVector.fromArray(SPECIES, c, c0 + j)).intoArray(c, c0 + j);
+        }
+        for (; j < n; ++j) {
+            c[c0 + j] += x0 * b[bo + j];
+        }
+    }
+
+    @Override
+    public void axpy4(float x0, float x1, float x2, float x3, float[] b, int bo,
+            float[] c, int c0, int c1, int c2, int c3, int n) {
+        FloatVector v0 = FloatVector.broadcast(SPECIES, x0);
+        FloatVector v1 = FloatVector.broadcast(SPECIES, x1);
+        FloatVector v2 = FloatVector.broadcast(SPECIES, x2);
+        FloatVector v3 = FloatVector.broadcast(SPECIES, x3);
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES) {
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bo + j);
+            vb.fma(v0, FloatVector.fromArray(SPECIES, c, c0 + j)).intoArray(c, c0 + j);
+            vb.fma(v1, FloatVector.fromArray(SPECIES, c, c1 + j)).intoArray(c, c1 + j);
+            vb.fma(v2, FloatVector.fromArray(SPECIES, c, c2 + j)).intoArray(c, c2 + j);
+            vb.fma(v3, FloatVector.fromArray(SPECIES, c, c3 + j)).intoArray(c, c3 + j);
+        }
+        for (; j < n; ++j) {
+            float bv = b[bo + j];
+            c[c0 + j] += x0 * bv;
+            c[c1 + j] += x1 * bv;
+            c[c2 + j] += x2 * bv;
+            c[c3 + j] += x3 * bv;
+        }
+    }
+
+    @Override
+    public void dot1x4(float[] a, int a0, float[] b, int b0, int b1, int b2, int b3, int n, float[] c, int c0) {
+        FloatVector s0 = FloatVector.zero(SPECIES), s1 = s0, s2 = s0, s3 = s0;
+        int k = 0;
+        for (int bound = SPECIES.loopBound(n); k < bound; k += LANES) {
+            FloatVector x0 = FloatVector.fromArray(SPECIES, a, a0 + k);
+            s0 = x0.fma(FloatVector.fromArray(SPECIES, b, b0 + k), s0);
+            s1 = x0.fma(FloatVector.fromArray(SPECIES, b, b1 + k), s1);
+            s2 = x0.fma(FloatVector.fromArray(SPECIES, b, b2 + k), s2);
+            s3 = x0.fma(FloatVector.fromArray(SPECIES, b, b3 + k), s3);
+        }
+        float r0 = s0.reduceLanes(VectorOperators.ADD);
+        float r1 = s1.reduceLanes(VectorOperators.ADD);
+        float r2 = s2.reduceLanes(VectorOperators.ADD);
+        float r3 = s3.reduceLanes(VectorOperators.ADD);
+        for (; k < n; ++k) {
+            float x0 = a[a0 + k];
+            r0 += x0 * b[b0 + k];
+            r1 += x0 * b[b1 + k];
+            r2 += x0 * b[b2 + k];
+            r3 += x0 * b[b3 + k];
+        }
+        c[c0] += r0;
+        c[c0 + 1] += r1;
+        c[c0 + 2] += r2;
+        c[c0 + 3] += r3;
+    }
+
+    @Override
+    public void dot2x4(float[] a, int a0, int a1, float[] b, int b0, int b1, int b2, int b3, int n,
+            float[] c, int c0, int c1) {
+        FloatVector s00 = FloatVector.zero(SPECIES), s01 = s00, s02 = s00, s03 = s00;
+        FloatVector s10 = s00, s11 = s00, s12 = s00, s13 = s00;
+        int k = 0;
+        for (int bound = SPECIES.loopBound(n); k < bound; k += LANES) {
+            FloatVector x0 = FloatVector.fromArray(SPECIES, a, a0 + k);
+            FloatVector x1 = FloatVector.fromArray(SPECIES, a, a1 + k);
+            FloatVector y0 = FloatVector.fromArray(SPECIES, b, b0 + k);
+            FloatVector y1 = FloatVector.fromArray(SPECIES, b, b1 + k);
+            FloatVector y2 = FloatVector.fromArray(SPECIES, b, b2 + k);
+            FloatVector y3 = FloatVector.fromArray(SPECIES, b, b3 + k);
+            s00 = x0.fma(y0, s00);
+            s01 = x0.fma(y1, s01);
+            s02 = x0.fma(y2, s02);
+            s03 = x0.fma(y3, s03);
+            s10 = x1.fma(y0, s10);
+            s11 = x1.fma(y1, s11);
+            s12 = x1.fma(y2, s12);
+            s13 = x1.fma(y3, s13);
+        }
+        float r00 = s00.reduceLanes(VectorOperators.ADD), r01 = s01.reduceLanes(VectorOperators.ADD);
+        float r02 = s02.reduceLanes(VectorOperators.ADD), r03 = s03.reduceLanes(VectorOperators.ADD);
+        float r10 = s10.reduceLanes(VectorOperators.ADD), r11 = s11.reduceLanes(VectorOperators.ADD);
+        float r12 = s12.reduceLanes(VectorOperators.ADD), r13 = s13.reduceLanes(VectorOperators.ADD);
+        for (; k < n; ++k) {
+            float x0 = a[a0 + k], x1 = a[a1 + k];
+            float y0 = b[b0 + k], y1 = b[b1 + k], y2 = b[b2 + k], y3 = b[b3 + k];
+            r00 += x0 * y0;
+            r01 += x0 * y1;
+            r02 += x0 * y2;
+            r03 += x0 * y3;
+            r10 += x1 * y0;
+            r11 += x1 * y1;
+            r12 += x1 * y2;
+            r13 += x1 * y3;
+        }
+        c[c0] += r00;
+        c[c0 + 1] += r01;
+        c[c0 + 2] += r02;
+        c[c0 + 3] += r03;
+        c[c1] += r10;
+        c[c1 + 1] += r11;
+        c[c1 + 2] += r12;
+        c[c1 + 3] += r13;
+    }
+}
@@ -0,0 +1,220 @@
+package com.mlp;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public void add(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            va.add(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] + b[bo + i];
+        }
+    }
+
+    @Override
+    public void subtract(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            va.sub(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] - b[bo + i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            va.mul(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] * b[bo + i];
+        }
+    }
+
+    @Override
+    public void divide(double[] a, int ao, double[] b, int bo, double[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            VectorMask<Double> zero = vb.eq(0.0);
+            if (zero.anyTrue())
+                throw new ArithmeticException("Division by zero.");
+            va.div(vb).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            if (b[bo + i] == 0)
+                throw new ArithmeticException("Division by zero.");
+            r[ro + i] = a[ao + i] / b[bo + i];
+        }
+    }
+
+    @Override
+    public void scale(double[] a, int ao, double scalar, double[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector.fromArray(SPECIES, a, ao + i).mul(scalar).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = a[ao + i] * scalar;
+        }
+    }
+
+    @Override
+    public void sqrt(double[] a, int ao, double[] r, int ro, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector.fromArray(SPECIES, a, ao + i).lanewise(VectorOperators.SQRT).intoArray(r, ro + i);
+        }
+        for (; i < n; ++i) {
+            r[ro + i] = Math.sqrt(a[ao + i]);
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int ao, double[] b, int bo, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += LANES) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + i);
+            acc = va.fma(vb, acc);
+        }
+        double result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            result += a[ao + i] * b[bo + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void axpy(double x0, double[] b, int bo, double[] c, int c0, int n) {
+        DoubleVector v0 = DoubleVector.broadcast(SPECIES, x0);
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES) {
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + j);
+            vb.fma(v0, DoubleVector.fromArray(SPECIES, c, c0 + j)).intoArray(c, c0 + j);
+        }
+        for (; j < n; ++j) {
+            c[c0 + j] += x0 * b[bo + j];
+        }
+    }
+
+    @Override
+    public void axpy4(double x0, double x1, double x2, double x3, double[] b, int bo,
+            double[] c, int c0, int c1, int c2, int c3, int n) {
+        DoubleVector v0 = DoubleVector.broadcast(SPECIES, x0);
+        DoubleVector v1 = DoubleVector.broadcast(SPECIES, x1);
+        DoubleVector v2 = DoubleVector.broadcast(SPECIES, x2);
+        DoubleVector v3 = DoubleVector.broadcast(SPECIES, x3);
+        int j = 0;
+        for (int bound = SPECIES.loopBound(n); j < bound; j += LANES) {
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + j);
+            vb.fma(v0, DoubleVector.fromArray(SPECIES, c, c0 + j)).intoArray(c, c0 + j);
+            vb.fma(v1, DoubleVector.fromArray(SPECIES, c, c1 + j)).intoArray(c, c1 + j);
+            vb.fma(v2, DoubleVector.fromArray(SPECIES, c, c2 + j)).intoArray(c, c2 + j);
+            vb.fma(v3, DoubleVector.fromArray(SPECIES, c, c3 + j)).intoArray(c, c3 + j);
+        }
+        for (; j < n; ++j) {
+            double bv = b[bo + j];
+            c[c0 + j] += x0 * bv;
+            c[c1 + j] += x1 * bv;
+            c[c2 + j] += x2 * bv;
+            c[c3 + j] += x3 * bv;
+        }
+    }
+
+    @Override
+    public void dot1x4(double[] a, int a0, double[] b, int b0, int b1, int b2, int b3, int n, double[] c, int c0) {
+        DoubleVector s0 = DoubleVector.zero(SPECIES), s1 = s0, s2 = s0, s3 = s0;
+        int k = 0;
+        for (int bound = SPECIES.loopBound(n); k < bound; k += LANES) {
+            DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, a0 + k);
+            s0 = x0.fma(DoubleVector.fromArray(SPECIES, b, b0 + k), s0);
+            s1 = x0.fma(DoubleVector.fromArray(SPECIES, b, b1 + k), s1);
+            s2 = x0.fma(DoubleVector.fromArray(SPECIES, b, b2 + k), s2);
+            s3 = x0.fma(DoubleVector.fromArray(SPECIES, b, b3 + k), s3);
+        }
+        double r0 = s0.reduceLanes(VectorOperators.ADD);
+        double r1 = s1.reduceLanes(VectorOperators.ADD);
+        double r2 = s2.reduceLanes(VectorOperators.ADD);
+        double r3 = s3.reduceLanes(VectorOperators.ADD);
+        for (; k < n; ++k) {
+            double x0 = a[a0 + k];
+            r0 += x0 * b[b0 + k];
+            r1 += x0 * b[b1 + k];
+            r2 += x0 * b[b2 + k];
+            r3 += x0 * b[b3 + k];
+        }
+        c[c0] += r0;
+        c[c0 + 1] += r1;
+        c[c0 + 2] += r2;
+        c[c0 + 3] += r3;
+    }
+
+    @Override
+    public void dot2x4(double[] a, int a0, int a1, double[] b, int b0, int b1, int b2, int b3, int n,
+            double[] c, int c0, int c1) {
+        DoubleVector s00 = DoubleVector.zero(SPECIES), s01 = s00, s02 = s00, s03 = s00;
+        DoubleVector s10 = s00, s11 = s00, s12 = s00, s13 = s00;
+        int k = 0;
+        for (int bound = SPECIES.loopBound(n); k < bound; k += LANES) {
+            DoubleVector x0 = DoubleVector.fromArray(SPECIES, a, a0 + k);
+            DoubleVector x1 = DoubleVector.fromArray(SPECIES, a, a1 + k);
+            DoubleVector y0 = DoubleVector.fromArray(SPECIES, b, b0 + k);
+            DoubleVector y1 = DoubleVector.fromArray(SPECIES, b, b1 + k);
+            DoubleVector y2 = DoubleVector.fromArray(SPECIES, b, b2 + k);
+            DoubleVector y3 = DoubleVector.fromArray(SPECIES, b, b3 + k);
+            s00 = x0.fma(y0, s00);
+            s01 = x0.fma(y1, s01);
+            s02 = x0.fma(y2, s02);
+            s03 = x0.fma(y3, s03);
+            s10 = x1.fma(y0, s10);
+            s11 = x1.fma(y1, s11);
+            s12 = x1.fma(y2, s12);
+            s13 = x1.fma(y3, s13);
+        }
+        double r00 = s00.reduceLanes(VectorOperators.ADD), r01 = s01.reduceLanes(VectorOperators.ADD);
+        double r02 = s02.reduceLanes(VectorOperators.ADD), r03 = s03.reduceLanes(VectorOperators.ADD);
+        double r10 = s10.reduceLanes(VectorOperators.ADD), r11 = s11.reduceLanes(VectorOperators.ADD);
+        double r12 = s12.reduceLanes(VectorOperators.ADD), r13 = s13.reduceLanes(VectorOperators.ADD);
+        for (; k < n; ++k) {
+            double x0 = a[a0 + k], x1 = a[a1 + k];
+            double y0 = b[b0 + k], y1 = b[b1 + k], y2 = b[b2 + k], y3 = b[b3 + k];
+            r00 += x0 * y0;
+            r01 += x0 * y1;
+            r02 += x0 * y2;
+            r03 += x0 * y3;
+            r10 += x1 * y0;
+            r11 += x1 * y1;
+            r12 += x1 * y2;
+            r13 += x1 * y3;
+        }
+        c[c0] += r00;
+        c[c0 + 1] += r01;
+        c[c0 + 2] += r02;
+        c[c0 + 3] += r03;
+        c[c1] += r10;
+        c[c1 + 1] += r11;
+        c[c1 + 2] += r12;
+        c[c1 + 3] += r13;
+    }
+}
@@ -0,0 +1,103 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+class ByteDatasetTest {
+
+    private static final int ROWS = 2000;
+    private static final int EPOCHS = 2;
+    private static final int BATCH_SIZE = 32;
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private Path validFile;
+
+    @BeforeEach
+    void writeCsv() throws IOException {
+        file = dir.resolve("mnist.csv");
+        validFile = dir.resolve("valid.csv");
+        Random rand = new Random(73);
+        TestData.writeMnistCsv(file, rand, ROWS);
+        TestData.writeMnistCsv(validFile, rand, 200);
+    }
+
+    @Test
+    void packedAndMappedDatasetsDecodeToTheParsedValues() throws IOException {
+        DataPair parsed = CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+        assertDecodesTo(parsed, ByteDataset.of(parsed));
+        // The first load parses and writes the cache, the second maps it.
+        assertDecodesTo(parsed, DatasetCache.loadBytes(file.toString(), 10, 784, ",", true, -1));
+        assertDecodesTo(parsed, DatasetCache.loadBytes(file.toString(), 10, 784, ",", true, -1));
+        assertDecodesTo(CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, 1000),
+                DatasetCache.loadBytes(file.toString(), 10, 784, ",", true, 1000));
+    }
+
+    @Test
+    void nonByteFeaturesAreRejected() throws IOException {
+        Path decimals = dir.resolve("decimals.csv");
+        Files.writeString(decimals, "y,a,b\n1,0.5,3\n0,2,1\n");
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetCache.loadBytes(decimals.toString(), 3, 2, ",", true, -1));
+    }
+
+    @Test
+    void doubleTrainingOnBytesMatchesTrainingOnArrays() throws IOException {
+        assertTrainsLikeArrays(Precision.DOUBLE);
+    }
+
+    @Test
+    void floatTrainingOnBytesMatchesTrainingOnArrays() throws IOException {
+        assertTrainsLikeArrays(Precision.FLOAT);
+    }
+
+    private void assertTrainsLikeArrays(Precision precision) throws IOException {
+        DataPair train = CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+        DataPair valid = CsvLoader.loadCsvData(validFile.toString(), 10, 784, ",", true, -1);
+        DatasetCache.loadBytes(file.toString(), 10, 784, ",", true, -1);
+        ByteDataset trainBytes = DatasetCache.loadBytes(file.toString(), 10, 784, ",", true, -1);
+
+        MLP arrays = model(precision);
+        MLP bytes = model(precision);
+        for (int l = 0; l < arrays.getLayers().size(); l++) {
+            bytes.getLayers().get(l).setWeights(arrays.getLayers().get(l).getWeights().copy());
+            bytes.getLayers().get(l).setBiases(arrays.getLayers().get(l).getBiases().copy());
+        }
+        for (int l = 0; l < arrays.getFloatLayers().size(); l++) {
+            bytes.getFloatLayers().get(l).setWeights(arrays.getFloatLayers().get(l).getWeights().copy());
+            bytes.getFloatLayers().get(l).setBiases(arrays.getFloatLayers().get(l).getBiases().copy());
+        }
+        arrays.setShuffleSeed(79);
+        bytes.setShuffleSeed(79);
+        arrays.train(train.getFeatures(), train.getLabels(), valid.getFeatures(), valid.getLabels(), EPOCHS, 0, 0.0,
+                BATCH_SIZE);
+        bytes.train(trainBytes, ByteDataset.of(valid), EPOCHS, 0, 0.0, BATCH_SIZE);
+        assertArrayEquals(arrays.predict(valid.getFeatures()), bytes.predict(valid.getFeatures()));
+    }
+
+    private static void assertDecodesTo(DataPair expected, ByteDataset bytes) {
+        DataPair decoded = bytes.toDataPair();
+        assertArrayEquals(expected.getFeatures(), decoded.getFeatures());
+        assertArrayEquals(expected.getLabels(), decoded.getLabels());
+    }
+
+    private static MLP model(Precision precision) {
+        return new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                precision, 784, 64, 10);
+    }
+}
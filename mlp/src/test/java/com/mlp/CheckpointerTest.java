@@ -0,0 +1,98 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+import com.mlp.Optimizer.MomentumOptimizer;
+import com.mlp.Optimizer.Optimizer;
+import com.mlp.Optimizer.RMSPropOptimizer;
+
+// A run resumed from a checkpoint must end with exactly the weights of the run that wrote it.
+class CheckpointerTest {
+
+    private static final int SAMPLES = 200;
+    private static final int BATCH_SIZE = 16;
+    private static final int EPOCHS = 3;
+    // 13 steps per epoch, so the last checkpoint (step 34) falls in the middle of the third epoch.
+    private static final int CHECKPOINT_STEPS = 17;
+
+    @TempDir
+    Path dir;
+
+    private double[][][] train;
+    private double[][][] valid;
+
+    @BeforeEach
+    void createData() {
+        Random rand = new Random(47);
+        double[][] centers = TestData.classCenters(rand, 10, 64);
+        train = TestData.syntheticClassification(rand, centers, SAMPLES, 0.5);
+        valid = TestData.syntheticClassification(rand, centers, 50, 0.5);
+    }
+
+    @Test
+    void adamResumesMidEpoch() throws IOException {
+        assertResumesMidEpoch(() -> new AdamOptimizer(0.01), Precision.DOUBLE);
+    }
+
+    @Test
+    void momentumResumesMidEpoch() throws IOException {
+        assertResumesMidEpoch(() -> new MomentumOptimizer(0.05, 0.9), Precision.DOUBLE);
+    }
+
+    @Test
+    void rmsPropResumesMidEpoch() throws IOException {
+        assertResumesMidEpoch(() -> new RMSPropOptimizer(0.005), Precision.DOUBLE);
+    }
+
+    @Test
+    void floatAdamResumesMidEpoch() throws IOException {
+        assertResumesMidEpoch(() -> new AdamOptimizer(0.01), Precision.FLOAT);
+    }
+
+    // The loss threshold stops the run after its first epoch, before any step or epoch checkpoint is due.
+    @Test
+    void earlyStopLeavesACheckpointOfTheFinalWeights() throws IOException {
+        Path file = dir.resolve("stopped.mlpc");
+        MLP stopped = model(new AdamOptimizer(0.01), Precision.DOUBLE);
+        try (Checkpointer checkpointer = new Checkpointer(file, CHECKPOINT_STEPS, EPOCHS)) {
+            stopped.train(train[0], train[1], valid[0], valid[1], EPOCHS, 5, 1e6, BATCH_SIZE, checkpointer);
+        }
+        assertTrue(Files.exists(file), "no checkpoint was written");
+
+        MLP resumed = model(new AdamOptimizer(0.01), Precision.DOUBLE);
+        resumed.resume(file);
+        resumed.train(train[0], train[1], valid[0], valid[1], EPOCHS, 5, 1e6, BATCH_SIZE);
+        assertArrayEquals(stopped.predict(valid[0]), resumed.predict(valid[0]));
+    }
+
+    private void assertResumesMidEpoch(Supplier<Optimizer> optimizer, Precision precision) throws IOException {
+        Path file = dir.resolve("run.mlpc");
+        MLP uninterrupted = model(optimizer.get(), precision);
+        try (Checkpointer checkpointer = new Checkpointer(file, CHECKPOINT_STEPS, 0)) {
+            uninterrupted.train(train[0], train[1], valid[0], valid[1], EPOCHS, 5, 0.0, BATCH_SIZE, checkpointer);
+        }
+        MLP resumed = model(optimizer.get(), precision);
+        resumed.resume(file);
+        resumed.train(train[0], train[1], valid[0], valid[1], EPOCHS, 5, 0.0, BATCH_SIZE);
+        assertArrayEquals(uninterrupted.predict(valid[0]), resumed.predict(valid[0]));
+    }
+
+    private static MLP model(Optimizer optimizer, Precision precision) {
+        return new MLP(optimizer, TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(), precision, 64,
+                32, 10);
+    }
+}
@@ -0,0 +1,140 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// CsvLoader must return exactly what the line-and-String loader it replaced returned.
+class CsvLoaderTest {
+
+    // Large enough (about 23 MB) that four threads load it in several chunks.
+    private static final int PARALLEL_ROWS = 12000;
+    private static final int[] THREADS = { 1, 2, 4 };
+
+    private static final String EDGE_CASES = "label,a,b,c\n"
+            + "1,0,128,255\n"
+            + "2, 3 ,4,5\r\n"
+            + "0,1.5,2e1,-0\n"
+            + "3,1,2\n"
+            + "7,1,2,3\n"
+            + "\n"
+            + "4,10,20,30,\n"
+            + "1,1,2,3,4\n"
+            + "2,00007,+8,9";
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void restorePool() {
+        Matrix.setParallelPool(ForkJoinPool.commonPool());
+    }
+
+    // Valid rows, skipped rows (too short, too long, label out of range, blank), CRLF line ends, decimals, exponents,
+    // signs, a trailing delimiter and no newline at the end of the file.
+    @Test
+    void edgeCasesMatchTheReferenceLoader() throws IOException {
+        Path file = dir.resolve("edge.csv");
+        Files.writeString(file, EDGE_CASES);
+        assertMatchesReference(file, 5, 3, -1);
+        assertMatchesReference(file, 5, 3, 2);
+    }
+
+    @Test
+    void mnistStyleFileMatchesTheReferenceLoader() throws IOException {
+        Path file = dir.resolve("mnist.csv");
+        TestData.writeMnistCsv(file, new Random(67), 2000);
+        assertMatchesReference(file, 10, 784, -1);
+        assertMatchesReference(file, 10, 784, 500);
+    }
+
+    // Whatever the chunking: the same rows, the same cut for a limit ending mid-file, and the first malformed row
+    // reported when a later chunk holds another one.
+    @Test
+    void chunkedLoadGivesTheSameResultOnEveryThreadCount() throws IOException {
+        Path file = dir.resolve("mnist.csv");
+        TestData.writeMnistCsv(file, new Random(67), PARALLEL_ROWS);
+        Path broken = dir.resolve("broken.csv");
+        try (BufferedReader in = Files.newBufferedReader(file);
+                BufferedWriter out = Files.newBufferedWriter(broken)) {
+            String line;
+            for (int i = 0; (line = in.readLine()) != null; i++) {
+                out.write(i == 8000 ? line.replace(",0,", ",x,") : i == 10000 ? line.replace(",0,", ",y,") : line);
+                out.write('\n');
+            }
+        }
+
+        double[][][] all = Reference.load(file.toString(), 10, 784, ",", true, -1);
+        double[][][] limited = Reference.load(file.toString(), 10, 784, ",", true, 10000);
+        for (int threads : THREADS) {
+            Matrix.setParallelism(threads);
+            DataPair loaded = CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+            assertArrayEquals(all[0], loaded.getFeatures(), threads + " threads");
+            assertArrayEquals(all[1], loaded.getLabels(), threads + " threads");
+            loaded = CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, 10000);
+            assertArrayEquals(limited[0], loaded.getFeatures(), threads + " threads, limit 10000");
+            assertArrayEquals(limited[1], loaded.getLabels(), threads + " threads, limit 10000");
+            NumberFormatException e = assertThrows(NumberFormatException.class,
+                    () -> CsvLoader.loadCsvData(broken.toString(), 10, 784, ",", true, -1));
+            assertTrue(e.getMessage().startsWith("Line 8001, "), threads + " threads: " + e.getMessage());
+        }
+    }
+
+    private static void assertMatchesReference(Path file, int classes, int features, int limit) throws IOException {
+        DataPair loaded = CsvLoader.loadCsvData(file.toString(), classes, features, ",", true, limit);
+        double[][][] expected = Reference.load(file.toString(), classes, features, ",", true, limit);
+        assertArrayEquals(expected[0], loaded.getFeatures(), "features, limit " + limit);
+        assertArrayEquals(expected[1], loaded.getLabels(), "labels, limit " + limit);
+    }
+
+    // CsvLoader as it was: BufferedReader lines, a regex split and trim + parse per field.
+    private static final class Reference {
+        static double[][][] load(String filePath, int numClasses, int expectedFeatures, String delimiter,
+                boolean hasHeader, int limit) throws IOException {
+            List<double[]> featureList = new ArrayList<>();
+            List<double[]> labelList = new ArrayList<>();
+            String line;
+            int rowsRead = 0;
+            try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+                if (hasHeader) {
+                    br.readLine();
+                }
+                while ((line = br.readLine()) != null && (limit <= 0 || rowsRead < limit)) {
+                    String[] values = line.split(delimiter);
+                    if (values.length != expectedFeatures + 1) {
+                        continue;
+                    }
+                    int labelValue = Integer.parseInt(values[0].trim());
+                    if (labelValue < 0 || labelValue >= numClasses) {
+                        continue;
+                    }
+                    double[] oneHotLabel = new double[numClasses];
+                    oneHotLabel[labelValue] = 1.0;
+                    labelList.add(oneHotLabel);
+                    double[] features = new double[expectedFeatures];
+                    for (int i = 0; i < expectedFeatures; i++) {
+                        features[i] = Double.parseDouble(values[i + 1].trim()) / 255.0;
+                    }
+                    featureList.add(features);
+                    rowsRead++;
+                }
+            }
+            return new double[][][] { featureList.toArray(new double[0][]), labelList.toArray(new double[0][]) };
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+class DataParallelTrainerTest {
+
+    private static final int WORKERS = 4;
+    private static final int STEPS = 10;
+    private static final int BATCH_SIZE = 256;
+    private static final double TOLERANCE = 1e-9;
+
+    // The workers' gradients are summed in a different order than one pass over the whole batch adds them, so the
+    // weights agree to rounding, not bit for bit.
+    @Test
+    void stepsMatchTheSingleThreadedModel() {
+        Random rand = new Random(29);
+        double[][][] data = TestData.syntheticClassification(rand, TestData.classCenters(rand, 10, 196),
+                STEPS * BATCH_SIZE, 0.7);
+        DenseMatrix x = DenseMatrix.of(data[0]);
+        DenseMatrix y = DenseMatrix.of(data[1]);
+        MLP single = model();
+        MLP parallel = model();
+        TestData.initWeights(single, 3);
+        TestData.initWeights(parallel, 3);
+        try (DataParallelTrainer trainer = new DataParallelTrainer(parallel, WORKERS)) {
+            for (int s = 0; s < STEPS; s++) {
+                DenseMatrix input = x.rowRange(s * BATCH_SIZE, (s + 1) * BATCH_SIZE);
+                DenseMatrix target = y.rowRange(s * BATCH_SIZE, (s + 1) * BATCH_SIZE);
+                single.forward(input);
+                single.backward(target);
+                single.updateWeights();
+                trainer.step(input, target);
+            }
+        }
+        for (int l = 0; l < single.getLayers().size(); l++) {
+            DenseMatrix a = single.getLayers().get(l).getWeights();
+            DenseMatrix b = parallel.getLayers().get(l).getWeights();
+            for (int i = 0; i < a.getRows(); i++) {
+                for (int j = 0; j < a.getCols(); j++) {
+                    assertEquals(a.get(i, j), b.get(i, j), TOLERANCE, "layer " + l + " weight (" + i + ", " + j + ")");
+                }
+            }
+        }
+    }
+
+    private static MLP model() {
+        return new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                196, 64, 10);
+    }
+}
@@ -0,0 +1,104 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Loads through DatasetCache must give exactly what parsing the CSV gives, and the cache must follow the source's
+// bytes, not its timestamp.
+class DatasetCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private Path cache;
+
+    @BeforeEach
+    void writeCsv() throws IOException {
+        file = dir.resolve("mnist.csv");
+        cache = DatasetCache.cacheFile(file);
+        TestData.writeMnistCsv(file, new Random(71), 2000);
+    }
+
+    @Test
+    void firstAndCachedLoadsMatchParsing() throws IOException {
+        DataPair parsed = CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+        assertSameRows(parsed, DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, -1));
+        assertTrue(Files.exists(cache), "the first load did not write a cache");
+        assertSameRows(parsed, DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, -1));
+        assertSameRows(CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, 1000),
+                DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, 1000));
+    }
+
+    // A rebuilt cache is moved into place as a new file; a restamped one is the same file.
+    @Test
+    void touchedSourceKeepsTheCache() throws IOException {
+        DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, -1);
+        Object cacheKey = Files.readAttributes(cache, BasicFileAttributes.class).fileKey();
+        assertNotNull(cacheKey, "the file system has no file keys");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, 10);
+        assertEquals(cacheKey, Files.readAttributes(cache, BasicFileAttributes.class).fileKey());
+    }
+
+    // Same size, different content and timestamp: only the checksum tells.
+    @Test
+    void changedSourceRebuildsTheCache() throws IOException {
+        DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, -1);
+        Object cacheKey = Files.readAttributes(cache, BasicFileAttributes.class).fileKey();
+        byte[] bytes = Files.readAllBytes(file);
+        int firstRow = indexOf(bytes, (byte) '\n') + 1;
+        bytes[firstRow] = (byte) (bytes[firstRow] == '9' ? '8' : bytes[firstRow] + 1);
+        Files.write(file, bytes);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 120_000));
+        assertSameRows(CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, 10),
+                DatasetCache.loadCsv(file.toString(), 10, 784, ",", true, 10));
+        assertNotEquals(cacheKey, Files.readAttributes(cache, BasicFileAttributes.class).fileKey());
+    }
+
+    @Test
+    void fractionalFeaturesAreCachedAsFloat32() throws IOException {
+        Path decimals = dir.resolve("decimals.csv");
+        Files.writeString(decimals, "y,a,b\n1,0.25,3\n0,-1.5,1e-3\n2,255,7\n");
+        DatasetCache.loadCsv(decimals.toString(), 3, 2, ",", true, -1);
+        DataPair floats = DatasetCache.loadCsv(decimals.toString(), 3, 2, ",", true, -1);
+        DataPair expected = CsvLoader.loadCsvData(decimals.toString(), 3, 2, ",", true, -1);
+        double[][] rounded = new double[expected.getFeatures().length][];
+        for (int i = 0; i < rounded.length; i++) {
+            rounded[i] = new double[expected.getFeatures()[i].length];
+            for (int j = 0; j < rounded[i].length; j++) {
+                rounded[i][j] = (float) expected.getFeatures()[i][j];
+            }
+        }
+        assertArrayEquals(rounded, floats.getFeatures());
+        assertArrayEquals(expected.getLabels(), floats.getLabels());
+    }
+
+    private static void assertSameRows(DataPair expected, DataPair actual) {
+        assertArrayEquals(expected.getFeatures(), actual.getFeatures());
+        assertArrayEquals(expected.getLabels(), actual.getLabels());
+    }
+
+    private static int indexOf(byte[] bytes, byte b) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,232 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// Every Dataset source must stream exactly the rows CsvLoader gives, whatever the precision and prefetching.
+class DatasetTest {
+
+    private static final int ROWS = 2000;
+    private static final int TRAIN_ROWS = 1000;
+    private static final int EPOCHS = 2;
+    private static final int BATCH_SIZE = 32;
+    private static final int[] PREFETCH = { 0, 4 };
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private Path images;
+    private Path labels;
+    private DataPair parsed;
+
+    @BeforeEach
+    void writeFiles() throws IOException {
+        file = dir.resolve("mnist.csv");
+        images = dir.resolve("images.idx");
+        labels = dir.resolve("labels.idx");
+        TestData.writeMnistCsv(file, new Random(83), ROWS);
+        parsed = CsvLoader.loadCsvData(file.toString(), 10, 784, ",", true, -1);
+        writeIdx(ByteDataset.of(parsed), images, labels);
+    }
+
+    @Test
+    void everySourceYieldsTheRowsInStorageOrder() throws IOException {
+        for (Dataset source : sources()) {
+            for (int prefetch : PREFETCH) {
+                source.setPrefetch(prefetch);
+                for (Precision precision : Precision.values()) {
+                    assertInStorageOrder(source, precision);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shuffledPassYieldsEveryRowOnce() throws IOException {
+        for (Dataset source : sources()) {
+            for (int prefetch : PREFETCH) {
+                source.setPrefetch(prefetch);
+                assertShuffled(source);
+            }
+        }
+    }
+
+    @Test
+    void nonByteFeaturesAreRejected() throws IOException {
+        Path bad = dir.resolve("bad.csv");
+        Files.writeString(bad, "y,a,b\n1,3,300\n");
+        try (BatchIterator batches = Dataset.csv(bad.toString(), 3, 2, ",", true).batches(8, Precision.DOUBLE,
+                null)) {
+            assertThrows(RuntimeException.class, batches::next);
+        }
+    }
+
+    @Test
+    void emptyValidationSetIsRejected() throws IOException {
+        Path empty = dir.resolve("empty.csv");
+        Files.writeString(empty, "label\n");
+        MLP mlp = model(Precision.DOUBLE);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> mlp.train(Dataset.csv(file.toString(), 10, 784, ",", true),
+                        Dataset.csv(empty.toString(), 10, 784, ",", true), 1, 0, 0.0, BATCH_SIZE));
+        assertEquals("The validation dataset has no samples.", e.getMessage());
+    }
+
+    @Test
+    void prefetchingDoesNotChangeDoubleTraining() throws IOException {
+        assertPrefetchingDoesNotChangeTraining(Precision.DOUBLE);
+    }
+
+    @Test
+    void prefetchingDoesNotChangeFloatTraining() throws IOException {
+        assertPrefetchingDoesNotChangeTraining(Precision.FLOAT);
+    }
+
+    private void assertPrefetchingDoesNotChangeTraining(Precision precision) throws IOException {
+        Path trainFile = dir.resolve("train.csv");
+        Path validFile = dir.resolve("valid.csv");
+        Random rand = new Random(89);
+        TestData.writeMnistCsv(trainFile, rand, TRAIN_ROWS);
+        TestData.writeMnistCsv(validFile, rand, 200);
+        DataPair valid = CsvLoader.loadCsvData(validFile.toString(), 10, 784, ",", true, -1);
+        Dataset train = Dataset.csv(trainFile.toString(), 10, 784, ",", true);
+        Dataset validStream = Dataset.of(ByteDataset.of(valid));
+
+        MLP direct = model(precision);
+        MLP prefetched = model(precision);
+        for (int l = 0; l < direct.getLayers().size(); l++) {
+            prefetched.getLayers().get(l).setWeights(direct.getLayers().get(l).getWeights().copy());
+            prefetched.getLayers().get(l).setBiases(direct.getLayers().get(l).getBiases().copy());
+        }
+        for (int l = 0; l < direct.getFloatLayers().size(); l++) {
+            prefetched.getFloatLayers().get(l).setWeights(direct.getFloatLayers().get(l).getWeights().copy());
+            prefetched.getFloatLayers().get(l).setBiases(direct.getFloatLayers().get(l).getBiases().copy());
+        }
+        direct.setShuffleSeed(89);
+        prefetched.setShuffleSeed(89);
+        direct.train(train.setPrefetch(0), validStream, EPOCHS, 0, 0.0, BATCH_SIZE);
+        prefetched.train(train.setPrefetch(4), validStream, EPOCHS, 0, 0.0, BATCH_SIZE);
+        assertArrayEquals(direct.predict(valid.getFeatures()), prefetched.predict(valid.getFeatures()));
+    }
+
+    private Dataset[] sources() throws IOException {
+        return new Dataset[] {
+                Dataset.csv(file.toString(), 10, 784, ",", true),
+                Dataset.idx(images.toString(), labels.toString(), 10),
+                Dataset.cached(file.toString(), 10, 784, ",", true),
+                Dataset.of(ByteDataset.of(parsed)) };
+    }
+
+    private void assertInStorageOrder(Dataset data, Precision precision) throws IOException {
+        double[][] features = parsed.getFeatures();
+        double[][] targets = parsed.getLabels();
+        int row = 0;
+        try (BatchIterator batches = data.batches(BATCH_SIZE, precision, null)) {
+            double[] sample = new double[data.getFeatureCount()];
+            double[] target = new double[data.getClassCount()];
+            double[] want = new double[sample.length];
+            while (batches.next()) {
+                for (int i = 0; i < batches.rows(); i++, row++) {
+                    assertTrue(row < features.length, "more rows than the CSV has");
+                    for (int j = 0; j < sample.length; j++) {
+                        sample[j] = precision == Precision.FLOAT ? batches.floatInputs().get(i, j)
+                                : batches.inputs().get(i, j);
+                        want[j] = precision == Precision.FLOAT ? (float) features[row][j] : features[row][j];
+                    }
+                    for (int j = 0; j < target.length; j++) {
+                        target[j] = precision == Precision.FLOAT ? batches.floatTargets().get(i, j)
+                                : batches.targets().get(i, j);
+                    }
+                    assertArrayEquals(want, sample, precision + " row " + row + " features");
+                    assertArrayEquals(targets[row], target, precision + " row " + row + " target");
+                }
+            }
+        }
+        assertEquals(features.length, row);
+    }
+
+    // Every row once, not all in place: the sorted row fingerprints match those in storage order.
+    private void assertShuffled(Dataset data) throws IOException {
+        double[][] features = parsed.getFeatures();
+        double[][] targets = parsed.getLabels();
+        double[] want = new double[features.length];
+        for (int row = 0; row < features.length; row++) {
+            want[row] = fingerprint(features[row], targets[row]);
+        }
+        double[] got = new double[features.length];
+        int rows = 0;
+        boolean moved = false;
+        try (BatchIterator batches = data.batches(BATCH_SIZE, Precision.DOUBLE, new Random(101))) {
+            double[] sample = new double[data.getFeatureCount()];
+            double[] target = new double[data.getClassCount()];
+            while (batches.next()) {
+                for (int i = 0; i < batches.rows(); i++, rows++) {
+                    assertTrue(rows < got.length, "more rows than the CSV has");
+                    for (int j = 0; j < sample.length; j++) {
+                        sample[j] = batches.inputs().get(i, j);
+                    }
+                    for (int j = 0; j < target.length; j++) {
+                        target[j] = batches.targets().get(i, j);
+                    }
+                    got[rows] = fingerprint(sample, target);
+                    moved |= got[rows] != want[rows];
+                }
+            }
+        }
+        assertEquals(features.length, rows);
+        assertTrue(moved, "the shuffled pass kept storage order");
+        Arrays.sort(want);
+        Arrays.sort(got);
+        assertArrayEquals(want, got);
+    }
+
+    private static double fingerprint(double[] features, double[] target) {
+        double sum = 0;
+        for (int j = 0; j < features.length; j++) {
+            sum += features[j] * (j + 1);
+        }
+        for (int j = 0; j < target.length; j++) {
+            sum += target[j] * j * 1e6;
+        }
+        return sum;
+    }
+
+    private static void writeIdx(ByteDataset data, Path images, Path labels) throws IOException {
+        int size = data.inputCount();
+        ByteBuffer imageBytes = ByteBuffer.allocate(16 + data.size() * size);
+        imageBytes.putInt(2051).putInt(data.size()).putInt(28).putInt(size / 28);
+        ByteBuffer labelBytes = ByteBuffer.allocate(8 + data.size());
+        labelBytes.putInt(2049).putInt(data.size());
+        for (int row = 0; row < data.size(); row++) {
+            for (int j = 0; j < size; j++) {
+                imageBytes.put((byte) data.getPixel(row, j));
+            }
+            labelBytes.put((byte) data.getLabel(row));
+        }
+        Files.write(images, imageBytes.array());
+        Files.write(labels, labelBytes.array());
+    }
+
+    private static MLP model(Precision precision) {
+        return new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                precision, 784, 64, 10);
+    }
+}
@@ -0,0 +1,97 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+
+// The blocked kernels against the textbook triple loop, on shapes that are smaller than one block, straddle block
+// edges and use row views of larger matrices.
+class GemmTest {
+
+    private static final double TOLERANCE = 1e-12;
+    // { rows of A, inner dimension, columns of B }
+    private static final int[][] SHAPES = { { 1, 1, 1 }, { 3, 7, 5 }, { 65, 129, 257 }, { 70, 300, 130 } };
+
+    @Test
+    void multiplyMatchesTripleLoop() {
+        Random rand = new Random(1);
+        for (int[] shape : SHAPES) {
+            DenseMatrix a = view(rand, shape[0], shape[1]);
+            DenseMatrix b = view(rand, shape[1], shape[2]);
+            assertClose(naiveMultiply(a, b), Matrix.multiply(a, b));
+        }
+    }
+
+    @Test
+    void multiplyTransAMatchesTripleLoop() {
+        Random rand = new Random(2);
+        for (int[] shape : SHAPES) {
+            DenseMatrix at = view(rand, shape[1], shape[0]);
+            DenseMatrix b = view(rand, shape[1], shape[2]);
+            assertClose(naiveMultiply(Matrix.transpose(at), b), Matrix.multiplyTransA(at, b));
+        }
+    }
+
+    @Test
+    void multiplyTransBMatchesTripleLoop() {
+        Random rand = new Random(3);
+        for (int[] shape : SHAPES) {
+            DenseMatrix a = view(rand, shape[0], shape[1]);
+            DenseMatrix bt = view(rand, shape[2], shape[1]);
+            assertClose(naiveMultiply(a, Matrix.transpose(bt)), Matrix.multiplyTransB(a, bt));
+        }
+    }
+
+    @Test
+    void denseForwardMatchesUnfusedOps() {
+        Random rand = new Random(4);
+        ReLU relu = new ReLU();
+        for (int[] shape : SHAPES) {
+            DenseMatrix input = view(rand, shape[0], shape[1]);
+            DenseMatrix weights = view(rand, shape[2], shape[1]);
+            DenseMatrix bias = TestData.random(rand, 1, shape[2]);
+            DenseMatrix expected = naiveMultiply(input, Matrix.transpose(weights));
+            for (int i = 0; i < expected.getRows(); i++) {
+                for (int j = 0; j < expected.getCols(); j++) {
+                    expected.set(i, j, relu.activate(expected.get(i, j) + bias.get(0, j)));
+                }
+            }
+            assertClose(expected, Matrix.denseForwardInto(new DenseMatrix(shape[0], shape[2]), input, weights, bias,
+                    relu));
+        }
+    }
+
+    // Rows 1..rows of a larger matrix, so the kernels see a non-zero offset.
+    private static DenseMatrix view(Random rand, int rows, int cols) {
+        return TestData.random(rand, rows + 2, cols).rowRange(1, rows + 1);
+    }
+
+    private static DenseMatrix naiveMultiply(DenseMatrix a, DenseMatrix b) {
+        DenseMatrix result = new DenseMatrix(a.getRows(), b.getCols());
+        for (int i = 0; i < a.getRows(); ++i) {
+            for (int j = 0; j < b.getCols(); ++j) {
+                double sum = 0.0;
+                for (int k = 0; k < a.getCols(); ++k) {
+                    sum += a.get(i, k) * b.get(k, j);
+                }
+                result.set(i, j, sum);
+            }
+        }
+        return result;
+    }
+
+    private static void assertClose(DenseMatrix expected, DenseMatrix actual) {
+        assertEquals(expected.getRows(), actual.getRows());
+        assertEquals(expected.getCols(), actual.getCols());
+        for (int i = 0; i < expected.getRows(); i++) {
+            for (int j = 0; j < expected.getCols(); j++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), TOLERANCE * Math.max(1.0,
+                        Math.abs(expected.get(i, j))), "element (" + i + ", " + j + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// Accumulating the gradients of micro-batches must give exactly the weights of one step on the whole batch, whether
+// or not the micro-batch size divides it.
+class GradientAccumulationTest {
+
+    private static final int[] SIZES = { 784, 128, 64, 10 };
+    private static final int BATCH = 512;
+    private static final int STEPS = 3;
+    private static final int[] MICRO_BATCHES = { 256, 64, 100, 7 };
+
+    @Test
+    void heapModelAccumulatesLikeTheWholeBatch() {
+        for (int micro : MICRO_BATCHES) {
+            assertAccumulatesLikeTheWholeBatch(Precision.DOUBLE, ParameterStore.heap(), micro);
+        }
+    }
+
+    @Test
+    void offHeapModelAccumulatesLikeTheWholeBatch() throws IOException {
+        for (int micro : MICRO_BATCHES) {
+            try (ParameterStore store = ParameterStore.direct()) {
+                assertAccumulatesLikeTheWholeBatch(Precision.DOUBLE, store, micro);
+            }
+        }
+    }
+
+    @Test
+    void floatModelAccumulatesLikeTheWholeBatch() {
+        for (int micro : MICRO_BATCHES) {
+            assertAccumulatesLikeTheWholeBatch(Precision.FLOAT, ParameterStore.heap(), micro);
+        }
+    }
+
+    private static void assertAccumulatesLikeTheWholeBatch(Precision precision, ParameterStore store, int micro) {
+        Random rand = new Random(53);
+        DenseMatrix x = TestData.random(rand, BATCH, SIZES[0]);
+        DenseMatrix y = TestData.oneHot(rand, BATCH, SIZES[SIZES.length - 1]);
+        MLP whole = model(precision, store);
+        MLP accumulated = model(precision, store);
+        if (precision == Precision.FLOAT) {
+            for (int l = 0; l < whole.getFloatLayers().size(); l++) {
+                FloatLayer src = whole.getFloatLayers().get(l);
+                FloatLayer dst = accumulated.getFloatLayers().get(l);
+                dst.setWeights(src.getWeights().copy());
+                dst.setBiases(src.getBiases().copy());
+            }
+        } else {
+            TestData.initWeights(whole, 59);
+            TestData.initWeights(accumulated, 59);
+        }
+
+        for (int step = 0; step < STEPS; step++) {
+            if (precision == Precision.FLOAT) {
+                FloatMatrix xf = FloatMatrix.of(x.toArray());
+                FloatMatrix yf = FloatMatrix.of(y.toArray());
+                whole.forward(xf);
+                whole.backward(yf);
+                for (int from = 0; from < BATCH; from += micro) {
+                    int to = Math.min(from + micro, BATCH);
+                    accumulated.forward(xf.rowRange(from, to));
+                    accumulated.backwardAccumulate(yf.rowRange(from, to));
+                }
+            } else {
+                whole.forward(x);
+                whole.backward(y);
+                for (int from = 0; from < BATCH; from += micro) {
+                    int to = Math.min(from + micro, BATCH);
+                    accumulated.forward(x.rowRange(from, to));
+                    accumulated.backwardAccumulate(y.rowRange(from, to));
+                }
+            }
+            whole.updateWeights();
+            accumulated.updateWeights();
+        }
+        assertArrayEquals(whole.predict(x.toArray()), accumulated.predict(x.toArray()),
+                precision + " micro-batch " + micro);
+    }
+
+    private static MLP model(Precision precision, ParameterStore store) {
+        return new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                precision, store, SIZES);
+    }
+}
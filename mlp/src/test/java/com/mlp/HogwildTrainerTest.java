@@ -0,0 +1,72 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.MomentumOptimizer;
+import com.mlp.Optimizer.Optimizer;
+import com.mlp.Optimizer.SGDOptimizer;
+
+// Hogwild workers race on the shared weights, so its runs are not reproducible; the test only asks that it converges
+// about as well as synchronous training from the same start.
+class HogwildTrainerTest {
+
+    private static final int WORKERS = 4;
+    private static final int BATCH_SIZE = 32;
+    private static final int EPOCHS = 3;
+    private static final double LEARNING_RATE = 0.05;
+    private static final double MAX_ACCURACY_GAP = 0.02;
+
+    @Test
+    void sgdConvergesLikeSynchronousTraining() {
+        assertConvergesLikeSynchronousTraining(() -> new SGDOptimizer(LEARNING_RATE));
+    }
+
+    @Test
+    void momentumConvergesLikeSynchronousTraining() {
+        assertConvergesLikeSynchronousTraining(() -> new MomentumOptimizer(LEARNING_RATE / 5, 0.9));
+    }
+
+    private static void assertConvergesLikeSynchronousTraining(Supplier<Optimizer> optimizer) {
+        Random rand = new Random(31);
+        double[][] centers = TestData.classCenters(rand, 10, 196);
+        double[][][] train = TestData.syntheticClassification(rand, centers, 3000, 0.5);
+        double[][][] test = TestData.syntheticClassification(rand, centers, 1000, 0.5);
+        DenseMatrix x = DenseMatrix.of(train[0]);
+        DenseMatrix y = DenseMatrix.of(train[1]);
+
+        MLP syncModel = model(optimizer.get());
+        TestData.initWeights(syncModel, 37);
+        try (DataParallelTrainer trainer = new DataParallelTrainer(syncModel, WORKERS)) {
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                for (int from = 0; from < x.getRows(); from += BATCH_SIZE) {
+                    int to = Math.min(from + BATCH_SIZE, x.getRows());
+                    trainer.step(x.rowRange(from, to), y.rowRange(from, to));
+                }
+            }
+        }
+        MLP hogwildModel = model(optimizer.get());
+        TestData.initWeights(hogwildModel, 37);
+        try (HogwildTrainer trainer = new HogwildTrainer(hogwildModel, WORKERS, optimizer)) {
+            for (int epoch = 0; epoch < EPOCHS; epoch++) {
+                trainer.trainEpoch(x, y, BATCH_SIZE);
+            }
+        }
+
+        double syncAccuracy = TestData.accuracy(syncModel, test[0], test[1]);
+        double hogwildAccuracy = TestData.accuracy(hogwildModel, test[0], test[1]);
+        assertTrue(syncAccuracy > 0.5, "synchronous training did not learn the task: " + syncAccuracy);
+        assertTrue(syncAccuracy - hogwildAccuracy <= MAX_ACCURACY_GAP,
+                "Hogwild test accuracy " + hogwildAccuracy + " trails synchronous " + syncAccuracy);
+    }
+
+    private static MLP model(Optimizer optimizer) {
+        return new MLP(optimizer, TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(), 196, 64, 10);
+    }
+}
@@ -0,0 +1,126 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+class InferenceSessionTest {
+
+    private static final int SAMPLES = 512;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20;
+    private static final int WARMUP_CALLS = 10_000;
+    private static final int MEASURED_CALLS = 500;
+    private static final int MAX_ROUNDS = 20;
+
+    @AfterEach
+    void restorePool() {
+        Matrix.setParallelPool(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void predictMatchesForwardOnTheHeap() {
+        assertPredictMatchesForward(model(Precision.DOUBLE, ParameterStore.heap(), 784, 128, 64, 10), 1e-12);
+    }
+
+    @Test
+    void predictMatchesForwardOffHeap() throws IOException {
+        try (ParameterStore store = ParameterStore.direct()) {
+            assertPredictMatchesForward(model(Precision.DOUBLE, store, 784, 128, 64, 10), 1e-12);
+        }
+    }
+
+    @Test
+    void predictMatchesForwardInFloat() {
+        assertPredictMatchesForward(model(Precision.FLOAT, ParameterStore.heap(), 784, 128, 64, 10), 1e-5);
+    }
+
+    @Test
+    void threadsSharingASessionGetTheSingleThreadedResults() throws Exception {
+        double[][] inputs = TestData.random(new Random(17), SAMPLES, 784).toArray();
+        InferenceSession session = model(Precision.DOUBLE, ParameterStore.heap(), 784, 128, 64, 10)
+                .getInferenceSession();
+        double[][] expected = session.predict(inputs);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int first = t;
+                results.add(executor.submit(() -> {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int i = first; i < SAMPLES; i += THREADS) {
+                            int sample = (i + round) % SAMPLES;
+                            assertArrayEquals(expected[sample], session.predict(inputs[sample]), "sample " + sample);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void predictIntoDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "no per-thread allocation counters");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // Forked GEMM tiles allocate their tasks; the check is about the calling thread's own buffers.
+        Matrix.setParallelism(1);
+
+        InferenceSession session = model(Precision.DOUBLE, ParameterStore.heap(), 64, 32, 10).getInferenceSession();
+        DenseMatrix input = TestData.random(new Random(3), 32, 64);
+        DenseMatrix output = new DenseMatrix(32, 10);
+        // As in MLPTest, rounds run until the JIT has compiled the loop (or the rounds run out).
+        double perCall = Double.NaN;
+        for (int round = 0; round < MAX_ROUNDS && !(perCall < 1.0); round++) {
+            for (int i = 0; i < WARMUP_CALLS; i++) {
+                session.predictInto(output, input);
+            }
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                session.predictInto(output, input);
+            }
+            perCall = (double) (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED_CALLS;
+        }
+        assertEquals(0.0, perCall, 1.0, "bytes per predictInto");
+    }
+
+    private static void assertPredictMatchesForward(MLP mlp, double tolerance) {
+        DenseMatrix x = TestData.random(new Random(17), SAMPLES, 784);
+        DenseMatrix forward = mlp.forward(x);
+        DenseMatrix predicted = mlp.predictInto(new DenseMatrix(SAMPLES, 10), x);
+        for (int i = 0; i < SAMPLES; i++) {
+            for (int j = 0; j < 10; j++) {
+                assertEquals(forward.get(i, j), predicted.get(i, j), tolerance, "output (" + i + ", " + j + ")");
+            }
+        }
+    }
+
+    private static MLP model(Precision precision, ParameterStore store, int... sizes) {
+        return new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                precision, store, sizes);
+    }
+}
@@ -0,0 +1,96 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KernelBackendTest {
+
+    private static final double TOLERANCE = 1e-9;
+    private static final int[][] SHAPES = { { 1, 1 }, { 3, 7 }, { 17, 33 }, { 64, 128 }, { 37, 785 } };
+
+    private KernelBackend initial;
+
+    @BeforeEach
+    void rememberBackend() {
+        initial = Matrix.getKernelBackend();
+    }
+
+    @AfterEach
+    void restoreBackend() {
+        Matrix.setKernelBackend(initial);
+    }
+
+    @Test
+    void vectorKernelsMatchScalarKernels() {
+        assumeTrue(KernelBackend.VECTOR.isAvailable(), "jdk.incubator.vector is not available");
+        Random rand = new Random(7);
+        for (Map.Entry<String, Function<DenseMatrix[], Object>> op : operations().entrySet()) {
+            for (int[] shape : SHAPES) {
+                DenseMatrix[] m = operands(rand, shape[0], shape[1]);
+                Matrix.setKernelBackend(KernelBackend.SCALAR);
+                double[] expected = flatten(op.getValue().apply(m));
+                Matrix.setKernelBackend(KernelBackend.VECTOR);
+                double[] actual = flatten(op.getValue().apply(m));
+                double error = maxRelativeError(expected, actual);
+                assertTrue(error <= TOLERANCE, String.format("%s on %dx%d: max relative error %.3e", op.getKey(),
+                        shape[0], shape[1], error));
+            }
+        }
+    }
+
+    private static Map<String, Function<DenseMatrix[], Object>> operations() {
+        Map<String, Function<DenseMatrix[], Object>> ops = new LinkedHashMap<>();
+        ops.put("add", m -> Matrix.add(m[0], m[1]));
+        ops.put("substract", m -> Matrix.substract(m[0], m[1]));
+        ops.put("multiplyElementWise", m -> Matrix.multiplyElementWise(m[0], m[1]));
+        ops.put("multiply(scalar)", m -> Matrix.multiply(m[0], 0.37));
+        ops.put("square", m -> Matrix.square(m[0]));
+        ops.put("sqrt", m -> Matrix.sqrt(m[2]));
+        ops.put("divide", m -> Matrix.divide(m[0], m[2]));
+        ops.put("dotProduct", m -> Matrix.dotProduct(m[0].getRow(0), m[1].getRow(0)));
+        ops.put("addBiasVectorToRows", m -> Matrix.addBiasVectorToRows(m[0], m[1].rowRange(0, 1)));
+        ops.put("multiply A*B^T", m -> Matrix.multiplyTransB(m[0], m[1]));
+        ops.put("multiply A^T*B", m -> Matrix.multiplyTransA(m[0], m[1]));
+        ops.put("multiply A*B", m -> Matrix.multiply(m[0], m[3]));
+        return ops;
+    }
+
+    private static DenseMatrix[] operands(Random rand, int rows, int cols) {
+        DenseMatrix a = TestData.random(rand, rows, cols);
+        DenseMatrix b = TestData.random(rand, rows, cols);
+        DenseMatrix positive = TestData.random(rand, rows, cols);
+        double[] pd = positive.getData();
+        for (int i = 0; i < pd.length; i++) {
+            pd[i] = Math.abs(pd[i]) + 0.5;
+        }
+        return new DenseMatrix[] { a, b, positive, Matrix.transpose(b) };
+    }
+
+    private static double[] flatten(Object result) {
+        if (result instanceof DenseMatrix) {
+            return ((DenseMatrix) result).copy().getData();
+        }
+        return new double[] { (Double) result };
+    }
+
+    private static double maxRelativeError(double[] expected, double[] actual) {
+        if (expected.length != actual.length) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double worst = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            double scale = Math.max(1.0, Math.abs(expected[i]));
+            worst = Math.max(worst, Math.abs(expected[i] - actual[i]) / scale);
+        }
+        return worst;
+    }
+}
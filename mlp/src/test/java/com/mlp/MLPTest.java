@@ -0,0 +1,122 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+import com.mlp.Optimizer.MomentumOptimizer;
+import com.mlp.Optimizer.Optimizer;
+import com.mlp.Optimizer.RMSPropOptimizer;
+import com.mlp.Optimizer.SGDOptimizer;
+
+class MLPTest {
+
+    private static final int[] BATCH_SIZES = { 1, 32 };
+    private static final int WARMUP_STEPS = 10_000;
+    private static final int MEASURED_STEPS = 500;
+    private static final int MAX_ROUNDS = 20;
+    private static final int[] TRAINING_BATCH_SIZES = { 1, 8, 32, 128 };
+
+    @AfterEach
+    void restorePool() {
+        Matrix.setParallelPool(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void trainingStepDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "no per-thread allocation counters");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // Forked GEMM tiles allocate their tasks; the steady-state check is about the single-threaded hot loop.
+        Matrix.setParallelism(1);
+
+        Map<String, Supplier<Optimizer>> optimizers = new LinkedHashMap<>();
+        optimizers.put("SGD", () -> new SGDOptimizer(0.01));
+        optimizers.put("Momentum", () -> new MomentumOptimizer(0.01, 0.9));
+        optimizers.put("RMSProp", () -> new RMSPropOptimizer(0.001, 0.9, 1e-8));
+        optimizers.put("Adam", () -> new AdamOptimizer(0.001));
+        for (Map.Entry<String, Supplier<Optimizer>> entry : optimizers.entrySet()) {
+            for (int batch : BATCH_SIZES) {
+                // Whether a step allocates does not depend on the layer widths, and a small network warms up quickly.
+                MLP mlp = new MLP(entry.getValue().get(), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                        new ReLU(), 64, 32, 10);
+                Random rand = new Random(3);
+                DenseMatrix input = TestData.random(rand, batch, 64);
+                DenseMatrix target = TestData.oneHot(rand, batch, 10);
+                DenseMatrix prediction = new DenseMatrix(batch, 10);
+
+                // The JIT compiles the loop in the background, so rounds of warm-up and measurement run until the
+                // steady state is reached (or the rounds run out).
+                double perStep = Double.NaN;
+                for (int round = 0; round < MAX_ROUNDS && !(perStep < 1.0); round++) {
+                    for (int i = 0; i < WARMUP_STEPS; i++) {
+                        step(mlp, input, target, prediction);
+                    }
+                    long before = threads.getCurrentThreadAllocatedBytes();
+                    for (int i = 0; i < MEASURED_STEPS; i++) {
+                        step(mlp, input, target, prediction);
+                    }
+                    perStep = (double) (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED_STEPS;
+                }
+                assertEquals(0.0, perStep, 1.0, entry.getKey() + " batch " + batch + " bytes per step");
+            }
+        }
+    }
+
+    @Test
+    void forwardReturnsAMatrixTheCallerOwns() {
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 20, 8, 3);
+        Random rand = new Random(5);
+        DenseMatrix x = TestData.random(rand, 4, 20);
+        DenseMatrix first = mlp.forward(x);
+        double[][] expected = first.toArray();
+        DenseMatrix second = mlp.forward(TestData.random(rand, 4, 20));
+        assertNotSame(first, second);
+        assertArrayEquals(expected, first.toArray());
+        assertArrayEquals(expected, mlp.forwardInto(new DenseMatrix(4, 3), x).toArray());
+    }
+
+    @Test
+    void miniBatchTrainingLearnsAtEveryBatchSize() {
+        Random rand = new Random(23);
+        double[][] centers = TestData.classCenters(rand, 10, 196);
+        // 2000 samples leave a partial last batch for batch sizes 32 and 128.
+        double[][][] train = TestData.syntheticClassification(rand, centers, 2000, 0.4);
+        double[][][] test = TestData.syntheticClassification(rand, centers, 500, 0.4);
+        for (int batchSize : TRAINING_BATCH_SIZES) {
+            // Averaged gradients are less noisy, so larger batches take larger steps (square-root rule, capped).
+            double learningRate = 0.05 * Math.min(Math.sqrt(batchSize), 2.0);
+            MLP mlp = new MLP(new SGDOptimizer(learningRate), TaskType.MULTICLASS_CLASSIFICATION,
+                    WeighInit.HE_UNIFORM, new ReLU(), 196, 64, 10);
+            TestData.initWeights(mlp, 29);
+            mlp.setShuffleSeed(31);
+            mlp.train(train[0], train[1], null, null, 6, 0, 0, batchSize);
+            double accuracy = TestData.accuracy(mlp, test[0], test[1]);
+            assertTrue(accuracy > 0.9, "batch " + batchSize + " test accuracy " + accuracy);
+        }
+    }
+
+    private static void step(MLP mlp, DenseMatrix input, DenseMatrix target, DenseMatrix prediction) {
+        mlp.forwardInto(prediction, input);
+        mlp.calculateLoss(prediction, target);
+        mlp.backward(target);
+        mlp.updateWeights();
+    }
+}
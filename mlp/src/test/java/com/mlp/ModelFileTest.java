@@ -0,0 +1,104 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+class ModelFileTest {
+
+    private static final int[] SIZES = { 784, 128, 64, 10 };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void doubleHeapModelRoundTrips() throws IOException {
+        assertRoundTrips(model(Precision.DOUBLE, ParameterStore.heap()));
+    }
+
+    @Test
+    void doubleDirectModelRoundTrips() throws IOException {
+        try (ParameterStore store = ParameterStore.direct()) {
+            assertRoundTrips(model(Precision.DOUBLE, store));
+        }
+    }
+
+    @Test
+    void floatModelRoundTrips() throws IOException {
+        assertRoundTrips(model(Precision.FLOAT, ParameterStore.heap()));
+    }
+
+    @Test
+    void trainingAMappedModelLeavesTheFileUnchanged() throws IOException {
+        Path file = dir.resolve("train.mlpm");
+        ModelFile.save(model(Precision.DOUBLE, ParameterStore.heap()), file);
+        byte[] before = Files.readAllBytes(file);
+
+        MLP mapped = ModelFile.map(file, new SGDOptimizer(0.1));
+        DenseMatrix x = TestData.random(new Random(43), 64, SIZES[0]);
+        DenseMatrix y = new DenseMatrix(x.getRows(), 10);
+        for (int i = 0; i < x.getRows(); i++) {
+            y.set(i, i % 10, 1.0);
+        }
+        double first = mapped.calculateLoss(mapped.forward(x), y);
+        for (int step = 0; step < 20; step++) {
+            mapped.forward(x);
+            mapped.backward(y);
+            mapped.updateWeights();
+        }
+        double last = mapped.calculateLoss(mapped.forward(x), y);
+        assertTrue(last < first, "loss went from " + first + " to " + last);
+        assertArrayEquals(before, Files.readAllBytes(file));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = dir.resolve("truncated.mlpm");
+        ModelFile.save(model(Precision.DOUBLE, ParameterStore.heap()), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        assertThrows(IOException.class, () -> ModelFile.load(file, null));
+        assertThrows(IOException.class, () -> ModelFile.map(file, null));
+    }
+
+    @Test
+    void badMagicIsRejected() throws IOException {
+        Path file = dir.resolve("magic.mlpm");
+        ModelFile.save(model(Precision.DOUBLE, ParameterStore.heap()), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 'X' }), 0);
+        }
+        assertThrows(IOException.class, () -> ModelFile.load(file, null));
+        assertThrows(IOException.class, () -> ModelFile.map(file, null));
+    }
+
+    private void assertRoundTrips(MLP model) throws IOException {
+        Path file = dir.resolve("model.mlpm");
+        ModelFile.save(model, file);
+        double[][] x = TestData.random(new Random(43), 64, SIZES[0]).toArray();
+        double[][] expected = model.predict(x);
+        assertArrayEquals(expected, ModelFile.load(file, null).predict(x));
+        assertArrayEquals(expected, ModelFile.map(file, null).predict(x));
+    }
+
+    private static MLP model(Precision precision, ParameterStore store) {
+        return new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                precision, store, SIZES);
+    }
+}
@@ -0,0 +1,209 @@
+package com.mlp.Optimizer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.DenseMatrix;
+import com.mlp.FlatParameters;
+import com.mlp.Layer;
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+
+class OptimizerTest {
+
+    private static final int[] SIZES = { 784, 128, 64, 10 };
+    // Big enough that the parallel step splits into many chunks.
+    private static final int[] WIDE_SIZES = { 784, 256, 256, 10 };
+    private static final int[] THREADS = { 1, 2, 4 };
+    private static final int STEPS = 5;
+
+    @Test
+    void fusedSgdStepMatchesThePerLayerUpdate() {
+        assertMatchesThePerLayerUpdate(new SGDOptimizer(0.01), new Reference(Reference.SGD));
+    }
+
+    @Test
+    void fusedMomentumStepMatchesThePerLayerUpdate() {
+        assertMatchesThePerLayerUpdate(new MomentumOptimizer(0.01, 0.9), new Reference(Reference.MOMENTUM));
+    }
+
+    @Test
+    void fusedRmsPropStepMatchesThePerLayerUpdate() {
+        assertMatchesThePerLayerUpdate(new RMSPropOptimizer(0.001), new Reference(Reference.RMSPROP));
+    }
+
+    @Test
+    void fusedAdamStepMatchesThePerLayerUpdate() {
+        assertMatchesThePerLayerUpdate(new AdamOptimizer(0.001), new Reference(Reference.ADAM));
+    }
+
+    @Test
+    void parallelStepMatchesTheSerialStep() {
+        Map<String, Supplier<Optimizer>> optimizers = new LinkedHashMap<>();
+        optimizers.put("sgd", () -> new SGDOptimizer(0.01));
+        optimizers.put("momentum", () -> new MomentumOptimizer(0.01, 0.9));
+        optimizers.put("rmsprop", () -> new RMSPropOptimizer(0.001));
+        optimizers.put("adam", () -> new AdamOptimizer(0.001));
+        for (Map.Entry<String, Supplier<Optimizer>> entry : optimizers.entrySet()) {
+            MLP serial = wideModel(entry.getValue().get());
+            for (int step = 0; step < STEPS; step++) {
+                serial.getOptimizer().update(serial.getLayers(), null);
+            }
+            double[] expected = FlatParameters.of(serial.getLayers()).getValues();
+
+            for (int threads : THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    MLP model = wideModel(entry.getValue().get());
+                    for (int step = 0; step < STEPS; step++) {
+                        model.getOptimizer().update(model.getLayers(), pool);
+                    }
+                    assertArrayEquals(expected, FlatParameters.of(model.getLayers()).getValues(),
+                            entry.getKey() + " on " + threads + " threads");
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    // One optimizer stepping two models in turn must keep each model's state, as if each had its own optimizer.
+    // Adam is left out because its step count is shared by everything the optimizer updates.
+    @Test
+    void sharedOptimizerKeepsTheStateOfEachModel() {
+        Map<String, Supplier<Optimizer>> optimizers = new LinkedHashMap<>();
+        optimizers.put("momentum", () -> new MomentumOptimizer(0.01, 0.9));
+        optimizers.put("rmsprop", () -> new RMSPropOptimizer(0.001));
+        for (Map.Entry<String, Supplier<Optimizer>> entry : optimizers.entrySet()) {
+            MLP alone = wideModel(entry.getValue().get());
+            for (int step = 0; step < STEPS; step++) {
+                alone.getOptimizer().update(alone.getLayers(), null);
+            }
+
+            Optimizer shared = entry.getValue().get();
+            MLP first = wideModel(shared);
+            MLP second = wideModel(shared);
+            for (int step = 0; step < STEPS; step++) {
+                shared.update(first.getLayers(), null);
+                shared.update(second.getLayers(), null);
+            }
+            double[] expected = FlatParameters.of(alone.getLayers()).getValues();
+            assertArrayEquals(expected, FlatParameters.of(first.getLayers()).getValues(), entry.getKey() + " first");
+            assertArrayEquals(expected, FlatParameters.of(second.getLayers()).getValues(), entry.getKey() + " second");
+        }
+    }
+
+    private static void assertMatchesThePerLayerUpdate(Optimizer optimizer, Reference reference) {
+        MLP model = new MLP(optimizer, TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(), SIZES);
+        FlatParameters flat = FlatParameters.of(model.getLayers());
+        Random rand = new Random(59);
+        double[] g = flat.getGradients();
+        for (int i = 0; i < g.length; i++) {
+            g[i] = rand.nextGaussian() * 0.01;
+        }
+        List<Layer> layers = model.getLayers();
+        double[][] weights = new double[layers.size()][];
+        double[][] biases = new double[layers.size()][];
+        for (int l = 0; l < layers.size(); l++) {
+            weights[l] = layers.get(l).getWeights().copy().getData();
+            biases[l] = layers.get(l).getBiases().copy().getData();
+        }
+
+        for (int step = 0; step < STEPS; step++) {
+            model.updateWeights();
+            reference.update(layers, weights, biases);
+        }
+        for (int l = 0; l < layers.size(); l++) {
+            assertArrayEquals(weights[l], layers.get(l).getWeights().copy().getData(), "layer " + l + " weights");
+            assertArrayEquals(biases[l], layers.get(l).getBiases().copy().getData(), "layer " + l + " biases");
+        }
+    }
+
+    // Same seed for every model, so all start from the same weights and see the same gradients.
+    private static MLP wideModel(Optimizer optimizer) {
+        MLP model = new MLP(optimizer, TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                WIDE_SIZES);
+        FlatParameters flat = FlatParameters.of(model.getLayers());
+        Random rand = new Random(61);
+        double[] values = flat.getValues();
+        double[] g = flat.getGradients();
+        for (int i = 0; i < g.length; i++) {
+            values[i] = rand.nextGaussian() * 0.05;
+            g[i] = rand.nextGaussian() * 0.01;
+        }
+        return model;
+    }
+
+    // The layer-by-layer update as it was before parameters were packed: state looked up in maps keyed by layer on
+    // every step and Adam's bias corrections recomputed with Math.pow for every element.
+    private static final class Reference {
+        static final int SGD = 0;
+        static final int MOMENTUM = 1;
+        static final int RMSPROP = 2;
+        static final int ADAM = 3;
+
+        private final int kind;
+        private final Map<Layer, double[]> first = new HashMap<>();
+        private final Map<Layer, double[]> second = new HashMap<>();
+        private final Map<Layer, double[]> firstBias = new HashMap<>();
+        private final Map<Layer, double[]> secondBias = new HashMap<>();
+        private int t;
+
+        Reference(int kind) {
+            this.kind = kind;
+        }
+
+        void update(List<Layer> layers, double[][] weights, double[][] biases) {
+            t++;
+            for (int l = 0; l < layers.size(); l++) {
+                Layer layer = layers.get(l);
+                DenseMatrix dw = layer.getWeightsGradient();
+                DenseMatrix db = layer.getBiasGradient();
+                step(weights[l], dw.getData(), dw.getOffset(), state(first, layer, weights[l].length),
+                        state(second, layer, weights[l].length));
+                step(biases[l], db.getData(), db.getOffset(), state(firstBias, layer, biases[l].length),
+                        state(secondBias, layer, biases[l].length));
+            }
+        }
+
+        private void step(double[] p, double[] g, int go, double[] m, double[] v) {
+            for (int i = 0; i < p.length; i++) {
+                double grad = g[go + i];
+                switch (kind) {
+                    case SGD:
+                        p[i] -= 0.01 * grad;
+                        break;
+                    case MOMENTUM:
+                        m[i] = 0.9 * m[i] + 0.01 * grad;
+                        p[i] -= m[i];
+                        break;
+                    case RMSPROP:
+                        v[i] = 0.999 * v[i] + (1.0 - 0.999) * (grad * grad);
+                        p[i] -= 0.001 * grad / (Math.sqrt(v[i]) + 1e-8);
+                        break;
+                    default:
+                        m[i] = 0.9 * m[i] + (1.0 - 0.9) * grad;
+                        v[i] = 0.999 * v[i] + (1.0 - 0.999) * (grad * grad);
+                        double mCorr = m[i] / (1.0 - Math.pow(0.9, t));
+                        double vCorr = v[i] / (1.0 - Math.pow(0.999, t));
+                        p[i] -= 0.001 * mCorr / (Math.sqrt(vCorr) + 1e-8);
+                }
+            }
+        }
+
+        private static double[] state(Map<Layer, double[]> states, Layer layer, int size) {
+            return states.computeIfAbsent(layer, k -> new double[size]);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.AdamOptimizer;
+
+// Off-heap layers stream their parameters through on-heap windows; training must not notice where they live.
+class ParameterStoreTest {
+
+    private static final int[] SIZES = { 300, 200, 10 };
+    private static final int STEPS = 5;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void directStoreTrainsLikeTheHeap() throws IOException {
+        try (ParameterStore store = ParameterStore.direct()) {
+            assertTrainsLikeTheHeap(store);
+        }
+    }
+
+    @Test
+    void mappedStoreTrainsLikeTheHeap() throws IOException {
+        try (ParameterStore store = ParameterStore.mapped(dir.resolve("parameters.bin"))) {
+            assertTrainsLikeTheHeap(store);
+        }
+    }
+
+    private static void assertTrainsLikeTheHeap(ParameterStore store) {
+        MLP heap = model(ParameterStore.heap());
+        MLP offHeap = model(store);
+        TestData.initWeights(heap, 7);
+        TestData.initWeights(offHeap, 7);
+        assertTrue(offHeap.getLayers().get(0).isOffHeap());
+
+        Random rand = new Random(11);
+        DenseMatrix x = TestData.random(rand, 32, SIZES[0]);
+        DenseMatrix y = TestData.oneHot(rand, 32, SIZES[SIZES.length - 1]);
+        for (int step = 0; step < STEPS; step++) {
+            for (MLP mlp : new MLP[] { heap, offHeap }) {
+                mlp.forward(x);
+                mlp.backward(y);
+                mlp.updateWeights();
+            }
+        }
+        assertArrayEquals(heap.predict(x.toArray()), offHeap.predict(x.toArray()));
+    }
+
+    private static MLP model(ParameterStore store) {
+        return new MLP(new AdamOptimizer(0.001), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM, new ReLU(),
+                store, SIZES);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mlp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+class PrecisionTest {
+
+    private static final int TRAIN_SAMPLES = 3000;
+    private static final int TEST_SAMPLES = 1000;
+    private static final int EPOCHS = 3;
+    private static final int BATCH_SIZE = 32;
+    private static final double LEARNING_RATE = 0.05;
+    private static final double ACCURACY_TOLERANCE = 0.02;
+    private static final long SEED = 19;
+
+    @Test
+    void floatAccuracyIsWithinToleranceOfDouble() {
+        Random rand = new Random(17);
+        double[][] centers = TestData.classCenters(rand, 10, 784);
+        // Noisy enough that neither model gets every test sample right.
+        double[][][] train = TestData.syntheticClassification(rand, centers, TRAIN_SAMPLES, 0.9);
+        double[][][] test = TestData.syntheticClassification(rand, centers, TEST_SAMPLES, 0.9);
+
+        MLP doubleModel = model(Precision.DOUBLE);
+        MLP floatModel = model(Precision.FLOAT);
+        // Both models start from the same weights and see the samples in the same batches, so the gap reflects
+        // precision, not initialization or shuffling. (Per-sample SGD at this rate is chaotic enough that two runs of
+        // one precision end further apart than the two precisions do with batches.)
+        TestData.initWeights(doubleModel, SEED);
+        for (int i = 0; i < doubleModel.getLayers().size(); i++) {
+            Layer layer = doubleModel.getLayers().get(i);
+            floatModel.getFloatLayers().get(i).setWeights(FloatMatrix.of(layer.getWeights()));
+            floatModel.getFloatLayers().get(i).setBiases(FloatMatrix.of(layer.getBiases()));
+        }
+        doubleModel.setShuffleSeed(SEED);
+        floatModel.setShuffleSeed(SEED);
+        doubleModel.train(train[0], train[1], null, null, EPOCHS, 0, 0, BATCH_SIZE);
+        floatModel.train(train[0], train[1], null, null, EPOCHS, 0, 0, BATCH_SIZE);
+
+        double doubleAccuracy = TestData.accuracy(doubleModel, test[0], test[1]);
+        assertTrue(doubleAccuracy > 0.5, "the float64 model did not learn the task: " + doubleAccuracy);
+        assertEquals(doubleAccuracy, TestData.accuracy(floatModel, test[0], test[1]), ACCURACY_TOLERANCE);
+    }
+
+    private static MLP model(Precision precision) {
+        return new MLP(new SGDOptimizer(LEARNING_RATE), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), precision, 784, 128, 64, 10);
+    }
+}
@@ -0,0 +1,84 @@
+package com.mlp.Serving;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.MLP;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+class BatchingDispatcherTest {
+
+    private static final int ROUNDS = 50;
+    private static final int SUBMITTERS = 4;
+
+    // Submitters race close(): every future must still complete, either with a prediction or with the closed error,
+    // instead of being left in a queue nobody drains.
+    @Test
+    void requestsSubmittedWhileClosingAlwaysComplete() throws Exception {
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 16, 8, 4);
+        for (int round = 0; round < ROUNDS; round++) {
+            BatchingDispatcher dispatcher = new BatchingDispatcher(mlp.getInferenceSession(), 8, 1000);
+            List<CompletableFuture<double[]>> futures = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < SUBMITTERS; t++) {
+                Thread submitter = new Thread(() -> {
+                    List<CompletableFuture<double[]>> mine = new ArrayList<>();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        mine.add(dispatcher.submit(new double[16]));
+                    }
+                    synchronized (futures) {
+                        futures.addAll(mine);
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            start.countDown();
+            dispatcher.close();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            assertEquals(SUBMITTERS * 200, futures.size());
+            for (CompletableFuture<double[]> future : futures) {
+                try {
+                    assertEquals(4, future.get(5, TimeUnit.SECONDS).length);
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                } catch (TimeoutException e) {
+                    throw new AssertionError("A request submitted during close() was never completed.", e);
+                }
+            }
+        }
+    }
+
+    @Test
+    void submitAfterCloseFailsImmediately() {
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 16, 8, 4);
+        BatchingDispatcher dispatcher = new BatchingDispatcher(mlp.getInferenceSession(), 8, 1000);
+        dispatcher.close();
+        CompletableFuture<double[]> future = dispatcher.submit(new double[16]);
+        assertTrue(future.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,130 @@
+package com.mlp.Serving;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.mlp.MLP;
+import com.mlp.Main;
+import com.mlp.WeighInit;
+import com.mlp.ActivationFunction.ReLU;
+import com.mlp.LossFunction.TaskType;
+import com.mlp.Optimizer.SGDOptimizer;
+
+// A small load generator: concurrent clients post samples to servers with different batching policies, and every
+// response must carry the class MLP.predict gives for that sample, whichever batch it was served in.
+class InferenceServerTest {
+
+    private static final int CLIENTS = 16;
+    private static final int REQUESTS_PER_CLIENT = 50;
+    private static final int SAMPLES = 256;
+
+    @Test
+    void unbatchedServerAnswersEveryRequest() throws Exception {
+        assertAnswersEveryRequest(1, 0);
+    }
+
+    @Test
+    void smallBatchServerAnswersEveryRequest() throws Exception {
+        assertAnswersEveryRequest(16, 500);
+    }
+
+    @Test
+    void largeBatchServerAnswersEveryRequest() throws Exception {
+        assertAnswersEveryRequest(64, 2000);
+    }
+
+    @Test
+    void closedDispatcherAnswersServiceUnavailable() throws Exception {
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 4, 8, 3);
+        try (InferenceServer server = new InferenceServer(mlp, new InetSocketAddress("127.0.0.1", 0), 8, 100)
+                .start()) {
+            server.getDispatcher().close();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/predict"))
+                            .POST(HttpRequest.BodyPublishers.ofString("0.1,0.2,0.3,0.4")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, response.statusCode());
+            assertEquals("{\"error\":\"dispatcher closed\"}", response.body());
+        }
+    }
+
+    @Test
+    void responsesAreValidJson() throws Exception {
+        assertEquals("\"say \\\"hi\\\" \\\\ \\u000a\"", InferenceServer.jsonString("say \"hi\" \\ \n"));
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 4, 8, 3);
+        try (InferenceServer server = new InferenceServer(mlp, new InetSocketAddress("127.0.0.1", 0), 8, 100)
+                .start()) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/predict"))
+                            .POST(HttpRequest.BodyPublishers.ofString("NaN,0.2,0.3,0.4")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().endsWith("\"probabilities\":[null,null,null]}"), response.body());
+        }
+    }
+
+    private static void assertAnswersEveryRequest(int maxBatch, long maxWaitMicros) throws Exception {
+        MLP mlp = new MLP(new SGDOptimizer(0.01), TaskType.MULTICLASS_CLASSIFICATION, WeighInit.HE_UNIFORM,
+                new ReLU(), 784, 128, 64, 10);
+        Random rand = new Random(41);
+        String[] bodies = new String[SAMPLES];
+        int[] expected = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            double[] sample = new double[784];
+            StringBuilder body = new StringBuilder();
+            for (int j = 0; j < 784; j++) {
+                sample[j] = rand.nextInt(256) / 255.0;
+                body.append(j == 0 ? "" : ",").append(sample[j]);
+            }
+            bodies[i] = body.toString();
+            expected[i] = Main.findIndexOfMax(mlp.predict(sample));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        ExecutorService threads = Executors.newFixedThreadPool(CLIENTS);
+        try (InferenceServer server = new InferenceServer(mlp, new InetSocketAddress("127.0.0.1", 0), maxBatch,
+                maxWaitMicros).start()) {
+            URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/predict");
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                int first = c;
+                clients.add(threads.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        int sample = (first + r * CLIENTS) % SAMPLES;
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofString(bodies[sample])).build();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        assertEquals(200, response.statusCode(), "sample " + sample);
+                        assertTrue(response.body().startsWith("{\"class\":" + expected[sample] + ","),
+                                "sample " + sample + " answered " + response.body());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : clients) {
+                future.get();
+            }
+            LatencyRecorder.Snapshot snapshot = server.getDispatcher().getRecorder().snapshot();
+            assertEquals(CLIENTS * REQUESTS_PER_CLIENT, snapshot.requests);
+            assertTrue(snapshot.meanBatchSize() <= maxBatch, "mean batch " + snapshot.meanBatchSize());
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
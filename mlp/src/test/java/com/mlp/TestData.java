@@ -0,0 +1,104 @@
+package com.mlp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+final class TestData {
+
+    private TestData() {
+    }
+
+    static DenseMatrix random(Random rand, int rows, int cols) {
+        DenseMatrix m = new DenseMatrix(rows, cols);
+        double[] d = m.getData();
+        for (int i = 0; i < d.length; i++) {
+            d[i] = rand.nextDouble() * 2.0 - 1.0;
+        }
+        return m;
+    }
+
+    static DenseMatrix oneHot(Random rand, int rows, int classes) {
+        DenseMatrix m = new DenseMatrix(rows, classes);
+        for (int i = 0; i < rows; i++) {
+            m.set(i, rand.nextInt(classes), 1.0);
+        }
+        return m;
+    }
+
+    // Sparse random prototypes, one per class, for syntheticClassification.
+    static double[][] classCenters(Random rand, int classes, int features) {
+        double[][] centers = new double[classes][features];
+        for (double[] c : centers) {
+            for (int j = 0; j < features; j++) {
+                c[j] = rand.nextDouble() < 0.1 ? rand.nextDouble() : 0.0;
+            }
+        }
+        return centers;
+    }
+
+    // Returns { features, one-hot labels }: each sample is its class center plus Gaussian noise, clamped to [0, 1]
+    // like MNIST pixels.
+    static double[][][] syntheticClassification(Random rand, double[][] centers, int samples, double noise) {
+        double[][] x = new double[samples][centers[0].length];
+        double[][] y = new double[samples][centers.length];
+        for (int i = 0; i < samples; i++) {
+            int label = rand.nextInt(centers.length);
+            y[i][label] = 1.0;
+            for (int j = 0; j < x[i].length; j++) {
+                x[i][j] = Math.min(1.0, Math.max(0.0, centers[label][j] + rand.nextGaussian() * noise));
+            }
+        }
+        return new double[][][] { x, y };
+    }
+
+    // Layer initialization is seeded from the clock; tests that need a reproducible run set He-uniform weights from
+    // their own seed instead.
+    static void initWeights(MLP mlp, long seed) {
+        Random rand = new Random(seed);
+        for (Layer layer : mlp.getLayers()) {
+            double limit = Math.sqrt(6.0 / layer.getNumInputs());
+            DenseMatrix weights = random(rand, layer.getNumOutputs(), layer.getNumInputs());
+            double[] w = weights.getData();
+            for (int i = 0; i < w.length; i++) {
+                w[i] *= limit;
+            }
+            layer.setWeights(weights);
+            layer.setBiases(new DenseMatrix(1, layer.getNumOutputs()));
+        }
+    }
+
+    static double accuracy(MLP mlp, double[][] x, double[][] y) {
+        double[][] predictions = mlp.predict(x);
+        int correct = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (Main.findIndexOfMax(predictions[i]) == Main.findIndexOfMax(y[i])) {
+                correct++;
+            }
+        }
+        return (double) correct / x.length;
+    }
+
+    // Writes an MNIST-style CSV (header, then label and 784 integer pixels per row, three quarters of them 0).
+    static void writeMnistCsv(Path file, Random rand, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("label");
+            for (int j = 0; j < 784; j++) {
+                out.write(",pixel" + j);
+            }
+            out.write('\n');
+            StringBuilder row = new StringBuilder(4 * 785);
+            for (int i = 0; i < rows; i++) {
+                row.setLength(0);
+                row.append(rand.nextInt(10));
+                for (int j = 0; j < 784; j++) {
+                    row.append(',').append(rand.nextInt(4) == 0 ? 1 + rand.nextInt(255) : 0);
+                }
+                row.append('\n');
+                out.append(row);
+            }
+        }
+    }
+}